@@ -0,0 +1,140 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.benchmarks;
+
+import com.javaeeeee.SpringBootBookmarksApplication;
+import com.javaeeeee.components.BookmarksImporter;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * The application started against an embedded H2 database which is filled by
+ * the Flyway migrations and a number of generated bookmarks of the user Phil.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+@State(Scope.Benchmark)
+public class ApplicationState {
+
+    /**
+     * The name of the user whose bookmarks are used.
+     */
+    public static final String USERNAME = "Phil";
+    /**
+     * The password of the user.
+     */
+    public static final String PASSWORD = "1";
+
+    /**
+     * The number of generated bookmarks.
+     */
+    @Param("1000")
+    public int bookmarks;
+    /**
+     * Whether the second-level and query caches are enabled.
+     */
+    @Param({"true", "false"})
+    public boolean secondLevelCache;
+
+    /**
+     * The application context.
+     */
+    private ConfigurableApplicationContext context;
+
+    /**
+     * A method to start the application and add bookmarks.
+     *
+     * @throws Exception
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = start("--spring.jpa.properties.hibernate.cache"
+                + ".use_second_level_cache=" + secondLevelCache,
+                "--spring.jpa.properties.hibernate.cache"
+                + ".use_query_cache=" + secondLevelCache);
+        StringBuilder ndjson = new StringBuilder();
+        for (int i = 0; i < bookmarks; i++) {
+            ndjson.append("{\"url\":\"http://example.com/").append(i)
+                    .append("\",\"description\":\"Bookmark ").append(i)
+                    .append("\"}\n");
+        }
+        getBean(BookmarksImporter.class).importBookmarks(USERNAME,
+                new ByteArrayInputStream(
+                        ndjson.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * A method to stop the application.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * A method to start the application against an embedded H2 database.
+     *
+     * @param arguments further settings of the application.
+     * @return the application context.
+     */
+    public static ConfigurableApplicationContext start(String... arguments) {
+        String[] defaults = {"--spring.main.banner-mode=off",
+            "--server.port=0",
+            "--management.port=-1",
+            "--logging.level.root=WARN",
+            "--spring.datasource.url=jdbc:h2:mem:benchmarks;"
+            + "DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+            "--spring.datasource.driver-class-name=org.h2.Driver",
+            "--spring.datasource.username=sa",
+            "--spring.datasource.password=sa",
+            "--spring.jpa.hibernate.ddl-auto=none"};
+        String[] all = Arrays.copyOf(defaults,
+                defaults.length + arguments.length);
+        System.arraycopy(arguments, 0, all, defaults.length,
+                arguments.length);
+        // Command line arguments take precedence over application.properties.
+        return new SpringApplicationBuilder(
+                SpringBootBookmarksApplication.class).run(all);
+    }
+
+    /**
+     * A method to obtain a bean of the application.
+     *
+     * @param <T> the type of the bean.
+     * @param type the type of the bean.
+     * @return the bean.
+     */
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+}
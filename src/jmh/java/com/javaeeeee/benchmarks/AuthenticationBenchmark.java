@@ -0,0 +1,100 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.benchmarks;
+
+import com.javaeeeee.components.AuthenticationCache;
+import com.javaeeeee.components.JpaAuthenticationProvider;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+
+/**
+ * Benchmarks of the authentication of a request when the credentials are
+ * cached and when they are checked against the hash stored in the database.
+ * The time of each call is sampled, so the results include percentiles such
+ * as p0.99.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AuthenticationBenchmark {
+
+    /**
+     * The provider under test.
+     */
+    private JpaAuthenticationProvider provider;
+    /**
+     * The cache of successful authentications.
+     */
+    private AuthenticationCache cache;
+
+    /**
+     * A method to obtain the provider.
+     *
+     * @param application the running application.
+     */
+    @Setup(Level.Trial)
+    public void setUp(ApplicationState application) {
+        provider = application.getBean(JpaAuthenticationProvider.class);
+        cache = application.getBean(AuthenticationCache.class);
+    }
+
+    @Benchmark
+    public Authentication authenticateCached() {
+        return provider.authenticate(token());
+    }
+
+    @Benchmark
+    public Authentication authenticateUncached() {
+        cache.invalidate(ApplicationState.USERNAME);
+        return provider.authenticate(token());
+    }
+
+    /**
+     * A method to create an authentication request like the one created by
+     * the Basic Authentication filter.
+     *
+     * @return the authentication request.
+     */
+    private static Authentication token() {
+        return new UsernamePasswordAuthenticationToken(
+                ApplicationState.USERNAME, ApplicationState.PASSWORD);
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * A load test of the bookmark listing over HTTP by many concurrent clients
+ * while each statement waits for the database, which compares the pool of
+ * platform threads of Tomcat and the bulkheads with virtual threads. The
+ * virtual mode requires Java 21 or later, for example
+ * {@code mvn -P benchmarks verify -Djmh.args="ConcurrencyBenchmark"} run with
+ * JAVA_HOME pointing to a JDK 21.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(400)
+@State(Scope.Benchmark)
+public class ConcurrencyBenchmark {
+
+    /**
+     * Which threads handle requests, platform or virtual.
+     */
+    @Param({"platform", "virtual"})
+    public String threads;
+    /**
+     * Whether the database work is done by the bulkheads.
+     */
+    @Param({"true", "false"})
+    public boolean async;
+    /**
+     * The delay of each statement in milliseconds.
+     */
+    @Param("5")
+    public int latency;
+
+    /**
+     * The application context.
+     */
+    private ConfigurableApplicationContext context;
+    /**
+     * The address of the listing.
+     */
+    private URL url;
+    /**
+     * The value of the Authorization header.
+     */
+    private String authorization;
+
+    /**
+     * A method to start the application. The pools of the database, of
+     * Tomcat and of the bulkheads are sized alike, so that the threads are
+     * the only difference between the modes.
+     *
+     * @throws Exception
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = ApplicationState.start(
+                "--bookmarks.threads.virtual=" + threads.equals("virtual"),
+                "--bookmarks.async.enabled=" + async,
+                "--bookmarks.async.reads.threads=200",
+                "--bookmarks.async.reads.queue-capacity=1000",
+                "--server.tomcat.max-threads=200",
+                "--spring.datasource.tomcat.max-active=200",
+                "--spring.datasource.tomcat.jdbc-interceptors="
+                + LatencyInterceptor.class.getName()
+                + "(latency=" + latency + ")",
+                "--spring.jpa.properties.hibernate.cache"
+                + ".use_second_level_cache=false",
+                "--spring.jpa.properties.hibernate.cache"
+                + ".use_query_cache=false");
+        url = new URL("http://localhost:"
+                + context.getEnvironment().getProperty("local.server.port")
+                + "/" + ApplicationState.USERNAME + "/bookmarks?limit=10");
+        authorization = "Basic " + Base64.getEncoder().encodeToString(
+                (ApplicationState.USERNAME + ":" + ApplicationState.PASSWORD)
+                .getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * A method to stop the application.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int listBookmarks() throws IOException {
+        HttpURLConnection connection
+                = (HttpURLConnection) url.openConnection();
+        connection.setRequestProperty("Authorization", authorization);
+        int status = connection.getResponseCode();
+        // The body is read to the end, so that the connection is reused.
+        try (InputStream body = status < 400
+                ? connection.getInputStream() : connection.getErrorStream()) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            byte[] chunk = new byte[4096];
+            for (int n; body != null && (n = body.read(chunk)) != -1;) {
+                buffer.write(chunk, 0, n);
+            }
+        }
+        if (status != HttpURLConnection.HTTP_OK) {
+            throw new IllegalStateException("Unexpected status " + status);
+        }
+        return status;
+    }
+}
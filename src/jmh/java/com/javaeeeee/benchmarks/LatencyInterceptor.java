@@ -0,0 +1,71 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.benchmarks;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import org.apache.tomcat.jdbc.pool.ConnectionPool;
+import org.apache.tomcat.jdbc.pool.JdbcInterceptor;
+import org.apache.tomcat.jdbc.pool.PoolProperties.InterceptorProperty;
+import org.apache.tomcat.jdbc.pool.PooledConnection;
+
+/**
+ * A JDBC interceptor of the Tomcat pool which delays each statement, so that
+ * the embedded database is as slow as a remote one. The delay in milliseconds
+ * is set by the latency property, for example
+ * {@code LatencyInterceptor(latency=5)}.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+public class LatencyInterceptor extends JdbcInterceptor {
+
+    /**
+     * The delay of a statement in milliseconds.
+     */
+    private long latency;
+
+    @Override
+    public void setProperties(Map<String, InterceptorProperty> properties) {
+        super.setProperties(properties);
+        InterceptorProperty property = properties.get("latency");
+        if (property != null) {
+            latency = property.getValueAsLong(0);
+        }
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args)
+            throws Throwable {
+        if (method.getName().equals("createStatement")
+                || method.getName().equals("prepareStatement")
+                || method.getName().equals("prepareCall")) {
+            Thread.sleep(latency);
+        }
+        return super.invoke(proxy, method, args);
+    }
+
+    @Override
+    public void reset(ConnectionPool parent, PooledConnection con) {
+    }
+}
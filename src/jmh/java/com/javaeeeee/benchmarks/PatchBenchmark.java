@@ -0,0 +1,123 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.javaeeeee.components.BookmarkPatcher;
+import com.javaeeeee.components.BookmarkValidator;
+import com.javaeeeee.entities.Bookmark;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.beanutils.BeanUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+
+/**
+ * Benchmarks of applying the body of an edit request to a bookmark, the
+ * former way with a new mapper and BeanUtils and with the patcher. Run with
+ * -prof gc to compare the allocation per request, gc.alloc.rate.norm.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PatchBenchmark {
+
+    /**
+     * The body of an edit request.
+     */
+    private static final String JSON
+            = "{\"url\":\"http://time.com\",\"description\":\"News\"}";
+
+    /**
+     * The shared mapper.
+     */
+    private ObjectMapper mapper;
+    /**
+     * The validator of the patcher.
+     */
+    private LocalValidatorFactoryBean validator;
+    /**
+     * The patcher under test.
+     */
+    private BookmarkPatcher patcher;
+    /**
+     * The bookmark to patch.
+     */
+    private Bookmark bookmark;
+
+    /**
+     * A method to create the patcher and the bookmark.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        mapper = Jackson2ObjectMapperBuilder.json().build();
+        validator = new LocalValidatorFactoryBean();
+        validator.afterPropertiesSet();
+        patcher = new BookmarkPatcher(mapper, new BookmarkValidator(validator));
+        bookmark = new Bookmark("http://economist.com", "Cool reading");
+        bookmark.setId(1);
+    }
+
+    /**
+     * A method to close the validator.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        validator.destroy();
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public Bookmark beanUtils() throws Exception {
+        ObjectMapper requestMapper = new ObjectMapper();
+        Map<String, String> changeMap
+                = requestMapper.readValue(JSON, HashMap.class);
+        BeanUtils.populate(bookmark, changeMap);
+        return bookmark;
+    }
+
+    @Benchmark
+    public Bookmark patcher() throws Exception {
+        patcher.patch(bookmark, mapper.readTree(JSON));
+        return bookmark;
+    }
+}
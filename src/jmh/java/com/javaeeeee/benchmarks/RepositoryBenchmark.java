@@ -0,0 +1,109 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.benchmarks;
+
+import com.javaeeeee.dto.BookmarkView;
+import com.javaeeeee.dto.BookmarksSummary;
+import com.javaeeeee.entities.Bookmark;
+import com.javaeeeee.repositories.BookmarksRepository;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.PageRequest;
+
+/**
+ * Benchmarks of the bookmark finders against embedded H2 with and without
+ * the second-level cache.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RepositoryBenchmark {
+
+    /**
+     * The repository under test.
+     */
+    private BookmarksRepository repository;
+    /**
+     * The id of an existing bookmark.
+     */
+    private Integer bookmarkId;
+
+    /**
+     * A method to obtain the repository.
+     *
+     * @param application the running application.
+     */
+    @Setup(Level.Trial)
+    public void setUp(ApplicationState application) {
+        repository = application.getBean(BookmarksRepository.class);
+        bookmarkId = repository.findViewPageByUserUsername(
+                ApplicationState.USERNAME, 0, new PageRequest(0, 1))
+                .get(0).getId();
+    }
+
+    @Benchmark
+    public Set<Bookmark> findByUserUsername() {
+        return repository.findByUserUsername(ApplicationState.USERNAME);
+    }
+
+    @Benchmark
+    public List<BookmarkView> findViewsByUserUsername() {
+        return repository.findViewsByUserUsername(ApplicationState.USERNAME);
+    }
+
+    @Benchmark
+    public List<BookmarkView> findViewPage() {
+        return repository.findViewPageByUserUsername(
+                ApplicationState.USERNAME, 0, new PageRequest(0, 100));
+    }
+
+    @Benchmark
+    public Optional<Bookmark> findByIdAndUserUsername() {
+        return repository.findByIdAndUserUsername(bookmarkId,
+                ApplicationState.USERNAME);
+    }
+
+    @Benchmark
+    public BookmarksSummary summarizeByUserUsername() {
+        return repository.summarizeByUserUsername(ApplicationState.USERNAME);
+    }
+}
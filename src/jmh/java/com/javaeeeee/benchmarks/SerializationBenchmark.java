@@ -0,0 +1,177 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.benchmarks;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.javaeeeee.components.BookmarksProtobufHttpMessageConverter;
+import com.javaeeeee.components.JacksonBinaryHttpMessageConverter;
+import com.javaeeeee.entities.Bookmark;
+import com.javaeeeee.entities.User;
+import java.lang.reflect.Type;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.GenericHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+/**
+ * Benchmarks of the encoding and decoding of bookmark sets by the message
+ * converters of the formats offered to clients, with mappers configured like
+ * the ones used by the application. The size of the payload of each format
+ * is printed when a trial starts.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+
+    /**
+     * The type of the serialized value.
+     */
+    private static final Type BOOKMARKS
+            = new ParameterizedTypeReference<Set<Bookmark>>() {
+            }.getType();
+
+    /**
+     * The number of serialized bookmarks.
+     */
+    @Param({"10", "100", "1000"})
+    public int size;
+    /**
+     * The format under test.
+     */
+    @Param({"json", "smile", "cbor", "protobuf"})
+    public String format;
+
+    /**
+     * The converter of the format.
+     */
+    private GenericHttpMessageConverter<Object> converter;
+    /**
+     * The media type of the format.
+     */
+    private MediaType mediaType;
+    /**
+     * The bookmarks to serialize.
+     */
+    private Set<Bookmark> bookmarks;
+    /**
+     * The serialized bookmarks to deserialize.
+     */
+    private byte[] payload;
+
+    /**
+     * A method to create the converter, the bookmarks and their payload.
+     *
+     * @throws Exception
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        switch (format) {
+            case "json":
+                converter = new MappingJackson2HttpMessageConverter(
+                        Jackson2ObjectMapperBuilder.json().build());
+                mediaType = MediaType.APPLICATION_JSON;
+                break;
+            case "smile":
+                mediaType = MediaType.valueOf(
+                        JacksonBinaryHttpMessageConverter.SMILE_VALUE);
+                converter = binary(new SmileFactory(), mediaType);
+                break;
+            case "cbor":
+                mediaType = MediaType.valueOf(
+                        JacksonBinaryHttpMessageConverter.CBOR_VALUE);
+                converter = binary(new CBORFactory(), mediaType);
+                break;
+            default:
+                converter = new BookmarksProtobufHttpMessageConverter();
+                mediaType = BookmarksProtobufHttpMessageConverter.PROTOBUF;
+        }
+        User user = new User("Phil", "1");
+        bookmarks = new HashSet<>();
+        for (int i = 0; i < size; i++) {
+            Bookmark bookmark = new Bookmark("http://example.com/" + i,
+                    "Bookmark " + i);
+            bookmark.setId(i + 1);
+            user.addBookmark(bookmark);
+            bookmarks.add(bookmark);
+        }
+        payload = writeBookmarks();
+        System.out.printf("%n%s, %d bookmarks: %d bytes%n", format, size,
+                payload.length);
+    }
+
+    @Benchmark
+    public byte[] writeBookmarks() throws Exception {
+        MockHttpOutputMessage output = new MockHttpOutputMessage();
+        converter.write(bookmarks, BOOKMARKS, mediaType, output);
+        return output.getBodyAsBytes();
+    }
+
+    @Benchmark
+    public Object readBookmarks() throws Exception {
+        return converter.read(BOOKMARKS, null,
+                new MockHttpInputMessage(payload));
+    }
+
+    /**
+     * A method to create the converter of a binary format supported by
+     * Jackson.
+     *
+     * @param factory the factory of the format.
+     * @param mediaType the media type of the format.
+     * @return the converter.
+     */
+    private static GenericHttpMessageConverter<Object> binary(
+            JsonFactory factory, MediaType mediaType) {
+        ObjectMapper mapper = new ObjectMapper(factory);
+        Jackson2ObjectMapperBuilder.json().configure(mapper);
+        return new JacksonBinaryHttpMessageConverter(mapper, mediaType);
+    }
+}
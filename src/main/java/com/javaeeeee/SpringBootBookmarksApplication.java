@@ -1,9 +1,12 @@
 package com.javaeeeee;
 
+import com.javaeeeee.configuration.BookmarksProperties;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 
 @SpringBootApplication
+@EnableConfigurationProperties(BookmarksProperties.class)
 public class SpringBootBookmarksApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,194 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.components;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.javaeeeee.configuration.BookmarksProperties;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+/**
+ * A bounded cache of successful authentications which saves a database query
+ * per request. A digest of the credentials rather than the credentials
+ * themselves is kept for each user. The digest is salted with a random value
+ * generated at startup. Entries expire after a configurable time and are
+ * removed when a user is changed.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+@Component
+@ManagedResource(objectName = "com.javaeeeee:type=AuthenticationCache",
+        description = "Cache of successful authentications")
+public class AuthenticationCache {
+
+    /**
+     * Cached authentications keyed by username.
+     */
+    private final Cache<String, Entry> cache;
+    /**
+     * The salt of credential digests.
+     */
+    private final byte[] salt = new byte[16];
+    /**
+     * The number of successful lookups.
+     */
+    private final LongAdder hits = new LongAdder();
+    /**
+     * The number of unsuccessful lookups.
+     */
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * The constructor which allows to inject settings.
+     *
+     * @param properties Application settings.
+     */
+    @Autowired
+    public AuthenticationCache(BookmarksProperties properties) {
+        this(properties, Ticker.systemTicker());
+    }
+
+    /**
+     * The constructor which allows to replace the time source in tests.
+     *
+     * @param properties Application settings.
+     * @param ticker the time source.
+     */
+    AuthenticationCache(BookmarksProperties properties, Ticker ticker) {
+        BookmarksProperties.AuthCache settings = properties.getAuthCache();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(settings.getMaximumSize())
+                .expireAfterWrite(settings.getTimeToLive(), TimeUnit.SECONDS)
+                .ticker(ticker)
+                .build();
+        new SecureRandom().nextBytes(salt);
+    }
+
+    /**
+     * A method to look up a cached authentication.
+     *
+     * @param username the username.
+     * @param credentials the credentials provided by a client.
+     * @return the id of the user if the same credentials were successfully
+     * checked before, null otherwise.
+     */
+    public Integer getUserId(String username, String credentials) {
+        Entry entry = cache.getIfPresent(username);
+        if (entry != null && MessageDigest.isEqual(entry.digest,
+                digest(username, credentials))) {
+            hits.increment();
+            return entry.userId;
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * A method to remember a successful authentication.
+     *
+     * @param username the username.
+     * @param credentials the credentials provided by a client.
+     * @param userId the id of the user.
+     */
+    public void put(String username, String credentials, Integer userId) {
+        cache.put(username, new Entry(digest(username, credentials), userId));
+    }
+
+    /**
+     * A method to forget the authentication of a user, for example, when a
+     * password is changed.
+     *
+     * @param username the username.
+     */
+    @ManagedOperation(description = "Removes the entry of a user")
+    public void invalidate(String username) {
+        cache.invalidate(username);
+    }
+
+    @ManagedAttribute(description = "The number of successful lookups")
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    @ManagedAttribute(description = "The number of unsuccessful lookups")
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    @ManagedAttribute(description = "The approximate number of entries")
+    public long getSize() {
+        return cache.estimatedSize();
+    }
+
+    /**
+     * A method to calculate the salted digest of credentials.
+     *
+     * @param username the username.
+     * @param credentials the credentials.
+     * @return the digest.
+     */
+    private byte[] digest(String username, String credentials) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(salt);
+            digest.update(username.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            return digest.digest(
+                    credentials.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * A cached authentication.
+     */
+    private static class Entry {
+
+        /**
+         * The digest of the credentials.
+         */
+        private final byte[] digest;
+        /**
+         * The id of the user.
+         */
+        private final Integer userId;
+
+        Entry(byte[] digest, Integer userId) {
+            this.digest = digest;
+            this.userId = userId;
+        }
+    }
+}
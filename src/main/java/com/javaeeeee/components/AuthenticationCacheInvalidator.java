@@ -0,0 +1,124 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.components;
+
+import com.javaeeeee.entities.User;
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * This class removes cached authentications of users who were changed or
+ * deleted. It is registered as a Hibernate listener which is called after a
+ * transaction is committed.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+@Component
+public class AuthenticationCacheInvalidator implements
+        PostCommitUpdateEventListener, PostCommitDeleteEventListener {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The entity manager factory to register the listener with.
+     */
+    private final transient EntityManagerFactory entityManagerFactory;
+    /**
+     * The cache of successful authentications.
+     */
+    private final transient AuthenticationCache authenticationCache;
+
+    /**
+     * The constructor which allows to inject dependencies.
+     *
+     * @param entityManagerFactory The entity manager factory.
+     * @param authenticationCache The cache of successful authentications.
+     */
+    @Autowired
+    public AuthenticationCacheInvalidator(
+            EntityManagerFactory entityManagerFactory,
+            AuthenticationCache authenticationCache) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.authenticationCache = authenticationCache;
+    }
+
+    /**
+     * A method to register the listener with Hibernate.
+     */
+    @PostConstruct
+    public void register() {
+        EventListenerRegistry registry = entityManagerFactory
+                .unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, this);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, this);
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (event.getEntity() instanceof User) {
+            // The username might have been changed as well.
+            int index = event.getPersister().getEntityMetamodel()
+                    .getPropertyIndex("username");
+            if (event.getOldState() != null) {
+                authenticationCache
+                        .invalidate((String) event.getOldState()[index]);
+            }
+            authenticationCache
+                    .invalidate(((User) event.getEntity()).getUsername());
+        }
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof User) {
+            authenticationCache
+                    .invalidate(((User) event.getEntity()).getUsername());
+        }
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return User.class.equals(persister.getMappedClass());
+    }
+}
@@ -0,0 +1,408 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.components;
+
+import com.javaeeeee.dto.BookmarkOperation;
+import com.javaeeeee.dto.BookmarkOperationsResult;
+import com.javaeeeee.entities.Bookmark;
+import com.javaeeeee.entities.User;
+import com.javaeeeee.exception.InvalidRequestException;
+import com.javaeeeee.repositories.BookmarksRepository;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * This class applies a batch of changes of the bookmarks of a user, such as
+ * the edits made by a client while it was offline, in a single transaction.
+ * The operations are checked before anything is changed: the bookmarks to
+ * update or delete are loaded by one query and the new URLs are looked up in
+ * the unique index by another one, so that a missing bookmark or a duplicate
+ * URL is reported for the operation which caused it and nothing is changed.
+ * Then the operations are applied grouped by kind, deletions first so that
+ * the URLs of deleted bookmarks may be reused, and each group is flushed as
+ * one JDBC batch. The search index is updated by the listener of committed
+ * changes.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+@Component
+public class BookmarkOperationsProcessor {
+
+    /**
+     * The repository to load bookmarks.
+     */
+    private final BookmarksRepository bookmarksRepository;
+    /**
+     * The component to apply patches to bookmarks.
+     */
+    private final BookmarkPatcher bookmarkPatcher;
+    /**
+     * The shared entity manager.
+     */
+    private final EntityManager entityManager;
+    /**
+     * The template to run a batch in a transaction.
+     */
+    private final TransactionTemplate transactionTemplate;
+    /**
+     * The validator to check bookmarks before insertion.
+     */
+    private final BookmarkValidator bookmarkValidator;
+
+    /**
+     * The constructor which allows to inject dependencies.
+     *
+     * @param bookmarksRepository The repository to load bookmarks.
+     * @param bookmarkPatcher The component to apply patches to bookmarks.
+     * @param entityManager The shared entity manager.
+     * @param transactionManager The transaction manager.
+     * @param bookmarkValidator The component to check bookmarks.
+     */
+    @Autowired
+    public BookmarkOperationsProcessor(BookmarksRepository bookmarksRepository,
+            BookmarkPatcher bookmarkPatcher, EntityManager entityManager,
+            PlatformTransactionManager transactionManager,
+            BookmarkValidator bookmarkValidator) {
+        this.bookmarksRepository = bookmarksRepository;
+        this.bookmarkPatcher = bookmarkPatcher;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.bookmarkValidator = bookmarkValidator;
+    }
+
+    /**
+     * A method to apply a batch of operations to the bookmarks of a user.
+     * Either all operations are applied or none of them.
+     *
+     * @param userId the id of the owner of the bookmarks.
+     * @param operations the operations.
+     * @return the results of the operations in the order of the request.
+     */
+    public BookmarkOperationsResult execute(Integer userId,
+            List<BookmarkOperation> operations) {
+        List<Step> steps = new ArrayList<>(operations.size());
+        Set<Integer> ids = new HashSet<>();
+        for (BookmarkOperation operation : operations) {
+            Step step = check(operation);
+            if (!step.isFailed() && operation.getOp()
+                    != BookmarkOperation.Type.CREATE
+                    && !ids.add(operation.getId())) {
+                step.fail(HttpStatus.BAD_REQUEST, "The bookmark is changed by"
+                        + " another operation id = " + operation.getId());
+            }
+            steps.add(step);
+        }
+        if (!isFailed(steps)) {
+            transactionTemplate.execute(status -> {
+                if (prepare(userId, steps, ids)) {
+                    apply(userId, steps);
+                }
+                return null;
+            });
+        }
+
+        BookmarkOperationsResult result = new BookmarkOperationsResult();
+        boolean failed = isFailed(steps);
+        for (Step step : steps) {
+            if (step.isFailed()) {
+                result.add(step.status, step.getId(), step.message);
+            } else if (failed) {
+                result.add(HttpStatus.FAILED_DEPENDENCY, step.getId(),
+                        "Not applied because another operation failed.");
+            } else {
+                result.add(step.status, step.getId(), null);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * A method to check an operation without accessing the database.
+     *
+     * @param operation the operation.
+     * @return the step to apply the operation, failed if the operation is
+     * invalid.
+     */
+    private Step check(BookmarkOperation operation) {
+        Step step = new Step(operation);
+        if (operation == null || operation.getOp() == null) {
+            step.fail(HttpStatus.BAD_REQUEST, "op is required");
+        } else if (operation.getOp() == BookmarkOperation.Type.CREATE) {
+            step.status = HttpStatus.CREATED;
+            String error = operation.getBookmark() == null
+                    ? "bookmark is required"
+                    : bookmarkValidator.validate(operation.getBookmark());
+            if (error != null) {
+                step.fail(HttpStatus.BAD_REQUEST, error);
+            }
+        } else if (operation.getId() == null) {
+            step.fail(HttpStatus.BAD_REQUEST, "id is required");
+        } else if (operation.getOp() == BookmarkOperation.Type.UPDATE) {
+            step.status = HttpStatus.OK;
+            try {
+                step.changes = bookmarkPatcher.getChanges(
+                        operation.getPatch());
+            } catch (InvalidRequestException ex) {
+                step.fail(HttpStatus.BAD_REQUEST, ex.getMessage());
+            }
+        } else {
+            step.status = HttpStatus.NO_CONTENT;
+        }
+        return step;
+    }
+
+    /**
+     * A method to load the bookmarks to update or delete and to check that
+     * the new URLs are not bookmarked already. The URLs are checked in the
+     * order the operations are applied. An update may not take the URL of a
+     * bookmark updated in the same batch, because the updates are sent in
+     * one JDBC batch in an order which may differ from the order of the
+     * request.
+     *
+     * @param userId the id of the owner.
+     * @param steps the steps.
+     * @param ids the ids of the bookmarks to update or delete.
+     * @return true if the steps may be applied.
+     */
+    private boolean prepare(Integer userId, List<Step> steps,
+            Set<Integer> ids) {
+        Map<Integer, Bookmark> bookmarks = new HashMap<>();
+        if (!ids.isEmpty()) {
+            for (Bookmark bookmark : bookmarksRepository
+                    .findByUserIdAndIdIn(userId, ids)) {
+                bookmarks.put(bookmark.getId(), bookmark);
+            }
+        }
+        Set<Long> hashes = new HashSet<>();
+        for (Step step : steps) {
+            String url = step.getNewUrl();
+            if (url != null) {
+                hashes.add(Bookmark.hashUrl(url));
+            }
+        }
+        // The owners of the URLs, null for the bookmarks to create.
+        Map<Long, Integer> owners = new HashMap<>();
+        if (!hashes.isEmpty()) {
+            for (Object[] row : bookmarksRepository
+                    .findIdsByUserIdAndUrlHashIn(userId, hashes)) {
+                owners.put((Long) row[1], (Integer) row[0]);
+            }
+        }
+
+        for (Step step : steps) {
+            if (step.operation.getOp() == BookmarkOperation.Type.DELETE
+                    && step.load(bookmarks)) {
+                owners.remove(step.bookmark.getUrlHash(),
+                        step.bookmark.getId());
+            }
+        }
+        Set<Long> freed = new HashSet<>();
+        for (Step step : steps) {
+            if (step.operation.getOp() == BookmarkOperation.Type.UPDATE
+                    && step.load(bookmarks) && step.getNewUrl() != null) {
+                long hash = Bookmark.hashUrl(step.getNewUrl());
+                if (hash != step.bookmark.getUrlHash()) {
+                    if (owners.remove(step.bookmark.getUrlHash(),
+                            step.bookmark.getId())) {
+                        freed.add(step.bookmark.getUrlHash());
+                    }
+                    if (freed.contains(hash)) {
+                        step.fail(HttpStatus.CONFLICT, "The URL is taken"
+                                + " from another bookmark of the batch,"
+                                + " change it in a separate batch.");
+                    } else {
+                        take(owners, hash, step);
+                    }
+                }
+            }
+        }
+        for (Step step : steps) {
+            if (step.operation.getOp() == BookmarkOperation.Type.CREATE) {
+                take(owners, Bookmark.hashUrl(step.getNewUrl()), step);
+            }
+        }
+        return !isFailed(steps);
+    }
+
+    /**
+     * A method to register the URL of a bookmark to create or to update.
+     *
+     * @param owners the owners of the URLs keyed by URL hash.
+     * @param hash the hash of the URL.
+     * @param step the step which creates or updates the bookmark.
+     */
+    private static void take(Map<Long, Integer> owners, long hash,
+            Step step) {
+        if (!owners.containsKey(hash)) {
+            owners.put(hash, step.getId());
+            return;
+        }
+        Integer owner = owners.get(hash);
+        step.fail(HttpStatus.CONFLICT, owner == null
+                ? "The URL is added by another operation."
+                : "The URL is bookmarked already id = " + owner);
+    }
+
+    /**
+     * A method to apply the checked steps: the deletions, the updates and the
+     * insertions are flushed one after another, so that each kind of
+     * statement is sent as a JDBC batch.
+     *
+     * @param userId the id of the owner.
+     * @param steps the steps.
+     */
+    private void apply(Integer userId, List<Step> steps) {
+        for (Step step : steps) {
+            if (step.operation.getOp() == BookmarkOperation.Type.DELETE) {
+                entityManager.remove(step.bookmark);
+            }
+        }
+        entityManager.flush();
+        for (Step step : steps) {
+            if (step.operation.getOp() == BookmarkOperation.Type.UPDATE) {
+                bookmarkPatcher.apply(step.bookmark, step.changes);
+            }
+        }
+        entityManager.flush();
+        User owner = entityManager.getReference(User.class, userId);
+        for (Step step : steps) {
+            if (step.operation.getOp() == BookmarkOperation.Type.CREATE) {
+                step.bookmark = step.operation.getBookmark();
+                step.bookmark.setId(null);
+                step.bookmark.setUser(owner);
+                entityManager.persist(step.bookmark);
+            }
+        }
+        entityManager.flush();
+    }
+
+    /**
+     * A method to find out if a step failed.
+     *
+     * @param steps the steps.
+     * @return true if any of the steps failed.
+     */
+    private static boolean isFailed(List<Step> steps) {
+        for (Step step : steps) {
+            if (step.isFailed()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The state of an operation of a batch.
+     */
+    private static class Step {
+
+        /**
+         * The operation.
+         */
+        private final BookmarkOperation operation;
+        /**
+         * The validated changes of an update.
+         */
+        private Map<String, Object> changes;
+        /**
+         * The bookmark to change, null until it is loaded or created.
+         */
+        private Bookmark bookmark;
+        /**
+         * The status of the operation.
+         */
+        private HttpStatus status;
+        /**
+         * The reason of a failure, null if the operation didn't fail.
+         */
+        private String message;
+
+        Step(BookmarkOperation operation) {
+            this.operation = operation;
+        }
+
+        void fail(HttpStatus status, String message) {
+            this.status = status;
+            this.message = message;
+        }
+
+        boolean isFailed() {
+            return message != null;
+        }
+
+        /**
+         * A method to obtain the id of the bookmark: the id of a created
+         * bookmark once it is inserted, otherwise the requested id.
+         *
+         * @return the id or null.
+         */
+        Integer getId() {
+            if (bookmark != null) {
+                return bookmark.getId();
+            }
+            return operation == null
+                    || operation.getOp() == BookmarkOperation.Type.CREATE
+                    ? null : operation.getId();
+        }
+
+        /**
+         * A method to obtain the URL of a bookmark to create or the new URL
+         * of a bookmark to update.
+         *
+         * @return the URL or null if the URL isn't set or changed.
+         */
+        String getNewUrl() {
+            if (operation.getOp() == BookmarkOperation.Type.CREATE) {
+                return operation.getBookmark().getUrl();
+            }
+            return changes == null ? null : (String) changes.get("url");
+        }
+
+        /**
+         * A method to find the bookmark to update or delete among the loaded
+         * bookmarks.
+         *
+         * @param bookmarks the loaded bookmarks keyed by id.
+         * @return true if the bookmark is found, otherwise the step fails.
+         */
+        boolean load(Map<Integer, Bookmark> bookmarks) {
+            bookmark = bookmarks.get(operation.getId());
+            if (bookmark == null) {
+                fail(HttpStatus.NOT_FOUND,
+                        "Bookmark not found id = " + operation.getId());
+            }
+            return bookmark != null;
+        }
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.components;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.javaeeeee.entities.Bookmark;
+import com.javaeeeee.exception.InvalidRequestException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import javax.persistence.Id;
+import javax.persistence.Version;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+/**
+ * A component which applies JSON Merge Patch documents (RFC 7396) to
+ * bookmarks. The setters of the properties which can be changed are looked up
+ * once, when the component is created, so applying a patch doesn't involve
+ * reflection. A member with a null value clears a property, members which are
+ * not properties or can't be changed, like the id, are ignored. The new values
+ * are validated before any property is changed, so an invalid patch leaves a
+ * bookmark as it was.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+@Component
+public class BookmarkPatcher {
+
+    /**
+     * The media type of JSON Merge Patch documents.
+     */
+    public static final String MERGE_PATCH_VALUE
+            = "application/merge-patch+json";
+
+    /**
+     * The properties which can be changed keyed by name.
+     */
+    private final Map<String, Property> properties;
+    /**
+     * The mapper used to convert values which are not strings.
+     */
+    private final ObjectMapper mapper;
+    /**
+     * The validator to check new values.
+     */
+    private final BookmarkValidator bookmarkValidator;
+
+    /**
+     * The constructor which allows to inject dependencies.
+     *
+     * @param mapper The application object mapper.
+     * @param bookmarkValidator The component to check bookmarks.
+     */
+    @Autowired
+    public BookmarkPatcher(ObjectMapper mapper,
+            BookmarkValidator bookmarkValidator) {
+        this.mapper = mapper;
+        this.bookmarkValidator = bookmarkValidator;
+        this.properties = findProperties();
+    }
+
+    /**
+     * A method to apply a patch to a bookmark.
+     *
+     * @param bookmark the bookmark to change.
+     * @param patch the JSON Merge Patch document.
+     * @throws InvalidRequestException if the patch is not an object, a value
+     * has a wrong type or the patched bookmark would be invalid.
+     */
+    public void patch(Bookmark bookmark, JsonNode patch)
+            throws InvalidRequestException {
+        apply(bookmark, getChanges(patch));
+    }
+
+    /**
+     * A method to change the properties of a bookmark to the values obtained
+     * by getChanges.
+     *
+     * @param bookmark the bookmark to change.
+     * @param changes the new values keyed by property name.
+     */
+    public void apply(Bookmark bookmark, Map<String, Object> changes) {
+        for (Map.Entry<String, Object> entry : changes.entrySet()) {
+            properties.get(entry.getKey()).set(bookmark, entry.getValue());
+        }
+    }
+
+    /**
+     * A method to obtain the validated new values of the properties changed
+     * by a patch, for example to change a bookmark without loading it.
+     *
+     * @param patch the JSON Merge Patch document.
+     * @return the new values, which may be null, keyed by property name.
+     * @throws InvalidRequestException if the patch is not an object, a value
+     * has a wrong type or the patched bookmark would be invalid.
+     */
+    public Map<String, Object> getChanges(JsonNode patch)
+            throws InvalidRequestException {
+        if (patch == null || !patch.isObject()) {
+            throw new InvalidRequestException(
+                    "A patch should be a JSON object.");
+        }
+        Map<String, Object> values = new HashMap<>();
+        Iterator<Map.Entry<String, JsonNode>> fields = patch.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            Property property = properties.get(field.getKey());
+            if (property != null) {
+                Object value = convert(property, field.getValue());
+                validate(property, value);
+                values.put(property.name, value);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * A method to convert a JSON value to the type of a property.
+     *
+     * @param property the property.
+     * @param node the value.
+     * @return the converted value.
+     * @throws InvalidRequestException if the value can't be converted.
+     */
+    private Object convert(Property property, JsonNode node)
+            throws InvalidRequestException {
+        if (node.isNull()) {
+            return null;
+        }
+        if (property.type == String.class && node.isTextual()) {
+            return node.textValue();
+        }
+        try {
+            return mapper.treeToValue(node, property.type);
+        } catch (JsonProcessingException ex) {
+            throw new InvalidRequestException(
+                    "Invalid value of " + property.name + ".", ex);
+        }
+    }
+
+    /**
+     * A method to check a new value of a property against the constraints of
+     * the bookmark.
+     *
+     * @param property the property.
+     * @param value the new value.
+     * @throws InvalidRequestException if the value violates a constraint.
+     */
+    private void validate(Property property, Object value)
+            throws InvalidRequestException {
+        String error = bookmarkValidator.validateValue(property.name, value);
+        if (error != null) {
+            throw new InvalidRequestException(error);
+        }
+    }
+
+    /**
+     * A method to find the properties which can be changed by a patch: the
+     * fields of a bookmark which have a public setter and are neither
+     * generated nor hidden from clients.
+     *
+     * @return the properties keyed by name.
+     */
+    private static Map<String, Property> findProperties() {
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        Map<String, Property> result = new HashMap<>();
+        for (Field field : Bookmark.class.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers())
+                    || field.isAnnotationPresent(Id.class)
+                    || field.isAnnotationPresent(Version.class)
+                    || field.isAnnotationPresent(JsonIgnore.class)) {
+                continue;
+            }
+            MethodHandle setter;
+            try {
+                setter = lookup.findVirtual(Bookmark.class,
+                        "set" + StringUtils.capitalize(field.getName()),
+                        MethodType.methodType(void.class, field.getType()));
+            } catch (NoSuchMethodException | IllegalAccessException ex) {
+                continue;
+            }
+            result.put(field.getName(), new Property(field.getName(),
+                    field.getType(), setter.asType(MethodType.methodType(
+                            void.class, Bookmark.class, Object.class))));
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * A property of a bookmark which can be changed by a patch.
+     */
+    private static class Property {
+
+        /**
+         * The name of the property.
+         */
+        private final String name;
+        /**
+         * The type of the property.
+         */
+        private final Class<?> type;
+        /**
+         * The setter of the property which accepts a bookmark and an object.
+         */
+        private final MethodHandle setter;
+
+        Property(String name, Class<?> type, MethodHandle setter) {
+            this.name = name;
+            this.type = type;
+            this.setter = setter;
+        }
+
+        /**
+         * A method to set the property of a bookmark.
+         *
+         * @param bookmark the bookmark.
+         * @param value the new value.
+         */
+        void set(Bookmark bookmark, Object value) {
+            try {
+                setter.invokeExact(bookmark, value);
+            } catch (RuntimeException | Error ex) {
+                throw ex;
+            } catch (Throwable ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.components;
+
+import com.javaeeeee.entities.Bookmark;
+import java.util.Set;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * A component which checks bookmarks sent by clients against the bean
+ * validation constraints and turns the first violation into a message.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+@Component
+public class BookmarkValidator {
+
+    /**
+     * The bean validator.
+     */
+    private final Validator validator;
+
+    /**
+     * The constructor which allows to inject the validator.
+     *
+     * @param validator The application validator.
+     */
+    @Autowired
+    public BookmarkValidator(Validator validator) {
+        this.validator = validator;
+    }
+
+    /**
+     * A method to check a new bookmark. The owner isn't checked, because it
+     * is set during the insertion.
+     *
+     * @param bookmark the bookmark to check.
+     * @return the error message or null if the bookmark is valid.
+     */
+    public String validate(Bookmark bookmark) {
+        Set<ConstraintViolation<Bookmark>> violations
+                = validator.validate(bookmark);
+        for (ConstraintViolation<Bookmark> violation : violations) {
+            if (!"user".equals(violation.getPropertyPath().toString())) {
+                return violation.getPropertyPath() + " "
+                        + violation.getMessage();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A method to check a new value of a property of a bookmark.
+     *
+     * @param property the name of the property.
+     * @param value the new value.
+     * @return the error message or null if the value is valid.
+     */
+    public String validateValue(String property, Object value) {
+        Set<ConstraintViolation<Bookmark>> violations
+                = validator.validateValue(Bookmark.class, property, value);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return property + " " + violations.iterator().next().getMessage();
+    }
+}
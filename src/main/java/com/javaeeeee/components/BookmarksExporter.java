@@ -0,0 +1,116 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.components;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.javaeeeee.configuration.BookmarksProperties;
+import com.javaeeeee.dto.BookmarkView;
+import com.javaeeeee.repositories.BookmarksRepository;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * This class writes all bookmarks of a user as newline-delimited JSON. The
+ * bookmarks are read through a database cursor and written one by one, so the
+ * memory used doesn't depend on the number of bookmarks a user has.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+@Component
+public class BookmarksExporter {
+
+    /**
+     * The media type of newline-delimited JSON.
+     */
+    public static final String NDJSON_VALUE = "application/x-ndjson";
+
+    /**
+     * The repository to work with bookmarks.
+     */
+    private final BookmarksRepository bookmarksRepository;
+    /**
+     * The writer used to serialize bookmarks without flushing after each of
+     * them.
+     */
+    private final ObjectWriter writer;
+    /**
+     * Application settings.
+     */
+    private final BookmarksProperties properties;
+
+    /**
+     * The constructor which allows to inject dependencies.
+     *
+     * @param bookmarksRepository The repository to work with bookmarks.
+     * @param mapper The application object mapper.
+     * @param properties Application settings.
+     */
+    @Autowired
+    public BookmarksExporter(BookmarksRepository bookmarksRepository,
+            ObjectMapper mapper, BookmarksProperties properties) {
+        this.bookmarksRepository = bookmarksRepository;
+        this.writer = mapper.writerFor(BookmarkView.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.properties = properties;
+    }
+
+    /**
+     * A method to write bookmarks of a user to a stream, one JSON object per
+     * line. The stream is not closed.
+     *
+     * @param username the name of a user whose bookmarks are exported.
+     * @param out the stream to write bookmarks to.
+     * @return the number of exported bookmarks.
+     * @throws IOException if bookmarks can't be written.
+     */
+    @Transactional(readOnly = true)
+    public int export(String username, OutputStream out) throws IOException {
+        int flushInterval = properties.getExport().getFlushInterval();
+        int count = 0;
+        JsonGenerator generator = writer.getFactory().createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        try (Stream<BookmarkView> bookmarks
+                = bookmarksRepository.streamViewsByUserUsername(username)) {
+            Iterator<BookmarkView> iterator = bookmarks.iterator();
+            while (iterator.hasNext()) {
+                writer.writeValue(generator, iterator.next());
+                generator.writeRaw('\n');
+                if (++count % flushInterval == 0) {
+                    generator.flush();
+                }
+            }
+        } finally {
+            generator.close();
+        }
+        return count;
+    }
+}
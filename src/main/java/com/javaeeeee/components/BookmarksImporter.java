@@ -0,0 +1,233 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.components;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.javaeeeee.configuration.BookmarksProperties;
+import com.javaeeeee.dto.BulkImportResult;
+import com.javaeeeee.entities.Bookmark;
+import com.javaeeeee.entities.User;
+import com.javaeeeee.exception.UserNotFoundException;
+import com.javaeeeee.repositories.BookmarksRepository;
+import com.javaeeeee.repositories.UsersRepository;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import javax.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * This class imports bookmarks of a user from a JSON array or from
+ * newline-delimited JSON. Bookmarks are read one by one and inserted in
+ * batches, each batch in its own transaction, so a failure of one item doesn't
+ * abort the import. The URL hashes of the bookmarks of the user are read once,
+ * so that duplicate URLs are skipped in memory rather than rejected by the
+ * unique index, which would make the batch be retried item by item.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+@Component
+public class BookmarksImporter {
+
+    /**
+     * The repository to work with users.
+     */
+    private final UsersRepository usersRepository;
+    /**
+     * The repository to read the URL hashes of bookmarks.
+     */
+    private final BookmarksRepository bookmarksRepository;
+    /**
+     * The shared entity manager.
+     */
+    private final EntityManager entityManager;
+    /**
+     * The template to run each batch in a transaction.
+     */
+    private final TransactionTemplate transactionTemplate;
+    /**
+     * The reader used to parse bookmarks.
+     */
+    private final ObjectReader reader;
+    /**
+     * The validator to check bookmarks before insertion.
+     */
+    private final BookmarkValidator bookmarkValidator;
+    /**
+     * Application settings.
+     */
+    private final BookmarksProperties properties;
+
+    /**
+     * The constructor which allows to inject dependencies.
+     *
+     * @param usersRepository The repository to work with users.
+     * @param bookmarksRepository The repository to work with bookmarks.
+     * @param entityManager The shared entity manager.
+     * @param transactionManager The transaction manager.
+     * @param mapper The application object mapper.
+     * @param properties Application settings.
+     * @param bookmarkValidator The component to check bookmarks.
+     */
+    @Autowired
+    public BookmarksImporter(UsersRepository usersRepository,
+            BookmarksRepository bookmarksRepository,
+            EntityManager entityManager,
+            PlatformTransactionManager transactionManager,
+            ObjectMapper mapper, BookmarksProperties properties,
+            BookmarkValidator bookmarkValidator) {
+        this.usersRepository = usersRepository;
+        this.bookmarksRepository = bookmarksRepository;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.reader = mapper.readerFor(Bookmark.class);
+        this.properties = properties;
+        this.bookmarkValidator = bookmarkValidator;
+    }
+
+    /**
+     * A method to import bookmarks of a user. The input is either a JSON array
+     * of bookmarks or bookmarks separated by whitespace, for example one per
+     * line.
+     *
+     * @param username the name of a user who owns the bookmarks.
+     * @param in the stream to read bookmarks from.
+     * @return the number of imported bookmarks and errors.
+     * @throws UserNotFoundException thrown if user doesn't exist.
+     * @throws IOException if the input can't be read.
+     */
+    public BulkImportResult importBookmarks(String username, InputStream in)
+            throws UserNotFoundException, IOException {
+        Integer userId = usersRepository.findIdByUsername(username);
+        if (userId == null) {
+            throw new UserNotFoundException(username);
+        }
+        int batchSize = properties.getImport().getBatchSize();
+        BulkImportResult result = new BulkImportResult();
+        Map<Integer, Bookmark> batch = new TreeMap<>();
+        Set<Long> urlHashes = new HashSet<>(
+                bookmarksRepository.findUrlHashesByUserId(userId));
+
+        try (MappingIterator<Bookmark> iterator = reader.readValues(in)) {
+            int index = 0;
+            while (iterator.hasNextValue()) {
+                try {
+                    Bookmark bookmark = iterator.nextValue();
+                    String error = bookmarkValidator.validate(bookmark);
+                    if (error == null && !urlHashes.add(
+                            Bookmark.hashUrl(bookmark.getUrl()))) {
+                        error = "url is bookmarked already";
+                    }
+                    if (error == null) {
+                        batch.put(index, bookmark);
+                    } else {
+                        result.addError(index, error);
+                    }
+                } catch (JsonMappingException e) {
+                    result.addError(index, e.getOriginalMessage());
+                }
+                index++;
+                if (batch.size() == batchSize) {
+                    insert(userId, batch, urlHashes, result);
+                    batch.clear();
+                }
+            }
+        } catch (JsonProcessingException e) {
+            throw new HttpMessageNotReadableException(
+                    "Could not read bookmarks: " + e.getOriginalMessage(), e);
+        }
+        if (!batch.isEmpty()) {
+            insert(userId, batch, urlHashes, result);
+        }
+        return result;
+    }
+
+    /**
+     * A method to insert a batch of bookmarks in one transaction. If the
+     * transaction fails the bookmarks are inserted one by one to find out
+     * which of them caused the failure. The URL of a bookmark which couldn't
+     * be inserted is forgotten, so that a later bookmark with it isn't taken
+     * for a duplicate.
+     *
+     * @param userId the id of the owner.
+     * @param batch bookmarks keyed by their positions in the request.
+     * @param urlHashes the hashes of the URLs bookmarked by the user.
+     * @param result the result to register inserted bookmarks and errors.
+     */
+    private void insert(Integer userId, Map<Integer, Bookmark> batch,
+            Set<Long> urlHashes, BulkImportResult result) {
+        try {
+            persist(userId, batch.values());
+            result.addImported(batch.size());
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                Map.Entry<Integer, Bookmark> entry
+                        = batch.entrySet().iterator().next();
+                urlHashes.remove(Bookmark.hashUrl(entry.getValue().getUrl()));
+                result.addError(entry.getKey(), e.getMessage());
+                return;
+            }
+            for (Map.Entry<Integer, Bookmark> entry : batch.entrySet()) {
+                insert(userId, Collections.singletonMap(entry.getKey(),
+                        entry.getValue()), urlHashes, result);
+            }
+        }
+    }
+
+    /**
+     * A method to persist bookmarks in a new transaction. The persistence
+     * context is flushed and cleared at the end, so that the statements are
+     * sent as one JDBC batch and the bookmarks don't stay in memory. Ids sent
+     * by a client are ignored.
+     *
+     * @param userId the id of the owner.
+     * @param bookmarks bookmarks to persist.
+     */
+    private void persist(Integer userId, Collection<Bookmark> bookmarks) {
+        transactionTemplate.execute(status -> {
+            User owner = entityManager.getReference(User.class, userId);
+            for (Bookmark bookmark : bookmarks) {
+                bookmark.setId(null);
+                bookmark.setUser(owner);
+                entityManager.persist(bookmark);
+            }
+            entityManager.flush();
+            entityManager.clear();
+            return null;
+        });
+    }
+}
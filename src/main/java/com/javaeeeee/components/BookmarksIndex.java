@@ -0,0 +1,345 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.components;
+
+import com.javaeeeee.configuration.BookmarksProperties;
+import com.javaeeeee.dto.SearchHit;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PreDestroy;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.miscellaneous.PerFieldAnalyzerWrapper;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.analysis.util.CharTokenizer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.simple.SimpleQueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * A Lucene index of the URLs and descriptions of bookmarks which is used for
+ * full-text search. Changes become visible to the next search and are
+ * committed to the directory periodically. URLs are split into words at any
+ * character which is neither a letter nor a digit, so that a search for
+ * "economist" finds "http://economist.com".
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+@Component
+public class BookmarksIndex {
+
+    private static final Logger LOGGER
+            = LoggerFactory.getLogger(BookmarksIndex.class);
+
+    /**
+     * The field of the bookmark id.
+     */
+    static final String ID = "id";
+    /**
+     * The field of the id of the owner.
+     */
+    static final String USER = "user";
+    /**
+     * The field of the URL.
+     */
+    static final String URL = "url";
+    /**
+     * The field of the description.
+     */
+    static final String DESCRIPTION = "description";
+
+    /**
+     * The directory which stores the index.
+     */
+    private final Directory directory;
+    /**
+     * The analyzer of the indexed fields and queries.
+     */
+    private final Analyzer analyzer;
+    /**
+     * The writer of the index.
+     */
+    private final IndexWriter writer;
+    /**
+     * The manager of the searchers which see the latest changes.
+     */
+    private final SearcherManager searcherManager;
+    /**
+     * The thread which commits the index.
+     */
+    private final ScheduledExecutorService committer;
+
+    /**
+     * The constructor which opens the index.
+     *
+     * @param properties Application settings.
+     * @throws IOException if the index can't be opened.
+     */
+    @Autowired
+    public BookmarksIndex(BookmarksProperties properties) throws IOException {
+        BookmarksProperties.Search search = properties.getSearch();
+        this.directory = search.getDirectory().isEmpty()
+                ? new ByteBuffersDirectory()
+                : FSDirectory.open(Paths.get(search.getDirectory()));
+        Map<String, Analyzer> analyzers = new HashMap<>();
+        analyzers.put(URL, new UrlAnalyzer());
+        this.analyzer = new PerFieldAnalyzerWrapper(new StandardAnalyzer(),
+                analyzers);
+        this.writer = new IndexWriter(directory,
+                new IndexWriterConfig(analyzer)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND));
+        this.searcherManager = new SearcherManager(writer, null);
+        this.committer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "bookmarks-index-committer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        committer.scheduleWithFixedDelay(this::commit,
+                search.getCommitInterval(), search.getCommitInterval(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * A method to add a bookmark to the index or replace it.
+     *
+     * @param id the id of the bookmark.
+     * @param userId the id of the owner.
+     * @param url the URL.
+     * @param description the description, may be null.
+     */
+    public void index(int id, int userId, String url, String description) {
+        Document document = new Document();
+        document.add(new StringField(ID, Integer.toString(id),
+                Field.Store.YES));
+        document.add(new StringField(USER, Integer.toString(userId),
+                Field.Store.NO));
+        document.add(new TextField(URL, url, Field.Store.YES));
+        if (description != null) {
+            document.add(new TextField(DESCRIPTION, description,
+                    Field.Store.YES));
+        }
+        try {
+            writer.updateDocument(new Term(ID, Integer.toString(id)),
+                    document);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * A method to change the URL or the description of an indexed bookmark
+     * when only the changed values are known. The other values are taken
+     * from the index, so a bookmark which isn't indexed is left alone.
+     *
+     * @param id the id of the bookmark.
+     * @param userId the id of the owner.
+     * @param values the new values keyed by property name.
+     */
+    public synchronized void update(int id, int userId,
+            Map<String, Object> values) {
+        Document document;
+        try {
+            searcherManager.maybeRefreshBlocking();
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                TopDocs top = searcher.search(
+                        new TermQuery(new Term(ID, Integer.toString(id))), 1);
+                if (top.scoreDocs.length == 0) {
+                    return;
+                }
+                document = searcher.doc(top.scoreDocs[0].doc);
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        index(id, userId,
+                (String) values.getOrDefault(URL, document.get(URL)),
+                (String) values.getOrDefault(DESCRIPTION,
+                        document.get(DESCRIPTION)));
+    }
+
+    /**
+     * A method to remove a bookmark from the index.
+     *
+     * @param id the id of the bookmark.
+     */
+    public void delete(int id) {
+        try {
+            writer.deleteDocuments(new Term(ID, Integer.toString(id)));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * A method to remove all bookmarks from the index.
+     */
+    public void deleteAll() {
+        try {
+            writer.deleteAll();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * A method to check if the index contains no bookmarks.
+     *
+     * @return true if the index is empty.
+     */
+    public boolean isEmpty() {
+        return writer.getDocStats().numDocs == 0;
+    }
+
+    /**
+     * A method to find bookmarks of a user which match a query. All the words
+     * of the query should be found in either the URL or the description. The
+     * query may use the operators of Lucene's simple query syntax, for example
+     * quotes for phrases and an asterisk for prefixes.
+     *
+     * @param userId the id of the owner.
+     * @param text the query.
+     * @param offset the number of best matches to skip.
+     * @param limit the maximum number of matches to return.
+     * @return the matches ordered by relevance.
+     */
+    public List<SearchHit> search(int userId, String text, int offset,
+            int limit) {
+        Map<String, Float> weights = new HashMap<>();
+        weights.put(URL, 1.0f);
+        weights.put(DESCRIPTION, 1.0f);
+        SimpleQueryParser parser = new SimpleQueryParser(analyzer, weights);
+        parser.setDefaultOperator(BooleanClause.Occur.MUST);
+        Query match = parser.parse(text);
+        if (match == null) {
+            return Collections.emptyList();
+        }
+        Query query = new BooleanQuery.Builder()
+                .add(match, BooleanClause.Occur.MUST)
+                .add(new TermQuery(new Term(USER, Integer.toString(userId))),
+                        BooleanClause.Occur.FILTER)
+                .build();
+        try {
+            searcherManager.maybeRefresh();
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                TopDocs top = searcher.search(query, offset + limit);
+                List<SearchHit> hits = new ArrayList<>();
+                for (int i = offset; i < top.scoreDocs.length; i++) {
+                    ScoreDoc scoreDoc = top.scoreDocs[i];
+                    Document document = searcher.doc(scoreDoc.doc);
+                    hits.add(new SearchHit(
+                            Integer.parseInt(document.get(ID)),
+                            document.get(URL), document.get(DESCRIPTION),
+                            scoreDoc.score));
+                }
+                return hits;
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * A method to save the changes to the directory. A failure is logged
+     * rather than thrown, so that the periodic commits aren't cancelled, and
+     * the changes are saved by the next commit.
+     */
+    public void commit() {
+        try {
+            if (writer.hasUncommittedChanges()) {
+                writer.commit();
+            }
+        } catch (IOException | RuntimeException ex) {
+            LOGGER.error("The search index couldn't be committed.", ex);
+        }
+    }
+
+    /**
+     * A method to commit and close the index.
+     *
+     * @throws IOException if the index can't be closed.
+     */
+    @PreDestroy
+    public void close() throws IOException {
+        committer.shutdown();
+        searcherManager.close();
+        writer.close();
+        directory.close();
+    }
+
+    /**
+     * The analyzer of URLs which splits them into lower-case words.
+     */
+    private static class UrlAnalyzer extends Analyzer {
+
+        @Override
+        protected TokenStreamComponents createComponents(String fieldName) {
+            Tokenizer tokenizer = CharTokenizer
+                    .fromTokenCharPredicate(Character::isLetterOrDigit);
+            return new TokenStreamComponents(tokenizer,
+                    new LowerCaseFilter(tokenizer));
+        }
+
+        @Override
+        protected TokenStream normalize(String fieldName, TokenStream in) {
+            return new LowerCaseFilter(in);
+        }
+    }
+}
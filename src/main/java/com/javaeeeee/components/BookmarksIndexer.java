@@ -0,0 +1,245 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.components;
+
+import com.javaeeeee.configuration.BookmarksProperties;
+import com.javaeeeee.entities.Bookmark;
+import com.javaeeeee.entities.User;
+import com.javaeeeee.repositories.BookmarksRepository;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.proxy.HibernateProxy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * This class keeps the search index in sync with the database. It is
+ * registered as a Hibernate listener which is called after a transaction
+ * which added, changed or removed bookmarks is committed. The index is built
+ * from the database on startup if it is empty, and may be rebuilt through
+ * JMX.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+@Component
+@ManagedResource(objectName = "com.javaeeeee:type=BookmarksIndexer",
+        description = "Synchronization of the search index")
+public class BookmarksIndexer implements PostCommitInsertEventListener,
+        PostCommitUpdateEventListener, PostCommitDeleteEventListener {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger LOGGER
+            = LoggerFactory.getLogger(BookmarksIndexer.class);
+
+    /**
+     * The entity manager factory to register the listener with.
+     */
+    private final transient EntityManagerFactory entityManagerFactory;
+    /**
+     * The repository to read bookmarks from.
+     */
+    private final transient BookmarksRepository bookmarksRepository;
+    /**
+     * The template to read bookmarks in a transaction.
+     */
+    private final transient TransactionTemplate transactionTemplate;
+    /**
+     * The search index.
+     */
+    private final transient BookmarksIndex bookmarksIndex;
+    /**
+     * Application settings.
+     */
+    private final transient BookmarksProperties properties;
+    /**
+     * The shards if users are sharded.
+     */
+    private final transient ObjectProvider<ShardRoutingDataSource> shards;
+
+    /**
+     * The constructor which allows to inject dependencies.
+     *
+     * @param entityManagerFactory The entity manager factory.
+     * @param bookmarksRepository The repository to read bookmarks from.
+     * @param transactionManager The transaction manager.
+     * @param bookmarksIndex The search index.
+     * @param properties Application settings.
+     * @param shards The shards if users are sharded.
+     */
+    @Autowired
+    public BookmarksIndexer(EntityManagerFactory entityManagerFactory,
+            BookmarksRepository bookmarksRepository,
+            PlatformTransactionManager transactionManager,
+            BookmarksIndex bookmarksIndex, BookmarksProperties properties,
+            ObjectProvider<ShardRoutingDataSource> shards) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.bookmarksRepository = bookmarksRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.bookmarksIndex = bookmarksIndex;
+        this.properties = properties;
+        this.shards = shards;
+    }
+
+    /**
+     * A method to register the listener with Hibernate.
+     */
+    @PostConstruct
+    public void register() {
+        EventListenerRegistry registry = entityManagerFactory
+                .unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, this);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, this);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, this);
+    }
+
+    /**
+     * A method to build the index when the application has started.
+     *
+     * @throws Exception if the bookmarks can't be read.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() throws Exception {
+        if (properties.getSearch().isRebuildOnStartup()
+                || bookmarksIndex.isEmpty()) {
+            rebuild();
+        }
+    }
+
+    /**
+     * A method to replace the content of the index with all the bookmarks
+     * stored in the database, or in all shards if users are sharded.
+     *
+     * @throws Exception if the bookmarks can't be read.
+     */
+    @ManagedOperation(description = "Rebuild the search index")
+    public void rebuild() throws Exception {
+        long start = System.currentTimeMillis();
+        ShardRoutingDataSource routing = shards.getIfAvailable();
+        List<String> names = routing == null
+                ? Collections.singletonList(null)
+                : new ArrayList<>(routing.getShards().keySet());
+        for (int i = 0; i < names.size(); i++) {
+            boolean first = i == 0;
+            ShardRoutingDataSource.callOnShard(names.get(i),
+                    () -> transactionTemplate.execute(status -> {
+                        try (Stream<Object[]> rows
+                                = bookmarksRepository.streamAllForIndex()) {
+                            if (first) {
+                                bookmarksIndex.deleteAll();
+                            }
+                            rows.forEach(row -> bookmarksIndex.index(
+                                    (Integer) row[0], (Integer) row[1],
+                                    (String) row[2], (String) row[3]));
+                        }
+                        return null;
+                    }));
+        }
+        bookmarksIndex.commit();
+        LOGGER.info("The search index was rebuilt in {} ms.",
+                System.currentTimeMillis() - start);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        index((Bookmark) event.getEntity());
+    }
+
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent event) {
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        index((Bookmark) event.getEntity());
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        bookmarksIndex.delete((Integer) event.getId());
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return Bookmark.class.equals(persister.getMappedClass());
+    }
+
+    /**
+     * A method to add a bookmark to the index or replace it.
+     *
+     * @param bookmark the bookmark.
+     */
+    private void index(Bookmark bookmark) {
+        bookmarksIndex.index(bookmark.getId(), getUserId(bookmark.getUser()),
+                bookmark.getUrl(), bookmark.getDescription());
+    }
+
+    /**
+     * A method to get the id of a user without initializing a proxy.
+     *
+     * @param user the user.
+     * @return the id of the user.
+     */
+    private static int getUserId(User user) {
+        if (user instanceof HibernateProxy) {
+            return (Integer) ((HibernateProxy) user)
+                    .getHibernateLazyInitializer().getIdentifier();
+        }
+        return user.getId();
+    }
+}
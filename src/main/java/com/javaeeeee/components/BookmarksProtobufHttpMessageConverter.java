@@ -0,0 +1,346 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.components;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.WireFormat;
+import com.javaeeeee.dto.BookmarkView;
+import com.javaeeeee.dto.BookmarksBatch;
+import com.javaeeeee.dto.SearchHit;
+import com.javaeeeee.entities.Bookmark;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+/**
+ * A message converter which writes bookmarks, views of bookmarks and search
+ * hits as Protocol Buffers messages and reads bookmarks from them. The schema
+ * is in bookmarks.proto: a single bookmark is a Bookmark message, a
+ * collection and a batch of bookmarks requested by ids are Bookmarks
+ * messages. The messages are encoded by hand, so no classes are generated
+ * from the schema and no copies of the bookmarks are made. Null values aren't
+ * written, so an empty description is read as null. Fields which are unknown
+ * or have an unexpected wire type are skipped, like protobuf-java does.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+public class BookmarksProtobufHttpMessageConverter
+        extends AbstractGenericHttpMessageConverter<Object> {
+
+    /**
+     * The media type of Protocol Buffers messages.
+     */
+    public static final String PROTOBUF_VALUE = "application/x-protobuf";
+    /**
+     * The media type of Protocol Buffers messages as an object.
+     */
+    public static final MediaType PROTOBUF = MediaType.valueOf(PROTOBUF_VALUE);
+
+    /**
+     * The number of the bookmarks field of the Bookmarks message.
+     */
+    private static final int BOOKMARKS = 1;
+    /**
+     * The number of the missing ids field of the Bookmarks message.
+     */
+    private static final int MISSING = 2;
+    /**
+     * The number of the id field of the Bookmark message.
+     */
+    private static final int ID = 1;
+    /**
+     * The number of the URL field of the Bookmark message.
+     */
+    private static final int URL = 2;
+    /**
+     * The number of the description field of the Bookmark message.
+     */
+    private static final int DESCRIPTION = 3;
+    /**
+     * The number of the score field of the Bookmark message, which is set
+     * for search hits.
+     */
+    private static final int SCORE = 4;
+
+    /**
+     * The constructor.
+     */
+    public BookmarksProtobufHttpMessageConverter() {
+        super(PROTOBUF);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return clazz == Bookmark.class;
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass,
+            MediaType mediaType) {
+        if (!canRead(mediaType)) {
+            return false;
+        }
+        ResolvableType resolved = ResolvableType.forType(type);
+        Class<?> clazz = resolved.resolve();
+        if (clazz == Collection.class || clazz == List.class
+                || clazz == Set.class) {
+            return resolved.asCollection().resolveGeneric() == Bookmark.class;
+        }
+        return clazz == Bookmark.class;
+    }
+
+    @Override
+    public boolean canWrite(Class<?> clazz, MediaType mediaType) {
+        return (isWritable(clazz) || clazz == BookmarksBatch.class)
+                && canWrite(mediaType);
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        if (!canWrite(mediaType)) {
+            return false;
+        }
+        if (Collection.class.isAssignableFrom(clazz)) {
+            return type != null && isWritable(ResolvableType.forType(type)
+                    .asCollection().resolveGeneric());
+        }
+        return isWritable(clazz) || clazz == BookmarksBatch.class;
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz,
+            HttpInputMessage inputMessage) throws IOException {
+        return readBookmark(CodedInputStream.newInstance(
+                inputMessage.getBody()));
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass,
+            HttpInputMessage inputMessage) throws IOException {
+        CodedInputStream input = CodedInputStream.newInstance(
+                inputMessage.getBody());
+        if (ResolvableType.forType(type).resolve() == Bookmark.class) {
+            return readBookmark(input);
+        }
+        Collection<Bookmark> bookmarks
+                = ResolvableType.forType(type).resolve() == Set.class
+                ? new LinkedHashSet<>() : new ArrayList<>();
+        try {
+            for (int tag = input.readTag(); tag != 0; tag = input.readTag()) {
+                if (WireFormat.getTagFieldNumber(tag) == BOOKMARKS
+                        && WireFormat.getTagWireType(tag)
+                        == WireFormat.WIRETYPE_LENGTH_DELIMITED) {
+                    int limit = input.pushLimit(input.readRawVarint32());
+                    bookmarks.add(readBookmark(input));
+                    input.popLimit(limit);
+                } else {
+                    skipField(input, tag);
+                }
+            }
+        } catch (InvalidProtocolBufferException ex) {
+            throw new HttpMessageNotReadableException(
+                    "Could not read bookmarks: " + ex.getMessage(), ex);
+        }
+        return bookmarks;
+    }
+
+    @Override
+    protected void writeInternal(Object value, Type type,
+            HttpOutputMessage outputMessage) throws IOException {
+        CodedOutputStream output = CodedOutputStream.newInstance(
+                outputMessage.getBody());
+        if (value instanceof Collection) {
+            for (Object item : (Collection<?>) value) {
+                writeBookmark(item, output, true);
+            }
+        } else if (value instanceof BookmarksBatch) {
+            BookmarksBatch batch = (BookmarksBatch) value;
+            for (BookmarkView view : batch.getBookmarks()) {
+                writeBookmark(view, output, true);
+            }
+            if (!batch.getMissing().isEmpty()) {
+                // Repeated scalars are packed in proto3.
+                int size = 0;
+                for (Integer id : batch.getMissing()) {
+                    size += CodedOutputStream.computeInt32SizeNoTag(id);
+                }
+                output.writeTag(MISSING, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+                output.writeUInt32NoTag(size);
+                for (Integer id : batch.getMissing()) {
+                    output.writeInt32NoTag(id);
+                }
+            }
+        } else {
+            writeBookmark(value, output, false);
+        }
+        output.flush();
+    }
+
+    /**
+     * A method to check if instances of a class are written as Bookmark
+     * messages.
+     *
+     * @param clazz the class.
+     * @return true if the class is supported.
+     */
+    private static boolean isWritable(Class<?> clazz) {
+        return clazz == Bookmark.class || clazz == BookmarkView.class
+                || clazz == SearchHit.class;
+    }
+
+    /**
+     * A method to read the fields of a Bookmark message up to the end of the
+     * input or of the current limit.
+     *
+     * @param input the input.
+     * @return the bookmark.
+     * @throws IOException if the input can't be read.
+     */
+    private static Bookmark readBookmark(CodedInputStream input)
+            throws IOException {
+        Integer id = null;
+        String url = null;
+        String description = null;
+        try {
+            for (int tag = input.readTag(); tag != 0; tag = input.readTag()) {
+                int field = WireFormat.getTagFieldNumber(tag);
+                int wireType = WireFormat.getTagWireType(tag);
+                if (field == ID && wireType == WireFormat.WIRETYPE_VARINT) {
+                    id = input.readInt32();
+                } else if (field == URL && wireType
+                        == WireFormat.WIRETYPE_LENGTH_DELIMITED) {
+                    url = input.readString();
+                } else if (field == DESCRIPTION && wireType
+                        == WireFormat.WIRETYPE_LENGTH_DELIMITED) {
+                    description = input.readString();
+                } else {
+                    skipField(input, tag);
+                }
+            }
+        } catch (InvalidProtocolBufferException ex) {
+            throw new HttpMessageNotReadableException(
+                    "Could not read bookmark: " + ex.getMessage(), ex);
+        }
+        if (url == null || url.isEmpty()) {
+            throw new HttpMessageNotReadableException(
+                    "Could not read bookmark: url is required.");
+        }
+        Bookmark bookmark = new Bookmark(url, description);
+        bookmark.setId(id);
+        return bookmark;
+    }
+
+    /**
+     * A method to skip a field by its wire type, for example a field added to
+     * the schema later or a known field with a wrong wire type.
+     *
+     * @param input the input.
+     * @param tag the tag of the field.
+     * @throws IOException if the input can't be read, the wire type is
+     * invalid or the tag ends a group which wasn't started.
+     */
+    private static void skipField(CodedInputStream input, int tag)
+            throws IOException {
+        if (!input.skipField(tag)) {
+            throw new InvalidProtocolBufferException(
+                    "Unexpected end group tag.");
+        }
+    }
+
+    /**
+     * A method to write a bookmark, a view of a bookmark or a search hit as a
+     * Bookmark message.
+     *
+     * @param item the object to write.
+     * @param output the output.
+     * @param nested true if the message is an element of a Bookmarks message.
+     * @throws IOException if the output can't be written.
+     */
+    private static void writeBookmark(Object item, CodedOutputStream output,
+            boolean nested) throws IOException {
+        Integer id;
+        String url;
+        String description;
+        float score = 0;
+        if (item instanceof Bookmark) {
+            Bookmark bookmark = (Bookmark) item;
+            id = bookmark.getId();
+            url = bookmark.getUrl();
+            description = bookmark.getDescription();
+        } else if (item instanceof BookmarkView) {
+            BookmarkView view = (BookmarkView) item;
+            id = view.getId();
+            url = view.getUrl();
+            description = view.getDescription();
+        } else {
+            SearchHit hit = (SearchHit) item;
+            id = hit.getId();
+            url = hit.getUrl();
+            description = hit.getDescription();
+            score = hit.getScore();
+        }
+        if (nested) {
+            int size = 0;
+            if (id != null) {
+                size += CodedOutputStream.computeInt32Size(ID, id);
+            }
+            if (url != null) {
+                size += CodedOutputStream.computeStringSize(URL, url);
+            }
+            if (description != null) {
+                size += CodedOutputStream.computeStringSize(DESCRIPTION,
+                        description);
+            }
+            if (score != 0) {
+                size += CodedOutputStream.computeFloatSize(SCORE, score);
+            }
+            output.writeTag(BOOKMARKS, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+            output.writeUInt32NoTag(size);
+        }
+        if (id != null) {
+            output.writeInt32(ID, id);
+        }
+        if (url != null) {
+            output.writeString(URL, url);
+        }
+        if (description != null) {
+            output.writeString(DESCRIPTION, description);
+        }
+        if (score != 0) {
+            output.writeFloat(SCORE, score);
+        }
+    }
+}
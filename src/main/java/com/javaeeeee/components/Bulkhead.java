@@ -0,0 +1,336 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.components;
+
+import com.javaeeeee.configuration.BookmarksProperties;
+import com.javaeeeee.exception.ServiceUnavailableException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * A bounded executor of the work of a group of endpoints. Each group has its
+ * own threads and queue, so a group which is slow, for example because of a
+ * slow query, doesn't take the threads of the other groups or of the web
+ * server. A task which doesn't fit into the queue is rejected at once. The
+ * limits are kept by semaphores, so the tasks may be run by a pool of platform
+ * threads, by a new virtual thread each or by the calling thread.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+public class Bulkhead {
+
+    /**
+     * The name of the bulkhead.
+     */
+    private final String name;
+    /**
+     * The executor of tasks or null if tasks are run by the calling thread.
+     */
+    private final Executor executor;
+    /**
+     * The decorator of tasks, may be null.
+     */
+    private final TaskDecorator decorator;
+    /**
+     * The number of threads.
+     */
+    private final int threads;
+    /**
+     * The number of threads plus the capacity of the queue.
+     */
+    private final int capacity;
+    /**
+     * Permits of the tasks which are either running or waiting.
+     */
+    private final Semaphore admitted;
+    /**
+     * Permits of the running tasks.
+     */
+    private final Semaphore running;
+    /**
+     * The number of rejected tasks.
+     */
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * A constructor to create a bulkhead which runs tasks in the calling
+     * thread.
+     *
+     * @param name The name of the bulkhead.
+     */
+    public Bulkhead(String name) {
+        this.name = name;
+        this.executor = null;
+        this.decorator = null;
+        this.threads = 0;
+        this.capacity = 0;
+        this.admitted = null;
+        this.running = null;
+    }
+
+    /**
+     * A constructor to create a bulkhead which runs tasks in the calling
+     * thread within its limits, for example tasks which write the response
+     * as they go and so should stay on the thread of the web server. The
+     * number of threads is the number of tasks which may run at once.
+     *
+     * @param name The name of the bulkhead.
+     * @param settings The number of running tasks and the capacity of the
+     * queue.
+     */
+    public Bulkhead(String name, BookmarksProperties.Bulkhead settings) {
+        this(name, settings, null, null);
+    }
+
+    /**
+     * A constructor to create a bulkhead with a pool of platform threads.
+     *
+     * @param name The name of the bulkhead.
+     * @param settings The number of threads and the capacity of the queue.
+     * @param decorator The decorator of tasks, may be null.
+     */
+    public Bulkhead(String name, BookmarksProperties.Bulkhead settings,
+            TaskDecorator decorator) {
+        this(name, settings, newThreadPool(name, settings), decorator);
+    }
+
+    /**
+     * A constructor to create a bulkhead whose tasks are run by an executor.
+     * The executor should either start a thread per task or have at least
+     * as many threads as the bulkhead.
+     *
+     * @param name The name of the bulkhead.
+     * @param settings The number of threads and the capacity of the queue.
+     * @param executor The executor of tasks, null to run them in the calling
+     * thread.
+     * @param decorator The decorator of tasks, may be null.
+     */
+    public Bulkhead(String name, BookmarksProperties.Bulkhead settings,
+            Executor executor, TaskDecorator decorator) {
+        this.name = name;
+        this.executor = executor;
+        this.decorator = decorator;
+        this.threads = settings.getThreads();
+        this.capacity = settings.getThreads() + settings.getQueueCapacity();
+        this.admitted = new Semaphore(capacity);
+        this.running = new Semaphore(settings.getThreads());
+    }
+
+    /**
+     * A method to run a task.
+     *
+     * @param <T> the type of the result.
+     * @param task the task.
+     * @return the future result of the task, which fails with the exception
+     * thrown by the task.
+     * @throws ServiceUnavailableException if the queue is full.
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> task)
+            throws ServiceUnavailableException {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        if (admitted == null) {
+            complete(future, task);
+            return future;
+        }
+        admit();
+        Runnable runnable = () -> {
+            try {
+                running.acquireUninterruptibly();
+                try {
+                    complete(future, task);
+                } finally {
+                    running.release();
+                }
+            } finally {
+                admitted.release();
+            }
+        };
+        if (executor == null) {
+            runnable.run();
+            return future;
+        }
+        try {
+            executor.execute(decorator == null
+                    ? runnable : decorator.decorate(runnable));
+        } catch (RejectedExecutionException e) {
+            admitted.release();
+            rejected.increment();
+            throw new ServiceUnavailableException(
+                    "The " + name + " executor is shut down.", e);
+        }
+        return future;
+    }
+
+    /**
+     * A method to run a task in the calling thread within the limits of the
+     * bulkhead. The thread waits while the bulkhead runs as many tasks as it
+     * has threads.
+     *
+     * @param <T> the type of the result.
+     * @param <E> the type of the exception thrown by the task.
+     * @param task the task.
+     * @return the result of the task.
+     * @throws E if the task fails.
+     * @throws ServiceUnavailableException if the queue is full.
+     */
+    public <T, E extends Exception> T call(Task<T, E> task)
+            throws E, ServiceUnavailableException {
+        if (admitted == null) {
+            return task.call();
+        }
+        admit();
+        try {
+            running.acquireUninterruptibly();
+            try {
+                return task.call();
+            } finally {
+                running.release();
+            }
+        } finally {
+            admitted.release();
+        }
+    }
+
+    /**
+     * A method to stop the threads after the queued tasks are run.
+     */
+    public void shutdown() {
+        if (executor instanceof ThreadPoolTaskExecutor) {
+            ((ThreadPoolTaskExecutor) executor).shutdown();
+        } else if (executor instanceof ExecutorService) {
+            ((ExecutorService) executor).shutdown();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * A method to obtain the number of running tasks.
+     *
+     * @return the number of busy threads.
+     */
+    public int getActiveCount() {
+        return admitted == null ? 0 : threads - running.availablePermits();
+    }
+
+    /**
+     * A method to obtain the number of tasks waiting for a thread.
+     *
+     * @return the size of the queue.
+     */
+    public int getQueueSize() {
+        if (admitted == null) {
+            return 0;
+        }
+        int inFlight = capacity - admitted.availablePermits();
+        return Math.max(0, inFlight - getActiveCount());
+    }
+
+    /**
+     * A method to obtain the number of tasks rejected because the queue was
+     * full.
+     *
+     * @return the number of rejected tasks.
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * A method to take a place in the queue.
+     *
+     * @throws ServiceUnavailableException if the queue is full.
+     */
+    private void admit() throws ServiceUnavailableException {
+        if (!admitted.tryAcquire()) {
+            rejected.increment();
+            throw new ServiceUnavailableException(
+                    "The " + name + " queue is full.");
+        }
+    }
+
+    /**
+     * A method to create a pool of platform threads for a bulkhead. The
+     * queue of the pool isn't bounded, the bulkhead bounds it.
+     *
+     * @param name The name of the bulkhead.
+     * @param settings The number of threads.
+     * @return the pool.
+     */
+    private static ThreadPoolTaskExecutor newThreadPool(String name,
+            BookmarksProperties.Bulkhead settings) {
+        ThreadPoolTaskExecutor pool = new ThreadPoolTaskExecutor();
+        pool.setThreadNamePrefix("bulkhead-" + name + "-");
+        pool.setCorePoolSize(settings.getThreads());
+        pool.setMaxPoolSize(settings.getThreads());
+        pool.setWaitForTasksToCompleteOnShutdown(true);
+        pool.initialize();
+        return pool;
+    }
+
+    /**
+     * A method to complete a future with the result of a task. An error, such
+     * as OutOfMemoryError, also fails the future rather than leaving it
+     * incomplete, so that the request waiting for it gets an answer.
+     *
+     * @param <T> the type of the result.
+     * @param future the future.
+     * @param task the task.
+     */
+    private static <T> void complete(CompletableFuture<T> future,
+            Callable<T> task) {
+        try {
+            future.complete(task.call());
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * A task run by the calling thread, which may throw a checked exception.
+     *
+     * @param <T> the type of the result.
+     * @param <E> the type of the exception.
+     */
+    @FunctionalInterface
+    public interface Task<T, E extends Exception> {
+
+        /**
+         * A method to do the work.
+         *
+         * @return the result.
+         * @throws E if the work fails.
+         */
+        T call() throws E;
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.components;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedOperationParameter;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+/**
+ * A component which exposes per-region statistics of the Hibernate
+ * second-level cache. Statistics are only gathered when
+ * hibernate.generate_statistics is set.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+@Component
+@ManagedResource(objectName = "com.javaeeeee:type=CacheStatistics",
+        description = "Statistics of the second-level cache regions")
+public class CacheStatistics {
+
+    /**
+     * Hibernate statistics.
+     */
+    private final Statistics statistics;
+
+    /**
+     * The constructor which allows to inject the entity manager factory.
+     *
+     * @param entityManagerFactory the entity manager factory.
+     */
+    @Autowired
+    public CacheStatistics(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class)
+                .getStatistics();
+    }
+
+    /**
+     * A method to obtain statistics of all regions.
+     *
+     * @return statistics keyed by region name.
+     */
+    public Map<String, SecondLevelCacheStatistics> getRegionStatistics() {
+        Map<String, SecondLevelCacheStatistics> result
+                = new LinkedHashMap<>();
+        for (String region : statistics.getSecondLevelCacheRegionNames()) {
+            result.put(region,
+                    statistics.getSecondLevelCacheStatistics(region));
+        }
+        return result;
+    }
+
+    @ManagedAttribute(description = "Names of the cache regions")
+    public String[] getRegionNames() {
+        return statistics.getSecondLevelCacheRegionNames();
+    }
+
+    @ManagedAttribute(description = "Number of query cache hits")
+    public long getQueryCacheHitCount() {
+        return statistics.getQueryCacheHitCount();
+    }
+
+    @ManagedAttribute(description = "Number of query cache misses")
+    public long getQueryCacheMissCount() {
+        return statistics.getQueryCacheMissCount();
+    }
+
+    @ManagedOperation(description = "Number of hits in a region")
+    @ManagedOperationParameter(name = "region", description = "Region name")
+    public long getHitCount(String region) {
+        SecondLevelCacheStatistics stats = find(region);
+        return stats == null ? 0 : stats.getHitCount();
+    }
+
+    @ManagedOperation(description = "Number of misses in a region")
+    @ManagedOperationParameter(name = "region", description = "Region name")
+    public long getMissCount(String region) {
+        SecondLevelCacheStatistics stats = find(region);
+        return stats == null ? 0 : stats.getMissCount();
+    }
+
+    @ManagedOperation(description = "Number of puts in a region")
+    @ManagedOperationParameter(name = "region", description = "Region name")
+    public long getPutCount(String region) {
+        SecondLevelCacheStatistics stats = find(region);
+        return stats == null ? 0 : stats.getPutCount();
+    }
+
+    @ManagedOperation(description = "Number of entries in a region")
+    @ManagedOperationParameter(name = "region", description = "Region name")
+    public long getElementCount(String region) {
+        SecondLevelCacheStatistics stats = find(region);
+        return stats == null ? 0 : stats.getElementCountInMemory();
+    }
+
+    /**
+     * A method to find statistics of a region.
+     *
+     * @param region the region name.
+     * @return statistics or null if there is no such region.
+     */
+    private SecondLevelCacheStatistics find(String region) {
+        for (String name : statistics.getSecondLevelCacheRegionNames()) {
+            if (name.equals(region)) {
+                return statistics.getSecondLevelCacheStatistics(region);
+            }
+        }
+        return null;
+    }
+}
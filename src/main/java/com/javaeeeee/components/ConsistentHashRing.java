@@ -0,0 +1,97 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.components;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * A consistent hash ring which maps keys to nodes. Each node has a number of
+ * points on the ring and a key belongs to the node of the first point after
+ * the hash of the key, so adding a node takes keys only from the ring
+ * segments it takes over, about one key in the new number of nodes.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+public class ConsistentHashRing {
+
+    /**
+     * Nodes keyed by their points on the ring.
+     */
+    private final SortedMap<Long, String> ring = new TreeMap<>();
+
+    /**
+     * A constructor to place nodes on the ring.
+     *
+     * @param nodes the names of the nodes.
+     * @param virtualNodes the number of points of each node.
+     */
+    public ConsistentHashRing(Collection<String> nodes, int virtualNodes) {
+        if (nodes.isEmpty() || virtualNodes < 1) {
+            throw new IllegalArgumentException(
+                    "The ring needs at least one node and one point per node.");
+        }
+        for (String node : nodes) {
+            for (int i = 0; i < virtualNodes; i++) {
+                ring.put(hash(node + "#" + i), node);
+            }
+        }
+    }
+
+    /**
+     * A method to find the node of a key.
+     *
+     * @param key the key.
+     * @return the name of the node.
+     */
+    public String getNode(String key) {
+        SortedMap<Long, String> tail = ring.tailMap(hash(key));
+        Map.Entry<Long, String> entry = tail.isEmpty()
+                ? null : tail.entrySet().iterator().next();
+        return entry != null ? entry.getValue() : ring.get(ring.firstKey());
+    }
+
+    /**
+     * A method to hash a string to a point on the ring. MD5 spreads similar
+     * strings, such as the points of a node, evenly.
+     *
+     * @param value the string.
+     * @return the point.
+     */
+    private static long hash(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5")
+                    .digest(value.getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
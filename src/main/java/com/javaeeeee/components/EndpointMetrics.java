@@ -0,0 +1,190 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.components;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.CounterMetricFamily;
+import io.prometheus.client.SummaryMetricFamily;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.stereotype.Component;
+
+/**
+ * A Prometheus collector of the latency and throughput of endpoints and of
+ * the exceptions thrown by them. Latencies are recorded into HdrHistogram
+ * recorders, which are wait-free, so a request doesn't contend with other
+ * requests or with a scrape. The quantiles are calculated over the requests
+ * served since the previous scrape, the counts and sums are totals.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+@Component
+public class EndpointMetrics extends Collector {
+
+    /**
+     * The quantiles of the latency which are exported.
+     */
+    private static final List<Double> QUANTILES
+            = Collections.unmodifiableList(Arrays.asList(0.5, 0.99, 0.999));
+    /**
+     * The number of significant decimal digits of recorded latencies.
+     */
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    /**
+     * Metrics keyed by endpoint.
+     */
+    private final ConcurrentMap<String, Endpoint> endpoints
+            = new ConcurrentHashMap<>();
+    /**
+     * Counters of exceptions keyed by exception type.
+     */
+    private final ConcurrentMap<String, LongAdder> errors
+            = new ConcurrentHashMap<>();
+
+    /**
+     * A method to record a request served by an endpoint.
+     *
+     * @param endpoint the HTTP method and the request mapping.
+     * @param status the status code of the response.
+     * @param nanos the time spent serving the request in nanoseconds.
+     */
+    public void record(String endpoint, int status, long nanos) {
+        endpoints.computeIfAbsent(endpoint, key -> new Endpoint())
+                .record(status, nanos);
+    }
+
+    /**
+     * A method to record an exception thrown by an endpoint.
+     *
+     * @param exception the exception.
+     */
+    public void recordError(Exception exception) {
+        errors.computeIfAbsent(exception.getClass().getSimpleName(),
+                key -> new LongAdder()).increment();
+    }
+
+    @Override
+    public List<MetricFamilySamples> collect() {
+        SummaryMetricFamily latency = new SummaryMetricFamily(
+                "http_request_duration_seconds",
+                "Time spent serving requests by endpoint",
+                Collections.singletonList("endpoint"), QUANTILES);
+        CounterMetricFamily requests = new CounterMetricFamily(
+                "http_requests_total",
+                "Number of requests by endpoint and status",
+                Arrays.asList("endpoint", "status"));
+        for (Map.Entry<String, Endpoint> entry : endpoints.entrySet()) {
+            entry.getValue().collect(entry.getKey(), latency, requests);
+        }
+        CounterMetricFamily exceptions = new CounterMetricFamily(
+                "http_errors_total",
+                "Number of exceptions thrown by endpoints by type",
+                Collections.singletonList("exception"));
+        for (Map.Entry<String, LongAdder> entry : errors.entrySet()) {
+            exceptions.addMetric(
+                    Collections.singletonList(entry.getKey()),
+                    entry.getValue().sum());
+        }
+        return Arrays.asList(latency, requests, exceptions);
+    }
+
+    /**
+     * Metrics of an endpoint.
+     */
+    private static class Endpoint {
+
+        /**
+         * The recorder of latencies in microseconds.
+         */
+        private final Recorder recorder = new Recorder(SIGNIFICANT_DIGITS);
+        /**
+         * The number of requests.
+         */
+        private final LongAdder count = new LongAdder();
+        /**
+         * The total time spent serving requests in nanoseconds.
+         */
+        private final LongAdder sum = new LongAdder();
+        /**
+         * Counters of requests keyed by status code.
+         */
+        private final ConcurrentMap<Integer, LongAdder> statuses
+                = new ConcurrentHashMap<>();
+        /**
+         * The latencies recorded since the previous scrape, the histogram is
+         * reused.
+         */
+        private Histogram interval;
+
+        /**
+         * A method to record a request.
+         *
+         * @param status the status code of the response.
+         * @param nanos the time spent serving the request.
+         */
+        void record(int status, long nanos) {
+            recorder.recordValue(TimeUnit.NANOSECONDS.toMicros(nanos));
+            count.increment();
+            sum.add(nanos);
+            statuses.computeIfAbsent(status, key -> new LongAdder())
+                    .increment();
+        }
+
+        /**
+         * A method to add the metrics of the endpoint to the families.
+         *
+         * @param endpoint the endpoint.
+         * @param latency the latency summaries.
+         * @param requests the request counters.
+         */
+        synchronized void collect(String endpoint,
+                SummaryMetricFamily latency, CounterMetricFamily requests) {
+            interval = recorder.getIntervalHistogram(interval);
+            List<Double> quantiles = new ArrayList<>(QUANTILES.size());
+            for (Double quantile : QUANTILES) {
+                quantiles.add(interval.getTotalCount() == 0 ? Double.NaN
+                        : interval.getValueAtPercentile(quantile * 100)
+                        / (double) TimeUnit.SECONDS.toMicros(1));
+            }
+            latency.addMetric(Collections.singletonList(endpoint),
+                    count.sum(),
+                    sum.sum() / (double) TimeUnit.SECONDS.toNanos(1),
+                    quantiles);
+            for (Map.Entry<Integer, LongAdder> entry : statuses.entrySet()) {
+                requests.addMetric(Arrays.asList(endpoint,
+                        entry.getKey().toString()), entry.getValue().sum());
+            }
+        }
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.components;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostLoadEvent;
+import org.hibernate.event.spi.PostLoadEventListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedOperationParameter;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+/**
+ * A component which accumulates the database work of requests per endpoint,
+ * that is per HTTP method and request mapping. The totals are exposed through
+ * JMX. It is also a Hibernate listener which counts the entities loaded during
+ * a request.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+@Component
+@ManagedResource(objectName = "com.javaeeeee:type=EndpointStatistics",
+        description = "Database work of requests per endpoint")
+public class EndpointStatistics implements PostLoadEventListener {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The entity manager factory to register the listener with.
+     */
+    private final transient EntityManagerFactory entityManagerFactory;
+    /**
+     * Totals keyed by endpoint.
+     */
+    private final transient ConcurrentMap<String, Endpoint> endpoints
+            = new ConcurrentHashMap<>();
+
+    /**
+     * The constructor which allows to inject the entity manager factory.
+     *
+     * @param entityManagerFactory the entity manager factory.
+     */
+    @Autowired
+    public EndpointStatistics(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    /**
+     * A method to register the listener with Hibernate.
+     */
+    @PostConstruct
+    public void register() {
+        entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class)
+                .appendListeners(EventType.POST_LOAD, this);
+    }
+
+    @Override
+    public void onPostLoad(PostLoadEvent event) {
+        RequestStatistics statistics = RequestStatistics.current();
+        if (statistics != null) {
+            statistics.entityLoaded();
+        }
+    }
+
+    /**
+     * A method to add the statistics of a request to the totals of an
+     * endpoint.
+     *
+     * @param endpoint the HTTP method and the request mapping.
+     * @param statistics the statistics of the request.
+     */
+    public void record(String endpoint, RequestStatistics statistics) {
+        endpoints.computeIfAbsent(endpoint, key -> new Endpoint())
+                .add(statistics);
+    }
+
+    /**
+     * A method to obtain the totals of all endpoints.
+     *
+     * @return totals keyed by endpoint.
+     */
+    public Map<String, Endpoint> getEndpointStatistics() {
+        return Collections.unmodifiableMap(endpoints);
+    }
+
+    @ManagedAttribute(description = "Endpoints which served requests")
+    public String[] getEndpoints() {
+        return endpoints.keySet().toArray(new String[0]);
+    }
+
+    @ManagedOperation(description = "Number of requests to an endpoint")
+    @ManagedOperationParameter(name = "endpoint",
+            description = "HTTP method and request mapping")
+    public long getRequestCount(String endpoint) {
+        Endpoint totals = endpoints.get(endpoint);
+        return totals == null ? 0 : totals.getRequests();
+    }
+
+    @ManagedOperation(description = "Number of statements of an endpoint")
+    @ManagedOperationParameter(name = "endpoint",
+            description = "HTTP method and request mapping")
+    public long getStatementCount(String endpoint) {
+        Endpoint totals = endpoints.get(endpoint);
+        return totals == null ? 0 : totals.getStatements();
+    }
+
+    @ManagedOperation(description = "Milliseconds spent executing statements")
+    @ManagedOperationParameter(name = "endpoint",
+            description = "HTTP method and request mapping")
+    public long getDatabaseTime(String endpoint) {
+        Endpoint totals = endpoints.get(endpoint);
+        return totals == null ? 0
+                : TimeUnit.NANOSECONDS.toMillis(totals.getDatabaseTime());
+    }
+
+    @ManagedOperation(description = "Number of entities loaded")
+    @ManagedOperationParameter(name = "endpoint",
+            description = "HTTP method and request mapping")
+    public long getLoadedEntityCount(String endpoint) {
+        Endpoint totals = endpoints.get(endpoint);
+        return totals == null ? 0 : totals.getLoadedEntities();
+    }
+
+    @ManagedOperation(description = "Number of entities checked by flushes")
+    @ManagedOperationParameter(name = "endpoint",
+            description = "HTTP method and request mapping")
+    public long getFlushedEntityCount(String endpoint) {
+        Endpoint totals = endpoints.get(endpoint);
+        return totals == null ? 0 : totals.getFlushedEntities();
+    }
+
+    @ManagedOperation(description = "Clear the statistics")
+    public void reset() {
+        endpoints.clear();
+    }
+
+    /**
+     * Totals of the requests to an endpoint.
+     */
+    public static class Endpoint {
+
+        /**
+         * The number of requests.
+         */
+        private final LongAdder requests = new LongAdder();
+        /**
+         * The number of prepared statements.
+         */
+        private final LongAdder statements = new LongAdder();
+        /**
+         * The time spent executing statements in nanoseconds.
+         */
+        private final LongAdder databaseTime = new LongAdder();
+        /**
+         * The number of loaded entities.
+         */
+        private final LongAdder loadedEntities = new LongAdder();
+        /**
+         * The number of entities dirty-checked by flushes.
+         */
+        private final LongAdder flushedEntities = new LongAdder();
+
+        /**
+         * A method to add the statistics of a request.
+         *
+         * @param statistics the statistics of the request.
+         */
+        void add(RequestStatistics statistics) {
+            requests.increment();
+            statements.add(statistics.getStatements());
+            databaseTime.add(statistics.getDatabaseTime());
+            loadedEntities.add(statistics.getLoadedEntities());
+            flushedEntities.add(statistics.getFlushedEntities());
+        }
+
+        public long getRequests() {
+            return requests.sum();
+        }
+
+        public long getStatements() {
+            return statements.sum();
+        }
+
+        /**
+         * A method to obtain the time spent executing statements.
+         *
+         * @return the time in nanoseconds.
+         */
+        public long getDatabaseTime() {
+            return databaseTime.sum();
+        }
+
+        public long getLoadedEntities() {
+            return loadedEntities.sum();
+        }
+
+        public long getFlushedEntities() {
+            return flushedEntities.sum();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.components;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+
+/**
+ * A message converter of a binary format supported by Jackson, such as Smile
+ * or CBOR. The format is the one of the factory of the mapper. Binary formats
+ * have no character set, so none is added to the content type.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+public class JacksonBinaryHttpMessageConverter
+        extends AbstractJackson2HttpMessageConverter {
+
+    /**
+     * The media type of Smile.
+     */
+    public static final String SMILE_VALUE = "application/x-jackson-smile";
+    /**
+     * The media type of CBOR.
+     */
+    public static final String CBOR_VALUE = "application/cbor";
+
+    /**
+     * The constructor.
+     *
+     * @param mapper the mapper whose factory creates parsers and generators of
+     * the format.
+     * @param mediaType the media type of the format.
+     */
+    public JacksonBinaryHttpMessageConverter(ObjectMapper mapper,
+            MediaType mediaType) {
+        super(mapper, mediaType);
+        setDefaultCharset(null);
+    }
+}
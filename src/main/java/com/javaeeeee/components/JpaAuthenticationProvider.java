@@ -33,43 +33,93 @@ import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
 
 /**
  * This class is used for basic authentication using credentials stored in a
- * database. http://www.baeldung.com/spring-security-authentication-provider
+ * database. The user is found by username and the password is checked against
+ * the stored hash, which is deliberately slow, so successful authentications
+ * are cached. http://www.baeldung.com/spring-security-authentication-provider
  *
  * @author Dmitry Noranovich <javaeeeee at gmail dot com>
  */
 @Component
 public class JpaAuthenticationProvider implements AuthenticationProvider {
 
+    /**
+     * A hash which is checked when a user isn't found, so that an unknown
+     * user takes as long as a wrong password.
+     */
+    private static final String UNKNOWN_USER_HASH
+            = "$2a$10$UC1JyNE1tmR7VooDbyYMiu8FlXWL5BxcJHoGbVdCcDGWAHkb.DjIq";
+
     /**
      * A user repository.
      */
     @Autowired
     private UsersRepository usersRepository;
+    /**
+     * The cache of successful authentications.
+     */
+    @Autowired
+    private AuthenticationCache authenticationCache;
+    /**
+     * The holder of the user resolved during the current request.
+     */
+    @Autowired
+    private ResolvedUserHolder resolvedUserHolder;
+    /**
+     * The encoder which checks credentials against the stored hashes.
+     */
+    @Autowired
+    private PasswordEncoder passwordEncoder;
 
     @Override
     public Authentication authenticate(Authentication authentication)
             throws AuthenticationException {
-        Optional<User> optional = usersRepository
-                .findByUsernameAndPassword(
-                        authentication.getName(),
-                        authentication.getCredentials().toString()
-                );
-        if (optional.isPresent()) {
-            return new UsernamePasswordAuthenticationToken(
-                    authentication.getPrincipal(),
-                    authentication.getCredentials(),
-                    authentication.getAuthorities());
-
+        String username = authentication.getName();
+        String credentials = authentication.getCredentials().toString();
+        Integer userId = authenticationCache.getUserId(username, credentials);
+        if (userId != null) {
+            return authenticated(authentication, userId);
+        }
+        ShardRoutingDataSource.useShardOf(username);
+        Optional<User> optional = usersRepository.findByUsername(username);
+        if (optional.isPresent() && passwordEncoder.matches(credentials,
+                optional.get().getPassword())) {
+            userId = optional.get().getId();
+            authenticationCache.put(username, credentials, userId);
+            return authenticated(authentication, userId);
         } else {
+            if (!optional.isPresent()) {
+                passwordEncoder.matches(credentials, UNKNOWN_USER_HASH);
+            }
             throw new AuthenticationCredentialsNotFoundException(
                     "Wrong credentials.");
         }
     }
 
+    /**
+     * A method to create a successful authentication. The user is remembered
+     * for the rest of the request, if there is one.
+     *
+     * @param authentication the authentication request.
+     * @param userId the id of the authenticated user.
+     * @return the successful authentication.
+     */
+    private Authentication authenticated(Authentication authentication,
+            Integer userId) {
+        if (RequestContextHolder.getRequestAttributes() != null) {
+            resolvedUserHolder.resolve(authentication.getName(), userId);
+        }
+        return new UsernamePasswordAuthenticationToken(
+                authentication.getPrincipal(),
+                authentication.getCredentials(),
+                authentication.getAuthorities());
+    }
+
     @Override
     public boolean supports(Class<?> authentication) {
         return authentication.equals(UsernamePasswordAuthenticationToken.class);
@@ -0,0 +1,148 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.components;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * A data source which sends the connections of read-only transactions to the
+ * read replicas in turn and all other connections to the primary database.
+ * The transaction is known only when the first statement is executed, so the
+ * data source should be wrapped in a LazyConnectionDataSourceProxy. A request
+ * may require the primary database for all its connections, so that a user
+ * reads own writes before they reach the replicas.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    /**
+     * The name of the request attribute which sends the connections of a
+     * request to the primary database.
+     */
+    public static final String PRIMARY_REQUIRED_ATTRIBUTE
+            = ReadWriteRoutingDataSource.class.getName() + ".PRIMARY_REQUIRED";
+    /**
+     * The key of the primary database.
+     */
+    public static final String PRIMARY = "primary";
+
+    /**
+     * The replicas keyed by name.
+     */
+    private final Map<String, DataSource> replicas;
+    /**
+     * The names of the replicas.
+     */
+    private final List<String> names;
+    /**
+     * The counter of read-only connections used to pick a replica.
+     */
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * A constructor to route connections between the primary database and
+     * replicas.
+     *
+     * @param primary the primary database.
+     * @param replicas the replicas keyed by name.
+     */
+    public ReadWriteRoutingDataSource(DataSource primary,
+            Map<String, DataSource> replicas) {
+        this.replicas = Collections.unmodifiableMap(
+                new LinkedHashMap<>(replicas));
+        this.names = new ArrayList<>(replicas.keySet());
+        Map<Object, Object> targets = new HashMap<>(replicas);
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    /**
+     * A method to send the connections of the current request to the primary
+     * database.
+     */
+    public static void requirePrimary() {
+        RequestAttributes attributes
+                = RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            attributes.setAttribute(PRIMARY_REQUIRED_ATTRIBUTE, Boolean.TRUE,
+                    RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+
+    /**
+     * A method to obtain the replicas.
+     *
+     * @return the replicas keyed by name.
+     */
+    public Map<String, DataSource> getReplicas() {
+        return replicas;
+    }
+
+    /**
+     * A method to check if the connections of a transaction of the current
+     * request go to a replica.
+     *
+     * @param readOnly whether the transaction is read-only.
+     * @return true if a replica is used.
+     */
+    public boolean isReplicaUsed(boolean readOnly) {
+        return readOnly && !names.isEmpty() && !isPrimaryRequired();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!isReplicaUsed(TransactionSynchronizationManager
+                .isCurrentTransactionReadOnly())) {
+            return PRIMARY;
+        }
+        return names.get(Math.floorMod(next.getAndIncrement(), names.size()));
+    }
+
+    /**
+     * A method to check if the current request requires the primary
+     * database.
+     *
+     * @return true if the request requires the primary database.
+     */
+    private static boolean isPrimaryRequired() {
+        RequestAttributes attributes
+                = RequestContextHolder.getRequestAttributes();
+        return attributes != null && attributes.getAttribute(
+                PRIMARY_REQUIRED_ATTRIBUTE,
+                RequestAttributes.SCOPE_REQUEST) != null;
+    }
+}
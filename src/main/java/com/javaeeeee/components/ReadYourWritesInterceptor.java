@@ -0,0 +1,122 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.components;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+/**
+ * An interceptor which sends all database work of a user to the primary
+ * database while the user changes something and for a while afterwards, so
+ * that the user reads own writes even if the replicas lag behind. Other users
+ * may read the previous state from the replicas meanwhile.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+public class ReadYourWritesInterceptor extends HandlerInterceptorAdapter {
+
+    /**
+     * The maximum number of users tracked at once.
+     */
+    private static final int MAXIMUM_SIZE = 100_000;
+
+    /**
+     * Users who changed something recently.
+     */
+    private final Cache<String, Boolean> writers;
+
+    /**
+     * A constructor to create the interceptor.
+     *
+     * @param window the number of seconds for which the reads of a user go to
+     * the primary database after a change.
+     */
+    public ReadYourWritesInterceptor(long window) {
+        this(window, Ticker.systemTicker());
+    }
+
+    /**
+     * A constructor which allows to replace the time source in tests.
+     *
+     * @param window the number of seconds for which the reads of a user go to
+     * the primary database after a change.
+     * @param ticker the time source.
+     */
+    ReadYourWritesInterceptor(long window, Ticker ticker) {
+        this.writers = Caffeine.newBuilder()
+                .maximumSize(MAXIMUM_SIZE)
+                .expireAfterWrite(window, TimeUnit.SECONDS)
+                .ticker(ticker)
+                .build();
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request,
+            HttpServletResponse response, Object handler) {
+        String username = request.getRemoteUser();
+        if (username == null) {
+            return true;
+        }
+        if (isWrite(request)) {
+            writers.put(username, Boolean.TRUE);
+        }
+        if (writers.getIfPresent(username) != null) {
+            ReadWriteRoutingDataSource.requirePrimary();
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request,
+            HttpServletResponse response, Object handler, Exception ex) {
+        String username = request.getRemoteUser();
+        // The window starts again when the change is done.
+        if (username != null && isWrite(request)) {
+            writers.put(username, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * A method to check if a request may change something.
+     *
+     * @param request the request.
+     * @return true if the method of the request isn't safe.
+     */
+    static boolean isWrite(HttpServletRequest request) {
+        switch (request.getMethod()) {
+            case "GET":
+            case "HEAD":
+            case "OPTIONS":
+            case "TRACE":
+                return false;
+            default:
+                return true;
+        }
+    }
+}
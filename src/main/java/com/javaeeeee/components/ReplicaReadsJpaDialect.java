@@ -0,0 +1,138 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.components;
+
+import java.sql.SQLException;
+import javax.persistence.CacheStoreMode;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+
+/**
+ * A dialect which keeps the reads from the replicas out of the second-level
+ * cache and the query cache. A replica may lag behind the primary database,
+ * and a stale entity put in the cache would be served for the time to live of
+ * its region rather than for the duration of the lag. The entity manager of a
+ * transaction routed to a replica reads the caches but doesn't put anything
+ * into them, and its cache modes are restored when the transaction ends. Both
+ * the store mode of the entity manager, which Hibernate applies to find, and
+ * the cache mode of the session, which queries use, are changed.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+public class ReplicaReadsJpaDialect extends HibernateJpaDialect {
+
+    /**
+     * The property of an entity manager which tells whether entities are put
+     * into the cache.
+     */
+    private static final String STORE_MODE
+            = "javax.persistence.cache.storeMode";
+
+    /**
+     * The routing between the primary database and the replicas.
+     */
+    private final ReadWriteRoutingDataSource routingDataSource;
+
+    /**
+     * A constructor to use the routing of a data source.
+     *
+     * @param routingDataSource the routing data source.
+     */
+    public ReplicaReadsJpaDialect(
+            ReadWriteRoutingDataSource routingDataSource) {
+        this.routingDataSource = routingDataSource;
+    }
+
+    @Override
+    public Object beginTransaction(EntityManager entityManager,
+            TransactionDefinition definition) throws PersistenceException,
+            SQLException, TransactionException {
+        Object transactionData
+                = super.beginTransaction(entityManager, definition);
+        if (!routingDataSource.isReplicaUsed(definition.isReadOnly())) {
+            return transactionData;
+        }
+        ReplicaTransactionData data = new ReplicaTransactionData(
+                transactionData, entityManager, getSession(entityManager));
+        entityManager.setProperty(STORE_MODE, CacheStoreMode.BYPASS);
+        data.session.setCacheMode(CacheMode.GET);
+        return data;
+    }
+
+    @Override
+    public void cleanupTransaction(Object transactionData) {
+        if (transactionData instanceof ReplicaTransactionData) {
+            ReplicaTransactionData data
+                    = (ReplicaTransactionData) transactionData;
+            data.session.setCacheMode(data.previousCacheMode);
+            data.entityManager.setProperty(STORE_MODE, data.previousStoreMode);
+            super.cleanupTransaction(data.transactionData);
+        } else {
+            super.cleanupTransaction(transactionData);
+        }
+    }
+
+    /**
+     * The state of a transaction routed to a replica which is restored when
+     * the transaction ends.
+     */
+    private static class ReplicaTransactionData {
+
+        /**
+         * The state kept by the Hibernate dialect.
+         */
+        private final Object transactionData;
+        /**
+         * The entity manager of the transaction.
+         */
+        private final EntityManager entityManager;
+        /**
+         * The session of the transaction.
+         */
+        private final Session session;
+        /**
+         * The store mode of the entity manager before the transaction.
+         */
+        private final Object previousStoreMode;
+        /**
+         * The cache mode of the session before the transaction.
+         */
+        private final CacheMode previousCacheMode;
+
+        ReplicaTransactionData(Object transactionData,
+                EntityManager entityManager, Session session) {
+            this.transactionData = transactionData;
+            this.entityManager = entityManager;
+            this.session = session;
+            this.previousStoreMode = entityManager.getProperties()
+                    .getOrDefault(STORE_MODE, CacheStoreMode.USE);
+            this.previousCacheMode = session.getCacheMode();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.components;
+
+import javax.persistence.EntityManagerFactory;
+import javax.servlet.http.HttpServletRequest;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/**
+ * A decorator of tasks run on behalf of a request by another thread. The task
+ * sees the request, so request scoped beans and the request statistics work,
+ * and the entity manager opened for the request, so entities stay managed
+ * and lazy associations can be loaded when the response is written.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+public class RequestContextTaskDecorator implements TaskDecorator {
+
+    /**
+     * The factory whose entity manager is passed to tasks.
+     */
+    private final EntityManagerFactory entityManagerFactory;
+
+    /**
+     * A constructor to create the decorator.
+     *
+     * @param entityManagerFactory The factory whose entity manager is passed
+     * to tasks.
+     */
+    public RequestContextTaskDecorator(
+            EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @Override
+    public Runnable decorate(Runnable runnable) {
+        RequestAttributes attributes
+                = RequestContextHolder.getRequestAttributes();
+        HttpServletRequest request
+                = attributes instanceof ServletRequestAttributes
+                        ? ((ServletRequestAttributes) attributes).getRequest()
+                        : null;
+        Object entityManagerHolder = TransactionSynchronizationManager
+                .getResource(entityManagerFactory);
+        return () -> {
+            // The attributes of the submitting thread are completed when
+            // it leaves the servlet, so the task gets its own.
+            if (request != null) {
+                RequestContextHolder.setRequestAttributes(
+                        new ServletRequestAttributes(request));
+            }
+            if (entityManagerHolder != null) {
+                TransactionSynchronizationManager.bindResource(
+                        entityManagerFactory, entityManagerHolder);
+            }
+            try {
+                runnable.run();
+            } finally {
+                if (entityManagerHolder != null) {
+                    TransactionSynchronizationManager.unbindResource(
+                            entityManagerFactory);
+                }
+                RequestContextHolder.resetRequestAttributes();
+            }
+        };
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.components;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * Database work done while serving one request: the number of prepared JDBC
+ * statements, the time spent executing them and the number of entities loaded
+ * and dirty-checked by flushes. It is stored in a request attribute and is
+ * updated by Hibernate listeners on the request thread.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+public class RequestStatistics {
+
+    /**
+     * The name of the request attribute which holds the statistics.
+     */
+    public static final String ATTRIBUTE = RequestStatistics.class.getName();
+
+    /**
+     * The number of prepared statements.
+     */
+    private final LongAdder statements = new LongAdder();
+    /**
+     * The time spent executing statements in nanoseconds.
+     */
+    private final LongAdder databaseTime = new LongAdder();
+    /**
+     * The number of entities loaded into persistence contexts.
+     */
+    private final LongAdder loadedEntities = new LongAdder();
+    /**
+     * The number of entities dirty-checked by flushes.
+     */
+    private final LongAdder flushedEntities = new LongAdder();
+
+    /**
+     * A method to obtain the statistics of the current request.
+     *
+     * @return the statistics or null if there is no current request or the
+     * request isn't instrumented.
+     */
+    public static RequestStatistics current() {
+        RequestAttributes attributes
+                = RequestContextHolder.getRequestAttributes();
+        return attributes == null ? null : (RequestStatistics) attributes
+                .getAttribute(ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+    }
+
+    public void statementPrepared() {
+        statements.increment();
+    }
+
+    public void statementExecuted(long nanos) {
+        databaseTime.add(nanos);
+    }
+
+    public void entityLoaded() {
+        loadedEntities.increment();
+    }
+
+    public void entitiesFlushed(int count) {
+        flushedEntities.add(count);
+    }
+
+    public long getStatements() {
+        return statements.sum();
+    }
+
+    /**
+     * A method to obtain the time spent executing statements.
+     *
+     * @return the time in nanoseconds.
+     */
+    public long getDatabaseTime() {
+        return databaseTime.sum();
+    }
+
+    public long getLoadedEntities() {
+        return loadedEntities.sum();
+    }
+
+    public long getFlushedEntities() {
+        return flushedEntities.sum();
+    }
+
+    /**
+     * A method to format the statistics as a Server-Timing metric.
+     *
+     * @return the value of the Server-Timing header.
+     */
+    public String toServerTiming() {
+        return String.format(Locale.ROOT,
+                "db;dur=%.3f;desc=\"statements=%d loaded=%d flushed=%d\"",
+                getDatabaseTime() / (double) TimeUnit.MILLISECONDS.toNanos(1),
+                getStatements(), getLoadedEntities(), getFlushedEntities());
+    }
+}
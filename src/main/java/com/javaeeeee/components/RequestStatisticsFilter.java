@@ -0,0 +1,233 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.components;
+
+import com.javaeeeee.configuration.BookmarksProperties;
+import java.io.IOException;
+import java.io.PrintWriter;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.WebUtils;
+
+/**
+ * A filter which collects the database work of each request, including the
+ * authentication, and adds it to the totals of the endpoint which served the
+ * request. The latency and the status of the request are recorded in the
+ * metrics of the endpoint. If enabled, the statistics are also sent in the
+ * Server-Timing header. The header is added just before the response is
+ * committed, so the work done while a body is streamed isn't included. A
+ * request which is handled asynchronously is recorded when the result is
+ * dispatched, so the work done by the bulkhead threads is included.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class RequestStatisticsFilter extends OncePerRequestFilter {
+
+    /**
+     * The name of the Server-Timing header.
+     */
+    public static final String SERVER_TIMING = "Server-Timing";
+    /**
+     * The name of the request attribute which holds the start time of the
+     * request in nanoseconds.
+     */
+    private static final String START_ATTRIBUTE
+            = RequestStatisticsFilter.class.getName() + ".START";
+
+    /**
+     * Totals of the endpoints.
+     */
+    private final EndpointStatistics endpointStatistics;
+    /**
+     * Metrics of the endpoints.
+     */
+    private final EndpointMetrics endpointMetrics;
+    /**
+     * Application settings.
+     */
+    private final BookmarksProperties properties;
+
+    /**
+     * The constructor which allows to inject dependencies.
+     *
+     * @param endpointStatistics Totals of the endpoints.
+     * @param endpointMetrics Metrics of the endpoints.
+     * @param properties Application settings.
+     */
+    @Autowired
+    public RequestStatisticsFilter(EndpointStatistics endpointStatistics,
+            EndpointMetrics endpointMetrics, BookmarksProperties properties) {
+        this.endpointStatistics = endpointStatistics;
+        this.endpointMetrics = endpointMetrics;
+        this.properties = properties;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !properties.getInstrumentation().isEnabled();
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+            HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RequestStatistics statistics = (RequestStatistics) request
+                .getAttribute(RequestStatistics.ATTRIBUTE);
+        if (!isAsyncDispatch(request) || statistics == null) {
+            statistics = new RequestStatistics();
+            request.setAttribute(RequestStatistics.ATTRIBUTE, statistics);
+            request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+        }
+        // The response of an async dispatch usually is the one wrapped by
+        // the first dispatch, but the container may pass another one.
+        if (properties.getInstrumentation().isServerTiming()
+                && WebUtils.getNativeResponse(response,
+                        ServerTimingResponse.class) == null) {
+            response = new ServerTimingResponse(response, statistics);
+        }
+        // An exception which escapes the filter chain is answered with 500.
+        int status = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+        try {
+            filterChain.doFilter(request, response);
+            status = response.getStatus();
+        } finally {
+            if (!isAsyncStarted(request)) {
+                record(request, response, statistics, status);
+            }
+        }
+    }
+
+    /**
+     * A method to record a request after the handler is done.
+     *
+     * @param request the request.
+     * @param response the response, which wraps the Server-Timing response
+     * if the header is enabled.
+     * @param statistics the statistics of the request.
+     * @param status the status code of the response.
+     */
+    private void record(HttpServletRequest request,
+            HttpServletResponse response, RequestStatistics statistics,
+            int status) {
+        ServerTimingResponse serverTimingResponse = WebUtils
+                .getNativeResponse(response, ServerTimingResponse.class);
+        if (serverTimingResponse != null) {
+            // A response without a body is committed after the filter.
+            serverTimingResponse.addServerTiming();
+        }
+        Object mapping = request.getAttribute(
+                HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        if (mapping != null) {
+            String endpoint = request.getMethod() + " " + mapping;
+            endpointStatistics.record(endpoint, statistics);
+            endpointMetrics.record(endpoint, status, System.nanoTime()
+                    - (Long) request.getAttribute(START_ATTRIBUTE));
+        }
+    }
+
+    /**
+     * A response which adds the Server-Timing header before it is committed.
+     */
+    private static class ServerTimingResponse
+            extends HttpServletResponseWrapper {
+
+        /**
+         * The statistics of the request.
+         */
+        private final RequestStatistics statistics;
+        /**
+         * Whether the header was added.
+         */
+        private boolean added;
+
+        ServerTimingResponse(HttpServletResponse response,
+                RequestStatistics statistics) {
+            super(response);
+            this.statistics = statistics;
+        }
+
+        /**
+         * A method to add the header once if the response isn't committed.
+         */
+        void addServerTiming() {
+            if (!added && !isCommitted()) {
+                added = true;
+                addHeader(SERVER_TIMING, statistics.toServerTiming());
+            }
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            addServerTiming();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            addServerTiming();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            addServerTiming();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            addServerTiming();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            addServerTiming();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            addServerTiming();
+            super.sendRedirect(location);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.components;
+
+import org.hibernate.BaseSessionEventListener;
+
+/**
+ * A Hibernate session listener which records statements and flushes in the
+ * statistics of the current request. Hibernate creates an instance for each
+ * session when the class is set in the hibernate.session.events.auto
+ * property. Only the execution of statements is timed, reading the results
+ * isn't.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+public class RequestStatisticsListener extends BaseSessionEventListener {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The time the statement being executed was started.
+     */
+    private long executionStart;
+
+    @Override
+    public void jdbcPrepareStatementStart() {
+        RequestStatistics statistics = RequestStatistics.current();
+        if (statistics != null) {
+            statistics.statementPrepared();
+        }
+    }
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        executionStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        executed();
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        executionStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        executed();
+    }
+
+    @Override
+    public void flushEnd(int numberOfEntities, int numberOfCollections) {
+        flushed(numberOfEntities);
+    }
+
+    @Override
+    public void partialFlushEnd(int numberOfEntities,
+            int numberOfCollections) {
+        flushed(numberOfEntities);
+    }
+
+    /**
+     * A method to record the execution time of a statement.
+     */
+    private void executed() {
+        RequestStatistics statistics = RequestStatistics.current();
+        if (statistics != null) {
+            statistics.statementExecuted(System.nanoTime() - executionStart);
+        }
+    }
+
+    /**
+     * A method to record the entities dirty-checked by a flush.
+     *
+     * @param count the number of entities.
+     */
+    private void flushed(int count) {
+        RequestStatistics statistics = RequestStatistics.current();
+        if (statistics != null) {
+            statistics.entitiesFlushed(count);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.components;
+
+import org.springframework.context.annotation.Scope;
+import org.springframework.context.annotation.ScopedProxyMode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.WebApplicationContext;
+
+/**
+ * A request scoped holder of the user resolved during the request, for
+ * example, by authentication. Resource methods use it to skip a database
+ * query when they need to know whether a user exists.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+@Component
+@Scope(value = WebApplicationContext.SCOPE_REQUEST,
+        proxyMode = ScopedProxyMode.TARGET_CLASS)
+public class ResolvedUserHolder {
+
+    /**
+     * The name of the resolved user.
+     */
+    private String username;
+    /**
+     * The id of the resolved user.
+     */
+    private Integer userId;
+
+    /**
+     * A method to remember a user which is known to exist.
+     *
+     * @param username the username.
+     * @param userId the id of the user.
+     */
+    public void resolve(String username, Integer userId) {
+        this.username = username;
+        this.userId = userId;
+    }
+
+    /**
+     * A method to check if a user was resolved during the request.
+     *
+     * @param username the username.
+     * @return true if the user is known to exist.
+     */
+    public boolean isResolved(String username) {
+        return this.username != null && this.username.equals(username);
+    }
+
+    /**
+     * A method to get the id of a resolved user.
+     *
+     * @param username the username.
+     * @return the id of the user or null if the user wasn't resolved.
+     */
+    public Integer getUserId(String username) {
+        return isResolved(username) ? userId : null;
+    }
+}
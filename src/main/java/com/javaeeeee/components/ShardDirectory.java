@@ -0,0 +1,197 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.components;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * The directory which knows the shard of each user. The shards of users are
+ * stored in the user_shards table of the main database, a user who isn't
+ * there is placed by the hash ring. The entries are cached for a while, so a
+ * change is seen by other instances of the application only after the cache
+ * expires.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+public class ShardDirectory {
+
+    /**
+     * The maximum number of cached users.
+     */
+    private static final int MAXIMUM_SIZE = 100_000;
+
+    /**
+     * The main database, which holds the directory.
+     */
+    private final JdbcTemplate jdbcTemplate;
+    /**
+     * The names of the shards.
+     */
+    private final Set<String> shards;
+    /**
+     * The ring which places users who aren't in the directory.
+     */
+    private final ConsistentHashRing ring;
+    /**
+     * Cached entries of the directory keyed by username.
+     */
+    private final Cache<String, Entry> entries;
+
+    /**
+     * A constructor to create the directory.
+     *
+     * @param main the main database.
+     * @param shards the names of the shards including main.
+     * @param virtualNodes the number of points of each shard on the ring.
+     * @param ttl the number of seconds for which an entry is cached.
+     */
+    public ShardDirectory(DataSource main, Set<String> shards,
+            int virtualNodes, long ttl) {
+        this.jdbcTemplate = new JdbcTemplate(main);
+        this.shards = Collections.unmodifiableSet(
+                new LinkedHashSet<>(shards));
+        this.ring = new ConsistentHashRing(shards, virtualNodes);
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(MAXIMUM_SIZE)
+                .expireAfterWrite(ttl, TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * A method to obtain the names of the shards.
+     *
+     * @return the names of the shards.
+     */
+    public Set<String> getShards() {
+        return shards;
+    }
+
+    /**
+     * A method to find the shard of a user.
+     *
+     * @param username the username.
+     * @return the name of the shard.
+     */
+    public String getShard(String username) {
+        return entries.get(username, this::load).shard;
+    }
+
+    /**
+     * A method to check if a user is being moved to another shard, in which
+     * case the data of the user shouldn't be changed.
+     *
+     * @param username the username.
+     * @return true if the user is being moved.
+     */
+    public boolean isMoving(String username) {
+        return entries.get(username, this::load).moving;
+    }
+
+    /**
+     * A method to store the shard of a user in the directory.
+     *
+     * @param username the username.
+     * @param shard the name of the shard.
+     * @param moving whether the user is being moved.
+     */
+    public void assign(String username, String shard, boolean moving) {
+        if (!shards.contains(shard)) {
+            throw new IllegalArgumentException("Unknown shard " + shard);
+        }
+        int updated = jdbcTemplate.update(
+                "update user_shards set shard = ?, moving = ? "
+                + "where username = ?", shard, moving, username);
+        if (updated == 0) {
+            jdbcTemplate.update("insert into user_shards "
+                    + "(username, shard, moving) values (?, ?, ?)",
+                    username, shard, moving);
+        }
+        entries.invalidate(username);
+    }
+
+    /**
+     * A method to store the shard of users who are stored in the shard but
+     * aren't in the directory yet.
+     *
+     * @param shard the name of the shard.
+     * @param usernames the users of the shard.
+     * @return the number of users added to the directory.
+     */
+    public int assignMissing(String shard, List<String> usernames) {
+        Set<String> missing = new LinkedHashSet<>(usernames);
+        missing.removeAll(jdbcTemplate.queryForList(
+                "select username from user_shards", String.class));
+        for (String username : missing) {
+            assign(username, shard, false);
+        }
+        return missing.size();
+    }
+
+    /**
+     * A method to forget the cached entry of a user.
+     *
+     * @param username the username.
+     */
+    public void evict(String username) {
+        entries.invalidate(username);
+    }
+
+    /**
+     * A method to read the entry of a user from the database.
+     *
+     * @param username the username.
+     * @return the entry, which is placed by the ring if the user isn't in the
+     * directory.
+     */
+    private Entry load(String username) {
+        List<Entry> found = jdbcTemplate.query(
+                "select shard, moving from user_shards where username = ?",
+                (rs, row) -> new Entry(rs.getString(1), rs.getBoolean(2)),
+                username);
+        return found.isEmpty()
+                ? new Entry(ring.getNode(username), false) : found.get(0);
+    }
+
+    /**
+     * An entry of the directory.
+     */
+    private static final class Entry {
+
+        private final String shard;
+        private final boolean moving;
+
+        Entry(String shard, boolean moving) {
+            this.shard = shard;
+            this.moving = moving;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.components;
+
+import com.javaeeeee.exception.ServiceUnavailableException;
+import java.util.Map;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+/**
+ * An interceptor which sends the database work of a request to the shard of
+ * the user in the path, or of the authenticated user if there is no user in
+ * the path. Changes of a user who is being moved to another shard are
+ * rejected until the move is done.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+public class ShardInterceptor extends HandlerInterceptorAdapter {
+
+    /**
+     * The directory of users.
+     */
+    private final ShardDirectory directory;
+
+    /**
+     * A constructor to inject the directory.
+     *
+     * @param directory the directory of users.
+     */
+    public ShardInterceptor(ShardDirectory directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request,
+            HttpServletResponse response, Object handler)
+            throws ServiceUnavailableException {
+        @SuppressWarnings("unchecked")
+        Map<String, String> variables = (Map<String, String>) request
+                .getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        String username = variables != null ? variables.get("username") : null;
+        if (username == null) {
+            username = request.getRemoteUser();
+        }
+        if (username == null) {
+            return true;
+        }
+        ShardRoutingDataSource.useShardOf(username);
+        if (ReadYourWritesInterceptor.isWrite(request)
+                && directory.isMoving(username)) {
+            throw new ServiceUnavailableException("The user " + username
+                    + " is being moved to another shard.");
+        }
+        return true;
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.components;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import javax.sql.DataSource;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * This class moves users with their bookmarks between shards while the
+ * application is running. Changes of the user are rejected during a move, so
+ * the rows may be copied without locks, while the user is still read from
+ * the old shard until the directory is switched. Each step waits for the
+ * grace period, so that all instances of the application see the changed
+ * directory and the requests which started before are done.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+@ManagedResource(objectName = "com.javaeeeee:type=ShardRebalancer",
+        description = "Moves of users between shards")
+public class ShardRebalancer {
+
+    /**
+     * The number of bookmarks which are read and inserted at once.
+     */
+    static final int PAGE_SIZE = 500;
+
+    /**
+     * The shards.
+     */
+    private final ShardRoutingDataSource shardRoutingDataSource;
+    /**
+     * The directory of users.
+     */
+    private final ShardDirectory directory;
+    /**
+     * The number of seconds to wait after the directory is changed.
+     */
+    private final long grace;
+
+    /**
+     * A constructor to inject dependencies.
+     *
+     * @param shardRoutingDataSource the shards.
+     * @param grace the number of seconds to wait after the directory is
+     * changed.
+     */
+    public ShardRebalancer(ShardRoutingDataSource shardRoutingDataSource,
+            long grace) {
+        this.shardRoutingDataSource = shardRoutingDataSource;
+        this.directory = shardRoutingDataSource.getDirectory();
+        this.grace = grace;
+    }
+
+    /**
+     * A method to find the shard of a user.
+     *
+     * @param username the username.
+     * @return the name of the shard.
+     */
+    @ManagedOperation(description = "Find the shard of a user")
+    public String getShard(String username) {
+        directory.evict(username);
+        return directory.getShard(username);
+    }
+
+    /**
+     * A method to move a user with the bookmarks to another shard. The rows
+     * keep their ids, which are unique across shards. The bookmarks are read
+     * in pages ordered by id and each page is inserted by a batch.
+     *
+     * @param username the username.
+     * @param target the name of the shard to move the user to.
+     * @throws InterruptedException if the thread is interrupted while waiting
+     * for the grace period.
+     */
+    @ManagedOperation(description = "Move a user with the bookmarks to "
+            + "another shard")
+    public synchronized void moveUser(String username, String target)
+            throws InterruptedException {
+        if (!directory.getShards().contains(target)) {
+            throw new IllegalArgumentException("Unknown shard " + target);
+        }
+        String source = getShard(username);
+        if (source.equals(target)) {
+            return;
+        }
+        JdbcTemplate from = jdbcTemplate(source);
+        JdbcTemplate to = jdbcTemplate(target);
+        Map<String, Object> user;
+        try {
+            user = from.queryForMap(
+                    "select * from users where username = ?", username);
+        } catch (EmptyResultDataAccessException e) {
+            throw new IllegalArgumentException("Unknown user " + username, e);
+        }
+        Object userId = user.get("id");
+
+        directory.assign(username, source, true);
+        try {
+            TimeUnit.SECONDS.sleep(grace);
+            transactionTemplate(target).execute(status -> {
+                // Leftovers of an interrupted move are replaced.
+                to.update("delete from bookmarks where user_id = ?", userId);
+                to.update("delete from users where id = ?", userId);
+                insert(to, "users", Collections.singletonList(user));
+                List<Map<String, Object>> bookmarks;
+                Object after = 0;
+                do {
+                    bookmarks = from.queryForList("select * from bookmarks"
+                            + " where user_id = ? and id > ? order by id"
+                            + " limit ?", userId, after, PAGE_SIZE);
+                    insert(to, "bookmarks", bookmarks);
+                    if (!bookmarks.isEmpty()) {
+                        after = bookmarks.get(bookmarks.size() - 1).get("id");
+                    }
+                } while (bookmarks.size() == PAGE_SIZE);
+                return null;
+            });
+        } catch (InterruptedException | RuntimeException e) {
+            directory.assign(username, source, false);
+            throw e;
+        }
+        directory.assign(username, target, false);
+
+        TimeUnit.SECONDS.sleep(grace);
+        transactionTemplate(source).execute(status -> {
+            from.update("delete from bookmarks where user_id = ?", userId);
+            from.update("delete from users where id = ?", userId);
+            return null;
+        });
+    }
+
+    /**
+     * A method to insert rows copied from another shard by a batch.
+     *
+     * @param jdbcTemplate the shard.
+     * @param table the table.
+     * @param rows the values keyed by column, all rows have the same columns.
+     */
+    private static void insert(JdbcTemplate jdbcTemplate, String table,
+            List<Map<String, Object>> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        Set<String> keys = rows.get(0).keySet();
+        String columns = String.join(", ", keys);
+        String parameters = keys.stream()
+                .map(column -> "?")
+                .collect(Collectors.joining(", "));
+        jdbcTemplate.batchUpdate("insert into " + table + " (" + columns
+                + ") values (" + parameters + ")", rows.stream()
+                .map(row -> row.values().toArray())
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * A method to create a template which runs statements on a shard.
+     *
+     * @param shard the name of the shard.
+     * @return the template.
+     */
+    private JdbcTemplate jdbcTemplate(String shard) {
+        return new JdbcTemplate(dataSource(shard));
+    }
+
+    /**
+     * A method to create a template which runs a transaction on a shard.
+     *
+     * @param shard the name of the shard.
+     * @return the template.
+     */
+    private TransactionTemplate transactionTemplate(String shard) {
+        return new TransactionTemplate(
+                new DataSourceTransactionManager(dataSource(shard)));
+    }
+
+    /**
+     * A method to find the pool of a shard.
+     *
+     * @param shard the name of the shard.
+     * @return the pool.
+     */
+    private DataSource dataSource(String shard) {
+        return shardRoutingDataSource.getShards().get(shard);
+    }
+}
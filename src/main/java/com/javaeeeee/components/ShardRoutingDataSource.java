@@ -0,0 +1,160 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.components;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import javax.sql.DataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * A data source which sends the connections of a request to the shard of the
+ * user the request is about. The user is known only after the request is
+ * authenticated or mapped, so the data source should be wrapped in a
+ * LazyConnectionDataSourceProxy. Connections outside of requests go to the
+ * main shard unless a shard is chosen explicitly.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+    /**
+     * The name of the request attribute which holds the user whose shard is
+     * used by the request.
+     */
+    public static final String USERNAME_ATTRIBUTE
+            = ShardRoutingDataSource.class.getName() + ".USERNAME";
+    /**
+     * The name of the shard of the spring.datasource database.
+     */
+    public static final String MAIN = "main";
+
+    /**
+     * The shard chosen explicitly by the current thread.
+     */
+    private static final ThreadLocal<String> EXPLICIT_SHARD
+            = new ThreadLocal<>();
+
+    /**
+     * The shards keyed by name.
+     */
+    private final Map<String, DataSource> shards;
+    /**
+     * The directory of users.
+     */
+    private final ShardDirectory directory;
+
+    /**
+     * A constructor to route connections between shards.
+     *
+     * @param shards the shards keyed by name, including main.
+     * @param directory the directory of users.
+     */
+    public ShardRoutingDataSource(Map<String, DataSource> shards,
+            ShardDirectory directory) {
+        if (!shards.containsKey(MAIN)) {
+            throw new IllegalArgumentException("The main shard is missing.");
+        }
+        this.shards = Collections.unmodifiableMap(new LinkedHashMap<>(shards));
+        this.directory = directory;
+        setTargetDataSources(new HashMap<>(shards));
+        setDefaultTargetDataSource(shards.get(MAIN));
+    }
+
+    /**
+     * A method to send the connections of the current request to the shard
+     * of a user.
+     *
+     * @param username the username.
+     */
+    public static void useShardOf(String username) {
+        RequestAttributes attributes
+                = RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            attributes.setAttribute(USERNAME_ATTRIBUTE, username,
+                    RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+
+    /**
+     * A method to run a task with the connections of the current thread sent
+     * to a shard, for example to work with all shards in turn.
+     *
+     * @param <T> the type of the result.
+     * @param shard the name of the shard.
+     * @param task the task.
+     * @return the result of the task.
+     * @throws Exception if the task fails.
+     */
+    public static <T> T callOnShard(String shard, Callable<T> task)
+            throws Exception {
+        String previous = EXPLICIT_SHARD.get();
+        EXPLICIT_SHARD.set(shard);
+        try {
+            return task.call();
+        } finally {
+            if (previous == null) {
+                EXPLICIT_SHARD.remove();
+            } else {
+                EXPLICIT_SHARD.set(previous);
+            }
+        }
+    }
+
+    /**
+     * A method to obtain the shards.
+     *
+     * @return the shards keyed by name.
+     */
+    public Map<String, DataSource> getShards() {
+        return shards;
+    }
+
+    /**
+     * A method to obtain the directory of users.
+     *
+     * @return the directory.
+     */
+    public ShardDirectory getDirectory() {
+        return directory;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String shard = EXPLICIT_SHARD.get();
+        if (shard != null) {
+            return shard;
+        }
+        RequestAttributes attributes
+                = RequestContextHolder.getRequestAttributes();
+        Object username = attributes == null ? null : attributes.getAttribute(
+                USERNAME_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        return username == null ? MAIN : directory.getShard((String) username);
+    }
+}
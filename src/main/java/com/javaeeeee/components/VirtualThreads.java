@@ -0,0 +1,101 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.components;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Factory methods of executors which run each task in a new virtual thread.
+ * Virtual threads are available since Java 21 while the application is
+ * compiled for Java 8, so they are created reflectively.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * A method to check if the running JVM supports virtual threads.
+     *
+     * @return true if virtual threads are supported.
+     */
+    public static boolean isSupported() {
+        try {
+            Thread.class.getMethod("ofVirtual");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * A method to check if a virtual thread which blocks in a synchronized
+     * block pins its carrier thread, which is the case before Java 24.
+     *
+     * @return true if synchronized blocks pin carrier threads.
+     */
+    public static boolean isPinnedBySynchronized() {
+        String version = System.getProperty("java.specification.version");
+        return !version.startsWith("1.") && Integer.parseInt(version) < 24;
+    }
+
+    /**
+     * A method to create an executor which starts a new virtual thread for
+     * each task. The threads are named by the prefix followed by a counter.
+     *
+     * @param prefix the prefix of the names of the threads.
+     * @return the executor.
+     * @throws IllegalStateException if virtual threads aren't supported.
+     */
+    public static ExecutorService newThreadPerTaskExecutor(String prefix) {
+        if (!isSupported()) {
+            throw new IllegalStateException("Virtual threads require Java 21"
+                    + " or later, the running version is "
+                    + System.getProperty("java.version") + ".");
+        }
+        try {
+            // Thread.ofVirtual().name(prefix, 0).factory()
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            Object ofVirtual = Thread.class.getMethod("ofVirtual")
+                    .invoke(null);
+            ofVirtual = builder.getMethod("name", String.class, long.class)
+                    .invoke(ofVirtual, prefix, 0L);
+            ThreadFactory factory = (ThreadFactory) builder
+                    .getMethod("factory").invoke(ofVirtual);
+            Method newExecutor = Executors.class.getMethod(
+                    "newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) newExecutor.invoke(null, factory);
+        } catch (ClassNotFoundException | NoSuchMethodException
+                | IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException(
+                    "Virtual threads can't be created.", e);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.configuration;
+
+import com.javaeeeee.components.Bulkhead;
+import com.javaeeeee.components.RequestContextTaskDecorator;
+import com.javaeeeee.components.VirtualThreads;
+import javax.persistence.EntityManagerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
+
+/**
+ * A configuration of the bulkheads which do the work of the bookmark
+ * endpoints, so that the threads of the web server don't wait for the
+ * database. Reads, writes, searches and exports have separate limits, so a
+ * burst of one kind doesn't starve the others. If virtual threads are
+ * enabled, each task gets a new virtual thread and the number of threads of a
+ * bulkhead limits the number of running tasks.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+@Configuration
+public class AsyncConfiguration {
+
+    /**
+     * The name of the bulkhead of the requests which read bookmarks.
+     */
+    public static final String READS = "reads";
+    /**
+     * The name of the bulkhead of the requests which change bookmarks.
+     */
+    public static final String WRITES = "writes";
+    /**
+     * The name of the bulkhead of the full-text searches.
+     */
+    public static final String SEARCH = "search";
+    /**
+     * The name of the bulkhead of the exports.
+     */
+    public static final String EXPORT = "export";
+
+    /**
+     * A method to create the decorator which passes the request and its
+     * entity manager to the bulkhead threads.
+     *
+     * @param entityManagerFactory the entity manager factory.
+     * @return the decorator.
+     */
+    @Bean
+    public TaskDecorator requestContextTaskDecorator(
+            EntityManagerFactory entityManagerFactory) {
+        return new RequestContextTaskDecorator(entityManagerFactory);
+    }
+
+    /**
+     * A method to create the bulkhead of the requests which read bookmarks.
+     *
+     * @param properties Application settings.
+     * @param decorator the decorator of tasks.
+     * @return the bulkhead.
+     */
+    @Bean(name = READS, destroyMethod = "shutdown")
+    public Bulkhead readsBulkhead(BookmarksProperties properties,
+            TaskDecorator decorator) {
+        return create(READS, properties.getAsync().getReads(), properties,
+                decorator);
+    }
+
+    /**
+     * A method to create the bulkhead of the requests which change bookmarks.
+     *
+     * @param properties Application settings.
+     * @param decorator the decorator of tasks.
+     * @return the bulkhead.
+     */
+    @Bean(name = WRITES, destroyMethod = "shutdown")
+    public Bulkhead writesBulkhead(BookmarksProperties properties,
+            TaskDecorator decorator) {
+        return create(WRITES, properties.getAsync().getWrites(), properties,
+                decorator);
+    }
+
+    /**
+     * A method to create the bulkhead of the full-text searches.
+     *
+     * @param properties Application settings.
+     * @param decorator the decorator of tasks.
+     * @return the bulkhead.
+     */
+    @Bean(name = SEARCH, destroyMethod = "shutdown")
+    public Bulkhead searchBulkhead(BookmarksProperties properties,
+            TaskDecorator decorator) {
+        return create(SEARCH, properties.getAsync().getSearch(), properties,
+                decorator);
+    }
+
+    /**
+     * A method to create the bulkhead of the exports, which runs them in the
+     * thread of the web server and only limits their number.
+     *
+     * @param properties Application settings.
+     * @return the bulkhead.
+     */
+    @Bean(name = EXPORT)
+    public Bulkhead exportBulkhead(BookmarksProperties properties) {
+        if (!properties.getAsync().isEnabled()) {
+            return new Bulkhead(EXPORT);
+        }
+        return new Bulkhead(EXPORT, properties.getAsync().getExport());
+    }
+
+    /**
+     * A method to create a bulkhead which runs tasks in the calling thread if
+     * the asynchronous handling is disabled, and in virtual threads if they
+     * are enabled.
+     *
+     * @param name the name of the bulkhead.
+     * @param settings the settings of the bulkhead.
+     * @param properties Application settings.
+     * @param decorator the decorator of tasks.
+     * @return the bulkhead.
+     */
+    private static Bulkhead create(String name,
+            BookmarksProperties.Bulkhead settings,
+            BookmarksProperties properties, TaskDecorator decorator) {
+        if (!properties.getAsync().isEnabled()) {
+            return new Bulkhead(name);
+        }
+        if (properties.getThreads().isVirtual()) {
+            return new Bulkhead(name, settings,
+                    VirtualThreads.newThreadPerTaskExecutor(
+                            "bulkhead-" + name + "-"), decorator);
+        }
+        return new Bulkhead(name, settings, decorator);
+    }
+}
@@ -0,0 +1,744 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.configuration;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Application specific settings which can be changed in
+ * application.properties using the "bookmarks" prefix.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+@ConfigurationProperties(prefix = "bookmarks")
+public class BookmarksProperties {
+
+    /**
+     * Settings of paginated bookmark listings.
+     */
+    private final Paging paging = new Paging();
+    /**
+     * Settings of the bookmarks export.
+     */
+    private final Export export = new Export();
+    /**
+     * Settings of the bulk import.
+     */
+    private final Import imports = new Import();
+    /**
+     * Settings of the cache of successful authentications.
+     */
+    private final AuthCache authCache = new AuthCache();
+    /**
+     * Settings of the Hibernate second-level cache.
+     */
+    private final Cache cache = new Cache();
+    /**
+     * Settings of the full-text search.
+     */
+    private final Search search = new Search();
+    /**
+     * Settings of the instrumentation of requests.
+     */
+    private final Instrumentation instrumentation = new Instrumentation();
+    /**
+     * Settings of the asynchronous handling of requests.
+     */
+    private final Async async = new Async();
+    /**
+     * Settings of the threads which handle requests.
+     */
+    private final Threads threads = new Threads();
+    /**
+     * Settings of the read replicas of the database.
+     */
+    private final Datasource datasource = new Datasource();
+    /**
+     * Settings of the sharding of users across databases.
+     */
+    private final Sharding sharding = new Sharding();
+    /**
+     * Settings of the hashing of passwords.
+     */
+    private final Passwords passwords = new Passwords();
+
+    public Paging getPaging() {
+        return paging;
+    }
+
+    public Export getExport() {
+        return export;
+    }
+
+    public Import getImport() {
+        return imports;
+    }
+
+    public AuthCache getAuthCache() {
+        return authCache;
+    }
+
+    public Cache getCache() {
+        return cache;
+    }
+
+    public Search getSearch() {
+        return search;
+    }
+
+    public Instrumentation getInstrumentation() {
+        return instrumentation;
+    }
+
+    public Async getAsync() {
+        return async;
+    }
+
+    public Threads getThreads() {
+        return threads;
+    }
+
+    public Datasource getDatasource() {
+        return datasource;
+    }
+
+    public Sharding getSharding() {
+        return sharding;
+    }
+
+    public Passwords getPasswords() {
+        return passwords;
+    }
+
+    /**
+     * Settings of paginated bookmark listings.
+     */
+    public static class Paging {
+
+        /**
+         * The page size used when a client provides a cursor but no limit.
+         */
+        private int defaultLimit = 100;
+        /**
+         * The largest page size a client may request.
+         */
+        private int maxLimit = 1000;
+
+        public int getDefaultLimit() {
+            return defaultLimit;
+        }
+
+        public void setDefaultLimit(int defaultLimit) {
+            this.defaultLimit = defaultLimit;
+        }
+
+        public int getMaxLimit() {
+            return maxLimit;
+        }
+
+        public void setMaxLimit(int maxLimit) {
+            this.maxLimit = maxLimit;
+        }
+    }
+
+    /**
+     * Settings of the bookmarks export.
+     */
+    public static class Export {
+
+        /**
+         * The number of exported bookmarks after which the output is
+         * flushed.
+         */
+        private int flushInterval = 500;
+
+        public int getFlushInterval() {
+            return flushInterval;
+        }
+
+        public void setFlushInterval(int flushInterval) {
+            this.flushInterval = flushInterval;
+        }
+    }
+
+    /**
+     * Settings of the bulk import.
+     */
+    public static class Import {
+
+        /**
+         * The number of bookmarks inserted in one transaction. It should be a
+         * multiple of hibernate.jdbc.batch_size.
+         */
+        private int batchSize = 50;
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+    }
+
+    /**
+     * Settings of the cache of successful authentications.
+     */
+    public static class AuthCache {
+
+        /**
+         * The maximum number of cached users.
+         */
+        private long maximumSize = 10000;
+        /**
+         * The number of seconds after which a cached authentication expires.
+         */
+        private long timeToLive = 300;
+
+        public long getMaximumSize() {
+            return maximumSize;
+        }
+
+        public void setMaximumSize(long maximumSize) {
+            this.maximumSize = maximumSize;
+        }
+
+        public long getTimeToLive() {
+            return timeToLive;
+        }
+
+        public void setTimeToLive(long timeToLive) {
+            this.timeToLive = timeToLive;
+        }
+    }
+
+    /**
+     * Settings of the hashing of passwords.
+     */
+    public static class Passwords {
+
+        /**
+         * The BCrypt cost of new hashes, the hashing takes twice as long for
+         * each step. Stored hashes keep their cost.
+         */
+        private int strength = 10;
+
+        public int getStrength() {
+            return strength;
+        }
+
+        public void setStrength(int strength) {
+            this.strength = strength;
+        }
+    }
+
+    /**
+     * Settings of the Hibernate second-level cache.
+     */
+    public static class Cache {
+
+        /**
+         * The settings of regions which are not listed in regions.
+         */
+        private final Region defaults = new Region();
+        /**
+         * The settings of cache regions keyed by region name.
+         */
+        private final Map<String, Region> regions = new LinkedHashMap<>();
+
+        public Region getDefaults() {
+            return defaults;
+        }
+
+        public Map<String, Region> getRegions() {
+            return regions;
+        }
+    }
+
+    /**
+     * Settings of a second-level cache region.
+     */
+    public static class Region {
+
+        /**
+         * The maximum number of entries kept in the region.
+         */
+        private int maxEntries = 10000;
+        /**
+         * The number of seconds after which an entry expires, zero means that
+         * entries never expire.
+         */
+        private long timeToLive = 600;
+
+        public int getMaxEntries() {
+            return maxEntries;
+        }
+
+        public void setMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        public long getTimeToLive() {
+            return timeToLive;
+        }
+
+        public void setTimeToLive(long timeToLive) {
+            this.timeToLive = timeToLive;
+        }
+    }
+
+    /**
+     * Settings of the full-text search.
+     */
+    public static class Search {
+
+        /**
+         * The directory of the search index, relative to the working
+         * directory unless it's absolute. If empty the index is kept in
+         * memory, which is meant for tests: an index in memory is lost when
+         * the application stops, so all bookmarks are read from the database
+         * to rebuild it on every startup, and it takes heap space in
+         * proportion to their number.
+         */
+        private String directory = "data/index";
+        /**
+         * The number of milliseconds between commits of the search index.
+         */
+        private long commitInterval = 1000;
+        /**
+         * Whether the search index is rebuilt on startup even if it isn't
+         * empty.
+         */
+        private boolean rebuildOnStartup;
+        /**
+         * The maximum number of matches which may be skipped. All the skipped
+         * matches are ranked, so deep pages are expensive.
+         */
+        private int maxOffset = 10000;
+
+        public String getDirectory() {
+            return directory;
+        }
+
+        public void setDirectory(String directory) {
+            this.directory = directory;
+        }
+
+        public long getCommitInterval() {
+            return commitInterval;
+        }
+
+        public void setCommitInterval(long commitInterval) {
+            this.commitInterval = commitInterval;
+        }
+
+        public boolean isRebuildOnStartup() {
+            return rebuildOnStartup;
+        }
+
+        public void setRebuildOnStartup(boolean rebuildOnStartup) {
+            this.rebuildOnStartup = rebuildOnStartup;
+        }
+
+        public int getMaxOffset() {
+            return maxOffset;
+        }
+
+        public void setMaxOffset(int maxOffset) {
+            this.maxOffset = maxOffset;
+        }
+    }
+
+    /**
+     * Settings of the instrumentation of requests.
+     */
+    public static class Instrumentation {
+
+        /**
+         * Whether the database work of requests is recorded per endpoint.
+         */
+        private boolean enabled = true;
+        /**
+         * Whether the database work of a request is sent in the Server-Timing
+         * response header.
+         */
+        private boolean serverTiming;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public boolean isServerTiming() {
+            return serverTiming;
+        }
+
+        public void setServerTiming(boolean serverTiming) {
+            this.serverTiming = serverTiming;
+        }
+    }
+
+    /**
+     * Settings of the asynchronous handling of requests.
+     */
+    public static class Async {
+
+        /**
+         * Whether the database work of requests is done by the bulkhead
+         * executors rather than by the threads of the web server.
+         */
+        private boolean enabled = true;
+        /**
+         * The bulkhead of the requests which read bookmarks.
+         */
+        private final Bulkhead reads = new Bulkhead(20, 100);
+        /**
+         * The bulkhead of the requests which change bookmarks.
+         */
+        private final Bulkhead writes = new Bulkhead(10, 50);
+        /**
+         * The bulkhead of the full-text searches, which are served by the
+         * index rather than by the database.
+         */
+        private final Bulkhead search = new Bulkhead(10, 50);
+        /**
+         * The bulkhead of the exports. An export writes the response as it
+         * reads the bookmarks, so it is run by the thread of the web server
+         * and the number of threads is the number of exports run at once.
+         */
+        private final Bulkhead export = new Bulkhead(2, 10);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Bulkhead getReads() {
+            return reads;
+        }
+
+        public Bulkhead getWrites() {
+            return writes;
+        }
+
+        public Bulkhead getSearch() {
+            return search;
+        }
+
+        public Bulkhead getExport() {
+            return export;
+        }
+    }
+
+    /**
+     * Settings of the threads which handle requests.
+     */
+    public static class Threads {
+
+        /**
+         * Whether requests and the tasks of the bulkheads are run by virtual
+         * threads, which requires Java 21 or later. Before Java 24 a virtual
+         * thread which blocks inside a synchronized block pins its carrier
+         * thread, and both MySQL Connector/J 5.1 and the Tomcat JDBC pool
+         * block on I/O and on the pool inside synchronized blocks. So on Java
+         * 21 to 23 the number of requests waiting for the database at once is
+         * limited by the number of carriers, the number of CPUs by default,
+         * and the mode may be slower than the thread pools.
+         */
+        private boolean virtual;
+
+        public boolean isVirtual() {
+            return virtual;
+        }
+
+        public void setVirtual(boolean virtual) {
+            this.virtual = virtual;
+        }
+    }
+
+    /**
+     * Settings of the read replicas of the database. The replicas share the
+     * pool settings of the primary database.
+     */
+    public static class Datasource {
+
+        /**
+         * The read replicas, which are used by read-only transactions in
+         * turn. All transactions go to the primary database if there are
+         * none.
+         */
+        private final List<Replica> replicas = new ArrayList<>();
+        /**
+         * The number of seconds for which the reads of a user go to the
+         * primary database after the user changed something, so that the
+         * user sees the changes before they reach the replicas. Zero turns it
+         * off.
+         */
+        private long stickyWindow = 5;
+
+        public List<Replica> getReplicas() {
+            return replicas;
+        }
+
+        public long getStickyWindow() {
+            return stickyWindow;
+        }
+
+        public void setStickyWindow(long stickyWindow) {
+            this.stickyWindow = stickyWindow;
+        }
+    }
+
+    /**
+     * Settings of a read replica of the database.
+     */
+    public static class Replica {
+
+        /**
+         * The JDBC URL of the replica.
+         */
+        private String url;
+        /**
+         * The username, the one of the primary database by default.
+         */
+        private String username;
+        /**
+         * The password, the one of the primary database by default.
+         */
+        private String password;
+
+        public String getUrl() {
+            return url;
+        }
+
+        public void setUrl(String url) {
+            this.url = url;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public void setUsername(String username) {
+            this.username = username;
+        }
+
+        public String getPassword() {
+            return password;
+        }
+
+        public void setPassword(String password) {
+            this.password = password;
+        }
+    }
+
+    /**
+     * Settings of the sharding of users, with their bookmarks, across
+     * databases. The database of the spring.datasource properties is the
+     * shard named main and holds the directory of users.
+     */
+    public static class Sharding {
+
+        /**
+         * Whether users are sharded.
+         */
+        private boolean enabled;
+        /**
+         * The shards other than main keyed by name. The names place new users
+         * on the hash ring, so they shouldn't be changed.
+         */
+        private final Map<String, Shard> shards = new LinkedHashMap<>();
+        /**
+         * The number of points of each shard on the hash ring.
+         */
+        private int virtualNodes = 100;
+        /**
+         * The number of seconds for which the shard of a user is cached.
+         */
+        private long directoryTtl = 60;
+        /**
+         * The number of seconds a move of a user waits for the other
+         * instances to see the change of the directory, which should be
+         * longer than the directory TTL plus the longest request.
+         */
+        private long moveGrace = 120;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Map<String, Shard> getShards() {
+            return shards;
+        }
+
+        public int getVirtualNodes() {
+            return virtualNodes;
+        }
+
+        public void setVirtualNodes(int virtualNodes) {
+            this.virtualNodes = virtualNodes;
+        }
+
+        public long getDirectoryTtl() {
+            return directoryTtl;
+        }
+
+        public void setDirectoryTtl(long directoryTtl) {
+            this.directoryTtl = directoryTtl;
+        }
+
+        public long getMoveGrace() {
+            return moveGrace;
+        }
+
+        public void setMoveGrace(long moveGrace) {
+            this.moveGrace = moveGrace;
+        }
+    }
+
+    /**
+     * Settings of a shard.
+     */
+    public static class Shard {
+
+        /**
+         * The JDBC URL of the shard.
+         */
+        private String url;
+        /**
+         * The username, the one of the main database by default.
+         */
+        private String username;
+        /**
+         * The password, the one of the main database by default.
+         */
+        private String password;
+        /**
+         * The first id of users and bookmarks created in the shard. The main
+         * database starts with 1 and ranges up to the lowest first id of the
+         * other shards.
+         */
+        private int firstId;
+        /**
+         * The last id of users and bookmarks which may be created in the
+         * shard. The ranges of the shards shouldn't overlap.
+         */
+        private int lastId;
+
+        public String getUrl() {
+            return url;
+        }
+
+        public void setUrl(String url) {
+            this.url = url;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public void setUsername(String username) {
+            this.username = username;
+        }
+
+        public String getPassword() {
+            return password;
+        }
+
+        public void setPassword(String password) {
+            this.password = password;
+        }
+
+        public int getFirstId() {
+            return firstId;
+        }
+
+        public void setFirstId(int firstId) {
+            this.firstId = firstId;
+        }
+
+        public int getLastId() {
+            return lastId;
+        }
+
+        public void setLastId(int lastId) {
+            this.lastId = lastId;
+        }
+    }
+
+    /**
+     * Settings of a bulkhead executor.
+     */
+    public static class Bulkhead {
+
+        /**
+         * The number of threads, or the number of concurrently running tasks
+         * if virtual threads are used.
+         */
+        private int threads;
+        /**
+         * The maximum number of waiting requests, further requests are
+         * rejected with 503 Service Unavailable.
+         */
+        private int queueCapacity;
+
+        public Bulkhead() {
+        }
+
+        public Bulkhead(int threads, int queueCapacity) {
+            this.threads = threads;
+            this.queueCapacity = queueCapacity;
+        }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public void setThreads(int threads) {
+            this.threads = threads;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+    }
+}
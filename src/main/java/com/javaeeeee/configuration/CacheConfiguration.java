@@ -0,0 +1,112 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.configuration;
+
+import java.util.Map;
+import net.sf.ehcache.CacheManager;
+import org.hibernate.cache.spi.UpdateTimestampsCache;
+import org.springframework.boot.autoconfigure.data.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * A configuration of the Ehcache manager which backs the Hibernate
+ * second-level cache. Hibernate uses the singleton cache manager, so it should
+ * be created from the application settings before the entity manager factory.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+@Configuration
+public class CacheConfiguration {
+
+    /**
+     * The name of the cache manager bean.
+     */
+    static final String CACHE_MANAGER = "hibernateCacheManager";
+
+    /**
+     * A method to create the singleton cache manager with a cache per
+     * configured region. The cache manager is shut down by Hibernate when the
+     * last session factory using it is closed.
+     *
+     * @param properties Application settings.
+     * @return the cache manager.
+     */
+    @Bean(name = CACHE_MANAGER, destroyMethod = "")
+    public CacheManager hibernateCacheManager(BookmarksProperties properties) {
+        BookmarksProperties.Cache cache = properties.getCache();
+        net.sf.ehcache.config.Configuration configuration
+                = new net.sf.ehcache.config.Configuration()
+                .name("bookmarks")
+                .updateCheck(false)
+                .defaultCache(configure(
+                        new net.sf.ehcache.config.CacheConfiguration(),
+                        cache.getDefaults()));
+        for (Map.Entry<String, BookmarksProperties.Region> entry
+                : cache.getRegions().entrySet()) {
+            configuration.addCache(configure(
+                    new net.sf.ehcache.config.CacheConfiguration()
+                    .name(entry.getKey()), entry.getValue()));
+        }
+        // Query results are only valid while the timestamps of the tables
+        // they read are kept, so the timestamps never expire.
+        configuration.addCache(new net.sf.ehcache.config.CacheConfiguration()
+                .name(UpdateTimestampsCache.REGION_NAME)
+                .maxEntriesLocalHeap(0)
+                .eternal(true));
+        return CacheManager.create(configuration);
+    }
+
+    /**
+     * A method to apply region settings to a cache configuration.
+     *
+     * @param configuration the cache configuration.
+     * @param region the region settings.
+     * @return the cache configuration.
+     */
+    private static net.sf.ehcache.config.CacheConfiguration configure(
+            net.sf.ehcache.config.CacheConfiguration configuration,
+            BookmarksProperties.Region region) {
+        configuration.maxEntriesLocalHeap(region.getMaxEntries());
+        if (region.getTimeToLive() > 0) {
+            configuration.timeToLiveSeconds(region.getTimeToLive());
+        } else {
+            configuration.eternal(true);
+        }
+        return configuration;
+    }
+
+    /**
+     * A configuration which makes the entity manager factory wait for the
+     * cache manager.
+     */
+    @Configuration
+    protected static class EntityManagerFactoryDependsOnCacheManager
+            extends EntityManagerFactoryDependsOnPostProcessor {
+
+        public EntityManagerFactoryDependsOnCacheManager() {
+            super(CACHE_MANAGER);
+        }
+    }
+}
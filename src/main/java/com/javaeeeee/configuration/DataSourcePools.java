@@ -0,0 +1,64 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.configuration;
+
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.apache.tomcat.jdbc.pool.PoolProperties;
+import org.springframework.beans.BeanUtils;
+
+/**
+ * A factory of the Tomcat connection pools of the databases which are used
+ * besides the one of the spring.datasource properties.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+final class DataSourcePools {
+
+    private DataSourcePools() {
+    }
+
+    /**
+     * A method to create a pool with the settings of another pool but for a
+     * different database.
+     *
+     * @param template the pool whose settings are copied.
+     * @param name the name of the pool.
+     * @param url the JDBC URL of the database.
+     * @param username the username or null to copy the one of the template.
+     * @param password the password or null to copy the one of the template.
+     * @return the pool.
+     */
+    static DataSource copy(DataSource template, String name, String url,
+            String username, String password) {
+        PoolProperties pool = new PoolProperties();
+        BeanUtils.copyProperties(template.getPoolProperties(), pool, "name",
+                "url", "username", "password", "dataSource");
+        pool.setName(name);
+        pool.setUrl(url);
+        pool.setUsername(username != null ? username : template.getUsername());
+        pool.setPassword(password != null
+                ? password : template.getPoolProperties().getPassword());
+        return new DataSource(pool);
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.configuration;
+
+import com.javaeeeee.components.Bulkhead;
+import com.javaeeeee.components.EndpointMetrics;
+import com.javaeeeee.components.ReadWriteRoutingDataSource;
+import com.javaeeeee.components.ShardRoutingDataSource;
+import com.javaeeeee.controllers.PrometheusEndpoint;
+import io.prometheus.client.Collector;
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.CounterMetricFamily;
+import io.prometheus.client.GaugeMetricFamily;
+import io.prometheus.client.hotspot.DefaultExports;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.sql.DataSource;
+import org.springframework.boot.autoconfigure.jdbc.metadata.DataSourcePoolMetadata;
+import org.springframework.boot.autoconfigure.jdbc.metadata.DataSourcePoolMetadataProvider;
+import org.springframework.boot.autoconfigure.jdbc.metadata.DataSourcePoolMetadataProviders;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * A configuration of the metrics exported to Prometheus: the latency,
+ * throughput and errors of the endpoints, the bulkheads, the connection pools
+ * and the JVM, including the garbage collectors.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+@Configuration
+public class MetricsConfiguration {
+
+    /**
+     * A method to create the registry of the exported metrics. A registry of
+     * the application is used rather than the default one, so that it is
+     * created with the application context.
+     *
+     * @param endpointMetrics the metrics of the endpoints.
+     * @param bulkheads the bulkheads.
+     * @param dataSources data sources keyed by bean name.
+     * @param providers the providers of the pool metadata.
+     * @return the registry.
+     */
+    @Bean
+    public CollectorRegistry collectorRegistry(EndpointMetrics endpointMetrics,
+            Collection<Bulkhead> bulkheads,
+            Map<String, DataSource> dataSources,
+            Collection<DataSourcePoolMetadataProvider> providers) {
+        CollectorRegistry registry = new CollectorRegistry(true);
+        DefaultExports.register(registry);
+        endpointMetrics.register(registry);
+        new BulkheadCollector(bulkheads).register(registry);
+        new DataSourcePoolCollector(dataSources,
+                new DataSourcePoolMetadataProviders(providers))
+                .register(registry);
+        return registry;
+    }
+
+    /**
+     * A method to create the endpoint which returns the metrics.
+     *
+     * @param registry the registry of the exported metrics.
+     * @return the endpoint.
+     */
+    @Bean
+    public PrometheusEndpoint prometheusEndpoint(CollectorRegistry registry) {
+        return new PrometheusEndpoint(registry);
+    }
+
+    /**
+     * A collector of the threads, queues and rejections of the bulkheads.
+     */
+    static class BulkheadCollector extends Collector {
+
+        /**
+         * The bulkheads.
+         */
+        private final Collection<Bulkhead> bulkheads;
+
+        BulkheadCollector(Collection<Bulkhead> bulkheads) {
+            this.bulkheads = bulkheads;
+        }
+
+        @Override
+        public List<MetricFamilySamples> collect() {
+            List<String> labels = Collections.singletonList("bulkhead");
+            GaugeMetricFamily active = new GaugeMetricFamily(
+                    "bulkhead_threads_active",
+                    "Number of threads running tasks", labels);
+            GaugeMetricFamily queued = new GaugeMetricFamily(
+                    "bulkhead_queue_size",
+                    "Number of tasks waiting for a thread", labels);
+            CounterMetricFamily rejected = new CounterMetricFamily(
+                    "bulkhead_rejected_total",
+                    "Number of tasks rejected because the queue was full",
+                    labels);
+            for (Bulkhead bulkhead : bulkheads) {
+                List<String> values
+                        = Collections.singletonList(bulkhead.getName());
+                active.addMetric(values, bulkhead.getActiveCount());
+                queued.addMetric(values, bulkhead.getQueueSize());
+                rejected.addMetric(values, bulkhead.getRejectedCount());
+            }
+            return Arrays.asList(active, queued, rejected);
+        }
+    }
+
+    /**
+     * A collector of the connection pool gauges of the data sources.
+     */
+    static class DataSourcePoolCollector extends Collector {
+
+        /**
+         * Data sources keyed by bean name.
+         */
+        private final Map<String, DataSource> dataSources;
+        /**
+         * The provider of the pool metadata.
+         */
+        private final DataSourcePoolMetadataProvider provider;
+
+        DataSourcePoolCollector(Map<String, DataSource> dataSources,
+                DataSourcePoolMetadataProvider provider) {
+            this.dataSources = dataSources;
+            this.provider = provider;
+        }
+
+        @Override
+        public List<MetricFamilySamples> collect() {
+            List<String> labels = Collections.singletonList("datasource");
+            GaugeMetricFamily active = new GaugeMetricFamily(
+                    "datasource_connections_active",
+                    "Number of connections in use", labels);
+            GaugeMetricFamily max = new GaugeMetricFamily(
+                    "datasource_connections_max",
+                    "Maximum number of connections", labels);
+            GaugeMetricFamily min = new GaugeMetricFamily(
+                    "datasource_connections_min",
+                    "Minimum number of idle connections", labels);
+            for (Map.Entry<String, DataSource> entry : pools().entrySet()) {
+                DataSourcePoolMetadata metadata
+                        = provider.getDataSourcePoolMetadata(entry.getValue());
+                if (metadata == null) {
+                    continue;
+                }
+                List<String> values
+                        = Collections.singletonList(entry.getKey());
+                add(active, values, metadata.getActive());
+                add(max, values, metadata.getMax());
+                add(min, values, metadata.getMin());
+            }
+            return Arrays.asList(active, max, min);
+        }
+
+        /**
+         * A method to obtain the data sources and the replicas or shards of the
+         * routing data sources, which aren't beans.
+         *
+         * @return data sources keyed by name.
+         */
+        private Map<String, DataSource> pools() {
+            Map<String, DataSource> pools = new LinkedHashMap<>(dataSources);
+            for (DataSource dataSource : dataSources.values()) {
+                if (dataSource instanceof ReadWriteRoutingDataSource) {
+                    pools.putAll(((ReadWriteRoutingDataSource) dataSource)
+                            .getReplicas());
+                } else if (dataSource instanceof ShardRoutingDataSource) {
+                    // The main shard is a bean already.
+                    ((ShardRoutingDataSource) dataSource).getShards().forEach(
+                            (name, shard) -> {
+                                if (!pools.containsValue(shard)) {
+                                    pools.put(name, shard);
+                                }
+                            });
+                }
+            }
+            return pools;
+        }
+
+        /**
+         * A method to add a gauge which is known.
+         *
+         * @param family the family of the gauge.
+         * @param labels the label values.
+         * @param value the value or null if unknown.
+         */
+        private static void add(GaugeMetricFamily family, List<String> labels,
+                Integer value) {
+            if (value != null) {
+                family.addMetric(labels, value);
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.configuration;
+
+import org.apache.tomcat.jdbc.pool.DataSource;
+import org.springframework.boot.autoconfigure.condition.AnyNestedCondition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceBuilder;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DatabaseDriver;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * A configuration of the pool of the database of the spring.datasource
+ * properties, which is used if the application works with other databases as
+ * well, that is read replicas or shards, and so the data source of the
+ * application is a routing one. Flyway migrates this database.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+@Configuration
+@Conditional(PrimaryDataSourceConfiguration.RoutingCondition.class)
+public class PrimaryDataSourceConfiguration {
+
+    /**
+     * A method to create the pool of the primary database like the one which
+     * Spring Boot creates if there is a single database.
+     *
+     * @param properties the spring.datasource settings.
+     * @return the pool.
+     */
+    @Bean
+    @FlywayDataSource
+    @ConfigurationProperties(prefix = "spring.datasource.tomcat")
+    public DataSource primaryDataSource(DataSourceProperties properties) {
+        DataSource dataSource = (DataSource) DataSourceBuilder
+                .create(properties.getClassLoader())
+                .type(DataSource.class)
+                .driverClassName(properties.determineDriverClassName())
+                .url(properties.determineUrl())
+                .username(properties.determineUsername())
+                .password(properties.determinePassword())
+                .build();
+        String validationQuery = DatabaseDriver.fromJdbcUrl(
+                properties.determineUrl()).getValidationQuery();
+        if (validationQuery != null) {
+            dataSource.setTestOnBorrow(true);
+            dataSource.setValidationQuery(validationQuery);
+        }
+        return dataSource;
+    }
+
+    /**
+     * The condition which holds if read replicas or shards are set.
+     */
+    static class RoutingCondition extends AnyNestedCondition {
+
+        RoutingCondition() {
+            super(ConfigurationPhase.REGISTER_BEAN);
+        }
+
+        @ConditionalOnProperty(prefix = "bookmarks.datasource.replicas[0]",
+                name = "url")
+        static class Replicas {
+        }
+
+        @ConditionalOnProperty(prefix = "bookmarks.sharding", name = "enabled",
+                havingValue = "true")
+        static class Sharding {
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.configuration;
+
+import com.javaeeeee.components.ReadWriteRoutingDataSource;
+import com.javaeeeee.components.ReadYourWritesInterceptor;
+import com.javaeeeee.components.ReplicaReadsJpaDialect;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.JpaDialect;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
+
+/**
+ * A configuration of the read replicas of the database, which is used if at
+ * least one replica is set in the bookmarks.datasource.replicas property.
+ * Read-only transactions, for example the finders of the repositories, go to
+ * the replicas and the rest goes to the primary database, which is set in the
+ * spring.datasource properties as usual. Flyway migrates only the primary
+ * database. The reads from the replicas don't put entities or query results
+ * into the caches.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "bookmarks.datasource.replicas[0]",
+        name = "url")
+public class ReplicaConfiguration extends WebMvcConfigurerAdapter
+        implements DisposableBean {
+
+    /**
+     * The pools of the replicas, which aren't beans.
+     */
+    private final List<org.apache.tomcat.jdbc.pool.DataSource> replicas
+            = new ArrayList<>();
+    /**
+     * Application settings.
+     */
+    private final BookmarksProperties properties;
+
+    /**
+     * A constructor to inject settings.
+     *
+     * @param properties Application settings.
+     */
+    public ReplicaConfiguration(BookmarksProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * A method to create the routing between the primary database and the
+     * replicas. Each replica gets a pool with the settings of the pool of the
+     * primary database.
+     *
+     * @param primaryDataSource the pool of the primary database.
+     * @return the routing data source.
+     */
+    @Bean
+    public ReadWriteRoutingDataSource routingDataSource(
+            org.apache.tomcat.jdbc.pool.DataSource primaryDataSource) {
+        Map<String, DataSource> targets = new LinkedHashMap<>();
+        List<BookmarksProperties.Replica> settings
+                = properties.getDatasource().getReplicas();
+        for (int i = 0; i < settings.size(); i++) {
+            BookmarksProperties.Replica replica = settings.get(i);
+            String name = "replica-" + i;
+            org.apache.tomcat.jdbc.pool.DataSource dataSource
+                    = DataSourcePools.copy(primaryDataSource, name,
+                            replica.getUrl(), replica.getUsername(),
+                            replica.getPassword());
+            replicas.add(dataSource);
+            targets.put(name, dataSource);
+        }
+        return new ReadWriteRoutingDataSource(primaryDataSource, targets);
+    }
+
+    /**
+     * A method to create the data source of the application. A connection is
+     * taken from the primary database or a replica only when the first
+     * statement is executed, after the transaction is known to be read-only
+     * or not.
+     *
+     * @param routingDataSource the routing data source.
+     * @return the data source.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadWriteRoutingDataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    /**
+     * A method to create the transaction manager, whose dialect keeps the
+     * reads from the replicas out of the second-level cache and the query
+     * cache, so that the lag of a replica isn't prolonged by the caches.
+     *
+     * @param entityManagerFactory the entity manager factory.
+     * @param routingDataSource the routing data source.
+     * @return the transaction manager.
+     */
+    @Bean
+    public JpaTransactionManager transactionManager(
+            EntityManagerFactory entityManagerFactory,
+            ReadWriteRoutingDataSource routingDataSource) {
+        JpaDialect jpaDialect = new ReplicaReadsJpaDialect(routingDataSource);
+        // The dialect of the entity manager factory is taken when the
+        // properties are set, so it is replaced afterwards.
+        JpaTransactionManager transactionManager = new JpaTransactionManager() {
+            @Override
+            public void afterPropertiesSet() {
+                super.afterPropertiesSet();
+                setJpaDialect(jpaDialect);
+            }
+        };
+        transactionManager.setEntityManagerFactory(entityManagerFactory);
+        return transactionManager;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        long window = properties.getDatasource().getStickyWindow();
+        if (window > 0) {
+            registry.addInterceptor(new ReadYourWritesInterceptor(window));
+        }
+    }
+
+    /**
+     * A method to close the pools of the replicas.
+     */
+    @Override
+    public void destroy() {
+        for (org.apache.tomcat.jdbc.pool.DataSource replica : replicas) {
+            replica.close();
+        }
+    }
+}
@@ -35,6 +35,8 @@ import org.springframework.security.config.annotation.web.configuration.WebSecur
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 
 /**
  * The class is used to configure security for the application.
@@ -51,6 +53,22 @@ public class RestSecurityConfiguration extends WebSecurityConfigurerAdapter {
     @Autowired
     private JpaAuthenticationProvider authenticationProvider;
 
+    /**
+     * A method to create the encoder which hashes passwords and checks
+     * credentials against the hashes. It is static, so that the
+     * authentication provider may use it before this configuration is
+     * created.
+     *
+     * @param properties Application settings.
+     * @return the password encoder.
+     */
+    @Bean
+    public static PasswordEncoder passwordEncoder(
+            BookmarksProperties properties) {
+        return new BCryptPasswordEncoder(
+                properties.getPasswords().getStrength());
+    }
+
     @Override
     protected void configure(HttpSecurity http) throws Exception {
         http.authenticationProvider(authenticationProvider)
@@ -62,7 +80,16 @@ public class RestSecurityConfiguration extends WebSecurityConfigurerAdapter {
                 .and()
                 .cors()
                 .and()
-                .csrf().disable();
+                .csrf().disable()
+                // The headers of an asynchronous request are written by both
+                // dispatches, so they are set rather than added.
+                .headers()
+                .contentTypeOptions().disable()
+                .frameOptions().disable()
+                .addHeaderWriter((request, response) -> {
+                    response.setHeader("X-Content-Type-Options", "nosniff");
+                    response.setHeader("X-Frame-Options", "DENY");
+                });
     }
 
 }
@@ -0,0 +1,307 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.configuration;
+
+import com.javaeeeee.components.ShardDirectory;
+import com.javaeeeee.components.ShardInterceptor;
+import com.javaeeeee.components.ShardRebalancer;
+import com.javaeeeee.components.ShardRoutingDataSource;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import javax.sql.DataSource;
+import org.flywaydb.core.Flyway;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
+
+/**
+ * A configuration of the sharding of users, with their bookmarks, across
+ * databases, which is used if the bookmarks.sharding.enabled property is
+ * true. The database of the spring.datasource properties is the main shard,
+ * which also holds the directory of users, the other shards are set in the
+ * bookmarks.sharding.shards properties. Each shard is migrated by Flyway and
+ * generates ids from its own range, so ids are unique across shards and
+ * don't change when a user is moved.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "bookmarks.sharding", name = "enabled",
+        havingValue = "true")
+public class ShardingConfiguration extends WebMvcConfigurerAdapter
+        implements DisposableBean {
+
+    private static final Logger LOGGER
+            = LoggerFactory.getLogger(ShardingConfiguration.class);
+
+    /**
+     * The pools of the shards other than main, which aren't beans.
+     */
+    private final List<org.apache.tomcat.jdbc.pool.DataSource> pools
+            = new ArrayList<>();
+    /**
+     * Application settings.
+     */
+    private final BookmarksProperties properties;
+    /**
+     * The directory of users, which is created by this configuration.
+     */
+    private final ObjectProvider<ShardDirectory> shardDirectory;
+
+    /**
+     * A constructor to inject settings.
+     *
+     * @param properties Application settings.
+     * @param shardDirectory The directory of users.
+     */
+    public ShardingConfiguration(BookmarksProperties properties,
+            ObjectProvider<ShardDirectory> shardDirectory) {
+        if (!properties.getDatasource().getReplicas().isEmpty()) {
+            throw new IllegalStateException(
+                    "Sharding can't be used together with read replicas.");
+        }
+        this.properties = properties;
+        this.shardDirectory = shardDirectory;
+    }
+
+    /**
+     * A method to create the directory of users.
+     *
+     * @param primaryDataSource the pool of the main shard.
+     * @return the directory.
+     */
+    @Bean
+    public ShardDirectory shardDirectory(
+            org.apache.tomcat.jdbc.pool.DataSource primaryDataSource) {
+        BookmarksProperties.Sharding sharding = properties.getSharding();
+        Set<String> names = new LinkedHashSet<>();
+        names.add(ShardRoutingDataSource.MAIN);
+        names.addAll(sharding.getShards().keySet());
+        return new ShardDirectory(primaryDataSource, names,
+                sharding.getVirtualNodes(), sharding.getDirectoryTtl());
+    }
+
+    /**
+     * A method to create the routing between the shards. Each shard gets a
+     * pool with the settings of the pool of the main shard, and is migrated
+     * and moved to its range of ids.
+     *
+     * @param primaryDataSource the pool of the main shard.
+     * @param shardDirectory the directory of users.
+     * @return the routing data source.
+     */
+    @Bean
+    public ShardRoutingDataSource shardRoutingDataSource(
+            org.apache.tomcat.jdbc.pool.DataSource primaryDataSource,
+            ShardDirectory shardDirectory) {
+        Map<String, BookmarksProperties.Shard> settings
+                = properties.getSharding().getShards();
+        checkIdRanges(settings);
+        Map<String, DataSource> shards = new LinkedHashMap<>();
+        shards.put(ShardRoutingDataSource.MAIN, primaryDataSource);
+        for (Map.Entry<String, BookmarksProperties.Shard> entry
+                : settings.entrySet()) {
+            BookmarksProperties.Shard shard = entry.getValue();
+            org.apache.tomcat.jdbc.pool.DataSource dataSource
+                    = DataSourcePools.copy(primaryDataSource,
+                            "shard-" + entry.getKey(), shard.getUrl(),
+                            shard.getUsername(), shard.getPassword());
+            pools.add(dataSource);
+            prepare(entry.getKey(), dataSource, shard.getFirstId());
+            checkGenerators(entry.getKey(), dataSource, shard.getLastId());
+            shards.put(entry.getKey(), dataSource);
+        }
+        return new ShardRoutingDataSource(shards, shardDirectory);
+    }
+
+    /**
+     * A method to create the data source of the application. A connection is
+     * taken from a shard only when the first statement is executed, after the
+     * user of the request is known.
+     *
+     * @param shardRoutingDataSource the routing data source.
+     * @return the data source.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(
+            ShardRoutingDataSource shardRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(shardRoutingDataSource);
+    }
+
+    /**
+     * A method to create the tool which moves users between shards.
+     *
+     * @param shardRoutingDataSource the routing data source.
+     * @return the rebalancer.
+     */
+    @Bean
+    public ShardRebalancer shardRebalancer(
+            ShardRoutingDataSource shardRoutingDataSource) {
+        return new ShardRebalancer(shardRoutingDataSource,
+                properties.getSharding().getMoveGrace());
+    }
+
+    /**
+     * A method to check the ids of the main shard and to add the users stored
+     * in the shards, for example before the sharding was turned on, to the
+     * directory when the application has started and the main shard is
+     * migrated.
+     *
+     * @param event the event.
+     */
+    @EventListener
+    public void onApplicationReady(ApplicationReadyEvent event) {
+        ShardRoutingDataSource routing = event.getApplicationContext()
+                .getBean(ShardRoutingDataSource.class);
+        checkGenerators(ShardRoutingDataSource.MAIN,
+                routing.getShards().get(ShardRoutingDataSource.MAIN),
+                checkIdRanges(properties.getSharding().getShards()));
+        for (Map.Entry<String, DataSource> shard
+                : routing.getShards().entrySet()) {
+            int added = routing.getDirectory().assignMissing(shard.getKey(),
+                    new JdbcTemplate(shard.getValue()).queryForList(
+                            "select username from users", String.class));
+            if (added > 0) {
+                LOGGER.info("Added {} users of shard {} to the directory.",
+                        added, shard.getKey());
+            }
+        }
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(
+                new ShardInterceptor(shardDirectory.getObject()));
+    }
+
+    /**
+     * A method to close the pools of the shards.
+     */
+    @Override
+    public void destroy() {
+        for (org.apache.tomcat.jdbc.pool.DataSource pool : pools) {
+            pool.close();
+        }
+    }
+
+    /**
+     * A method to check that each shard other than main has its own range of
+     * ids above the one of main, and that the ranges don't overlap.
+     *
+     * @param settings the shards other than main.
+     * @return the last id of the range of main.
+     */
+    static int checkIdRanges(Map<String, BookmarksProperties.Shard> settings) {
+        Map<Integer, String> firstIds = new TreeMap<>();
+        for (Map.Entry<String, BookmarksProperties.Shard> entry
+                : settings.entrySet()) {
+            BookmarksProperties.Shard shard = entry.getValue();
+            if (shard.getFirstId() <= 1
+                    || shard.getLastId() < shard.getFirstId()
+                    || firstIds.put(shard.getFirstId(), entry.getKey())
+                    != null) {
+                throw new IllegalStateException("The shard " + entry.getKey()
+                        + " needs a first id which is greater than 1 and "
+                        + "differs from the ones of the other shards, and a "
+                        + "last id which isn't less than the first one.");
+            }
+        }
+        int mainLastId = Integer.MAX_VALUE;
+        String previous = null;
+        for (Map.Entry<Integer, String> entry : firstIds.entrySet()) {
+            if (previous == null) {
+                mainLastId = entry.getKey() - 1;
+            } else if (settings.get(previous).getLastId() >= entry.getKey()) {
+                throw new IllegalStateException("The ids of the shards "
+                        + previous + " and " + entry.getValue() + " overlap.");
+            }
+            previous = entry.getValue();
+        }
+        return mainLastId;
+    }
+
+    /**
+     * A method to check that the generators of ids of a shard haven't passed
+     * the end of its range, for example because the range was set too small
+     * or changed. Ids up to the next value of a generator may be taken.
+     *
+     * @param name the name of the shard.
+     * @param dataSource the pool of the shard.
+     * @param lastId the last id of the range of the shard.
+     */
+    private static void checkGenerators(String name, DataSource dataSource,
+            int lastId) {
+        Long nextId = new JdbcTemplate(dataSource).queryForObject(
+                "select max(next_val) from id_generators", Long.class);
+        if (nextId != null && nextId - 1 > lastId) {
+            throw new IllegalStateException("The shard " + name
+                    + " has generated ids up to " + (nextId - 1)
+                    + ", beyond the last id " + lastId + " of its range.");
+        }
+    }
+
+    /**
+     * A method to migrate a shard. The users and bookmarks created by the
+     * migrations of a new shard are removed, because they are stored in the
+     * main shard, and the generators of ids are moved to the range of the
+     * shard.
+     *
+     * @param name the name of the shard.
+     * @param dataSource the pool of the shard.
+     * @param firstId the first id of the range of the shard.
+     */
+    private static void prepare(String name, DataSource dataSource,
+            int firstId) {
+        Flyway flyway = new Flyway();
+        flyway.setDataSource(dataSource);
+        boolean fresh = flyway.info().applied().length == 0;
+        flyway.migrate();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        if (fresh) {
+            jdbcTemplate.update("delete from bookmarks");
+            jdbcTemplate.update("delete from users");
+            jdbcTemplate.update("delete from user_shards");
+            LOGGER.info("Created shard {}.", name);
+        }
+        jdbcTemplate.update("update id_generators set next_val = ? "
+                + "where next_val < ?", firstId, firstId);
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.configuration;
+
+import com.javaeeeee.components.VirtualThreads;
+import org.apache.coyote.AbstractProtocol;
+import org.apache.coyote.ProtocolHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.embedded.EmbeddedServletContainerCustomizer;
+import org.springframework.boot.context.embedded.tomcat.TomcatEmbeddedServletContainerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * A configuration of the virtual threads mode, in which Tomcat starts a new
+ * virtual thread for each request instead of taking a thread from its pool.
+ * The bulkheads use virtual threads in this mode too, see
+ * {@link AsyncConfiguration}. Before Java 24 the synchronized blocks of the
+ * MySQL driver and the Tomcat JDBC pool pin the carrier threads, which is
+ * logged as a warning on startup.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "bookmarks.threads", name = "virtual",
+        havingValue = "true")
+public class ThreadsConfiguration {
+
+    private static final Logger LOGGER
+            = LoggerFactory.getLogger(ThreadsConfiguration.class);
+
+    /**
+     * A method to create the customizer which gives Tomcat connectors an
+     * executor of virtual threads. The executor isn't shut down because
+     * virtual threads don't keep the JVM running.
+     *
+     * @return the customizer.
+     * @throws IllegalStateException if virtual threads aren't supported.
+     */
+    @Bean
+    public EmbeddedServletContainerCustomizer virtualThreadsCustomizer() {
+        if (!VirtualThreads.isSupported()) {
+            throw new IllegalStateException("bookmarks.threads.virtual"
+                    + " requires Java 21 or later, the running version is "
+                    + System.getProperty("java.version") + ".");
+        }
+        if (VirtualThreads.isPinnedBySynchronized()) {
+            LOGGER.warn("Before Java 24 virtual threads which wait for the"
+                    + " database inside the synchronized blocks of the MySQL"
+                    + " driver or the Tomcat JDBC pool pin their carrier"
+                    + " threads, so the number of concurrent database calls is"
+                    + " limited by the number of carriers.");
+        }
+        return container -> {
+            if (container instanceof TomcatEmbeddedServletContainerFactory) {
+                ((TomcatEmbeddedServletContainerFactory) container)
+                        .addConnectorCustomizers(connector -> {
+                            ProtocolHandler handler
+                                    = connector.getProtocolHandler();
+                            if (handler instanceof AbstractProtocol) {
+                                ((AbstractProtocol<?>) handler).setExecutor(
+                                        VirtualThreads.newThreadPerTaskExecutor(
+                                                "http-virtual-"));
+                            }
+                        });
+            }
+        };
+    }
+}
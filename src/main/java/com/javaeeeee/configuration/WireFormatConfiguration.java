@@ -0,0 +1,114 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.configuration;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.javaeeeee.components.BookmarksProtobufHttpMessageConverter;
+import com.javaeeeee.components.JacksonBinaryHttpMessageConverter;
+import java.util.Collections;
+import java.util.List;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
+
+/**
+ * A configuration of the binary formats of requests and responses which are
+ * chosen by the Accept and Content-Type headers: Jackson Smile, CBOR and
+ * Protocol Buffers. The converters are added after the default ones, so JSON
+ * stays the format for clients which accept any type.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+@Configuration
+public class WireFormatConfiguration extends WebMvcConfigurerAdapter {
+
+    /**
+     * The application context used to find Jackson modules.
+     */
+    private final ApplicationContext context;
+    /**
+     * The customizers of the JSON mapper, which apply the spring.jackson
+     * properties.
+     */
+    private final ObjectProvider<List<Jackson2ObjectMapperBuilderCustomizer>>
+            customizers;
+
+    /**
+     * The constructor which allows to inject dependencies.
+     *
+     * @param context the application context.
+     * @param customizers the customizers of the JSON mapper.
+     */
+    public WireFormatConfiguration(ApplicationContext context,
+            ObjectProvider<List<Jackson2ObjectMapperBuilderCustomizer>>
+            customizers) {
+        this.context = context;
+        this.customizers = customizers;
+    }
+
+    @Override
+    public void extendMessageConverters(
+            List<HttpMessageConverter<?>> converters) {
+        converters.add(new JacksonBinaryHttpMessageConverter(
+                mapper(new SmileFactory()),
+                MediaType.valueOf(JacksonBinaryHttpMessageConverter
+                        .SMILE_VALUE)));
+        converters.add(new JacksonBinaryHttpMessageConverter(
+                mapper(new CBORFactory()),
+                MediaType.valueOf(JacksonBinaryHttpMessageConverter
+                        .CBOR_VALUE)));
+        converters.add(new BookmarksProtobufHttpMessageConverter());
+    }
+
+    /**
+     * A method to create a mapper of a binary format which is configured like
+     * the JSON one.
+     *
+     * @param factory the factory of the format.
+     * @return the mapper.
+     */
+    private ObjectMapper mapper(JsonFactory factory) {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder
+                .json().applicationContext(context);
+        List<Jackson2ObjectMapperBuilderCustomizer> list
+                = customizers.getIfAvailable();
+        for (Jackson2ObjectMapperBuilderCustomizer customizer
+                : list == null ? Collections
+                        .<Jackson2ObjectMapperBuilderCustomizer>emptyList()
+                        : list) {
+            customizer.customize(builder);
+        }
+        ObjectMapper mapper = new ObjectMapper(factory);
+        builder.configure(mapper);
+        return mapper;
+    }
+}
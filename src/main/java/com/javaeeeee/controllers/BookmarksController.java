@@ -23,28 +23,65 @@
  */
 package com.javaeeeee.controllers;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.javaeeeee.components.BookmarkOperationsProcessor;
+import com.javaeeeee.components.BookmarkPatcher;
+import com.javaeeeee.components.BookmarksIndex;
+import com.javaeeeee.components.BookmarksExporter;
+import com.javaeeeee.components.BookmarksImporter;
+import com.javaeeeee.components.BookmarksProtobufHttpMessageConverter;
+import com.javaeeeee.components.Bulkhead;
+import com.javaeeeee.components.JacksonBinaryHttpMessageConverter;
+import com.javaeeeee.components.ResolvedUserHolder;
+import com.javaeeeee.configuration.AsyncConfiguration;
+import com.javaeeeee.configuration.BookmarksProperties;
+import com.javaeeeee.dto.BookmarkOperation;
+import com.javaeeeee.dto.BookmarkOperationsResult;
+import com.javaeeeee.dto.BookmarkView;
+import com.javaeeeee.dto.BookmarksBatch;
+import com.javaeeeee.dto.BookmarksSummary;
+import com.javaeeeee.dto.BulkImportResult;
+import com.javaeeeee.dto.SearchHit;
 import com.javaeeeee.entities.Bookmark;
 import com.javaeeeee.entities.User;
 import com.javaeeeee.exception.BookmarkNotFoundException;
+import com.javaeeeee.exception.DuplicateBookmarkException;
+import com.javaeeeee.exception.InvalidRequestException;
+import com.javaeeeee.exception.ServiceUnavailableException;
 import com.javaeeeee.exception.UserNotFoundException;
 import com.javaeeeee.repositories.BookmarksRepository;
 import com.javaeeeee.repositories.UsersRepository;
 import java.io.IOException;
-import java.lang.reflect.InvocationTargetException;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import org.apache.commons.beanutils.BeanUtils;
+import java.util.concurrent.CompletableFuture;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.hateoas.Link;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 /**
  * The controller that exposes resource methods to work with bookmarks for a
@@ -56,6 +93,35 @@ import org.springframework.web.bind.annotation.RestController;
 @RestController
 public class BookmarksController {
 
+    /**
+     * The header with the preferences of the client.
+     */
+    static final String PREFER = "Prefer";
+    /**
+     * The header with the preferences which were honored.
+     */
+    static final String PREFERENCE_APPLIED = "Preference-Applied";
+    /**
+     * The preference to get no representation of a changed resource.
+     */
+    static final String RETURN_MINIMAL = "return=minimal";
+    /**
+     * The names of the formats of responses, which are added to ETags, in the
+     * order of the message converters.
+     */
+    private static final Map<MediaType, String> FORMATS
+            = new LinkedHashMap<>();
+
+    static {
+        FORMATS.put(MediaType.APPLICATION_JSON, "json");
+        FORMATS.put(MediaType.valueOf(
+                JacksonBinaryHttpMessageConverter.SMILE_VALUE), "smile");
+        FORMATS.put(MediaType.valueOf(
+                JacksonBinaryHttpMessageConverter.CBOR_VALUE), "cbor");
+        FORMATS.put(BookmarksProtobufHttpMessageConverter.PROTOBUF,
+                "protobuf");
+    }
+
     /**
      * The repository to work with bookmarks.
      */
@@ -64,146 +130,690 @@ public class BookmarksController {
      * The repository to work with users.
      */
     private final UsersRepository usersRepository;
+    /**
+     * The component to export bookmarks.
+     */
+    private final BookmarksExporter bookmarksExporter;
+    /**
+     * The component to import bookmarks.
+     */
+    private final BookmarksImporter bookmarksImporter;
+    /**
+     * The component to apply patches to bookmarks.
+     */
+    private final BookmarkPatcher bookmarkPatcher;
+    /**
+     * The component to apply batches of operations to bookmarks.
+     */
+    private final BookmarkOperationsProcessor bookmarkOperationsProcessor;
+    /**
+     * The full-text index of bookmarks.
+     */
+    private final BookmarksIndex bookmarksIndex;
+    /**
+     * The holder of the user resolved during the current request.
+     */
+    private final ResolvedUserHolder resolvedUserHolder;
+    /**
+     * Application settings.
+     */
+    private final BookmarksProperties properties;
+    /**
+     * The bulkhead of the requests which read bookmarks.
+     */
+    private final Bulkhead readsBulkhead;
+    /**
+     * The bulkhead of the requests which change bookmarks.
+     */
+    private final Bulkhead writesBulkhead;
+    /**
+     * The bulkhead of the full-text searches.
+     */
+    private final Bulkhead searchBulkhead;
+    /**
+     * The bulkhead of the exports.
+     */
+    private final Bulkhead exportBulkhead;
 
     /**
      * The constructor which allows to inject repositories.
      *
      * @param bookmarksRepository The repository to work with bookmarks.
      * @param usersRepository The repository to work with users.
+     * @param bookmarksExporter The component to export bookmarks.
+     * @param bookmarksImporter The component to import bookmarks.
+     * @param bookmarkPatcher The component to apply patches to bookmarks.
+     * @param bookmarkOperationsProcessor The component to apply batches of
+     * operations to bookmarks.
+     * @param bookmarksIndex The full-text index of bookmarks.
+     * @param resolvedUserHolder The holder of the user resolved during the
+     * current request.
+     * @param properties Application settings.
+     * @param readsBulkhead The bulkhead of the requests which read bookmarks.
+     * @param writesBulkhead The bulkhead of the requests which change
+     * bookmarks.
+     * @param searchBulkhead The bulkhead of the full-text searches.
+     * @param exportBulkhead The bulkhead of the exports.
      */
     @Autowired
     public BookmarksController(BookmarksRepository bookmarksRepository,
-            UsersRepository usersRepository) {
+            UsersRepository usersRepository,
+            BookmarksExporter bookmarksExporter,
+            BookmarksImporter bookmarksImporter,
+            BookmarkPatcher bookmarkPatcher,
+            BookmarkOperationsProcessor bookmarkOperationsProcessor,
+            BookmarksIndex bookmarksIndex,
+            ResolvedUserHolder resolvedUserHolder,
+            BookmarksProperties properties,
+            @Qualifier(AsyncConfiguration.READS) Bulkhead readsBulkhead,
+            @Qualifier(AsyncConfiguration.WRITES) Bulkhead writesBulkhead,
+            @Qualifier(AsyncConfiguration.SEARCH) Bulkhead searchBulkhead,
+            @Qualifier(AsyncConfiguration.EXPORT) Bulkhead exportBulkhead) {
         this.bookmarksRepository = bookmarksRepository;
         this.usersRepository = usersRepository;
+        this.bookmarksExporter = bookmarksExporter;
+        this.bookmarksImporter = bookmarksImporter;
+        this.bookmarkPatcher = bookmarkPatcher;
+        this.bookmarkOperationsProcessor = bookmarkOperationsProcessor;
+        this.bookmarksIndex = bookmarksIndex;
+        this.resolvedUserHolder = resolvedUserHolder;
+        this.properties = properties;
+        this.readsBulkhead = readsBulkhead;
+        this.writesBulkhead = writesBulkhead;
+        this.searchBulkhead = searchBulkhead;
+        this.exportBulkhead = exportBulkhead;
     }
 
     /**
-     * A method to return bookmarks for a particular user.
+     * A method to return bookmarks for a particular user. If neither a cursor
+     * nor a limit is provided all the bookmarks are returned, otherwise a page
+     * of bookmarks ordered by id is returned. Read-only views of bookmarks
+     * are selected rather than the entities. The link to the next page, if
+     * there is one, is sent in the Link header. The ETag of the collection is
+     * calculated by an aggregate query, so if it matches the one sent by the
+     * client no bookmarks are loaded. The ETag includes the negotiated format.
      *
      * @param username the name of a user whose bookmarks are listed.
-     * @return list of user's bookmarks.
-     * @throws java.lang.Exception
+     * @param after the id of the last bookmark of the previous page.
+     * @param limit the maximum number of bookmarks in a page.
+     * @param request the request used to check conditional headers.
+     * @return the future list of user's bookmarks.
+     * @throws ServiceUnavailableException if the reads bulkhead is full.
      */
     @RequestMapping(method = RequestMethod.GET)
-    public Set<Bookmark> getAllBookmarks(
-            @PathVariable(value = "username") String username)
-            throws Exception {
+    public CompletableFuture<ResponseEntity<List<BookmarkView>>>
+            getAllBookmarks(
+                    @PathVariable(value = "username") String username,
+                    @RequestParam(value = "after", required = false)
+                    Integer after,
+                    @RequestParam(value = "limit", required = false)
+                    Integer limit,
+                    HttpServletRequest request)
+            throws ServiceUnavailableException {
+        return readsBulkhead.submit(
+                () -> listBookmarks(username, after, limit, request));
+    }
+
+    /**
+     * A method to list bookmarks, see getAllBookmarks. The response isn't
+     * touched, the headers are returned in the entity.
+     *
+     * @param username the name of a user whose bookmarks are listed.
+     * @param after the id of the last bookmark of the previous page.
+     * @param limit the maximum number of bookmarks in a page.
+     * @param request the request used to check conditional headers.
+     * @return list of user's bookmarks or 304 if they weren't modified.
+     * @throws UserNotFoundException thrown if user doesn't exist.
+     */
+    private ResponseEntity<List<BookmarkView>> listBookmarks(String username,
+            Integer after, Integer limit, HttpServletRequest request)
+            throws UserNotFoundException {
+        String format = getFormat(request);
+        if (after == null && limit == null
+                && request.getHeader(HttpHeaders.IF_NONE_MATCH) == null) {
+            // The ETag of all the bookmarks is calculated from the bookmarks
+            // themselves to save the aggregate query.
+            List<BookmarkView> bookmarks
+                    = bookmarksRepository.findViewsByUserUsername(username);
+            if (bookmarks.isEmpty()) {
+                validateUser(username);
+            }
+            return ResponseEntity.ok()
+                    .eTag(getETag(BookmarksSummary.of(bookmarks), format))
+                    .varyBy(HttpHeaders.ACCEPT)
+                    .body(bookmarks);
+        }
+
+        BookmarksSummary summary
+                = bookmarksRepository.summarizeByUserUsername(username);
+        if (!summary.isUserFound()) {
+            throw new UserNotFoundException(username);
+        }
+        String eTag = getETag(summary, format);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(eTag);
+        headers.setVary(Collections.singletonList(HttpHeaders.ACCEPT));
+        if (new ServletWebRequest(request).checkNotModified(eTag)) {
+            return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+        }
+        if (after == null && limit == null) {
+            return new ResponseEntity<>(
+                    bookmarksRepository.findViewsByUserUsername(username),
+                    headers, HttpStatus.OK);
+        }
+
+        int pageSize = getPageSize(limit);
+        // One extra bookmark is fetched to find out if there is a next page.
+        List<BookmarkView> page = bookmarksRepository
+                .findViewPageByUserUsername(username,
+                        after == null ? 0 : after,
+                        new PageRequest(0, pageSize + 1));
+        if (page.size() > pageSize) {
+            page = page.subList(0, pageSize);
+            String next = ServletUriComponentsBuilder.fromRequest(request)
+                    .replaceQueryParam("after", page.get(pageSize - 1).getId())
+                    .replaceQueryParam("limit", pageSize)
+                    .build()
+                    .toUriString();
+            headers.add(HttpHeaders.LINK,
+                    new Link(next, Link.REL_NEXT).toString());
+        }
+        return new ResponseEntity<>(page, headers, HttpStatus.OK);
+    }
+
+    /**
+     * A method to return several bookmarks of a user by id, for example
+     * /Phil/bookmarks?ids=1,5,7. The bookmarks are selected by a single query
+     * with an IN list, the ids which don't belong to any bookmark of the user
+     * are returned in the missing list. The existence of the user is only
+     * checked if none of the bookmarks is found.
+     *
+     * @param username the name of a user whose bookmarks are returned.
+     * @param ids the ids of the bookmarks, duplicates are ignored.
+     * @return the future found bookmarks and missing ids.
+     * @throws InvalidRequestException if no ids or more ids than the maximum
+     * page size are requested.
+     * @throws ServiceUnavailableException if the reads bulkhead is full.
+     */
+    @RequestMapping(method = RequestMethod.GET, params = "ids")
+    public CompletableFuture<ResponseEntity<BookmarksBatch>> getBookmarksByIds(
+            @PathVariable(value = "username") String username,
+            @RequestParam(value = "ids") List<Integer> ids)
+            throws InvalidRequestException, ServiceUnavailableException {
+        Set<Integer> requested = new LinkedHashSet<>(ids);
+        requested.remove(null);
+        if (requested.isEmpty()) {
+            throw new InvalidRequestException("No ids.");
+        }
+        int maxLimit = properties.getPaging().getMaxLimit();
+        if (requested.size() > maxLimit) {
+            throw new InvalidRequestException(
+                    "At most " + maxLimit + " ids may be requested.");
+        }
+        return readsBulkhead.submit(() -> {
+            List<BookmarkView> bookmarks = bookmarksRepository
+                    .findViewsByUserUsernameAndIdIn(username, requested);
+            if (bookmarks.isEmpty()) {
+                validateUser(username);
+            }
+            Set<Integer> missing = new LinkedHashSet<>(requested);
+            for (BookmarkView bookmark : bookmarks) {
+                missing.remove(bookmark.getId());
+            }
+            return ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT)
+                    .body(new BookmarksBatch(bookmarks,
+                            new ArrayList<>(missing)));
+        });
+    }
+
+    /**
+     * A method to export all bookmarks of a user as newline-delimited JSON. The
+     * bookmarks are written to the response as they are read from the
+     * database, so the export is done by the thread of the web server, and
+     * the export bulkhead only limits the number of exports run at once.
+     *
+     * @param username the name of a user whose bookmarks are exported.
+     * @param response HTTP response.
+     * @throws UserNotFoundException thrown if user doesn't exist.
+     * @throws IOException if the response can't be written.
+     * @throws ServiceUnavailableException if the export bulkhead is full.
+     */
+    @RequestMapping(value = "/export", method = RequestMethod.GET,
+            produces = BookmarksExporter.NDJSON_VALUE)
+    public void exportBookmarks(
+            @PathVariable(value = "username") String username,
+            HttpServletResponse response) throws UserNotFoundException,
+            IOException, ServiceUnavailableException {
         validateUser(username);
-        return bookmarksRepository.findByUserUsername(username);
+        response.setContentType(BookmarksExporter.NDJSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        exportBulkhead.call(() -> bookmarksExporter.export(username,
+                response.getOutputStream()));
     }
 
     /**
-     * A method to find a bookmark by id.
+     * A method to find bookmarks of a user whose URL or description contain
+     * the words of a query. The bookmarks are ordered by relevance and are
+     * read from the search index rather than the database. The link to the
+     * next page, if there is one, is sent in the Link header.
      *
+     * @param username the name of a user whose bookmarks are searched.
+     * @param query the words to look for.
+     * @param offset the number of best matches to skip.
+     * @param limit the maximum number of matches in a page.
+     * @param request HTTP request.
+     * @return the future list of matches.
+     * @throws InvalidRequestException if the offset is negative or greater
+     * than bookmarks.search.max-offset.
+     * @throws ServiceUnavailableException if the search bulkhead is full.
+     */
+    @RequestMapping(value = "/search", method = RequestMethod.GET)
+    public CompletableFuture<ResponseEntity<List<SearchHit>>> searchBookmarks(
+            @PathVariable(value = "username") String username,
+            @RequestParam(value = "q") String query,
+            @RequestParam(value = "offset", defaultValue = "0") int offset,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            HttpServletRequest request)
+            throws InvalidRequestException, ServiceUnavailableException {
+        if (offset < 0) {
+            throw new InvalidRequestException("Negative offset.");
+        }
+        if (offset > properties.getSearch().getMaxOffset()) {
+            throw new InvalidRequestException("The offset should not exceed "
+                    + properties.getSearch().getMaxOffset() + ".");
+        }
+        return searchBulkhead.submit(() -> {
+            Integer userId = getUserId(username);
+            int pageSize = getPageSize(limit);
+            // One extra match is fetched to find out if there is a next page.
+            List<SearchHit> hits = bookmarksIndex.search(userId, query,
+                    offset, pageSize + 1);
+            HttpHeaders headers = new HttpHeaders();
+            headers.setVary(Collections.singletonList(HttpHeaders.ACCEPT));
+            if (hits.size() > pageSize) {
+                hits = hits.subList(0, pageSize);
+                String next = ServletUriComponentsBuilder.fromRequest(request)
+                        .replaceQueryParam("offset", offset + pageSize)
+                        .replaceQueryParam("limit", pageSize)
+                        .build()
+                        .toUriString();
+                headers.add(HttpHeaders.LINK,
+                        new Link(next, Link.REL_NEXT).toString());
+            }
+            return new ResponseEntity<>(hits, headers, HttpStatus.OK);
+        });
+    }
+
+    /**
+     * A method to find a bookmark by id. The existence of the user is only
+     * checked if the bookmark is not found. The ETag and the Last-Modified
+     * headers are set from the version and the time of the last change of the
+     * bookmark, and 304 is sent if they match the conditional headers. The
+     * ETag includes the negotiated format, since the representations differ.
+     *
+     * @param username
      * @param bookmarkId
-     * @throws com.javaeeeee.exception.UserNotFoundException
-     * @throws com.javaeeeee.exception.BookmarkNotFoundException
+     * @param request HTTP request.
+     * @return the future bookmark.
+     * @throws ServiceUnavailableException if the reads bulkhead is full.
      */
     @RequestMapping(value = "/{bookmarkId}", method = RequestMethod.GET)
-    public Bookmark getBookmark(
+    public CompletableFuture<ResponseEntity<Bookmark>> getBookmark(
             @PathVariable(value = "username") String username,
-            @PathVariable(value = "bookmarkId") Integer bookmarkId)
-            throws UserNotFoundException, BookmarkNotFoundException {
-        validateUser(username);
-        Optional<Bookmark> optional
-                = bookmarksRepository
-                .findByIdAndUserUsername(bookmarkId, username);
-        if (optional.isPresent()) {
-            return optional.get();
-        } else {
-            throw new BookmarkNotFoundException(bookmarkId.toString());
-        }
+            @PathVariable(value = "bookmarkId") Integer bookmarkId,
+            HttpServletRequest request)
+            throws ServiceUnavailableException {
+        String format = getFormat(request);
+        return readsBulkhead.submit(() -> {
+            Optional<Bookmark> optional
+                    = bookmarksRepository
+                    .findByIdAndUserUsername(bookmarkId, username);
+            if (optional.isPresent()) {
+                Bookmark bookmark = optional.get();
+                ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                        .eTag(getETag(bookmark, format))
+                        .varyBy(HttpHeaders.ACCEPT);
+                if (bookmark.getUpdatedAt() != null) {
+                    builder.lastModified(bookmark.getUpdatedAt().getTime());
+                }
+                return builder.body(bookmark);
+            } else {
+                validateUser(username);
+                throw new BookmarkNotFoundException(bookmarkId.toString());
+            }
+        });
     }
 
     /**
-     * A method to add a bookmark.
+     * A method to add a bookmark. The owner is referenced by id, so neither the
+     * user nor the bookmarks of the user are loaded. A duplicate URL is
+     * detected by the unique index on the owner and the URL hash, so it costs
+     * no additional statement unless the insert fails.
      */
     @RequestMapping(method = RequestMethod.POST)
-    ResponseEntity<Bookmark> addBookmark(
+    CompletableFuture<ResponseEntity<Bookmark>> addBookmark(
             @PathVariable(value = "username") String username,
-            @RequestBody Bookmark bookmark) throws UserNotFoundException {
-        Optional<User> optional = usersRepository.findByUsername(username);
-        if (optional.isPresent()) {
-            User user = optional.get();
-            user.addBookmark(bookmark);
-            bookmark.setUser(user);
-            bookmarksRepository.save(bookmark);
+            @RequestBody Bookmark bookmark)
+            throws ServiceUnavailableException {
+        return writesBulkhead.submit(() -> {
+            Integer userId = getUserId(username);
+            bookmark.setUser(usersRepository.getOne(userId));
+            try {
+                bookmarksRepository.save(bookmark);
+            } catch (DataIntegrityViolationException ex) {
+                throw toDuplicate(userId, bookmark.getUrl(), ex);
+            }
             return new ResponseEntity<>(bookmark, HttpStatus.CREATED);
-        } else {
-            throw new UserNotFoundException(username);
+        });
+    }
+
+    /**
+     * A method to add a lot of bookmarks at once. The body is either a JSON
+     * array of bookmarks or newline-delimited JSON. Bookmarks which can't be
+     * added are reported in the response and don't prevent adding the others.
+     *
+     * @param username the name of a user who owns the bookmarks.
+     * @param request HTTP request.
+     * @return the future ResponseEntity containing the number of added
+     * bookmarks and errors.
+     * @throws ServiceUnavailableException if the writes bulkhead is full.
+     */
+    @RequestMapping(value = "/bulk", method = RequestMethod.POST,
+            consumes = {MediaType.APPLICATION_JSON_VALUE,
+                BookmarksExporter.NDJSON_VALUE})
+    public CompletableFuture<ResponseEntity<BulkImportResult>>
+            importBookmarks(
+                    @PathVariable(value = "username") String username,
+                    HttpServletRequest request)
+            throws ServiceUnavailableException {
+        return writesBulkhead.submit(() -> new ResponseEntity<>(
+                bookmarksImporter.importBookmarks(username,
+                        request.getInputStream()),
+                HttpStatus.OK));
+    }
+
+    /**
+     * A method to apply an ordered list of operations, that is bookmarks to
+     * create, JSON Merge Patch documents to apply to bookmarks and ids of
+     * bookmarks to delete, in a single transaction. Either all operations are
+     * applied or none of them. The response lists the result of each
+     * operation, its status is 200 if all operations succeeded and the status
+     * of the first failed operation otherwise.
+     *
+     * @param username the name of a user who owns the bookmarks.
+     * @param operations the operations.
+     * @return the future ResponseEntity containing the results of the
+     * operations.
+     * @throws InvalidRequestException if no operations or more operations
+     * than the maximum page size are sent.
+     * @throws ServiceUnavailableException if the writes bulkhead is full.
+     */
+    @RequestMapping(value = "/batch", method = RequestMethod.POST,
+            consumes = MediaType.APPLICATION_JSON_VALUE)
+    public CompletableFuture<ResponseEntity<BookmarkOperationsResult>>
+            executeOperations(
+                    @PathVariable(value = "username") String username,
+                    @RequestBody List<BookmarkOperation> operations)
+            throws InvalidRequestException, ServiceUnavailableException {
+        if (operations.isEmpty()) {
+            throw new InvalidRequestException("No operations.");
+        }
+        int maxLimit = properties.getPaging().getMaxLimit();
+        if (operations.size() > maxLimit) {
+            throw new InvalidRequestException(
+                    "At most " + maxLimit + " operations may be sent.");
         }
+        return writesBulkhead.submit(() -> {
+            BookmarkOperationsResult result = bookmarkOperationsProcessor
+                    .execute(getUserId(username), operations);
+            return new ResponseEntity<>(result, result.getStatus());
+        });
     }
 
     /**
-     * A method to edit a bookmark.
+     * A method to edit a bookmark. The body is a JSON Merge Patch document
+     * which contains the properties to change, a property with a null value is
+     * cleared. The bookmark is changed by a single statement without loading
+     * it. The changed bookmark is read and returned unless the client sends
+     * the Prefer: return=minimal header, in which case 204 is returned. A URL
+     * of another bookmark of the user is rejected with 409.
      *
      * @param username
      * @param bookmarkId
-     * @param json
-     * @return ResponseEntity containing the patched bookmark, if found, and
-     * status code.
-     * @throws java.io.IOException
-     * @throws java.lang.reflect.InvocationTargetException
-     * @throws com.javaeeeee.exception.BookmarkNotFoundException
-     * @throws java.lang.IllegalAccessException
-     */
-    @RequestMapping(value = "/{bookmarkId}", method = RequestMethod.PUT)
-    public ResponseEntity<Bookmark> editBookmark(
+     * @param patch the JSON Merge Patch document.
+     * @param request HTTP request.
+     * @return the future ResponseEntity containing the patched bookmark, if
+     * found, and status code.
+     * @throws ServiceUnavailableException if the writes bulkhead is full.
+     */
+    @RequestMapping(value = "/{bookmarkId}",
+            method = {RequestMethod.PUT, RequestMethod.PATCH})
+    public CompletableFuture<ResponseEntity<Bookmark>> editBookmark(
             @PathVariable(value = "username") String username,
             @PathVariable(value = "bookmarkId") int bookmarkId,
-            @RequestBody String json) throws IOException,
-            BookmarkNotFoundException,
-            IllegalAccessException,
-            InvocationTargetException {
-        
-        Optional<Bookmark> optional = bookmarksRepository
-                .findByIdAndUserUsername(bookmarkId, username);
-        if (optional.isPresent()) {
-            ObjectMapper mapper = new ObjectMapper();
-            Map<String, String> changeMap
-                    = mapper.readValue(json, HashMap.class);
-            Bookmark bookmark = optional.get();
-            BeanUtils.populate(bookmark, changeMap);
-            bookmark = bookmarksRepository.save(bookmark);
-            return new ResponseEntity<>(bookmark, HttpStatus.OK);
-        } else {
-            throw new BookmarkNotFoundException(
-                    "Bookmark not found id = " + bookmarkId);
-        }
-        
-    }
-
-    /**
-     * A method to delete a bookmark identified by id.
+            @RequestBody JsonNode patch,
+            HttpServletRequest request) throws ServiceUnavailableException {
+        boolean minimal = isMinimalReturnPreferred(request);
+        return writesBulkhead.submit(() -> {
+            Map<String, Object> changes = bookmarkPatcher.getChanges(patch);
+            if (!changes.isEmpty()) {
+                Integer userId = getUserId(username);
+                int updated;
+                try {
+                    updated = bookmarksRepository.updateByIdAndUserId(
+                            bookmarkId, userId, changes);
+                } catch (DataIntegrityViolationException ex) {
+                    throw toDuplicate(userId, (String) changes.get("url"), ex);
+                }
+                if (updated == 0) {
+                    throw new BookmarkNotFoundException(
+                            "Bookmark not found id = " + bookmarkId);
+                }
+                bookmarksIndex.update(bookmarkId, userId, changes);
+                if (minimal) {
+                    return minimalResponse();
+                }
+            }
+            Optional<Bookmark> optional = bookmarksRepository
+                    .findByIdAndUserUsername(bookmarkId, username);
+            if (!optional.isPresent()) {
+                throw new BookmarkNotFoundException(
+                        "Bookmark not found id = " + bookmarkId);
+            }
+            return minimal ? minimalResponse()
+                    : new ResponseEntity<>(optional.get(), HttpStatus.OK);
+        });
+    }
+
+    /**
+     * A method to delete a bookmark identified by id. The bookmark is deleted
+     * by a single statement. The databases in use can't return deleted rows,
+     * so the bookmark is read first in order to be returned, unless the client
+     * sends the Prefer: return=minimal header, in which case 204 is returned.
      *
      * @param username user name
      * @param bookmarkId The id of the bookmark to be deleted.
-     * @return ResponseEntity containing a deleted bookmark, if found, and
-     * status code.
+     * @param request HTTP request.
+     * @return the future ResponseEntity containing a deleted bookmark, if
+     * found, and status code.
+     * @throws ServiceUnavailableException if the writes bulkhead is full.
      */
     @RequestMapping(value = "/{bookmarkId}", method = RequestMethod.DELETE)
-    public ResponseEntity<Bookmark> deleteBookmark(
+    public CompletableFuture<ResponseEntity<Bookmark>> deleteBookmark(
             @PathVariable(value = "username") String username,
-            @PathVariable(value = "bookmarkId") int bookmarkId) throws BookmarkNotFoundException {
-        Optional<Bookmark> optional
-                = bookmarksRepository.findByIdAndUserUsername(bookmarkId, username);
-        if (optional.isPresent()) {
-            bookmarksRepository.delete(optional.get());
-            return new ResponseEntity<>(optional.get(), HttpStatus.OK);
-        } else {
-            throw new BookmarkNotFoundException("Bookmark not found. id = " + bookmarkId);
+            @PathVariable(value = "bookmarkId") int bookmarkId,
+            HttpServletRequest request)
+            throws ServiceUnavailableException {
+        boolean minimal = isMinimalReturnPreferred(request);
+        return writesBulkhead.submit(() -> {
+            Optional<Bookmark> optional = minimal ? Optional.empty()
+                    : bookmarksRepository
+                            .findByIdAndUserUsername(bookmarkId, username);
+            if ((minimal || optional.isPresent())
+                    && bookmarksRepository.deleteByIdAndUserId(bookmarkId,
+                            getUserId(username)) > 0) {
+                bookmarksIndex.delete(bookmarkId);
+                return minimal ? minimalResponse()
+                        : new ResponseEntity<>(optional.get(), HttpStatus.OK);
+            } else {
+                throw new BookmarkNotFoundException(
+                        "Bookmark not found. id = " + bookmarkId);
+            }
+        });
+    }
+
+    /**
+     * A method to find out if a bookmark couldn't be saved because its owner
+     * already has a bookmark with the same URL.
+     *
+     * @param userId the id of the owner.
+     * @param url the URL of the bookmark.
+     * @param ex the exception thrown when the bookmark was saved.
+     * @return the exception to throw if the URL is a duplicate.
+     * @throws DataIntegrityViolationException the original exception if the
+     * URL isn't a duplicate.
+     */
+    private DuplicateBookmarkException toDuplicate(Integer userId, String url,
+            DataIntegrityViolationException ex) {
+        Integer id = url == null ? null : bookmarksRepository
+                .findIdByUserIdAndUrlHash(userId, Bookmark.hashUrl(url));
+        if (id == null) {
+            throw ex;
+        }
+        return new DuplicateBookmarkException(
+                "The URL is bookmarked already id = " + id, ex);
+    }
+
+    /**
+     * A method to check if the client asked not to return the changed
+     * resource with the Prefer header (RFC 7240).
+     *
+     * @param request HTTP request.
+     * @return true if the return=minimal preference is sent.
+     */
+    private static boolean isMinimalReturnPreferred(
+            HttpServletRequest request) {
+        Enumeration<String> headers = request.getHeaders(PREFER);
+        while (headers != null && headers.hasMoreElements()) {
+            for (String preference : headers.nextElement().split(",")) {
+                String token = preference.split(";")[0].trim();
+                if (RETURN_MINIMAL.equalsIgnoreCase(token)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A method to create the response to a request which preferred not to
+     * get the changed resource.
+     *
+     * @return the response without a body.
+     */
+    private static ResponseEntity<Bookmark> minimalResponse() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(PREFERENCE_APPLIED, RETURN_MINIMAL);
+        return new ResponseEntity<>(headers, HttpStatus.NO_CONTENT);
+    }
+
+    /**
+     * A method to obtain the id of a user. The id of the user resolved during
+     * authentication is used if there is one.
+     *
+     * @param username the username.
+     * @return the id of the user.
+     * @throws UserNotFoundException thrown if user doesn't exist.
+     */
+    private Integer getUserId(String username) throws UserNotFoundException {
+        Integer userId = resolvedUserHolder.getUserId(username);
+        if (userId == null) {
+            userId = usersRepository.findIdByUsername(username);
+            if (userId == null) {
+                throw new UserNotFoundException(username);
+            }
+        }
+        return userId;
+    }
+
+    /**
+     * A method to calculate the size of a page from the requested limit.
+     *
+     * @param limit requested limit, may be null.
+     * @return the page size between one and the maximum page size.
+     */
+    private int getPageSize(Integer limit) {
+        BookmarksProperties.Paging paging = properties.getPaging();
+        if (limit == null) {
+            return Math.min(paging.getDefaultLimit(), paging.getMaxLimit());
+        }
+        return Math.max(1, Math.min(limit, paging.getMaxLimit()));
+    }
+
+    /**
+     * A method to calculate the ETag of a bookmark.
+     *
+     * @param bookmark the bookmark.
+     * @param format the name of the format of the response.
+     * @return the ETag.
+     */
+    private static String getETag(Bookmark bookmark, String format) {
+        return "\"" + bookmark.getId() + "." + bookmark.getVersion() + "-"
+                + format + "\"";
+    }
+
+    /**
+     * A method to calculate the ETag of a collection of bookmarks.
+     *
+     * @param summary the summary of the bookmarks.
+     * @param format the name of the format of the response.
+     * @return the ETag.
+     */
+    private static String getETag(BookmarksSummary summary, String format) {
+        String eTag = summary.getETag();
+        return eTag.substring(0, eTag.length() - 1) + "-" + format + "\"";
+    }
+
+    /**
+     * A method to find out which format the message converters will choose
+     * for a response from the Accept header. The formats are tried in the
+     * order of the converters, so JSON is chosen if any type is accepted.
+     *
+     * @param request HTTP request.
+     * @return the name of the format.
+     */
+    private static String getFormat(HttpServletRequest request) {
+        List<MediaType> accepted;
+        try {
+            accepted = MediaType.parseMediaTypes(
+                    request.getHeader(HttpHeaders.ACCEPT));
+        } catch (InvalidMediaTypeException ex) {
+            return FORMATS.get(MediaType.APPLICATION_JSON);
+        }
+        MediaType.sortBySpecificityAndQuality(accepted);
+        for (MediaType type : accepted) {
+            if (type.getQualityValue() == 0) {
+                continue;
+            }
+            for (Map.Entry<MediaType, String> format : FORMATS.entrySet()) {
+                if (type.isCompatibleWith(format.getKey())) {
+                    return format.getValue();
+                }
+            }
         }
+        return FORMATS.get(MediaType.APPLICATION_JSON);
     }
 
     /**
-     * A method to check if a user exists.
+     * A method to check if a user exists. The database is not queried if the
+     * user was resolved during authentication.
      *
      * @param username username.
      * @throws UserNotFoundException thrown if user doesn't exist.
      */
     private void validateUser(String username) throws UserNotFoundException {
-        if (!usersRepository.findByUsername(username).isPresent()) {
+        if (!resolvedUserHolder.isResolved(username)
+                && !usersRepository.existsByUsername(username)) {
             throw new UserNotFoundException(username);
         }
     }
@@ -0,0 +1,80 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.controllers;
+
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.exporter.common.TextFormat;
+import java.io.IOException;
+import java.io.StringWriter;
+import org.springframework.boot.actuate.endpoint.mvc.AbstractMvcEndpoint;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+/**
+ * An actuator endpoint which returns the metrics of the application in the
+ * Prometheus text format. It is available on the management port.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+@ConfigurationProperties(prefix = "endpoints.prometheus")
+public class PrometheusEndpoint extends AbstractMvcEndpoint {
+
+    /**
+     * The registry of the exported metrics.
+     */
+    private final CollectorRegistry registry;
+
+    /**
+     * A constructor to create the endpoint.
+     *
+     * @param registry The registry of the exported metrics.
+     */
+    public PrometheusEndpoint(CollectorRegistry registry) {
+        super("/prometheus", false);
+        this.registry = registry;
+    }
+
+    /**
+     * A method to write all metrics.
+     *
+     * @return the metrics or 404 if the endpoint is disabled.
+     * @throws IOException if the metrics can't be written.
+     */
+    @RequestMapping(method = RequestMethod.GET)
+    public ResponseEntity<String> metrics() throws IOException {
+        if (!isEnabled()) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        StringWriter writer = new StringWriter();
+        TextFormat.write004(writer, registry.metricFamilySamples());
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.CONTENT_TYPE, TextFormat.CONTENT_TYPE_004);
+        return new ResponseEntity<>(writer.toString(), headers,
+                HttpStatus.OK);
+    }
+}
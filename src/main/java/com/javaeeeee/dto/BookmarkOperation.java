@@ -0,0 +1,110 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.javaeeeee.entities.Bookmark;
+
+/**
+ * An operation of a batch of changes of bookmarks: a bookmark to add, a JSON
+ * Merge Patch document to apply to the bookmark with the id specified or the
+ * id of a bookmark to delete.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+public class BookmarkOperation {
+
+    /**
+     * The kinds of operations.
+     */
+    public enum Type {
+        @JsonProperty("create")
+        CREATE,
+        @JsonProperty("update")
+        UPDATE,
+        @JsonProperty("delete")
+        DELETE
+    }
+
+    /**
+     * The kind of the operation.
+     */
+    private Type op;
+    /**
+     * The id of the bookmark to update or to delete.
+     */
+    private Integer id;
+    /**
+     * The bookmark to create.
+     */
+    private Bookmark bookmark;
+    /**
+     * The JSON Merge Patch document to apply to the bookmark.
+     */
+    private JsonNode patch;
+
+    public BookmarkOperation() {
+    }
+
+    public BookmarkOperation(Type op, Integer id, Bookmark bookmark,
+            JsonNode patch) {
+        this.op = op;
+        this.id = id;
+        this.bookmark = bookmark;
+        this.patch = patch;
+    }
+
+    public Type getOp() {
+        return op;
+    }
+
+    public void setOp(Type op) {
+        this.op = op;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(Integer id) {
+        this.id = id;
+    }
+
+    public Bookmark getBookmark() {
+        return bookmark;
+    }
+
+    public void setBookmark(Bookmark bookmark) {
+        this.bookmark = bookmark;
+    }
+
+    public JsonNode getPatch() {
+        return patch;
+    }
+
+    public void setPatch(JsonNode patch) {
+        this.patch = patch;
+    }
+}
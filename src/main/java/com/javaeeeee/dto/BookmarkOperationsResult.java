@@ -0,0 +1,121 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.springframework.http.HttpStatus;
+
+/**
+ * The outcome of a batch of changes of bookmarks: the result of each
+ * operation in the order of the request. The operations are applied in a
+ * single transaction, so if one of them fails none is applied, and the
+ * operations which didn't fail themselves are reported with the 424 (Failed
+ * Dependency) status.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+public class BookmarkOperationsResult {
+
+    /**
+     * The results of the operations.
+     */
+    private final List<OperationResult> results = new ArrayList<>();
+
+    public List<OperationResult> getResults() {
+        return Collections.unmodifiableList(results);
+    }
+
+    /**
+     * A method to register the result of the next operation.
+     *
+     * @param status the status of the operation.
+     * @param id the id of the bookmark, may be null.
+     * @param message the reason of a failure, null if the operation
+     * succeeded.
+     */
+    public void add(HttpStatus status, Integer id, String message) {
+        results.add(new OperationResult(status.value(), id, message));
+    }
+
+    /**
+     * A method to find out the status of the response: 200 if all
+     * operations succeeded, otherwise the status of the first failed
+     * operation.
+     *
+     * @return the status.
+     */
+    @JsonIgnore
+    public HttpStatus getStatus() {
+        for (OperationResult result : results) {
+            if (result.status >= HttpStatus.BAD_REQUEST.value()
+                    && result.status != HttpStatus.FAILED_DEPENDENCY.value()) {
+                return HttpStatus.valueOf(result.status);
+            }
+        }
+        return HttpStatus.OK;
+    }
+
+    /**
+     * The result of an operation.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class OperationResult {
+
+        /**
+         * The HTTP status which the operation would have if it were sent on
+         * its own.
+         */
+        private final int status;
+        /**
+         * The id of the bookmark.
+         */
+        private final Integer id;
+        /**
+         * The reason of a failure.
+         */
+        private final String message;
+
+        public OperationResult(int status, Integer id, String message) {
+            this.status = status;
+            this.id = id;
+            this.message = message;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public Integer getId() {
+            return id;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.javaeeeee.entities.Bookmark;
+
+/**
+ * A read-only view of a bookmark which is selected by the list queries instead
+ * of the entity. It holds only the properties sent to clients and isn't
+ * managed by the persistence context, so neither the owner is joined nor a
+ * snapshot for dirty checking is kept.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+public class BookmarkView {
+
+    /**
+     * The id of the bookmark.
+     */
+    private final int id;
+    /**
+     * The URL of the bookmark.
+     */
+    private final String url;
+    /**
+     * The description of the bookmark.
+     */
+    private final String description;
+    /**
+     * The version of the bookmark used to calculate the ETag.
+     */
+    @JsonIgnore
+    private final int version;
+
+    /**
+     * A constructor used in the projection queries.
+     *
+     * @param id the id of the bookmark.
+     * @param url the URL of the bookmark.
+     * @param description the description of the bookmark.
+     * @param version the version of the bookmark.
+     */
+    public BookmarkView(Integer id, String url, String description,
+            Integer version) {
+        this.id = id;
+        this.url = url;
+        this.description = description;
+        this.version = version;
+    }
+
+    /**
+     * A method to create the view of a bookmark entity.
+     *
+     * @param bookmark the bookmark.
+     * @return the view.
+     */
+    public static BookmarkView of(Bookmark bookmark) {
+        return new BookmarkView(bookmark.getId(), bookmark.getUrl(),
+                bookmark.getDescription(), bookmark.getVersion());
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.dto;
+
+import java.util.List;
+
+/**
+ * The outcome of a request for several bookmarks by id: the bookmarks which
+ * were found, ordered by id, and the requested ids which don't belong to any
+ * bookmark of the user, in the order of the request.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+public class BookmarksBatch {
+
+    /**
+     * The bookmarks which were found.
+     */
+    private final List<BookmarkView> bookmarks;
+    /**
+     * The ids of the bookmarks which were not found.
+     */
+    private final List<Integer> missing;
+
+    public BookmarksBatch(List<BookmarkView> bookmarks,
+            List<Integer> missing) {
+        this.bookmarks = bookmarks;
+        this.missing = missing;
+    }
+
+    public List<BookmarkView> getBookmarks() {
+        return bookmarks;
+    }
+
+    public List<Integer> getMissing() {
+        return missing;
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.dto;
+
+import java.util.Collection;
+
+/**
+ * Aggregates of the bookmarks of a user which change whenever a bookmark is
+ * added, changed or removed. They are used to calculate the ETag of the
+ * bookmarks collection without loading the bookmarks.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+public class BookmarksSummary {
+
+    /**
+     * Whether the user exists.
+     */
+    private final boolean userFound;
+    /**
+     * The number of bookmarks.
+     */
+    private final long count;
+    /**
+     * The sum of versions of bookmarks.
+     */
+    private final long versions;
+    /**
+     * The largest id of a bookmark.
+     */
+    private final int maxId;
+
+    /**
+     * A constructor used in the summary query, the aggregates of a user
+     * without bookmarks are null.
+     *
+     * @param users the number of users found.
+     * @param count the number of bookmarks.
+     * @param versions the sum of versions of bookmarks.
+     * @param maxId the largest id of a bookmark.
+     */
+    public BookmarksSummary(Long users, Long count, Long versions,
+            Integer maxId) {
+        this.userFound = users != null && users > 0;
+        this.count = count == null ? 0 : count;
+        this.versions = versions == null ? 0 : versions;
+        this.maxId = maxId == null ? 0 : maxId;
+    }
+
+    /**
+     * A method to summarize bookmarks which are already loaded.
+     *
+     * @param bookmarks views of the bookmarks of a user.
+     * @return the summary.
+     */
+    public static BookmarksSummary of(Collection<BookmarkView> bookmarks) {
+        long versions = 0;
+        int maxId = 0;
+        for (BookmarkView bookmark : bookmarks) {
+            versions += bookmark.getVersion();
+            maxId = Math.max(maxId, bookmark.getId());
+        }
+        return new BookmarksSummary(1L, (long) bookmarks.size(), versions,
+                maxId);
+    }
+
+    public boolean isUserFound() {
+        return userFound;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getVersions() {
+        return versions;
+    }
+
+    public int getMaxId() {
+        return maxId;
+    }
+
+    /**
+     * A method to obtain the weak ETag of the bookmarks collection. Ids only
+     * grow, so a bookmark removed and another added change the largest id.
+     *
+     * @return the ETag.
+     */
+    public String getETag() {
+        return "W/\"" + count + "." + versions + "." + maxId + "\"";
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.dto;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of a bulk import of bookmarks: the number of imported bookmarks
+ * and the errors for the items which were not imported.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+public class BulkImportResult {
+
+    /**
+     * The number of imported bookmarks.
+     */
+    private int imported;
+    /**
+     * The errors of the items which were not imported.
+     */
+    private final List<ItemError> errors = new ArrayList<>();
+
+    public int getImported() {
+        return imported;
+    }
+
+    public List<ItemError> getErrors() {
+        return Collections.unmodifiableList(errors);
+    }
+
+    /**
+     * A method to count imported bookmarks.
+     *
+     * @param count the number of bookmarks imported.
+     */
+    public void addImported(int count) {
+        imported += count;
+    }
+
+    /**
+     * A method to register an item which was not imported.
+     *
+     * @param index the position of the item in the request, zero based.
+     * @param message the reason.
+     */
+    public void addError(int index, String message) {
+        errors.add(new ItemError(index, message));
+    }
+
+    /**
+     * An item which was not imported.
+     */
+    public static class ItemError {
+
+        /**
+         * The position of the item in the request, zero based.
+         */
+        private final int index;
+        /**
+         * The reason.
+         */
+        private final String message;
+
+        public ItemError(int index, String message) {
+            this.index = index;
+            this.message = message;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.dto;
+
+/**
+ * A bookmark found by the full-text search with its relevance score. The
+ * properties are taken from the search index rather than the database.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+public class SearchHit {
+
+    /**
+     * The id of the bookmark.
+     */
+    private final int id;
+    /**
+     * The URL of the bookmark.
+     */
+    private final String url;
+    /**
+     * The description of the bookmark.
+     */
+    private final String description;
+    /**
+     * The relevance score, higher is better.
+     */
+    private final float score;
+
+    public SearchHit(int id, String url, String description, float score) {
+        this.id = id;
+        this.url = url;
+        this.description = description;
+        this.score = score;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public float getScore() {
+        return score;
+    }
+}
@@ -25,16 +25,40 @@ package com.javaeeeee.entities;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import java.io.Serializable;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Date;
+import java.util.Locale;
 import javax.persistence.Basic;
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.ForeignKey;
 import javax.persistence.GeneratedValue;
-import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.NamedAttributeNode;
+import javax.persistence.NamedEntityGraph;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
 import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+import javax.persistence.UniqueConstraint;
+import javax.persistence.Version;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 import org.springframework.util.Assert;
 
 /**
@@ -43,15 +67,35 @@ import org.springframework.util.Assert;
  * @author Dmitry Noranovich <javaeeeee at gmail dot com>
  */
 @Entity
-@Table(name = "bookmarks")
+@Table(name = "bookmarks", indexes = @Index(name = "bookmarks_user_id_id_idx",
+        columnList = "user_id, id, version"),
+        uniqueConstraints = @UniqueConstraint(
+                name = "bookmarks_user_id_url_hash_idx",
+                columnNames = {"user_id", "url_hash"}))
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "bookmarks")
+@NamedEntityGraph(name = Bookmark.WITH_USER,
+        attributeNodes = @NamedAttributeNode("user"))
 public class Bookmark implements Serializable {
 
     private static final long serialVersionUID = 1L;
     /**
-     * The auto-generated id of a bookmark.
+     * The name of the fetch plan which loads the owner of a bookmark with it.
+     */
+    public static final String WITH_USER = "Bookmark.withUser";
+    /**
+     * The auto-generated id of a bookmark. Ids are taken from a table in
+     * blocks, so that inserts of several bookmarks can be batched.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "bookmarks_id")
+    @GenericGenerator(name = "bookmarks_id", strategy = "enhanced-table",
+            parameters = {
+                @Parameter(name = "table_name", value = "id_generators"),
+                @Parameter(name = "segment_value", value = "bookmarks"),
+                @Parameter(name = "increment_size", value = "50"),
+                @Parameter(name = "optimizer", value = "pooled-lo")
+            })
     @Basic(optional = false)
     @Column(nullable = false)
     private Integer id;
@@ -63,6 +107,13 @@ public class Bookmark implements Serializable {
     @Size(min = 1, max = 255)
     @Column(nullable = false, length = 255)
     private String url;
+    /**
+     * The hash of the canonical form of the URL. It is unique among the
+     * bookmarks of a user, so a duplicate is found by the index.
+     */
+    @JsonIgnore
+    @Column(name = "url_hash", nullable = false)
+    private long urlHash;
     /**
      * The description of a bookmark.
      */
@@ -70,13 +121,30 @@ public class Bookmark implements Serializable {
     @Column(length = 2048)
     private String description;
     /**
-     * The owner of a bookmark.
+     * The owner of a bookmark. It isn't loaded with the bookmark unless the
+     * WITH_USER fetch plan is used.
      */
     @JsonIgnore
     @Basic(optional = false)
     @NotNull
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "user_id", nullable = false,
+            foreignKey = @ForeignKey(name = "bookmarks_user_id_fk"))
     private User user;
+    /**
+     * The version of a bookmark which is incremented on every change.
+     */
+    @JsonIgnore
+    @Version
+    @Column(nullable = false)
+    private int version;
+    /**
+     * The time of the last change of a bookmark.
+     */
+    @JsonIgnore
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "updated_at", nullable = false)
+    private Date updatedAt;
 
     /**
      * The no-argument constructor.
@@ -93,6 +161,7 @@ public class Bookmark implements Serializable {
     public Bookmark(String url, String description) {
         Assert.hasLength(url);
         this.url = url;
+        this.urlHash = hashUrl(url);
         this.description = description;
     }
 
@@ -121,6 +190,11 @@ public class Bookmark implements Serializable {
     public void setUrl(String url) {
         Assert.hasLength(url);
         this.url = url;
+        this.urlHash = hashUrl(url);
+    }
+
+    public long getUrlHash() {
+        return urlHash;
     }
 
     public String getDescription() {
@@ -140,6 +214,90 @@ public class Bookmark implements Serializable {
         this.user = user;
     }
 
+    public int getVersion() {
+        return version;
+    }
+
+    public Date getUpdatedAt() {
+        return updatedAt;
+    }
+
+    /**
+     * A method to record the time of a change before a bookmark is saved.
+     */
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        updatedAt = new Date();
+        urlHash = hashUrl(url);
+    }
+
+    /**
+     * A method to compute the 64-bit hash of a URL, the first eight bytes of
+     * the SHA-256 digest of its canonical form. URLs which differ only in the
+     * case of the scheme or the host, a default port, an empty path or a
+     * missing http scheme have the same hash. The stored hashes should be
+     * recomputed by a new migration if the canonical form is changed.
+     *
+     * @param url the URL.
+     * @return the hash.
+     */
+    public static long hashUrl(String url) {
+        try {
+            return ByteBuffer.wrap(MessageDigest.getInstance("SHA-256")
+                    .digest(canonicalizeUrl(url)
+                            .getBytes(StandardCharsets.UTF_8)))
+                    .getLong();
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * A method to obtain the canonical form of a URL. A string which can't be
+     * parsed as a URL with a host is only trimmed.
+     *
+     * @param url the URL.
+     * @return the canonical URL.
+     */
+    static String canonicalizeUrl(String url) {
+        String trimmed = url.trim();
+        try {
+            URI uri = new URI(trimmed);
+            if (uri.getScheme() == null) {
+                uri = new URI("http://" + trimmed);
+            }
+            if (uri.getHost() == null) {
+                return trimmed;
+            }
+            String scheme = uri.getScheme().toLowerCase(Locale.ROOT);
+            int port = uri.getPort();
+            if ("http".equals(scheme) && port == 80
+                    || "https".equals(scheme) && port == 443) {
+                port = -1;
+            }
+            StringBuilder result = new StringBuilder(scheme).append("://");
+            if (uri.getRawUserInfo() != null) {
+                result.append(uri.getRawUserInfo()).append('@');
+            }
+            result.append(uri.getHost().toLowerCase(Locale.ROOT));
+            if (port != -1) {
+                result.append(':').append(port);
+            }
+            String path = uri.getRawPath();
+            result.append(path == null || path.isEmpty() ? "/" : path);
+            if (uri.getRawQuery() != null) {
+                result.append('?').append(uri.getRawQuery());
+            }
+            if (uri.getRawFragment() != null) {
+                result.append('#').append(uri.getRawFragment());
+            }
+            return result.toString();
+        } catch (URISyntaxException ex) {
+            return trimmed;
+        }
+    }
+
     @Override
     public int hashCode() {
         int hash = 0;
@@ -164,7 +322,7 @@ public class Bookmark implements Serializable {
     @Override
     public String toString() {
         return "Bookmark{" + "id=" + id + ", url=" + url
-                + ", description=" + description + ", user=" + user + '}';
+                + ", description=" + description + '}';
     }
 
 }
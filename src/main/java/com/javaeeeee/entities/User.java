@@ -27,16 +27,20 @@ import java.io.Serializable;
 import java.util.HashSet;
 import java.util.Set;
 import javax.persistence.Basic;
+import javax.persistence.Cacheable;
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
-import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.OneToMany;
 import javax.persistence.Table;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 import org.springframework.util.Assert;
 
 /**
@@ -46,14 +50,24 @@ import org.springframework.util.Assert;
  */
 @Entity
 @Table(name = "users")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "users")
 public class User implements Serializable {
     
     private static final long serialVersionUID = 1L;
     /**
-     * The auto-generated id of a user.
+     * The auto-generated id of a user. Ids are taken from a table, so that
+     * ids of users are unique across shards.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "users_id")
+    @GenericGenerator(name = "users_id", strategy = "enhanced-table",
+            parameters = {
+                @Parameter(name = "table_name", value = "id_generators"),
+                @Parameter(name = "segment_value", value = "users"),
+                @Parameter(name = "increment_size", value = "10"),
+                @Parameter(name = "optimizer", value = "pooled-lo")
+            })
     @Basic(optional = false)
     @Column(nullable = false)
     private Integer id;
@@ -77,6 +91,8 @@ public class User implements Serializable {
      * Bookmark list of a user.
      */
     @OneToMany(mappedBy = "user", cascade = CascadeType.ALL)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE,
+            region = "user-bookmarks")
     private Set<Bookmark> bookmarks = new HashSet<>();
 
     /**
@@ -129,7 +145,9 @@ public class User implements Serializable {
     }
 
     /**
-     * A method to add bookmarks to user's list.
+     * A method to add bookmarks to user's list. The bookmarks of a persisted
+     * user are loaded to add one, so to add a bookmark to such a user it is
+     * enough to set the owner of the bookmark and persist it.
      *
      * @param bookmark a bookmark to add.
      * @return the added bookmark.
@@ -23,30 +23,198 @@
  */
 package com.javaeeeee.repositories;
 
+import com.javaeeeee.dto.BookmarkView;
+import com.javaeeeee.dto.BookmarksSummary;
 import com.javaeeeee.entities.Bookmark;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Stream;
+import javax.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
- * Bookmarks repository.
+ * Bookmarks repository. Results of the finders are kept in the query cache,
+ * which is invalidated whenever the bookmarks table is changed. The finders
+ * run in read-only transactions, so they may be served by a read replica.
+ * The statements of BookmarksRepositoryCustom change bookmarks without
+ * loading them and aren't seen by Hibernate event listeners, so their callers
+ * should update the search index.
  *
  * @author Dmitry Noranovich <javaeeeee at gmail dot com>
  */
+@Transactional(readOnly = true)
 public interface BookmarksRepository
-        extends PagingAndSortingRepository<Bookmark, Integer> {
+        extends PagingAndSortingRepository<Bookmark, Integer>,
+        BookmarksRepositoryCustom {
 
     /**
      * A method to find bookmarks stored by a particular user identified by the
-     * username.
+     * username. The owner is fetched with the bookmarks.
      *
      * @param username the username.
      * @return list of bookmarks stored by a particular user.
      */
+    @EntityGraph(Bookmark.WITH_USER)
+    @QueryHints({
+        @QueryHint(name = "org.hibernate.cacheable", value = "true"),
+        @QueryHint(name = "org.hibernate.cacheRegion",
+                value = "bookmark-queries")})
     Set<Bookmark> findByUserUsername(String username);
 
+    /**
+     * A method to find views of the bookmarks stored by a particular user
+     * ordered by id.
+     *
+     * @param username the username.
+     * @return list of views of bookmarks.
+     */
+    @QueryHints({
+        @QueryHint(name = "org.hibernate.cacheable", value = "true"),
+        @QueryHint(name = "org.hibernate.cacheRegion",
+                value = "bookmark-queries")})
+    @Query("select new com.javaeeeee.dto.BookmarkView(b.id, b.url,"
+            + " b.description, b.version) from Bookmark b"
+            + " where b.user.username = ?1 order by b.id")
+    List<BookmarkView> findViewsByUserUsername(String username);
+
+    /**
+     * A method to find a page of views of the bookmarks stored by a particular
+     * user whose ids are greater than the cursor. The bookmarks are ordered by
+     * id, so the id of the last bookmark is the cursor for the next page. Only
+     * the page size of the pageable should be used, the page number should be
+     * zero so that the query is a range scan without an offset.
+     *
+     * @param username the username.
+     * @param after the id of the last bookmark of the previous page.
+     * @param pageable the page size.
+     * @return list of views of bookmarks ordered by id.
+     */
+    @QueryHints({
+        @QueryHint(name = "org.hibernate.cacheable", value = "true"),
+        @QueryHint(name = "org.hibernate.cacheRegion",
+                value = "bookmark-queries")})
+    @Query("select new com.javaeeeee.dto.BookmarkView(b.id, b.url,"
+            + " b.description, b.version) from Bookmark b"
+            + " where b.user.username = ?1 and b.id > ?2 order by b.id")
+    List<BookmarkView> findViewPageByUserUsername(String username,
+            Integer after, Pageable pageable);
+
+    /**
+     * A method to find views of the bookmarks of a particular user with the
+     * ids specified by a single query with an IN list. Ids of bookmarks of
+     * other users are ignored. The results aren't cached because the sets of
+     * ids are seldom requested twice.
+     *
+     * @param username the username.
+     * @param ids the ids of the bookmarks.
+     * @return list of views of bookmarks ordered by id.
+     */
+    @Query("select new com.javaeeeee.dto.BookmarkView(b.id, b.url,"
+            + " b.description, b.version) from Bookmark b"
+            + " where b.user.username = ?1 and b.id in ?2 order by b.id")
+    List<BookmarkView> findViewsByUserUsernameAndIdIn(String username,
+            Collection<Integer> ids);
+
+    /**
+     * A method to read views of all bookmarks of a particular user one by one
+     * ordered by id. The stream is backed by a database cursor, so it should
+     * be consumed and closed inside a transaction. MySQL Connector/J honors
+     * the fetch size only if the connection URL has useCursorFetch=true.
+     *
+     * @param username the username.
+     * @return stream of views of bookmarks stored by a particular user.
+     */
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+    @Query("select new com.javaeeeee.dto.BookmarkView(b.id, b.url,"
+            + " b.description, b.version) from Bookmark b"
+            + " where b.user.username = ?1 order by b.id")
+    Stream<BookmarkView> streamViewsByUserUsername(String username);
+
+    /**
+     * A method to read the indexed properties of all bookmarks one by one: the
+     * id, the id of the owner, the URL and the description. The stream should
+     * be consumed and closed inside a transaction, and it is read in chunks
+     * like streamViewsByUserUsername.
+     *
+     * @return stream of arrays of bookmark properties.
+     */
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+    @Query("select b.id, b.user.id, b.url, b.description from Bookmark b")
+    Stream<Object[]> streamAllForIndex();
+
     /**
      * A method to find a bookmark for a particular user with the id specified.
      */
+    @QueryHints({
+        @QueryHint(name = "org.hibernate.cacheable", value = "true"),
+        @QueryHint(name = "org.hibernate.cacheRegion",
+                value = "bookmark-queries")})
     Optional<Bookmark> findByIdAndUserUsername(Integer id, String username);
+
+    /**
+     * A method to calculate aggregates of the bookmarks of a particular user
+     * without loading them.
+     *
+     * @param username the username.
+     * @return the summary which tells also whether the user exists.
+     */
+    @Query("select new com.javaeeeee.dto.BookmarksSummary(count(distinct u),"
+            + " count(b), sum(b.version), max(b.id))"
+            + " from User u left join u.bookmarks b where u.username = ?1")
+    BookmarksSummary summarizeByUserUsername(String username);
+
+    /**
+     * A method to find the id of the bookmark of a particular user whose URL
+     * has the hash specified. The lookup is a single probe of the unique index
+     * on the owner and the URL hash.
+     *
+     * @param userId the id of the owner.
+     * @param urlHash the hash of the URL, see Bookmark.hashUrl.
+     * @return the id of the bookmark or null if there is no such bookmark.
+     */
+    @Query("select b.id from Bookmark b"
+            + " where b.user.id = ?1 and b.urlHash = ?2")
+    Integer findIdByUserIdAndUrlHash(Integer userId, long urlHash);
+
+    /**
+     * A method to read the URL hashes of all bookmarks of a particular user,
+     * which are read from the unique index without reading the bookmarks.
+     *
+     * @param userId the id of the owner.
+     * @return the hashes of the URLs.
+     */
+    @Query("select b.urlHash from Bookmark b where b.user.id = ?1")
+    List<Long> findUrlHashesByUserId(Integer userId);
+
+    /**
+     * A method to load the bookmarks of a particular user with the ids
+     * specified by a single query with an IN list, for example to change them
+     * in a batch.
+     *
+     * @param userId the id of the owner.
+     * @param ids the ids of the bookmarks.
+     * @return the bookmarks, ids of bookmarks of other users are ignored.
+     */
+    List<Bookmark> findByUserIdAndIdIn(Integer userId, Collection<Integer> ids);
+
+    /**
+     * A method to find the ids of the bookmarks of a particular user whose URLs
+     * have the hashes specified. The lookup is done by the unique index on the
+     * owner and the URL hash.
+     *
+     * @param userId the id of the owner.
+     * @param urlHashes the hashes of the URLs, see Bookmark.hashUrl.
+     * @return pairs of the id of a bookmark and the hash of its URL.
+     */
+    @Query("select b.id, b.urlHash from Bookmark b"
+            + " where b.user.id = ?1 and b.urlHash in ?2")
+    List<Object[]> findIdsByUserIdAndUrlHashIn(Integer userId,
+            Collection<Long> urlHashes);
 }
@@ -0,0 +1,65 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.repositories;
+
+import java.util.Map;
+
+/**
+ * Methods of the bookmarks repository which change a bookmark with a single
+ * statement and evict only that bookmark and the bookmarks of its owner from
+ * the second-level cache. They bypass the entity listeners, so their callers
+ * should update the search index.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+public interface BookmarksRepositoryCustom {
+
+    /**
+     * A method to change properties of a bookmark of a particular user with a
+     * single UPDATE statement, without loading the bookmark. The version is
+     * incremented, the time of the last change and the URL hash are set as if
+     * the bookmark were saved.
+     *
+     * @param id the id of the bookmark.
+     * @param userId the id of the owner.
+     * @param values the new values keyed by property name, the names should
+     * be the ones of changeable properties, such as the ones returned by
+     * BookmarkPatcher.
+     * @return the number of changed bookmarks, zero if the user has no
+     * bookmark with the id.
+     */
+    int updateByIdAndUserId(Integer id, Integer userId,
+            Map<String, Object> values);
+
+    /**
+     * A method to delete a bookmark of a particular user with a single DELETE
+     * statement, without loading the bookmark.
+     *
+     * @param id the id of the bookmark.
+     * @param userId the id of the owner.
+     * @return the number of deleted bookmarks, zero if the user has no
+     * bookmark with the id.
+     */
+    int deleteByIdAndUserId(Integer id, Integer userId);
+}
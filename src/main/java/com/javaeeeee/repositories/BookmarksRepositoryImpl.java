@@ -0,0 +1,184 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.repositories;
+
+import com.javaeeeee.entities.Bookmark;
+import com.javaeeeee.entities.User;
+import java.io.Serializable;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import org.hibernate.SQLQuery;
+import org.hibernate.cache.spi.UpdateTimestampsCache;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * The implementation of the methods of the bookmarks repository which change
+ * a bookmark with a single statement without loading it. The statements are
+ * native, because after a JPQL bulk statement Hibernate evicts all bookmarks
+ * and all collections of bookmarks from the second-level cache. Here only the
+ * changed bookmark and the bookmarks of its owner are evicted, and the cached
+ * queries of bookmarks are invalidated as after a change of an entity. The
+ * persistence context is cleared so that a stale bookmark isn't returned
+ * later.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+public class BookmarksRepositoryImpl implements BookmarksRepositoryCustom {
+
+    /**
+     * The role of the collection of bookmarks of a user.
+     */
+    private static final String USER_BOOKMARKS
+            = User.class.getName() + ".bookmarks";
+    /**
+     * The query space of the statements, which isn't used by any entity, so
+     * that Hibernate doesn't evict whole regions after them.
+     */
+    private static final String STATEMENTS_SPACE = "bookmarks-statements";
+
+    /**
+     * The entity manager.
+     */
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public int updateByIdAndUserId(Integer id, Integer userId,
+            Map<String, Object> values) {
+        EventSource session = entityManager.unwrap(EventSource.class);
+        AbstractEntityPersister persister = getPersister(session);
+        Map<String, Object> columns = new LinkedHashMap<>(values);
+        if (values.get("url") != null) {
+            columns.put("urlHash",
+                    Bookmark.hashUrl((String) values.get("url")));
+        }
+        columns.put("updatedAt", new Date());
+        StringBuilder sql = new StringBuilder("update ")
+                .append(persister.getTableName()).append(" set ");
+        for (String property : columns.keySet()) {
+            sql.append(getColumn(persister, property)).append(" = ?, ");
+        }
+        String version = getColumn(persister, "version");
+        sql.append(version).append(" = ").append(version)
+                .append(" + 1 where ")
+                .append(persister.getIdentifierColumnNames()[0])
+                .append(" = ? and ").append(getColumn(persister, "user"))
+                .append(" = ?");
+        SQLQuery query = session.createSQLQuery(sql.toString());
+        int position = 0;
+        for (Map.Entry<String, Object> entry : columns.entrySet()) {
+            query.setParameter(position++, entry.getValue(),
+                    persister.getPropertyType(entry.getKey()));
+        }
+        query.setParameter(position++, id).setParameter(position, userId);
+        return execute(session, query, id, userId);
+    }
+
+    @Override
+    @Transactional
+    public int deleteByIdAndUserId(Integer id, Integer userId) {
+        EventSource session = entityManager.unwrap(EventSource.class);
+        AbstractEntityPersister persister = getPersister(session);
+        SQLQuery query = session.createSQLQuery("delete from "
+                + persister.getTableName() + " where "
+                + persister.getIdentifierColumnNames()[0] + " = ? and "
+                + getColumn(persister, "user") + " = ?");
+        query.setParameter(0, id).setParameter(1, userId);
+        return execute(session, query, id, userId);
+    }
+
+    /**
+     * A method to execute a statement which changes a bookmark and to evict
+     * the bookmark and the bookmarks of its owner from the second-level
+     * cache. Pending changes are flushed first. The bookmark and the bookmarks
+     * of its owner are evicted again after the transaction, so that a reader
+     * doesn't cache the former state before the change is committed.
+     *
+     * @param session the session.
+     * @param query the statement.
+     * @param id the id of the bookmark.
+     * @param userId the id of the owner.
+     * @return the number of changed bookmarks.
+     */
+    private int execute(EventSource session, SQLQuery query,
+            Integer id, Integer userId) {
+        // The dummy query space stops Hibernate from flushing changes before
+        // the statement, so they are flushed here.
+        entityManager.flush();
+        int changed = query.addSynchronizedQuerySpace(STATEMENTS_SPACE)
+                .executeUpdate();
+        entityManager.clear();
+        if (changed == 0) {
+            return changed;
+        }
+        SessionFactoryImplementor factory = session.getFactory();
+        Serializable[] spaces = getPersister(session).getQuerySpaces();
+        UpdateTimestampsCache timestamps = factory.getUpdateTimestampsCache();
+        if (timestamps != null) {
+            timestamps.preInvalidate(spaces, session);
+        }
+        factory.getCache().evictEntity(Bookmark.class, id);
+        factory.getCache().evictCollection(USER_BOOKMARKS, userId);
+        session.getActionQueue().registerProcess((success, completed) -> {
+            factory.getCache().evictEntity(Bookmark.class, id);
+            factory.getCache().evictCollection(USER_BOOKMARKS, userId);
+            if (timestamps != null) {
+                timestamps.invalidate(spaces, completed);
+            }
+        });
+        return changed;
+    }
+
+    /**
+     * A method to obtain the mapping of bookmarks.
+     *
+     * @param session the session.
+     * @return the persister of bookmarks.
+     */
+    private static AbstractEntityPersister getPersister(
+            SessionImplementor session) {
+        return (AbstractEntityPersister) session.getFactory()
+                .getEntityPersister(Bookmark.class.getName());
+    }
+
+    /**
+     * A method to obtain the column of a property of a bookmark.
+     *
+     * @param persister the persister of bookmarks.
+     * @param property the name of the property.
+     * @return the name of the column.
+     */
+    private static String getColumn(AbstractEntityPersister persister,
+            String property) {
+        return persister.getPropertyColumnNames(property)[0];
+    }
+}
@@ -25,15 +25,20 @@ package com.javaeeeee.repositories;
 
 import com.javaeeeee.entities.User;
 import java.util.Optional;
-import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
- * Users repository.
+ * Users repository. It is a JPA repository so that a user can be referenced
+ * by id without loading it. The finders run in read-only transactions, so
+ * they may be served by a read replica.
  *
  * @author Dmitry Noranovich <javaeeeee at gmail dot com>
  */
+@Transactional(readOnly = true)
 public interface UsersRepository
-        extends PagingAndSortingRepository<User, Integer> {
+        extends JpaRepository<User, Integer> {
 
     /**
      * The method looks for a user by username.
@@ -44,12 +49,21 @@ public interface UsersRepository
     Optional<User> findByUsername(String username);
 
     /**
-     * The method looks for a user by username and password for authentication
-     * purposes.
+     * The method checks if a user exists without loading it.
      *
-     * @param username
-     * @param password
-     * @return Optional of user if found and empty Optional otherwise.
+     * @param username the name of the user to check.
+     * @return true if the user exists.
      */
-    Optional<User> findByUsernameAndPassword(String username, String password);
+    @Query("select case when count(u) > 0 then true else false end "
+            + "from User u where u.username = ?1")
+    boolean existsByUsername(String username);
+
+    /**
+     * The method looks for the id of a user without loading it.
+     *
+     * @param username the name of the user to find.
+     * @return the id of the user or null if not found.
+     */
+    @Query("select u.id from User u where u.username = ?1")
+    Integer findIdByUsername(String username);
 }
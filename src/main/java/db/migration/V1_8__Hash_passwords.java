@@ -0,0 +1,64 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package db.migration;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import org.flywaydb.core.api.migration.spring.SpringJdbcMigration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * A migration which replaces the plain text passwords of users with their
+ * BCrypt hashes. Passwords which are hashes already are left alone, so the
+ * migration may be applied to a database whose users were partly created by
+ * a newer version.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+public class V1_8__Hash_passwords implements SpringJdbcMigration {
+
+    /**
+     * The number of users updated by a single batch.
+     */
+    private static final int BATCH_SIZE = 100;
+
+    @Override
+    public void migrate(JdbcTemplate jdbcTemplate) {
+        PasswordEncoder encoder = new BCryptPasswordEncoder();
+        List<Object[]> users = jdbcTemplate.query(
+                "select id, password from users where password not like '$2_$%'",
+                (rs, row) -> new Object[]{rs.getInt(1), rs.getString(2)});
+        for (int i = 0; i < users.size(); i += BATCH_SIZE) {
+            jdbcTemplate.batchUpdate(
+                    "update users set password = ? where id = ?",
+                    users.subList(i, Math.min(i + BATCH_SIZE, users.size()))
+                            .stream()
+                            .map(user -> new Object[]{
+                        encoder.encode((String) user[1]), user[0]})
+                            .collect(Collectors.toList()));
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package db.migration;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import org.flywaydb.core.api.migration.spring.SpringJdbcMigration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * A migration which adds the hash of the canonical URL to bookmarks and makes
+ * it unique among the bookmarks of a user. Of the bookmarks of a user with the
+ * same URL the oldest one is kept and the others are deleted and logged,
+ * otherwise the unique index can't be created. The hash is computed by a copy
+ * of Bookmark.hashUrl as of this version, so that a later change of the
+ * application doesn't change what this migration does.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+public class V1_9__Add_bookmarks_url_hash implements SpringJdbcMigration {
+
+    private static final Logger LOGGER
+            = LoggerFactory.getLogger(V1_9__Add_bookmarks_url_hash.class);
+
+    /**
+     * The number of bookmarks updated or deleted by a single batch.
+     */
+    private static final int BATCH_SIZE = 100;
+
+    @Override
+    public void migrate(JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.execute("alter table bookmarks"
+                + " add column url_hash bigint not null default 0");
+        Map<Integer, Map<Long, Integer>> idsByUser = new HashMap<>();
+        List<Object[]> hashes = new ArrayList<>();
+        List<Object[]> duplicates = new ArrayList<>();
+        jdbcTemplate.query("select id, user_id, url from bookmarks order by id",
+                rs -> {
+                    int id = rs.getInt(1);
+                    long hash = hashUrl(rs.getString(3));
+                    Integer kept = idsByUser.computeIfAbsent(rs.getInt(2),
+                            user -> new HashMap<>()).putIfAbsent(hash, id);
+                    if (kept == null) {
+                        hashes.add(new Object[]{hash, id});
+                    } else {
+                        LOGGER.warn("Deleting bookmark {} of user {}, whose URL"
+                                + " {} duplicates the one of bookmark {}.", id,
+                                rs.getInt(2), rs.getString(3), kept);
+                        duplicates.add(new Object[]{id});
+                    }
+                });
+        batchUpdate(jdbcTemplate,
+                "delete from bookmarks where id = ?", duplicates);
+        batchUpdate(jdbcTemplate,
+                "update bookmarks set url_hash = ? where id = ?", hashes);
+        jdbcTemplate.execute("create unique index"
+                + " bookmarks_user_id_url_hash_idx"
+                + " on bookmarks (user_id, url_hash)");
+    }
+
+    /**
+     * A method to compute the hash of the canonical form of a URL, a copy of
+     * Bookmark.hashUrl.
+     *
+     * @param url the URL.
+     * @return the first 8 bytes of the SHA-256 of the canonical URL.
+     */
+    private static long hashUrl(String url) {
+        try {
+            return ByteBuffer.wrap(MessageDigest.getInstance("SHA-256")
+                    .digest(canonicalizeUrl(url)
+                            .getBytes(StandardCharsets.UTF_8)))
+                    .getLong();
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * A method to obtain the canonical form of a URL, a copy of
+     * Bookmark.canonicalizeUrl.
+     *
+     * @param url the URL.
+     * @return the canonical URL.
+     */
+    private static String canonicalizeUrl(String url) {
+        String trimmed = url.trim();
+        try {
+            URI uri = new URI(trimmed);
+            if (uri.getScheme() == null) {
+                uri = new URI("http://" + trimmed);
+            }
+            if (uri.getHost() == null) {
+                return trimmed;
+            }
+            String scheme = uri.getScheme().toLowerCase(Locale.ROOT);
+            int port = uri.getPort();
+            if ("http".equals(scheme) && port == 80
+                    || "https".equals(scheme) && port == 443) {
+                port = -1;
+            }
+            StringBuilder result = new StringBuilder(scheme).append("://");
+            if (uri.getRawUserInfo() != null) {
+                result.append(uri.getRawUserInfo()).append('@');
+            }
+            result.append(uri.getHost().toLowerCase(Locale.ROOT));
+            if (port != -1) {
+                result.append(':').append(port);
+            }
+            String path = uri.getRawPath();
+            result.append(path == null || path.isEmpty() ? "/" : path);
+            if (uri.getRawQuery() != null) {
+                result.append('?').append(uri.getRawQuery());
+            }
+            if (uri.getRawFragment() != null) {
+                result.append('#').append(uri.getRawFragment());
+            }
+            return result.toString();
+        } catch (URISyntaxException ex) {
+            return trimmed;
+        }
+    }
+
+    /**
+     * A method to run a statement for a lot of rows in batches.
+     *
+     * @param jdbcTemplate the database.
+     * @param sql the statement.
+     * @param rows the arguments of the statement for each row.
+     */
+    private static void batchUpdate(JdbcTemplate jdbcTemplate, String sql,
+            List<Object[]> rows) {
+        for (int i = 0; i < rows.size(); i += BATCH_SIZE) {
+            jdbcTemplate.batchUpdate(sql,
+                    rows.subList(i, Math.min(i + BATCH_SIZE, rows.size())));
+        }
+    }
+}
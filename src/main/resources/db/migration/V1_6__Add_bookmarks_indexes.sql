@@ -0,0 +1,38 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+/**
+ * Author:  Dmitry Noranovich <javaeeeee at gmail dot com>
+ * Created: 17-Oct-2026
+ */
+
+-- The reference declared inline with the user_id column isn't enforced by
+-- MySQL, so bookmarks of removed users may be left; they can't be reached.
+delete from bookmarks where user_id not in (select id from users);
+
+-- Bookmarks of a user are found by user_id and ordered or filtered by id; the
+-- version makes the index cover the ETag summary of the bookmarks of a user.
+create index bookmarks_user_id_id_idx on bookmarks (user_id, id, version);
+
+alter table bookmarks add constraint bookmarks_user_id_fk
+    foreign key (user_id) references users (id);
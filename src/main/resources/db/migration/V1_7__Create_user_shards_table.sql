@@ -0,0 +1,44 @@
+/* 
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+/**
+ * Author:  Dmitry Noranovich <javaeeeee at gmail dot com>
+ * Created: 17-Oct-2026
+ */
+
+-- The directory of the shards which hold the users. Only the table of the
+-- main database is used; the users which are there before the bookmarks are
+-- sharded stay in the main database.
+create table user_shards (
+    username varchar(255) not null primary key,
+    shard varchar(64) not null,
+    moving boolean not null default false
+);
+
+insert into user_shards (username, shard)
+select username, 'main' from users;
+
+-- Users take ids from a table like bookmarks, so that each shard can be given
+-- its own range of ids and a user keeps its id when moved to another shard.
+insert into id_generators (sequence_name, next_val)
+select 'users', coalesce(max(id), 0) + 1 from users;
@@ -0,0 +1,120 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.components;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.javaeeeee.configuration.BookmarksProperties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * A class to test AuthenticationCache.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+public class AuthenticationCacheTest {
+
+    /**
+     * Test user name.
+     */
+    private static final String USERNAME = "Phil";
+    /**
+     * Test user password.
+     */
+    private static final String PASSWORD = "1";
+    /**
+     * Test user id.
+     */
+    private static final Integer USER_ID = 1;
+
+    /**
+     * Current time in nanoseconds.
+     */
+    private final AtomicLong time = new AtomicLong();
+    /**
+     * System under test.
+     */
+    private AuthenticationCache cache;
+
+    /**
+     * A method used for before method initialization.
+     */
+    @Before
+    public void setUp() {
+        BookmarksProperties properties = new BookmarksProperties();
+        properties.getAuthCache().setTimeToLive(60);
+        Ticker ticker = time::get;
+        cache = new AuthenticationCache(properties, ticker);
+    }
+
+    /**
+     * Test that a cached authentication is found.
+     */
+    @Test
+    public void getUserIdShouldReturnCachedId() {
+        Assert.assertNull(cache.getUserId(USERNAME, PASSWORD));
+        cache.put(USERNAME, PASSWORD, USER_ID);
+
+        Assert.assertEquals(USER_ID, cache.getUserId(USERNAME, PASSWORD));
+        Assert.assertEquals(1, cache.getHitCount());
+        Assert.assertEquals(1, cache.getMissCount());
+    }
+
+    /**
+     * Test that wrong credentials don't match a cached authentication.
+     */
+    @Test
+    public void getUserIdWithWrongPasswordShouldReturnNull() {
+        cache.put(USERNAME, PASSWORD, USER_ID);
+
+        Assert.assertNull(cache.getUserId(USERNAME, PASSWORD + "mmm"));
+        Assert.assertEquals(0, cache.getHitCount());
+        Assert.assertEquals(1, cache.getMissCount());
+    }
+
+    /**
+     * Test that an invalidated authentication is not found.
+     */
+    @Test
+    public void invalidateShouldRemoveAuthentication() {
+        cache.put(USERNAME, PASSWORD, USER_ID);
+        cache.invalidate(USERNAME);
+
+        Assert.assertNull(cache.getUserId(USERNAME, PASSWORD));
+    }
+
+    /**
+     * Test that authentications expire.
+     */
+    @Test
+    public void getUserIdAfterTimeToLiveShouldReturnNull() {
+        cache.put(USERNAME, PASSWORD, USER_ID);
+        time.addAndGet(TimeUnit.SECONDS.toNanos(61));
+
+        Assert.assertNull(cache.getUserId(USERNAME, PASSWORD));
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.components;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.javaeeeee.configuration.ValidationConfiguration;
+import com.javaeeeee.dto.BookmarkOperation;
+import com.javaeeeee.dto.BookmarkOperationsResult;
+import com.javaeeeee.entities.Bookmark;
+import com.javaeeeee.entities.User;
+import com.javaeeeee.repositories.BookmarksRepository;
+import com.javaeeeee.repositories.UsersRepository;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * A class to test BookmarkOperationsProcessor. Tests don't run in a
+ * transaction because the processor uses its own one.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@Import({BookmarkOperationsProcessor.class, BookmarkPatcher.class,
+    BookmarkValidator.class, ValidationConfiguration.class,
+    JacksonAutoConfiguration.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class BookmarkOperationsProcessorTest {
+
+    /**
+     * Test user name.
+     */
+    private static final String USER_NAME = "Phil";
+
+    /**
+     * System under test.
+     */
+    @Autowired
+    private BookmarkOperationsProcessor processor;
+    /**
+     * The repository to create and check bookmarks.
+     */
+    @Autowired
+    private BookmarksRepository bookmarksRepository;
+    /**
+     * The repository to create a test user.
+     */
+    @Autowired
+    private UsersRepository usersRepository;
+    /**
+     * The mapper to create patches.
+     */
+    @Autowired
+    private ObjectMapper mapper;
+    /**
+     * The id of the test user.
+     */
+    private Integer userId;
+    /**
+     * The bookmarks of the test user.
+     */
+    private Bookmark first, second, third;
+
+    /**
+     * A method used for before method initialization.
+     */
+    @Before
+    public void setUp() {
+        User user = usersRepository.save(new User(USER_NAME, "1"));
+        userId = user.getId();
+        first = save(user, "http://a.com");
+        second = save(user, "http://b.com");
+        third = save(user, "http://c.com");
+    }
+
+    /**
+     * Do cleanup after each method.
+     */
+    @After
+    public void tearDown() {
+        bookmarksRepository.deleteAll();
+        usersRepository.deleteAll();
+    }
+
+    /**
+     * All operations should be applied in one go, a URL of a deleted
+     * bookmark may be reused.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void executeShouldApplyAllOperations() throws Exception {
+        BookmarkOperationsResult result = processor.execute(userId,
+                Arrays.asList(
+                        update(second.getId(), "{\"url\":\"http://d.com\","
+                                + "\"description\":\"news\"}"),
+                        delete(first.getId()),
+                        create("http://a.com")));
+
+        Assert.assertEquals(HttpStatus.OK, result.getStatus());
+        List<BookmarkOperationsResult.OperationResult> results
+                = result.getResults();
+        Assert.assertEquals(200, results.get(0).getStatus());
+        Assert.assertEquals(second.getId(), results.get(0).getId());
+        Assert.assertEquals(204, results.get(1).getStatus());
+        Assert.assertEquals(201, results.get(2).getStatus());
+        Assert.assertNotNull(results.get(2).getId());
+        Assert.assertNull(results.get(2).getMessage());
+
+        Assert.assertFalse(bookmarksRepository.exists(first.getId()));
+        Bookmark updated = bookmarksRepository.findOne(second.getId());
+        Assert.assertEquals("http://d.com", updated.getUrl());
+        Assert.assertEquals("news", updated.getDescription());
+        Assert.assertEquals(1, updated.getVersion());
+        Assert.assertEquals("http://a.com", bookmarksRepository
+                .findOne(results.get(2).getId()).getUrl());
+        Assert.assertEquals(3, bookmarksRepository.count());
+    }
+
+    /**
+     * If an operation fails nothing should be changed, the failure should be
+     * reported for the operation which caused it.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void executeShouldApplyNothingIfAnOperationFails()
+            throws Exception {
+        BookmarkOperationsResult result = processor.execute(userId,
+                Arrays.asList(
+                        update(second.getId(), "{\"description\":\"news\"}"),
+                        delete(Integer.MAX_VALUE),
+                        create("HTTP://C.com/"),
+                        create("http://e.com"),
+                        create("http://e.com")));
+
+        Assert.assertEquals(HttpStatus.NOT_FOUND, result.getStatus());
+        List<BookmarkOperationsResult.OperationResult> results
+                = result.getResults();
+        Assert.assertEquals(424, results.get(0).getStatus());
+        Assert.assertEquals(404, results.get(1).getStatus());
+        Assert.assertEquals(409, results.get(2).getStatus());
+        Assert.assertEquals("The URL is bookmarked already id = "
+                + third.getId(), results.get(2).getMessage());
+        Assert.assertEquals(424, results.get(3).getStatus());
+        Assert.assertEquals(409, results.get(4).getStatus());
+
+        Assert.assertNull(bookmarksRepository.findOne(second.getId())
+                .getDescription());
+        Assert.assertEquals(3, bookmarksRepository.count());
+    }
+
+    /**
+     * Invalid operations should be rejected before the database is
+     * accessed.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void executeShouldRejectInvalidOperations() throws Exception {
+        BookmarkOperationsResult result = processor.execute(userId,
+                Arrays.asList(
+                        null,
+                        update(null, "{}"),
+                        update(first.getId(), "{\"url\":\"\"}"),
+                        delete(second.getId()),
+                        update(second.getId(), "{}"),
+                        new BookmarkOperation(BookmarkOperation.Type.CREATE,
+                                null, null, null)));
+
+        Assert.assertEquals(HttpStatus.BAD_REQUEST, result.getStatus());
+        int[] statuses = {400, 400, 400, 424, 400, 400};
+        for (int i = 0; i < statuses.length; i++) {
+            Assert.assertEquals(statuses[i],
+                    result.getResults().get(i).getStatus());
+        }
+        Assert.assertEquals(3, bookmarksRepository.count());
+    }
+
+    /**
+     * An update shouldn't take the URL of another bookmark updated in the
+     * same batch.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void executeShouldRejectUrlOfUpdatedBookmark() throws Exception {
+        BookmarkOperationsResult result = processor.execute(userId,
+                Arrays.asList(
+                        update(first.getId(), "{\"url\":\"http://d.com\"}"),
+                        update(second.getId(), "{\"url\":\"http://a.com\"}")));
+
+        Assert.assertEquals(HttpStatus.CONFLICT, result.getStatus());
+        Assert.assertEquals(409, result.getResults().get(1).getStatus());
+        Assert.assertEquals("http://a.com",
+                bookmarksRepository.findOne(first.getId()).getUrl());
+    }
+
+    /**
+     * A method to save a bookmark of the test user.
+     *
+     * @param user the owner.
+     * @param url the URL of the bookmark.
+     * @return the saved bookmark.
+     */
+    private Bookmark save(User user, String url) {
+        Bookmark bookmark = new Bookmark(url, null);
+        bookmark.setUser(user);
+        return bookmarksRepository.save(bookmark);
+    }
+
+    private static BookmarkOperation create(String url) {
+        return new BookmarkOperation(BookmarkOperation.Type.CREATE, null,
+                new Bookmark(url, null), null);
+    }
+
+    private BookmarkOperation update(Integer id, String patch)
+            throws Exception {
+        return new BookmarkOperation(BookmarkOperation.Type.UPDATE, id, null,
+                mapper.readTree(patch));
+    }
+
+    private static BookmarkOperation delete(Integer id) {
+        return new BookmarkOperation(BookmarkOperation.Type.DELETE, id, null,
+                null);
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.components;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.javaeeeee.entities.Bookmark;
+import com.javaeeeee.exception.InvalidRequestException;
+import java.util.Map;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+
+/**
+ * A class to test BookmarkPatcher.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+public class BookmarkPatcherTest {
+
+    /**
+     * The URL of the test bookmark.
+     */
+    private static final String URL = "http://economist.com";
+    /**
+     * The description of the test bookmark.
+     */
+    private static final String DESCRIPTION = "Cool reading.";
+    /**
+     * The mapper used to parse patches.
+     */
+    private final ObjectMapper mapper = new ObjectMapper();
+    /**
+     * The validator shared by the tests.
+     */
+    private static LocalValidatorFactoryBean validator;
+    /**
+     * The bookmark to patch.
+     */
+    private Bookmark bookmark;
+    /**
+     * System under test.
+     */
+    private BookmarkPatcher patcher;
+
+    /**
+     * A method to create the validator.
+     */
+    @BeforeClass
+    public static void setUpClass() {
+        validator = new LocalValidatorFactoryBean();
+        validator.afterPropertiesSet();
+    }
+
+    /**
+     * A method to close the validator.
+     */
+    @AfterClass
+    public static void tearDownClass() {
+        validator.destroy();
+    }
+
+    /**
+     * A method used for before method initialization.
+     */
+    @Before
+    public void setUp() {
+        bookmark = new Bookmark(URL, DESCRIPTION);
+        bookmark.setId(1);
+        patcher = new BookmarkPatcher(mapper, new BookmarkValidator(validator));
+    }
+
+    /**
+     * Test that only the members present in a patch are changed.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void patchShouldChangeOnlyPresentMembers() throws Exception {
+        patcher.patch(bookmark, json("{\"url\":\"http://time.com\"}"));
+
+        Assert.assertEquals("http://time.com", bookmark.getUrl());
+        Assert.assertEquals(DESCRIPTION, bookmark.getDescription());
+    }
+
+    /**
+     * Test that a null member clears a property.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void patchShouldClearNullMembers() throws Exception {
+        patcher.patch(bookmark, json("{\"description\":null}"));
+
+        Assert.assertEquals(URL, bookmark.getUrl());
+        Assert.assertNull(bookmark.getDescription());
+    }
+
+    /**
+     * Test that members which can't be changed are ignored.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void patchShouldIgnoreReadOnlyAndUnknownMembers() throws Exception {
+        patcher.patch(bookmark,
+                json("{\"id\":5,\"version\":3,\"user\":null,\"foo\":1}"));
+
+        Assert.assertEquals(Integer.valueOf(1), bookmark.getId());
+        Assert.assertEquals(0, bookmark.getVersion());
+        Assert.assertEquals(URL, bookmark.getUrl());
+    }
+
+    /**
+     * Test that the changes are keyed by the names of the properties and
+     * don't include members which can't be changed.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void getChangesShouldReturnChangedProperties() throws Exception {
+        Map<String, Object> changes = patcher.getChanges(json(
+                "{\"id\":5,\"description\":null,\"url\":\"http://a.com\"}"));
+
+        Assert.assertEquals(2, changes.size());
+        Assert.assertEquals("http://a.com", changes.get("url"));
+        Assert.assertTrue(changes.containsKey("description"));
+        Assert.assertNull(changes.get("description"));
+    }
+
+    /**
+     * Test that an invalid patch doesn't change a bookmark.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void invalidPatchShouldNotChangeBookmark() throws Exception {
+        try {
+            patcher.patch(bookmark,
+                    json("{\"description\":\"changed\",\"url\":\"\"}"));
+            Assert.fail();
+        } catch (InvalidRequestException ex) {
+            Assert.assertEquals(URL, bookmark.getUrl());
+            Assert.assertEquals(DESCRIPTION, bookmark.getDescription());
+        }
+    }
+
+    /**
+     * Test that a patch which is not an object is rejected.
+     *
+     * @throws Exception
+     */
+    @Test(expected = InvalidRequestException.class)
+    public void patchShouldRejectArrays() throws Exception {
+        patcher.patch(bookmark, json("[]"));
+    }
+
+    /**
+     * A method to parse a JSON document.
+     *
+     * @param json the document.
+     * @return the parsed document.
+     * @throws Exception
+     */
+    private JsonNode json(String json) throws Exception {
+        return mapper.readTree(json);
+    }
+}
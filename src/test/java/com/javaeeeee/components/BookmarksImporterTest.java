@@ -0,0 +1,220 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.components;
+
+import com.javaeeeee.configuration.ValidationConfiguration;
+import com.javaeeeee.dto.BulkImportResult;
+import com.javaeeeee.entities.User;
+import com.javaeeeee.exception.UserNotFoundException;
+import com.javaeeeee.repositories.BookmarksRepository;
+import com.javaeeeee.repositories.UsersRepository;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import javax.sql.DataSource;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * A class to test BookmarksImporter. Tests don't run in a transaction because
+ * the importer uses a transaction per batch.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@Import({BookmarksImporter.class, BookmarkValidator.class,
+    ValidationConfiguration.class, JacksonAutoConfiguration.class})
+@TestPropertySource(properties = "bookmarks.import.batch-size=2")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class BookmarksImporterTest {
+
+    /**
+     * Test user name.
+     */
+    private static final String USER_NAME = "Phil";
+
+    /**
+     * System under test.
+     */
+    @Autowired
+    private BookmarksImporter bookmarksImporter;
+    /**
+     * The repository to check imported bookmarks.
+     */
+    @Autowired
+    private BookmarksRepository bookmarksRepository;
+    /**
+     * The repository to create a test user.
+     */
+    @Autowired
+    private UsersRepository usersRepository;
+    /**
+     * The data source used to make an insert fail.
+     */
+    @Autowired
+    private DataSource dataSource;
+
+    /**
+     * A method used for before method initialization.
+     */
+    @Before
+    public void setUp() {
+        usersRepository.save(new User(USER_NAME, "1"));
+    }
+
+    /**
+     * Do cleanup after each method.
+     */
+    @After
+    public void tearDown() {
+        bookmarksRepository.deleteAll();
+        usersRepository.deleteAll();
+    }
+
+    /**
+     * Test import of a JSON array which contains an invalid bookmark.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void importJsonArrayShouldSkipInvalidBookmarks() throws Exception {
+        BulkImportResult result = bookmarksImporter.importBookmarks(USER_NAME,
+                stream("[{\"url\":\"http://a.com\"}, {\"description\":\"d\"},"
+                        + " {\"url\":\"http://b.com\"},"
+                        + " {\"url\":\"http://c.com\"}]"));
+
+        Assert.assertEquals(3, result.getImported());
+        Assert.assertEquals(1, result.getErrors().size());
+        Assert.assertEquals(1, result.getErrors().get(0).getIndex());
+        Assert.assertEquals(3,
+                bookmarksRepository.findByUserUsername(USER_NAME).size());
+    }
+
+    /**
+     * Test import of newline-delimited JSON which contains a bookmark which
+     * can't be read.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void importNdjsonShouldSkipUnreadableBookmarks() throws Exception {
+        BulkImportResult result = bookmarksImporter.importBookmarks(USER_NAME,
+                stream("{\"url\":\"\"}\n{\"url\":\"http://a.com\"}\n"));
+
+        Assert.assertEquals(1, result.getImported());
+        Assert.assertEquals(1, result.getErrors().size());
+        Assert.assertEquals(0, result.getErrors().get(0).getIndex());
+        Assert.assertEquals(1,
+                bookmarksRepository.findByUserUsername(USER_NAME).size());
+    }
+
+    /**
+     * Test that URLs which the user has bookmarked already, before or earlier
+     * in the same request, are skipped.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void importShouldSkipDuplicateUrls() throws Exception {
+        bookmarksImporter.importBookmarks(USER_NAME,
+                stream("{\"url\":\"http://a.com\"}"));
+
+        BulkImportResult result = bookmarksImporter.importBookmarks(USER_NAME,
+                stream("[{\"url\":\"HTTP://A.com/\"}, {\"url\":\"b.com\"},"
+                        + " {\"url\":\"http://b.com\"},"
+                        + " {\"url\":\"http://c.com\"}]"));
+
+        Assert.assertEquals(2, result.getImported());
+        Assert.assertEquals(2, result.getErrors().size());
+        Assert.assertEquals(0, result.getErrors().get(0).getIndex());
+        Assert.assertEquals(2, result.getErrors().get(1).getIndex());
+        Assert.assertEquals(3,
+                bookmarksRepository.findByUserUsername(USER_NAME).size());
+    }
+
+    /**
+     * Test that the URL of a bookmark which couldn't be inserted may be
+     * imported later in the same request.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void importShouldRetryUrlOfFailedBookmark() throws Exception {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("alter table bookmarks add constraint"
+                + " bookmarks_no_fail check (description <> 'fail')");
+        BulkImportResult result;
+        try {
+            result = bookmarksImporter.importBookmarks(USER_NAME,
+                    stream("[{\"url\":\"http://a.com\","
+                            + " \"description\":\"fail\"},"
+                            + " {\"url\":\"http://b.com\"},"
+                            + " {\"url\":\"http://a.com\"}]"));
+        } finally {
+            jdbcTemplate.execute(
+                    "alter table bookmarks drop constraint bookmarks_no_fail");
+        }
+
+        Assert.assertEquals(2, result.getImported());
+        Assert.assertEquals(1, result.getErrors().size());
+        Assert.assertEquals(0, result.getErrors().get(0).getIndex());
+        Assert.assertEquals(2,
+                bookmarksRepository.findByUserUsername(USER_NAME).size());
+    }
+
+    /**
+     * Test import for a nonexistent user.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test(expected = UserNotFoundException.class)
+    public void importForNonexistentUserShouldThrowException()
+            throws Exception {
+        bookmarksImporter.importBookmarks(USER_NAME + "mmm",
+                stream("[{\"url\":\"http://a.com\"}]"));
+    }
+
+    /**
+     * A method to create a stream from a string.
+     *
+     * @param data the content of the stream.
+     * @return the stream.
+     */
+    private InputStream stream(String data) {
+        return new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8));
+    }
+}
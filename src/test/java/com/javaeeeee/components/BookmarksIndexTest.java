@@ -0,0 +1,222 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.components;
+
+import com.javaeeeee.configuration.BookmarksProperties;
+import com.javaeeeee.dto.SearchHit;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.util.FileSystemUtils;
+
+/**
+ * A class to test BookmarksIndex.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+public class BookmarksIndexTest {
+
+    /**
+     * The id of the test user.
+     */
+    private static final int USER_ID = 1;
+    /**
+     * The id of another user.
+     */
+    private static final int OTHER_USER_ID = 2;
+
+    /**
+     * System under test.
+     */
+    private BookmarksIndex index;
+
+    /**
+     * A method used for before method initialization.
+     *
+     * @throws Exception
+     */
+    @Before
+    public void setUp() throws Exception {
+        BookmarksProperties properties = new BookmarksProperties();
+        properties.getSearch().setDirectory("");
+        index = new BookmarksIndex(properties);
+        index.index(1, USER_ID, "http://economist.com", "Cool reading");
+        index.index(2, USER_ID, "http://time.com", "Some news");
+        index.index(3, USER_ID, "http://news.example.com/economist",
+                "Economist news");
+        index.index(4, OTHER_USER_ID, "http://economist.com", null);
+    }
+
+    /**
+     * Do cleanup after each method.
+     *
+     * @throws Exception
+     */
+    @After
+    public void tearDown() throws Exception {
+        index.close();
+    }
+
+    /**
+     * Test that words of URLs and descriptions are found and that bookmarks
+     * which match better come first.
+     */
+    @Test
+    public void searchShouldRankMatches() {
+        List<SearchHit> hits = index.search(USER_ID, "economist", 0, 10);
+
+        Assert.assertEquals(2, hits.size());
+        Assert.assertEquals(3, hits.get(0).getId());
+        Assert.assertEquals(1, hits.get(1).getId());
+        Assert.assertEquals("http://economist.com", hits.get(1).getUrl());
+        Assert.assertEquals("Cool reading", hits.get(1).getDescription());
+    }
+
+    /**
+     * Test that all the words of a query should match.
+     */
+    @Test
+    public void searchShouldRequireAllWords() {
+        List<SearchHit> hits = index.search(USER_ID, "news TIME", 0, 10);
+
+        Assert.assertEquals(1, hits.size());
+        Assert.assertEquals(2, hits.get(0).getId());
+    }
+
+    /**
+     * Test that the offset and the limit are applied.
+     */
+    @Test
+    public void searchShouldReturnPage() {
+        List<SearchHit> hits = index.search(USER_ID, "http", 1, 1);
+
+        Assert.assertEquals(1, hits.size());
+        Assert.assertTrue(index.search(USER_ID, "http", 3, 1).isEmpty());
+    }
+
+    /**
+     * Test that changed and removed bookmarks are found accordingly.
+     */
+    @Test
+    public void searchShouldSeeChanges() {
+        index.index(1, USER_ID, "http://economist.com", "Weekly");
+        index.delete(3);
+
+        Assert.assertTrue(index.search(USER_ID, "news", 0, 10).stream()
+                .noneMatch(hit -> hit.getId() == 3));
+        Assert.assertEquals(1, index.search(USER_ID, "weekly", 0, 10).size());
+        Assert.assertTrue(index.search(USER_ID, "cool", 0, 10).isEmpty());
+    }
+
+    /**
+     * Test that changed fields are merged with the stored ones and that
+     * bookmarks which aren't indexed are skipped.
+     */
+    @Test
+    public void updateShouldMergeChanges() {
+        index.update(1, USER_ID, Collections.singletonMap("url",
+                "http://weekly.example.com"));
+        index.update(3, USER_ID, Collections.singletonMap("description",
+                null));
+        index.update(5, USER_ID, Collections.singletonMap("url",
+                "http://missing.example.com"));
+
+        List<SearchHit> hits = index.search(USER_ID, "weekly", 0, 10);
+        Assert.assertEquals(1, hits.size());
+        Assert.assertEquals("Cool reading", hits.get(0).getDescription());
+        Assert.assertTrue(index.search(USER_ID, "news economist", 0, 10)
+                .get(0).getDescription() == null);
+        Assert.assertTrue(index.search(USER_ID, "missing", 0, 10).isEmpty());
+    }
+
+    /**
+     * Test that an index stored in a directory is kept after it is closed.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void committedIndexShouldBeReopened() throws Exception {
+        Path directory = Files.createTempDirectory("bookmarks-index");
+        BookmarksProperties properties = new BookmarksProperties();
+        properties.getSearch().setDirectory(directory.toString());
+        try {
+            BookmarksIndex stored = new BookmarksIndex(properties);
+            stored.index(1, USER_ID, "http://economist.com", null);
+            stored.commit();
+            stored.close();
+
+            BookmarksIndex reopened = new BookmarksIndex(properties);
+            try {
+                Assert.assertFalse(reopened.isEmpty());
+                Assert.assertEquals(1, reopened
+                        .search(USER_ID, "economist", 0, 10).size());
+            } finally {
+                reopened.close();
+            }
+        } finally {
+            FileSystemUtils.deleteRecursively(directory.toFile());
+        }
+    }
+
+    /**
+     * Test that a failed commit doesn't throw, so that it doesn't cancel the
+     * periodic commits.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void failedCommitShouldNotThrow() throws Exception {
+        Path directory = Files.createTempDirectory("bookmarks-index");
+        BookmarksProperties properties = new BookmarksProperties();
+        properties.getSearch().setDirectory(directory.toString());
+        BookmarksIndex failing = new BookmarksIndex(properties);
+        failing.index(1, USER_ID, "http://economist.com", null);
+        FileSystemUtils.deleteRecursively(directory.toFile());
+
+        failing.commit();
+        try {
+            failing.close();
+        } catch (IOException ex) {
+            // The directory is gone, so the final commit fails too.
+        }
+    }
+
+    /**
+     * Test that the index is emptied.
+     */
+    @Test
+    public void deleteAllShouldEmptyIndex() {
+        Assert.assertFalse(index.isEmpty());
+        index.deleteAll();
+        index.commit();
+
+        Assert.assertTrue(index.isEmpty());
+    }
+}
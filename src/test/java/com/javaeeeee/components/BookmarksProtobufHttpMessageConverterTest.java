@@ -0,0 +1,293 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.components;
+
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.DescriptorProtos.DescriptorProto;
+import com.google.protobuf.DescriptorProtos.FieldDescriptorProto;
+import com.google.protobuf.DescriptorProtos.FileDescriptorProto;
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.FileDescriptor;
+import com.google.protobuf.DynamicMessage;
+import com.javaeeeee.dto.BookmarkView;
+import com.javaeeeee.dto.BookmarksBatch;
+import com.javaeeeee.dto.SearchHit;
+import com.javaeeeee.entities.Bookmark;
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+/**
+ * A class to test BookmarksProtobufHttpMessageConverter. The messages are
+ * checked against the schema of bookmarks.proto.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+public class BookmarksProtobufHttpMessageConverterTest {
+
+    /**
+     * The type of a list of views of bookmarks.
+     */
+    private static final Type VIEWS
+            = new ParameterizedTypeReference<List<BookmarkView>>() {
+            }.getType();
+    /**
+     * The type of a list of bookmarks.
+     */
+    private static final Type BOOKMARKS
+            = new ParameterizedTypeReference<List<Bookmark>>() {
+            }.getType();
+
+    /**
+     * System under test.
+     */
+    private BookmarksProtobufHttpMessageConverter converter;
+    /**
+     * The Bookmark message.
+     */
+    private Descriptor bookmarkMessage;
+    /**
+     * The Bookmarks message.
+     */
+    private Descriptor bookmarksMessage;
+
+    /**
+     * A method to create the converter and the descriptors of the messages
+     * of bookmarks.proto.
+     *
+     * @throws Exception
+     */
+    @Before
+    public void setUp() throws Exception {
+        converter = new BookmarksProtobufHttpMessageConverter();
+        FileDescriptorProto file = FileDescriptorProto.newBuilder()
+                .setName("bookmarks.proto")
+                .setPackage("bookmarks")
+                .setSyntax("proto3")
+                .addMessageType(DescriptorProto.newBuilder()
+                        .setName("Bookmark")
+                        .addField(field("id", 1,
+                                FieldDescriptorProto.Type.TYPE_INT32))
+                        .addField(field("url", 2,
+                                FieldDescriptorProto.Type.TYPE_STRING))
+                        .addField(field("description", 3,
+                                FieldDescriptorProto.Type.TYPE_STRING))
+                        .addField(field("score", 4,
+                                FieldDescriptorProto.Type.TYPE_FLOAT)))
+                .addMessageType(DescriptorProto.newBuilder()
+                        .setName("Bookmarks")
+                        .addField(field("bookmarks", 1,
+                                FieldDescriptorProto.Type.TYPE_MESSAGE)
+                                .setTypeName(".bookmarks.Bookmark")
+                                .setLabel(FieldDescriptorProto.Label
+                                        .LABEL_REPEATED))
+                        .addField(field("missing", 2,
+                                FieldDescriptorProto.Type.TYPE_INT32)
+                                .setLabel(FieldDescriptorProto.Label
+                                        .LABEL_REPEATED)))
+                .build();
+        FileDescriptor descriptor = FileDescriptor.buildFrom(file,
+                new FileDescriptor[0]);
+        bookmarkMessage = descriptor.findMessageTypeByName("Bookmark");
+        bookmarksMessage = descriptor.findMessageTypeByName("Bookmarks");
+    }
+
+    /**
+     * A list of views should be written as a Bookmarks message and read back
+     * as bookmarks.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void writeListShouldFollowSchema() throws Exception {
+        List<BookmarkView> views = Arrays.asList(
+                new BookmarkView(1, "http://economist.com", "Cool reading", 0),
+                new BookmarkView(2, "http://time.com", null, 0));
+        Assert.assertTrue(converter.canWrite(VIEWS, views.getClass(),
+                BookmarksProtobufHttpMessageConverter.PROTOBUF));
+        MockHttpOutputMessage output = new MockHttpOutputMessage();
+        converter.write(views, VIEWS,
+                BookmarksProtobufHttpMessageConverter.PROTOBUF, output);
+
+        Assert.assertEquals(BookmarksProtobufHttpMessageConverter.PROTOBUF,
+                output.getHeaders().getContentType());
+        DynamicMessage message = DynamicMessage.parseFrom(bookmarksMessage,
+                output.getBodyAsBytes());
+        List<?> items = (List<?>) message.getField(
+                bookmarksMessage.findFieldByName("bookmarks"));
+        Assert.assertEquals(2, items.size());
+        DynamicMessage second = (DynamicMessage) items.get(1);
+        Assert.assertEquals(2, second.getField(
+                bookmarkMessage.findFieldByName("id")));
+        Assert.assertEquals("http://time.com", second.getField(
+                bookmarkMessage.findFieldByName("url")));
+        Assert.assertFalse(second.hasField(
+                bookmarkMessage.findFieldByName("description")));
+
+        Assert.assertTrue(converter.canRead(BOOKMARKS, null,
+                BookmarksProtobufHttpMessageConverter.PROTOBUF));
+        @SuppressWarnings("unchecked")
+        List<Bookmark> bookmarks = (List<Bookmark>) converter.read(BOOKMARKS,
+                null, new MockHttpInputMessage(output.getBodyAsBytes()));
+        Assert.assertEquals(2, bookmarks.size());
+        Assert.assertEquals(Integer.valueOf(1), bookmarks.get(0).getId());
+        Assert.assertEquals("Cool reading",
+                bookmarks.get(0).getDescription());
+        Assert.assertNull(bookmarks.get(1).getDescription());
+    }
+
+    /**
+     * A search hit should be written as a Bookmark message with a score and
+     * a bookmark should be read from a Bookmark message.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void writeSingleShouldFollowSchema() throws Exception {
+        MockHttpOutputMessage output = new MockHttpOutputMessage();
+        converter.write(new SearchHit(3, "http://time.com", "news", 0.5f),
+                SearchHit.class,
+                BookmarksProtobufHttpMessageConverter.PROTOBUF, output);
+
+        DynamicMessage message = DynamicMessage.parseFrom(bookmarkMessage,
+                output.getBodyAsBytes());
+        Assert.assertEquals(0.5f, message.getField(
+                bookmarkMessage.findFieldByName("score")));
+        Bookmark bookmark = (Bookmark) converter.read(Bookmark.class,
+                new MockHttpInputMessage(output.getBodyAsBytes()));
+        Assert.assertEquals("http://time.com", bookmark.getUrl());
+        Assert.assertEquals("news", bookmark.getDescription());
+    }
+
+    /**
+     * A batch of bookmarks requested by ids should be written as a Bookmarks
+     * message with the missing ids.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void writeBatchShouldFollowSchema() throws Exception {
+        BookmarksBatch batch = new BookmarksBatch(Arrays.asList(
+                new BookmarkView(1, "http://economist.com", null, 0)),
+                Arrays.asList(7, 300));
+        Assert.assertTrue(converter.canWrite(BookmarksBatch.class,
+                BookmarksProtobufHttpMessageConverter.PROTOBUF));
+        MockHttpOutputMessage output = new MockHttpOutputMessage();
+        converter.write(batch, BookmarksBatch.class,
+                BookmarksProtobufHttpMessageConverter.PROTOBUF, output);
+
+        DynamicMessage message = DynamicMessage.parseFrom(bookmarksMessage,
+                output.getBodyAsBytes());
+        Assert.assertEquals(1, message.getRepeatedFieldCount(
+                bookmarksMessage.findFieldByName("bookmarks")));
+        Assert.assertEquals(Arrays.asList(7, 300), message.getField(
+                bookmarksMessage.findFieldByName("missing")));
+    }
+
+    /**
+     * Unknown fields and known fields with an unexpected wire type should be
+     * skipped whatever their wire type is.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void readShouldSkipFieldsByWireType() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CodedOutputStream output = CodedOutputStream.newInstance(bytes);
+        output.writeFixed64(9, 42L);
+        output.writeString(1, "1");
+        output.writeFixed32(10, 42);
+        output.writeString(2, "http://time.com");
+        output.writeInt32(3, 5);
+        output.writeFloat(4, 0.5f);
+        output.flush();
+
+        Bookmark bookmark = (Bookmark) converter.read(Bookmark.class,
+                new MockHttpInputMessage(bytes.toByteArray()));
+        Assert.assertNull(bookmark.getId());
+        Assert.assertEquals("http://time.com", bookmark.getUrl());
+        Assert.assertNull(bookmark.getDescription());
+    }
+
+    /**
+     * A field with an invalid wire type should make the message unreadable.
+     *
+     * @throws Exception
+     */
+    @Test(expected = HttpMessageNotReadableException.class)
+    public void readShouldRejectInvalidWireType() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CodedOutputStream output = CodedOutputStream.newInstance(bytes);
+        output.writeString(2, "http://time.com");
+        // Wire types 6 and 7 are not defined.
+        output.writeUInt32NoTag(5 << 3 | 7);
+        output.flush();
+
+        converter.read(Bookmark.class,
+                new MockHttpInputMessage(bytes.toByteArray()));
+    }
+
+    /**
+     * Other types and media types should be left to other converters.
+     */
+    @Test
+    public void shouldSupportOnlyBookmarks() {
+        Assert.assertFalse(converter.canWrite(BookmarkView.class,
+                MediaType.APPLICATION_JSON));
+        Assert.assertFalse(converter.canWrite(
+                new ParameterizedTypeReference<List<String>>() {
+                }.getType(), List.class,
+                BookmarksProtobufHttpMessageConverter.PROTOBUF));
+        Assert.assertFalse(converter.canWrite(String.class,
+                BookmarksProtobufHttpMessageConverter.PROTOBUF));
+        Assert.assertFalse(converter.canRead(VIEWS, null,
+                BookmarksProtobufHttpMessageConverter.PROTOBUF));
+        Assert.assertFalse(converter.canRead(BookmarkView.class,
+                BookmarksProtobufHttpMessageConverter.PROTOBUF));
+    }
+
+    /**
+     * A method to describe a field of a message.
+     *
+     * @param name the name of the field.
+     * @param number the number of the field.
+     * @param type the type of the field.
+     * @return the builder of the field.
+     */
+    private static FieldDescriptorProto.Builder field(String name,
+            int number, FieldDescriptorProto.Type type) {
+        return FieldDescriptorProto.newBuilder().setName(name)
+                .setNumber(number).setType(type)
+                .setLabel(FieldDescriptorProto.Label.LABEL_OPTIONAL);
+    }
+}
@@ -0,0 +1,287 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.components;
+
+import com.javaeeeee.configuration.BookmarksProperties;
+import com.javaeeeee.exception.ServiceUnavailableException;
+import com.javaeeeee.exception.UserNotFoundException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import javax.persistence.EntityManagerFactory;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/**
+ * A class to test Bulkhead and RequestContextTaskDecorator.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+public class BulkheadTest {
+
+    /**
+     * Mock entity manager factory.
+     */
+    private EntityManagerFactory entityManagerFactory;
+    /**
+     * System under test, with one thread and one place in the queue.
+     */
+    private Bulkhead bulkhead;
+
+    /**
+     * A method used for before method initialization.
+     */
+    @Before
+    public void setUp() {
+        entityManagerFactory = Mockito.mock(EntityManagerFactory.class);
+        bulkhead = new Bulkhead("test", new BookmarksProperties.Bulkhead(1, 1),
+                new RequestContextTaskDecorator(entityManagerFactory));
+    }
+
+    /**
+     * A method used for after method cleanup.
+     */
+    @After
+    public void tearDown() {
+        bulkhead.shutdown();
+        RequestContextHolder.resetRequestAttributes();
+        if (TransactionSynchronizationManager
+                .hasResource(entityManagerFactory)) {
+            TransactionSynchronizationManager
+                    .unbindResource(entityManagerFactory);
+        }
+    }
+
+    /**
+     * A task should be rejected if the thread is busy and the queue is full.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void submitShouldRejectIfQueueIsFull() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Boolean> running = bulkhead.submit(() -> {
+            started.countDown();
+            return release.await(10, TimeUnit.SECONDS);
+        });
+        Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+        CompletableFuture<String> queued = bulkhead.submit(() -> "queued");
+
+        try {
+            bulkhead.submit(() -> "rejected");
+            Assert.fail();
+        } catch (ServiceUnavailableException e) {
+            Assert.assertEquals(1, bulkhead.getRejectedCount());
+            Assert.assertEquals(1, bulkhead.getActiveCount());
+            Assert.assertEquals(1, bulkhead.getQueueSize());
+        }
+
+        release.countDown();
+        Assert.assertTrue(running.get(10, TimeUnit.SECONDS));
+        Assert.assertEquals("queued", queued.get(10, TimeUnit.SECONDS));
+    }
+
+    /**
+     * A bulkhead over an executor which starts a thread per task should run
+     * no more tasks at once than it has threads, and reject tasks if the
+     * queue is full.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void submitShouldLimitTasksOfUnboundedExecutor() throws Exception {
+        ExecutorService executor = Executors.newCachedThreadPool();
+        Bulkhead unbounded = new Bulkhead("unbounded",
+                new BookmarksProperties.Bulkhead(1, 1), executor, null);
+        try {
+            CountDownLatch started = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            CompletableFuture<Boolean> running = unbounded.submit(() -> {
+                started.countDown();
+                return release.await(10, TimeUnit.SECONDS);
+            });
+            Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+            CompletableFuture<String> queued = unbounded.submit(() -> "queued");
+
+            try {
+                unbounded.submit(() -> "rejected");
+                Assert.fail();
+            } catch (ServiceUnavailableException e) {
+                Assert.assertEquals(1, unbounded.getRejectedCount());
+                Assert.assertEquals(1, unbounded.getActiveCount());
+                Assert.assertEquals(1, unbounded.getQueueSize());
+                Assert.assertFalse(queued.isDone());
+            }
+
+            release.countDown();
+            Assert.assertTrue(running.get(10, TimeUnit.SECONDS));
+            Assert.assertEquals("queued", queued.get(10, TimeUnit.SECONDS));
+        } finally {
+            unbounded.shutdown();
+        }
+    }
+
+    /**
+     * The future should fail with the exception thrown by the task.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void submitShouldFailWithExceptionOfTask() throws Exception {
+        CompletableFuture<Object> future = bulkhead.submit(() -> {
+            throw new UserNotFoundException("Phil");
+        });
+
+        try {
+            future.get(10, TimeUnit.SECONDS);
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof UserNotFoundException);
+        }
+    }
+
+    /**
+     * An error thrown by a task should fail the future and free the places of
+     * the task.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void submitShouldFailWithErrorOfTask() throws Exception {
+        CompletableFuture<Object> future = bulkhead.submit(() -> {
+            throw new AssertionError("broken");
+        });
+
+        try {
+            future.get(10, TimeUnit.SECONDS);
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof AssertionError);
+        }
+        // The only thread picks the next task after the failed one is done.
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Boolean> running = bulkhead.submit(() -> {
+            started.countDown();
+            return release.await(10, TimeUnit.SECONDS);
+        });
+        Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(1, bulkhead.getActiveCount());
+        Assert.assertEquals(0, bulkhead.getQueueSize());
+        CompletableFuture<String> queued = bulkhead.submit(() -> "queued");
+
+        release.countDown();
+        Assert.assertTrue(running.get(10, TimeUnit.SECONDS));
+        Assert.assertEquals("queued", queued.get(10, TimeUnit.SECONDS));
+    }
+
+    /**
+     * A task should see the request and the entity manager of the thread
+     * which submitted it, and the bulkhead thread should be left clean.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void submitShouldPassRequestContext() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        RequestContextHolder.setRequestAttributes(
+                new ServletRequestAttributes(request));
+        Object holder = new Object();
+        TransactionSynchronizationManager.bindResource(
+                entityManagerFactory, holder);
+
+        Assert.assertSame(request, bulkhead.submit(() -> {
+            Assert.assertTrue(Thread.currentThread().getName()
+                    .startsWith("bulkhead-test-"));
+            Assert.assertSame(holder, TransactionSynchronizationManager
+                    .getResource(entityManagerFactory));
+            return ((ServletRequestAttributes) RequestContextHolder
+                    .currentRequestAttributes()).getRequest();
+        }).get(10, TimeUnit.SECONDS));
+
+        RequestContextHolder.resetRequestAttributes();
+        TransactionSynchronizationManager.unbindResource(entityManagerFactory);
+        Assert.assertTrue(bulkhead.submit(() -> RequestContextHolder
+                .getRequestAttributes() == null
+                && !TransactionSynchronizationManager
+                        .hasResource(entityManagerFactory))
+                .get(10, TimeUnit.SECONDS));
+    }
+
+    /**
+     * A bulkhead which runs tasks in the calling thread should run no more
+     * tasks at once than it has threads, and reject tasks if the queue is
+     * full.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void callShouldLimitTasksOfCallingThreads() throws Exception {
+        Bulkhead inline = new Bulkhead("inline",
+                new BookmarksProperties.Bulkhead(1, 1));
+        ExecutorService callers = Executors.newCachedThreadPool();
+        try {
+            CountDownLatch started = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            Future<Boolean> running = callers.submit(() -> inline.call(() -> {
+                started.countDown();
+                return release.await(10, TimeUnit.SECONDS);
+            }));
+            Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+            Future<String> queued = callers.submit(
+                    () -> inline.call(() -> "queued"));
+            while (inline.getQueueSize() == 0) {
+                Thread.sleep(10);
+            }
+
+            try {
+                inline.call(() -> "rejected");
+                Assert.fail();
+            } catch (ServiceUnavailableException e) {
+                Assert.assertEquals(1, inline.getRejectedCount());
+                Assert.assertEquals(1, inline.getActiveCount());
+                Assert.assertEquals(1, inline.getQueueSize());
+                Assert.assertFalse(queued.isDone());
+            }
+
+            release.countDown();
+            Assert.assertTrue(running.get(10, TimeUnit.SECONDS));
+            Assert.assertEquals("queued", queued.get(10, TimeUnit.SECONDS));
+        } finally {
+            callers.shutdown();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.components;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * A class to test the consistent hash ring.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+public class ConsistentHashRingTest {
+
+    /**
+     * The number of keys placed by the tests.
+     */
+    private static final int KEYS = 10_000;
+
+    /**
+     * Keys should be spread across the nodes about evenly.
+     */
+    @Test
+    public void keysShouldBeSpreadEvenly() {
+        ConsistentHashRing ring = new ConsistentHashRing(
+                Arrays.asList("a", "b", "c", "d"), 100);
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            counts.merge(ring.getNode("user" + i), 1, Integer::sum);
+        }
+
+        Assert.assertEquals(4, counts.size());
+        counts.values().forEach(count -> Assert.assertTrue(
+                count > KEYS / 8 && count < KEYS * 3 / 8));
+    }
+
+    /**
+     * A new node should take keys only from the other nodes and about its
+     * share of them.
+     */
+    @Test
+    public void newNodeShouldTakeOnlyItsShare() {
+        ConsistentHashRing before = new ConsistentHashRing(
+                Arrays.asList("a", "b", "c", "d"), 100);
+        ConsistentHashRing after = new ConsistentHashRing(
+                Arrays.asList("a", "b", "c", "d", "e"), 100);
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            String node = after.getNode("user" + i);
+            if (!node.equals(before.getNode("user" + i))) {
+                Assert.assertEquals("e", node);
+                moved++;
+            }
+        }
+
+        Assert.assertTrue(moved > KEYS / 10 && moved < KEYS * 3 / 10);
+    }
+
+    /**
+     * A ring without nodes can't place keys.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void ringShouldRequireNodes() {
+        new ConsistentHashRing(Arrays.asList(), 100);
+    }
+}
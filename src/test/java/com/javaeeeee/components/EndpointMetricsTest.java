@@ -0,0 +1,147 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.components;
+
+import io.prometheus.client.Collector;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * A class to test EndpointMetrics.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+public class EndpointMetricsTest {
+
+    /**
+     * Test endpoint.
+     */
+    private static final String ENDPOINT = "GET /{username}/bookmarks";
+    /**
+     * Allowed error of quantiles in seconds.
+     */
+    private static final double DELTA = 0.001;
+
+    /**
+     * System under test.
+     */
+    private EndpointMetrics metrics;
+
+    /**
+     * A method used for before method initialization.
+     */
+    @Before
+    public void setUp() {
+        metrics = new EndpointMetrics();
+    }
+
+    /**
+     * Quantiles should be calculated over the requests recorded since the
+     * previous scrape, and counts and sums should be totals.
+     */
+    @Test
+    public void shouldExportLatencyOfEndpoint() {
+        for (int i = 1; i <= 1000; i++) {
+            metrics.record(ENDPOINT, 200, TimeUnit.MILLISECONDS.toNanos(i));
+        }
+
+        Map<String, Double> samples = scrape();
+        Assert.assertEquals(0.5, samples.get(
+                "http_request_duration_seconds" + labels(ENDPOINT, "0.5")),
+                DELTA);
+        Assert.assertEquals(0.99, samples.get(
+                "http_request_duration_seconds" + labels(ENDPOINT, "0.99")),
+                DELTA);
+        Assert.assertEquals(0.999, samples.get(
+                "http_request_duration_seconds" + labels(ENDPOINT, "0.999")),
+                DELTA);
+        Assert.assertEquals(1000, samples.get(
+                "http_request_duration_seconds_count" + labels(ENDPOINT)), 0);
+        Assert.assertEquals(500.5, samples.get(
+                "http_request_duration_seconds_sum" + labels(ENDPOINT)),
+                DELTA);
+
+        metrics.record(ENDPOINT, 200, TimeUnit.SECONDS.toNanos(2));
+
+        samples = scrape();
+        Assert.assertEquals(2, samples.get(
+                "http_request_duration_seconds" + labels(ENDPOINT, "0.5")),
+                DELTA * 2);
+        Assert.assertEquals(1001, samples.get(
+                "http_request_duration_seconds_count" + labels(ENDPOINT)), 0);
+        Assert.assertTrue(Double.isNaN(scrape().get(
+                "http_request_duration_seconds" + labels(ENDPOINT, "0.5"))));
+    }
+
+    /**
+     * Requests should be counted by endpoint and status, and exceptions by
+     * type.
+     */
+    @Test
+    public void shouldCountRequestsAndErrors() {
+        metrics.record(ENDPOINT, 200, 1);
+        metrics.record(ENDPOINT, 200, 1);
+        metrics.record(ENDPOINT, 404, 1);
+        metrics.recordError(new IllegalStateException());
+
+        Map<String, Double> samples = scrape();
+        Assert.assertEquals(2, samples.get(
+                "http_requests_total" + labels(ENDPOINT, "200")), 0);
+        Assert.assertEquals(1, samples.get(
+                "http_requests_total" + labels(ENDPOINT, "404")), 0);
+        Assert.assertEquals(1, samples.get(
+                "http_errors_total" + labels("IllegalStateException")), 0);
+    }
+
+    /**
+     * A method to collect the metrics once.
+     *
+     * @return the values of the samples keyed by name and label values.
+     */
+    private Map<String, Double> scrape() {
+        Map<String, Double> samples = new HashMap<>();
+        for (Collector.MetricFamilySamples family : metrics.collect()) {
+            for (Collector.MetricFamilySamples.Sample sample
+                    : family.samples) {
+                samples.put(sample.name + sample.labelValues, sample.value);
+            }
+        }
+        return samples;
+    }
+
+    /**
+     * A method to format label values the way they are keyed by scrape().
+     *
+     * @param values the label values.
+     * @return the key suffix.
+     */
+    private static String labels(String... values) {
+        return Arrays.asList(values).toString();
+    }
+}
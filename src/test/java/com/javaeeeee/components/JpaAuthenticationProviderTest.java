@@ -0,0 +1,181 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.components;
+
+import com.javaeeeee.entities.User;
+import com.javaeeeee.repositories.UsersRepository;
+import java.util.Optional;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.BDDMockito;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.security.authentication.AuthenticationCredentialsNotFoundException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * A class to test JpaAuthenticationProvider.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class JpaAuthenticationProviderTest {
+
+    /**
+     * Test user name.
+     */
+    private static final String USERNAME = "Phil";
+    /**
+     * Test user password.
+     */
+    private static final String PASSWORD = "1";
+    /**
+     * A wrong password of the test user.
+     */
+    private static final String WRONG_PASSWORD = "2";
+    /**
+     * The encoder of passwords with the lowest cost to keep the tests fast.
+     */
+    private static final PasswordEncoder ENCODER
+            = new BCryptPasswordEncoder(4);
+    /**
+     * A test user.
+     */
+    private static final User USER
+            = new User(USERNAME, ENCODER.encode(PASSWORD));
+
+    /**
+     * Mock user repository.
+     */
+    @Mock
+    private UsersRepository usersRepository;
+    /**
+     * Mock authentication cache.
+     */
+    @Mock
+    private AuthenticationCache authenticationCache;
+    /**
+     * Mock holder of the resolved user.
+     */
+    @Mock
+    private ResolvedUserHolder resolvedUserHolder;
+    /**
+     * The encoder which checks the credentials.
+     */
+    @Spy
+    private PasswordEncoder passwordEncoder = ENCODER;
+    /**
+     * System under test.
+     */
+    @InjectMocks
+    private JpaAuthenticationProvider authenticationProvider;
+
+    /**
+     * A method used for before method initialization.
+     */
+    @Before
+    public void setUp() {
+        USER.setId(1);
+        BDDMockito.given(authenticationCache.getUserId(USERNAME, PASSWORD))
+                .willReturn(null);
+    }
+
+    /**
+     * Test that a cached authentication doesn't query the database.
+     */
+    @Test
+    public void authenticateCachedShouldNotQueryRepository() {
+        BDDMockito.given(authenticationCache.getUserId(USERNAME, PASSWORD))
+                .willReturn(USER.getId());
+
+        Authentication result = authenticationProvider.authenticate(
+                new UsernamePasswordAuthenticationToken(USERNAME, PASSWORD));
+
+        Assert.assertEquals(USERNAME, result.getName());
+        BDDMockito.verifyZeroInteractions(usersRepository);
+    }
+
+    /**
+     * Test that a successful authentication is cached.
+     */
+    @Test
+    public void authenticateShouldCacheSuccess() {
+        BDDMockito.given(usersRepository.findByUsername(USERNAME))
+                .willReturn(Optional.of(USER));
+
+        authenticationProvider.authenticate(
+                new UsernamePasswordAuthenticationToken(USERNAME, PASSWORD));
+
+        BDDMockito.verify(authenticationCache)
+                .put(USERNAME, PASSWORD, USER.getId());
+    }
+
+    /**
+     * Test that a wrong password is rejected and not cached.
+     */
+    @Test(expected = AuthenticationCredentialsNotFoundException.class)
+    public void authenticateWithWrongPasswordShouldThrowException() {
+        BDDMockito.given(usersRepository.findByUsername(USERNAME))
+                .willReturn(Optional.of(USER));
+        BDDMockito.given(authenticationCache
+                .getUserId(USERNAME, WRONG_PASSWORD)).willReturn(null);
+
+        try {
+            authenticationProvider.authenticate(
+                    new UsernamePasswordAuthenticationToken(USERNAME,
+                            WRONG_PASSWORD));
+        } finally {
+            BDDMockito.verify(authenticationCache, BDDMockito.never())
+                    .put(BDDMockito.anyString(), BDDMockito.anyString(),
+                            BDDMockito.anyInt());
+        }
+    }
+
+    /**
+     * Test that an unknown user is rejected after the password is checked
+     * against a hash, so that it takes as long as a wrong password.
+     */
+    @Test
+    public void authenticateUnknownUserShouldCheckPassword() {
+        BDDMockito.given(usersRepository.findByUsername(USERNAME))
+                .willReturn(Optional.empty());
+
+        try {
+            authenticationProvider.authenticate(
+                    new UsernamePasswordAuthenticationToken(USERNAME,
+                            PASSWORD));
+            Assert.fail();
+        } catch (AuthenticationCredentialsNotFoundException e) {
+            BDDMockito.verify(passwordEncoder).matches(
+                    BDDMockito.eq(PASSWORD), BDDMockito.anyString());
+        }
+    }
+}
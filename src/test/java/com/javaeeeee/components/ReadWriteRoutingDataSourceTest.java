@@ -0,0 +1,271 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.components;
+
+import com.javaeeeee.entities.User;
+import com.javaeeeee.repositories.BookmarksRepository;
+import com.javaeeeee.repositories.UsersRepository;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import org.flywaydb.core.Flyway;
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * A class to test the routing of connections between the primary database
+ * and a read replica, which are two embedded H2 databases. The replica is
+ * migrated separately and isn't kept in sync, so a row found in only one of
+ * the databases shows where a statement went. The second-level cache is
+ * disabled, so that every read reaches a database.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+    "spring.datasource.url=" + ReadWriteRoutingDataSourceTest.PRIMARY_URL,
+    "spring.datasource.driver-class-name=org.h2.Driver",
+    "spring.datasource.username=sa",
+    "spring.datasource.password=",
+    "bookmarks.datasource.replicas[0].url="
+    + ReadWriteRoutingDataSourceTest.REPLICA_URL,
+    "spring.jpa.hibernate.ddl-auto=none",
+    "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+    "spring.jpa.properties.hibernate.cache.use_query_cache=false",
+    "bookmarks.search.directory="})
+@AutoConfigureMockMvc
+public class ReadWriteRoutingDataSourceTest {
+
+    /**
+     * The URL of the primary database.
+     */
+    static final String PRIMARY_URL
+            = "jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1";
+    /**
+     * The URL of the replica.
+     */
+    static final String REPLICA_URL
+            = "jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1";
+    /**
+     * Test user name.
+     */
+    private static final String USERNAME = "Phil";
+    /**
+     * Test user password.
+     */
+    private static final String PASSWORD = "1";
+
+    /**
+     * Mock MVC which goes through the security filters.
+     */
+    @Autowired
+    private MockMvc mvc;
+    /**
+     * Users repository.
+     */
+    @Autowired
+    private UsersRepository usersRepository;
+    /**
+     * Bookmarks repository.
+     */
+    @Autowired
+    private BookmarksRepository bookmarksRepository;
+    /**
+     * The entity manager factory.
+     */
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    /**
+     * The encoder of passwords.
+     */
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+    /**
+     * The routing data source.
+     */
+    @Autowired
+    private ReadWriteRoutingDataSource routingDataSource;
+    /**
+     * The pool of the primary database.
+     */
+    @Autowired
+    private org.apache.tomcat.jdbc.pool.DataSource primaryDataSource;
+    /**
+     * Statements run directly against the primary database.
+     */
+    private JdbcTemplate primary;
+    /**
+     * Statements run directly against the replica.
+     */
+    private JdbcTemplate replica;
+
+    /**
+     * A method to create the schema and the data of the replica before the
+     * application migrates the primary database.
+     */
+    @BeforeClass
+    public static void setUpReplica() {
+        Flyway flyway = new Flyway();
+        flyway.setDataSource(REPLICA_URL, "sa", "");
+        flyway.migrate();
+    }
+
+    /**
+     * A method used for before method initialization.
+     */
+    @Before
+    public void setUp() {
+        primary = new JdbcTemplate(primaryDataSource);
+        replica = new JdbcTemplate(
+                routingDataSource.getReplicas().get("replica-0"));
+    }
+
+    /**
+     * Finders should read from the replica, and saving should write to the
+     * primary database.
+     */
+    @Test
+    public void readOnlyTransactionsShouldUseReplica() {
+        replica.update("insert into users values (null, 'OnReplica', '1')");
+
+        Assert.assertTrue(usersRepository.existsByUsername("OnReplica"));
+        usersRepository.save(new User("OnPrimary", "1"));
+
+        Assert.assertEquals(1, count(primary, "OnPrimary"));
+        Assert.assertEquals(0, count(replica, "OnPrimary"));
+        Assert.assertEquals(0, count(primary, "OnReplica"));
+        Assert.assertFalse(usersRepository.existsByUsername("OnPrimary"));
+    }
+
+    /**
+     * Each transaction of an entity manager which is open for the whole
+     * request should get its own connection, so that a write after a read
+     * goes to the primary database.
+     */
+    @Test
+    public void transactionsOfOpenEntityManagerShouldBeRoutedSeparately() {
+        replica.update("insert into users values (null, 'Reader', '1')");
+        EntityManager entityManager
+                = entityManagerFactory.createEntityManager();
+        TransactionSynchronizationManager.bindResource(entityManagerFactory,
+                new EntityManagerHolder(entityManager));
+        try {
+            Assert.assertTrue(usersRepository.existsByUsername("Reader"));
+            usersRepository.save(new User("Writer", "1"));
+            Assert.assertFalse(usersRepository.existsByUsername("Writer"));
+        } finally {
+            TransactionSynchronizationManager
+                    .unbindResource(entityManagerFactory);
+            entityManager.close();
+        }
+
+        Assert.assertEquals(1, count(primary, "Writer"));
+        Assert.assertEquals(0, count(replica, "Writer"));
+    }
+
+    /**
+     * A user should read a bookmark added by the user from the primary
+     * database, while a user who didn't change anything reads the replica.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void readsAfterWriteShouldUsePrimary() throws Exception {
+        String hash = passwordEncoder.encode(PASSWORD);
+        primary.update("insert into users values (null, 'Other', ?)", hash);
+        replica.update("insert into users values (null, 'Other', ?)", hash);
+        replica.update("insert into bookmarks (url, description, user_id)"
+                + " select 'http://replica.com', 'Replica', id from users"
+                + " where username = 'Other'");
+
+        perform(MockMvcRequestBuilders.get("/Other/bookmarks"), "Other")
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().string(
+                        Matchers.containsString("http://replica.com")));
+        perform(MockMvcRequestBuilders.post("/" + USERNAME + "/bookmarks")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"url\":\"http://primary.com\"}"), USERNAME)
+                .andExpect(MockMvcResultMatchers.status().isCreated());
+        perform(MockMvcRequestBuilders.get("/" + USERNAME + "/bookmarks"),
+                USERNAME)
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().string(
+                        Matchers.containsString("http://primary.com")));
+
+        Assert.assertTrue(bookmarksRepository
+                .findViewsByUserUsername(USERNAME).stream()
+                .noneMatch(view -> view.getUrl().equals("http://primary.com")));
+    }
+
+    /**
+     * A method to count the users with a name in a database.
+     *
+     * @param database the database.
+     * @param username the username.
+     * @return the number of users.
+     */
+    private static int count(JdbcTemplate database, String username) {
+        return database.queryForObject(
+                "select count(*) from users where username = ?",
+                Integer.class, username);
+    }
+
+    /**
+     * A method to perform an authenticated request and to dispatch the
+     * result computed by a bulkhead.
+     *
+     * @param request the request.
+     * @param username the name of the user.
+     * @return the result of the async dispatch.
+     * @throws Exception
+     */
+    private ResultActions perform(MockHttpServletRequestBuilder request,
+            String username) throws Exception {
+        MvcResult result = mvc.perform(request.with(
+                SecurityMockMvcRequestPostProcessors.httpBasic(username,
+                        PASSWORD)))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+        return mvc.perform(MockMvcRequestBuilders.asyncDispatch(result));
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.components;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/**
+ * A class to test ReadYourWritesInterceptor.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+public class ReadYourWritesInterceptorTest {
+
+    /**
+     * Test user name.
+     */
+    private static final String USERNAME = "Phil";
+
+    /**
+     * Current time in nanoseconds.
+     */
+    private final AtomicLong time = new AtomicLong();
+    /**
+     * System under test, with a window of 5 seconds.
+     */
+    private ReadYourWritesInterceptor interceptor;
+
+    /**
+     * A method used for before method initialization.
+     */
+    @Before
+    public void setUp() {
+        Ticker ticker = time::get;
+        interceptor = new ReadYourWritesInterceptor(5, ticker);
+    }
+
+    /**
+     * A method used for after method cleanup.
+     */
+    @After
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    /**
+     * The reads of a user should go to the primary database only during the
+     * window after a change by the user.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void readsShouldRequirePrimaryWithinWindowAfterWrite()
+            throws Exception {
+        Assert.assertFalse(requiresPrimary("GET", USERNAME));
+        Assert.assertTrue(requiresPrimary("POST", USERNAME));
+        Assert.assertTrue(requiresPrimary("GET", USERNAME));
+        Assert.assertFalse(requiresPrimary("GET", "Tom"));
+        time.addAndGet(TimeUnit.SECONDS.toNanos(6));
+        Assert.assertFalse(requiresPrimary("GET", USERNAME));
+    }
+
+    /**
+     * Anonymous requests should be left to the routing by transaction.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void anonymousRequestsShouldNotRequirePrimary() throws Exception {
+        Assert.assertFalse(requiresPrimary("DELETE", null));
+    }
+
+    /**
+     * A method to pass a request through the interceptor.
+     *
+     * @param method the HTTP method.
+     * @param username the name of the authenticated user or null.
+     * @return true if the request requires the primary database.
+     * @throws Exception
+     */
+    private boolean requiresPrimary(String method, String username)
+            throws Exception {
+        MockHttpServletRequest request
+                = new MockHttpServletRequest(method, "/bookmarks");
+        request.setRemoteUser(username);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        RequestContextHolder.setRequestAttributes(
+                new ServletRequestAttributes(request));
+        Assert.assertTrue(interceptor.preHandle(request, response, null));
+        interceptor.afterCompletion(request, response, null, null);
+        return request.getAttribute(
+                ReadWriteRoutingDataSource.PRIMARY_REQUIRED_ATTRIBUTE) != null;
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.components;
+
+import com.javaeeeee.entities.User;
+import com.javaeeeee.repositories.UsersRepository;
+import javax.persistence.EntityManagerFactory;
+import org.flywaydb.core.Flyway;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * A class to test that reads from a read replica don't populate the
+ * second-level cache. The primary database and the replica are two embedded
+ * H2 databases migrated separately, so they contain the same users.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+    "spring.datasource.url=" + ReplicaReadsJpaDialectTest.PRIMARY_URL,
+    "spring.datasource.driver-class-name=org.h2.Driver",
+    "spring.datasource.username=sa",
+    "spring.datasource.password=",
+    "bookmarks.datasource.replicas[0].url="
+    + ReplicaReadsJpaDialectTest.REPLICA_URL,
+    "spring.jpa.hibernate.ddl-auto=none",
+    "bookmarks.search.directory="})
+public class ReplicaReadsJpaDialectTest {
+
+    /**
+     * The URL of the primary database.
+     */
+    static final String PRIMARY_URL
+            = "jdbc:h2:mem:cache-primary;DB_CLOSE_DELAY=-1";
+    /**
+     * The URL of the replica.
+     */
+    static final String REPLICA_URL
+            = "jdbc:h2:mem:cache-replica;DB_CLOSE_DELAY=-1";
+    /**
+     * Test user name.
+     */
+    private static final String USERNAME = "Phil";
+
+    /**
+     * Users repository.
+     */
+    @Autowired
+    private UsersRepository usersRepository;
+    /**
+     * The entity manager factory.
+     */
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    /**
+     * The transaction manager.
+     */
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    /**
+     * The id of the test user.
+     */
+    private Integer id;
+
+    /**
+     * A method to create the schema of the replica before the application
+     * migrates the primary database.
+     */
+    @BeforeClass
+    public static void setUpReplica() {
+        Flyway flyway = new Flyway();
+        flyway.setDataSource(REPLICA_URL, "sa", "");
+        flyway.migrate();
+    }
+
+    /**
+     * A method to find the test user in the primary database and to empty the
+     * cache.
+     */
+    @Before
+    public void setUp() {
+        id = new TransactionTemplate(transactionManager).execute(
+                status -> usersRepository.findByUsername(USERNAME).get()
+                        .getId());
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    /**
+     * A read from the replica should leave the cache empty.
+     */
+    @Test
+    public void replicaReadShouldNotPutIntoCache() {
+        Assert.assertNotNull(usersRepository.findOne(id));
+
+        Assert.assertFalse(entityManagerFactory.getCache()
+                .contains(User.class, id));
+    }
+
+    /**
+     * A read from the primary database should still put the user into the
+     * cache.
+     */
+    @Test
+    public void primaryReadShouldPutIntoCache() {
+        new TransactionTemplate(transactionManager).execute(
+                status -> usersRepository.findOne(id));
+
+        Assert.assertTrue(entityManagerFactory.getCache()
+                .contains(User.class, id));
+    }
+}
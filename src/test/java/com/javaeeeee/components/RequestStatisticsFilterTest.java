@@ -0,0 +1,223 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.components;
+
+import com.javaeeeee.configuration.BookmarksProperties;
+import java.io.IOException;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletResponse;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.BDDMockito;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * A class to test RequestStatisticsFilter.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+public class RequestStatisticsFilterTest {
+
+    /**
+     * The request mapping of the test request.
+     */
+    private static final String MAPPING = "/{username}/bookmarks";
+
+    /**
+     * Application settings.
+     */
+    private BookmarksProperties properties;
+    /**
+     * Mock endpoint statistics.
+     */
+    private EndpointStatistics endpointStatistics;
+    /**
+     * Mock endpoint metrics.
+     */
+    private EndpointMetrics endpointMetrics;
+    /**
+     * System under test.
+     */
+    private RequestStatisticsFilter filter;
+    /**
+     * Test request.
+     */
+    private MockHttpServletRequest request;
+    /**
+     * Test response.
+     */
+    private MockHttpServletResponse response;
+
+    /**
+     * A method used for before method initialization.
+     */
+    @Before
+    public void setUp() {
+        properties = new BookmarksProperties();
+        endpointStatistics = Mockito.mock(EndpointStatistics.class);
+        endpointMetrics = Mockito.mock(EndpointMetrics.class);
+        filter = new RequestStatisticsFilter(endpointStatistics,
+                endpointMetrics, properties);
+        request = new MockHttpServletRequest("GET", "/Phil/bookmarks");
+        response = new MockHttpServletResponse();
+    }
+
+    /**
+     * The statistics of a request should be added to the totals of the
+     * endpoint which served it.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void shouldRecordStatisticsOfEndpoint() throws Exception {
+        filter.doFilter(request, response, new MockFilterChain() {
+            @Override
+            public void doFilter(ServletRequest req,
+                    ServletResponse res) {
+                RequestStatistics statistics = (RequestStatistics) req
+                        .getAttribute(RequestStatistics.ATTRIBUTE);
+                statistics.statementPrepared();
+                statistics.statementExecuted(1000000);
+                req.setAttribute(
+                        HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE,
+                        MAPPING);
+                ((HttpServletResponse) res)
+                        .setStatus(HttpServletResponse.SC_CREATED);
+            }
+        });
+
+        RequestStatistics statistics = (RequestStatistics) request
+                .getAttribute(RequestStatistics.ATTRIBUTE);
+        Assert.assertEquals(1, statistics.getStatements());
+        BDDMockito.verify(endpointStatistics)
+                .record("GET " + MAPPING, statistics);
+        BDDMockito.verify(endpointMetrics).record(
+                Matchers.eq("GET " + MAPPING),
+                Matchers.eq(HttpServletResponse.SC_CREATED),
+                Matchers.anyLong());
+        Assert.assertNull(
+                response.getHeader(RequestStatisticsFilter.SERVER_TIMING));
+    }
+
+    /**
+     * A request which ends with an exception should be recorded as failed.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void shouldRecordExceptionAsServerError() throws Exception {
+        try {
+            filter.doFilter(request, response, new MockFilterChain() {
+                @Override
+                public void doFilter(ServletRequest req,
+                        ServletResponse res) throws ServletException {
+                    req.setAttribute(
+                            HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE,
+                            MAPPING);
+                    throw new ServletException();
+                }
+            });
+            Assert.fail();
+        } catch (ServletException e) {
+            BDDMockito.verify(endpointMetrics).record(
+                    Matchers.eq("GET " + MAPPING),
+                    Matchers.eq(HttpServletResponse.SC_INTERNAL_SERVER_ERROR),
+                    Matchers.anyLong());
+        }
+    }
+
+    /**
+     * The Server-Timing header should be added before the body is written.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void shouldAddServerTimingBeforeBody() throws Exception {
+        properties.getInstrumentation().setServerTiming(true);
+
+        filter.doFilter(request, response, new MockFilterChain() {
+            @Override
+            public void doFilter(ServletRequest req,
+                    ServletResponse res)
+                    throws IOException {
+                ((RequestStatistics) req
+                        .getAttribute(RequestStatistics.ATTRIBUTE))
+                        .statementPrepared();
+                res.getWriter().write("[]");
+                res.flushBuffer();
+                ((RequestStatistics) req
+                        .getAttribute(RequestStatistics.ATTRIBUTE))
+                        .statementPrepared();
+            }
+        });
+
+        Assert.assertEquals("db;dur=0.000;desc=\"statements=1 loaded=0"
+                + " flushed=0\"",
+                response.getHeader(RequestStatisticsFilter.SERVER_TIMING));
+        Assert.assertEquals(1, response
+                .getHeaders(RequestStatisticsFilter.SERVER_TIMING).size());
+    }
+
+    /**
+     * The Server-Timing header should be added to a response without a body.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void shouldAddServerTimingWithoutBody() throws Exception {
+        properties.getInstrumentation().setServerTiming(true);
+
+        filter.doFilter(request, response, new MockFilterChain());
+
+        Assert.assertNotNull(
+                response.getHeader(RequestStatisticsFilter.SERVER_TIMING));
+        BDDMockito.verifyZeroInteractions(endpointStatistics,
+                endpointMetrics);
+    }
+
+    /**
+     * Requests shouldn't be instrumented if the instrumentation is disabled.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void shouldSkipRequestsIfDisabled() throws Exception {
+        properties.getInstrumentation().setEnabled(false);
+        properties.getInstrumentation().setServerTiming(true);
+
+        filter.doFilter(request, response, new MockFilterChain());
+
+        Assert.assertNull(request.getAttribute(RequestStatistics.ATTRIBUTE));
+        Assert.assertNull(
+                response.getHeader(RequestStatisticsFilter.SERVER_TIMING));
+    }
+}
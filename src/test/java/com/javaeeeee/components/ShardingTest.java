@@ -0,0 +1,344 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.components;
+
+import com.javaeeeee.entities.User;
+import com.javaeeeee.repositories.UsersRepository;
+import java.util.ArrayList;
+import java.util.List;
+import org.hamcrest.Matchers;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+/**
+ * A class to test the sharding of users between the main database and a
+ * second shard, which are two embedded H2 databases. The directory isn't
+ * cached and moves don't wait, and the second-level cache is disabled, so
+ * that every read reaches a database.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:sharding-main;DB_CLOSE_DELAY=-1",
+    "spring.datasource.driver-class-name=org.h2.Driver",
+    "spring.datasource.username=sa",
+    "spring.datasource.password=",
+    "bookmarks.sharding.enabled=true",
+    "bookmarks.sharding.shards.east.url="
+    + "jdbc:h2:mem:sharding-east;DB_CLOSE_DELAY=-1",
+    "bookmarks.sharding.shards.east.first-id=" + ShardingTest.FIRST_ID,
+    "bookmarks.sharding.shards.east.last-id=" + Integer.MAX_VALUE,
+    "bookmarks.sharding.directory-ttl=0",
+    "bookmarks.sharding.move-grace=0",
+    "spring.jpa.hibernate.ddl-auto=none",
+    "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+    "spring.jpa.properties.hibernate.cache.use_query_cache=false",
+    "bookmarks.search.directory="})
+@AutoConfigureMockMvc
+public class ShardingTest {
+
+    /**
+     * The first id of the second shard.
+     */
+    static final int FIRST_ID = 1_000_000;
+    /**
+     * The name of the second shard.
+     */
+    private static final String EAST = "east";
+    /**
+     * Test user password.
+     */
+    private static final String PASSWORD = "1";
+
+    /**
+     * Mock MVC which goes through the security filters.
+     */
+    @Autowired
+    private MockMvc mvc;
+    /**
+     * Users repository.
+     */
+    @Autowired
+    private UsersRepository usersRepository;
+    /**
+     * The routing data source.
+     */
+    @Autowired
+    private ShardRoutingDataSource shardRoutingDataSource;
+    /**
+     * The directory of users.
+     */
+    @Autowired
+    private ShardDirectory shardDirectory;
+    /**
+     * The tool which moves users.
+     */
+    @Autowired
+    private ShardRebalancer shardRebalancer;
+    /**
+     * The encoder of passwords.
+     */
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+    /**
+     * Statements run directly against the main shard.
+     */
+    private JdbcTemplate main;
+    /**
+     * Statements run directly against the second shard.
+     */
+    private JdbcTemplate east;
+    /**
+     * The number of the last created user.
+     */
+    private static int users;
+
+    /**
+     * A method used for before method initialization.
+     */
+    @Before
+    public void setUp() {
+        main = new JdbcTemplate(shardRoutingDataSource.getShards()
+                .get(ShardRoutingDataSource.MAIN));
+        east = new JdbcTemplate(shardRoutingDataSource.getShards().get(EAST));
+    }
+
+    /**
+     * The migrations of a new shard shouldn't leave the user of the main
+     * shard there, and the ids of the shard should start with its first id.
+     */
+    @Test
+    public void newShardShouldBeEmpty() {
+        Assert.assertEquals(0, countPhil(east));
+        Assert.assertEquals(1, countPhil(main));
+        Assert.assertTrue(east.queryForList(
+                "select next_val from id_generators", Integer.class).stream()
+                .allMatch(id -> id >= FIRST_ID));
+    }
+
+    /**
+     * A new user should be stored in the shard given by the ring and get an
+     * id which isn't used in the other shard.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void newUserShouldBeStoredInShardOfRing() throws Exception {
+        String username = createUserOnEast();
+        User user = ShardRoutingDataSource.callOnShard(
+                shardDirectory.getShard(username),
+                () -> usersRepository.findByUsername(username).get());
+
+        Assert.assertEquals(EAST, shardDirectory.getShard(username));
+        Assert.assertEquals(0, main.queryForObject(
+                "select count(*) from users where id = ?", Integer.class,
+                user.getId()).intValue());
+    }
+
+    /**
+     * Requests about a user should be served by the shard of the user.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void requestsShouldUseShardOfUser() throws Exception {
+        String username = createUserOnEast();
+
+        addBookmark(username, "http://east.com");
+        perform(MockMvcRequestBuilders.get("/" + username + "/bookmarks"),
+                username)
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().string(
+                        Matchers.containsString("http://east.com")));
+
+        Assert.assertEquals(1, east.queryForObject(
+                "select count(*) from bookmarks where url = 'http://east.com'",
+                Integer.class).intValue());
+        Assert.assertEquals(0, main.queryForObject(
+                "select count(*) from bookmarks where url = 'http://east.com'",
+                Integer.class).intValue());
+    }
+
+    /**
+     * A moved user should keep the ids and the bookmarks, which should be
+     * removed from the old shard.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void moveUserShouldKeepIdsAndBookmarks() throws Exception {
+        String username = createUserOnEast();
+        addBookmark(username, "http://moved.com");
+        Integer id = east.queryForObject(
+                "select id from bookmarks where url = 'http://moved.com'",
+                Integer.class);
+
+        shardRebalancer.moveUser(username, ShardRoutingDataSource.MAIN);
+
+        Assert.assertEquals(ShardRoutingDataSource.MAIN,
+                shardDirectory.getShard(username));
+        Assert.assertEquals(0, east.queryForObject(
+                "select count(*) from users where username = ?",
+                Integer.class, username).intValue());
+        perform(MockMvcRequestBuilders.get("/" + username + "/bookmarks/"
+                + id), username)
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().string(
+                        Matchers.containsString("http://moved.com")));
+    }
+
+    /**
+     * All the bookmarks of a moved user should be copied, even if there are
+     * more than fit in one page.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void moveUserShouldCopyAllPages() throws Exception {
+        String username = createUserOnEast();
+        Integer userId = east.queryForObject(
+                "select id from users where username = ?", Integer.class,
+                username);
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i <= ShardRebalancer.PAGE_SIZE; i++) {
+            rows.add(new Object[]{FIRST_ID + 500_000 + i,
+                "http://page.com/" + i, userId, (long) i});
+        }
+        east.batchUpdate("insert into bookmarks (id, url, user_id, url_hash)"
+                + " values (?, ?, ?, ?)", rows);
+
+        shardRebalancer.moveUser(username, ShardRoutingDataSource.MAIN);
+
+        Assert.assertEquals(ShardRebalancer.PAGE_SIZE + 1,
+                main.queryForObject("select count(*) from bookmarks"
+                        + " where user_id = ?", Integer.class, userId)
+                .intValue());
+        Assert.assertEquals(0, east.queryForObject(
+                "select count(*) from bookmarks where user_id = ?",
+                Integer.class, userId).intValue());
+    }
+
+    /**
+     * Changes of a user who is being moved should be rejected, while reads
+     * should be served.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void writesOfMovingUserShouldBeRejected() throws Exception {
+        String username = createUserOnEast();
+        shardDirectory.assign(username, EAST, true);
+
+        mvc.perform(MockMvcRequestBuilders.post("/" + username + "/bookmarks")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"url\":\"http://rejected.com\"}")
+                .with(SecurityMockMvcRequestPostProcessors.httpBasic(username,
+                        PASSWORD)))
+                .andExpect(MockMvcResultMatchers.status()
+                        .isServiceUnavailable());
+        perform(MockMvcRequestBuilders.get("/" + username + "/bookmarks"),
+                username)
+                .andExpect(MockMvcResultMatchers.status().isOk());
+    }
+
+    /**
+     * A method to create a user whom the ring places on the second shard.
+     *
+     * @return the name of the user.
+     * @throws Exception
+     */
+    private String createUserOnEast() throws Exception {
+        String username;
+        do {
+            username = "Sharded" + ++users;
+        } while (!EAST.equals(shardDirectory.getShard(username)));
+        User user = new User(username, passwordEncoder.encode(PASSWORD));
+        ShardRoutingDataSource.callOnShard(EAST,
+                () -> usersRepository.save(user));
+        return username;
+    }
+
+    /**
+     * A method to add a bookmark of a user.
+     *
+     * @param username the name of the user.
+     * @param url the URL of the bookmark.
+     * @throws Exception
+     */
+    private void addBookmark(String username, String url) throws Exception {
+        perform(MockMvcRequestBuilders.post("/" + username + "/bookmarks")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"url\":\"" + url + "\"}"), username)
+                .andExpect(MockMvcResultMatchers.status().isCreated());
+    }
+
+    /**
+     * A method to count the users named Phil, who is created by the
+     * migrations, in a database.
+     *
+     * @param database the database.
+     * @return the number of users.
+     */
+    private static int countPhil(JdbcTemplate database) {
+        return database.queryForObject(
+                "select count(*) from users where username = 'Phil'",
+                Integer.class);
+    }
+
+    /**
+     * A method to perform an authenticated request and to dispatch the
+     * result computed by a bulkhead.
+     *
+     * @param request the request.
+     * @param username the name of the user.
+     * @return the result of the async dispatch.
+     * @throws Exception
+     */
+    private ResultActions perform(MockHttpServletRequestBuilder request,
+            String username) throws Exception {
+        MvcResult result = mvc.perform(request.with(
+                SecurityMockMvcRequestPostProcessors.httpBasic(username,
+                        PASSWORD)))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+        return mvc.perform(MockMvcRequestBuilders.asyncDispatch(result));
+    }
+}
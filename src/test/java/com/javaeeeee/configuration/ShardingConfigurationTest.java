@@ -0,0 +1,85 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.configuration;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * A class to test the checks of the ranges of ids of the shards.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+public class ShardingConfigurationTest {
+
+    /**
+     * The main shard should range up to the lowest first id.
+     */
+    @Test
+    public void checkIdRangesShouldReturnLastIdOfMain() {
+        Map<String, BookmarksProperties.Shard> settings = new LinkedHashMap<>();
+        settings.put("west", shard(2000, 2999));
+        settings.put("east", shard(1000, 1999));
+
+        Assert.assertEquals(999, ShardingConfiguration.checkIdRanges(settings));
+    }
+
+    /**
+     * Overlapping ranges should be rejected.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void checkIdRangesShouldRejectOverlap() {
+        Map<String, BookmarksProperties.Shard> settings = new LinkedHashMap<>();
+        settings.put("east", shard(1000, 2000));
+        settings.put("west", shard(2000, 2999));
+
+        ShardingConfiguration.checkIdRanges(settings);
+    }
+
+    /**
+     * A shard without a last id should be rejected.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void checkIdRangesShouldRequireLastId() {
+        ShardingConfiguration.checkIdRanges(
+                Collections.singletonMap("east", shard(1000, 0)));
+    }
+
+    /**
+     * A method to create the settings of a shard.
+     *
+     * @param firstId the first id.
+     * @param lastId the last id.
+     * @return the settings.
+     */
+    private static BookmarksProperties.Shard shard(int firstId, int lastId) {
+        BookmarksProperties.Shard shard = new BookmarksProperties.Shard();
+        shard.setFirstId(firstId);
+        shard.setLastId(lastId);
+        return shard;
+    }
+}
@@ -0,0 +1,408 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.javaeeeee.controllers;
+
+import com.javaeeeee.components.EndpointStatistics;
+import com.javaeeeee.components.RequestStatisticsFilter;
+import com.javaeeeee.dto.BookmarkView;
+import com.javaeeeee.entities.Bookmark;
+import com.javaeeeee.entities.User;
+import com.javaeeeee.repositories.BookmarksRepository;
+import com.javaeeeee.repositories.UsersRepository;
+import java.util.HashMap;
+import java.util.Map;
+import javax.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hamcrest.Matchers;
+import org.hibernate.stat.Statistics;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+/**
+ * Test class to count SQL statements issued by the resource methods of
+ * BookmarksController. The second-level cache is disabled, so that the counts
+ * show the fetch plans rather than the cache hits.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+    "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+    "spring.jpa.properties.hibernate.cache.use_query_cache=false",
+    "spring.jpa.properties.hibernate.generate_statistics=true",
+    "bookmarks.instrumentation.server-timing=true",
+    "bookmarks.search.directory="})
+@AutoConfigureTestDatabase
+@AutoConfigureMockMvc
+public class BookmarksControllerStatementsTest {
+
+    /**
+     * The name of a user with a lot of bookmarks.
+     */
+    private static final String USERNAME = "Heavy";
+    /**
+     * The password of the user.
+     */
+    private static final String PASSWORD = "1";
+    /**
+     * The number of bookmarks of the user.
+     */
+    private static final int BOOKMARKS = 20;
+
+    /**
+     * Mock MVC which goes through the security filters.
+     */
+    @Autowired
+    private MockMvc mvc;
+    /**
+     * Users repository used to create the test user.
+     */
+    @Autowired
+    private UsersRepository usersRepository;
+    /**
+     * Bookmarks repository used to find bookmarks to work with.
+     */
+    @Autowired
+    private BookmarksRepository bookmarksRepository;
+    /**
+     * The entity manager factory which collects statistics.
+     */
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    /**
+     * The encoder of passwords.
+     */
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+    /**
+     * Statements per endpoint recorded by the instrumentation.
+     */
+    @Autowired
+    private EndpointStatistics endpointStatistics;
+    /**
+     * Hibernate statistics.
+     */
+    private Statistics statistics;
+    /**
+     * The id of a bookmark of the user.
+     */
+    private int bookmarkId;
+
+    /**
+     * A method to create the user once and to authenticate, so that the
+     * credentials are cached and the counts don't include the user lookup.
+     *
+     * @throws Exception
+     */
+    @Before
+    public void setUp() throws Exception {
+        if (usersRepository.findIdByUsername(USERNAME) == null) {
+            User user = usersRepository.save(new User(USERNAME,
+                    passwordEncoder.encode(PASSWORD)));
+            // Bookmarks without ids are equal, so they are saved one by one.
+            for (int i = 0; i < BOOKMARKS; i++) {
+                Bookmark bookmark = new Bookmark("http://example.com/" + i,
+                        "Bookmark " + i);
+                bookmark.setUser(user);
+                bookmarksRepository.save(bookmark);
+            }
+        }
+        bookmarkId = bookmarksRepository.findViewsByUserUsername(USERNAME)
+                .get(0).getId();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class)
+                .getStatistics();
+        countStatements(MockMvcRequestBuilders
+                .get("/" + USERNAME + "/bookmarks/" + bookmarkId));
+    }
+
+    /**
+     * Listing bookmarks should issue one query and no entities should be
+     * loaded. A page is selected after the summary query.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void getAllBookmarksShouldNotLoadEntities() throws Exception {
+        Assert.assertEquals(1, countStatements(MockMvcRequestBuilders
+                .get("/" + USERNAME + "/bookmarks")));
+        Assert.assertEquals(0, statistics.getEntityLoadCount());
+        Assert.assertEquals(2, countStatements(MockMvcRequestBuilders
+                .get("/" + USERNAME + "/bookmarks?limit=5")));
+        Assert.assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    /**
+     * Getting a bookmark shouldn't load its owner.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void getBookmarkShouldIssueOneStatement() throws Exception {
+        Assert.assertEquals(1, countStatements(MockMvcRequestBuilders
+                .get("/" + USERNAME + "/bookmarks/" + bookmarkId)));
+        Assert.assertEquals(1, statistics.getEntityLoadCount());
+    }
+
+    /**
+     * Getting several bookmarks by ids should issue a single query whatever
+     * the number of ids, including the ids which don't exist.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void getBookmarksByIdsShouldIssueOneStatement() throws Exception {
+        Assert.assertEquals(1, countStatements(MockMvcRequestBuilders
+                .get("/" + USERNAME + "/bookmarks?ids=" + bookmarkId + ","
+                        + (bookmarkId + 1) + "," + (bookmarkId + 2)
+                        + ",-1")));
+        Assert.assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    /**
+     * A batch of operations should load the bookmarks it changes and check
+     * the new URLs with two queries and then send each kind of statement as
+     * one JDBC batch rather than a statement per operation.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void executeOperationsShouldBatchEachKind() throws Exception {
+        // The first insert may take a block of ids from the generator table.
+        countStatements(post("http://example.com/batch/0"));
+        Map<String, Integer> ids = new HashMap<>();
+        for (BookmarkView view
+                : bookmarksRepository.findViewsByUserUsername(USERNAME)) {
+            ids.put(view.getUrl(), view.getId());
+        }
+        StringBuilder body = new StringBuilder("[");
+        for (int i = 1; i <= 3; i++) {
+            body.append("{\"op\":\"create\",\"bookmark\":")
+                    .append("{\"url\":\"http://example.com/batch/")
+                    .append(i).append("\"}},{\"op\":\"update\",\"id\":")
+                    .append(ids.get("http://example.com/" + (10 + i)))
+                    .append(",\"patch\":{\"description\":\"Batch\"}},")
+                    .append("{\"op\":\"delete\",\"id\":")
+                    .append(ids.get("http://example.com/" + (13 + i)))
+                    .append("},");
+        }
+        body.setCharAt(body.length() - 1, ']');
+
+        // The owner is loaded once when Hibernate orders the inserts.
+        Assert.assertEquals(6, countStatements(MockMvcRequestBuilders
+                .post("/" + USERNAME + "/bookmarks/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body.toString())));
+        Assert.assertEquals(7, statistics.getEntityLoadCount());
+    }
+
+    /**
+     * Adding a bookmark should insert it without loading the user or the
+     * bookmarks of the user.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void addBookmarkShouldOnlyInsert() throws Exception {
+        // The first insert may take a block of ids from the generator table.
+        countStatements(post("http://example.com/new/1"));
+        Assert.assertEquals(1,
+                countStatements(post("http://example.com/new/2")));
+        Assert.assertEquals(0, statistics.getCollectionLoadCount());
+        Assert.assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    /**
+     * Adding a bookmark with a URL which the user has bookmarked already
+     * should be rejected by the unique index and the id of the existing
+     * bookmark should be looked up by the index.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void addDuplicateBookmarkShouldConflict() throws Exception {
+        statistics.clear();
+        perform(post("HTTP://Example.com:80/" + (BOOKMARKS - 1))
+                .with(SecurityMockMvcRequestPostProcessors
+                        .httpBasic(USERNAME, PASSWORD)))
+                .andExpect(MockMvcResultMatchers.status().isConflict());
+        Assert.assertEquals(2, statistics.getPrepareStatementCount());
+        Assert.assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    /**
+     * Editing a bookmark should update the bookmark with a single statement
+     * and select it to return its representation.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void editBookmarkShouldIssueTwoStatements() throws Exception {
+        Assert.assertEquals(2, countStatements(MockMvcRequestBuilders
+                .patch("/" + USERNAME + "/bookmarks/" + bookmarkId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"description\":\"changed\"}")));
+        Assert.assertEquals(1, statistics.getEntityLoadCount());
+    }
+
+    /**
+     * Deleting a bookmark should select it to return its representation and
+     * delete it with a single statement.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void deleteBookmarkShouldIssueTwoStatements() throws Exception {
+        Assert.assertEquals(2, countStatements(MockMvcRequestBuilders
+                .delete("/" + USERNAME + "/bookmarks/" + bookmarkId)));
+        Assert.assertEquals(1, statistics.getEntityLoadCount());
+    }
+
+    /**
+     * Editing a bookmark with the Prefer: return=minimal header should only
+     * update the bookmark.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void editBookmarkReturnMinimalShouldIssueOneStatement()
+            throws Exception {
+        Assert.assertEquals(1, countStatements(MockMvcRequestBuilders
+                .patch("/" + USERNAME + "/bookmarks/" + bookmarkId)
+                .header("Prefer", "return=minimal")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"description\":\"minimal\"}")));
+        Assert.assertEquals(0, statistics.getEntityLoadCount());
+        Assert.assertEquals("minimal", bookmarksRepository
+                .findByIdAndUserUsername(bookmarkId, USERNAME).get()
+                .getDescription());
+    }
+
+    /**
+     * Deleting a bookmark with the Prefer: return=minimal header should only
+     * delete the bookmark.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void deleteBookmarkReturnMinimalShouldIssueOneStatement()
+            throws Exception {
+        Assert.assertEquals(1, countStatements(MockMvcRequestBuilders
+                .delete("/" + USERNAME + "/bookmarks/" + bookmarkId)
+                .header("Prefer", "return=minimal")));
+        Assert.assertEquals(0, statistics.getEntityLoadCount());
+        Assert.assertFalse(bookmarksRepository
+                .findByIdAndUserUsername(bookmarkId, USERNAME).isPresent());
+    }
+
+    /**
+     * The instrumentation should record the same number of statements as
+     * Hibernate and send them in the Server-Timing header.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void instrumentationShouldRecordStatements() throws Exception {
+        String endpoint = "GET /{username}/bookmarks/{bookmarkId}";
+        long requests = endpointStatistics.getRequestCount(endpoint);
+        long statements = endpointStatistics.getStatementCount(endpoint);
+
+        perform(MockMvcRequestBuilders
+                .get("/" + USERNAME + "/bookmarks/" + bookmarkId)
+                .with(SecurityMockMvcRequestPostProcessors
+                        .httpBasic(USERNAME, PASSWORD)))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string(
+                        RequestStatisticsFilter.SERVER_TIMING,
+                        Matchers.allOf(Matchers.startsWith("db;dur="),
+                                Matchers.containsString(
+                                        "statements=1 loaded=1"))));
+
+        Assert.assertEquals(requests + 1,
+                endpointStatistics.getRequestCount(endpoint));
+        Assert.assertEquals(statements + 1,
+                endpointStatistics.getStatementCount(endpoint));
+    }
+
+    /**
+     * A method to create a request which adds a bookmark.
+     *
+     * @param url the URL of the bookmark.
+     * @return the request.
+     */
+    private static MockHttpServletRequestBuilder post(String url) {
+        return MockMvcRequestBuilders
+                .post("/" + USERNAME + "/bookmarks")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"url\":\"" + url + "\"}");
+    }
+
+    /**
+     * A method to perform an authenticated request and to count the SQL
+     * statements it issued.
+     *
+     * @param request the request.
+     * @return the number of statements.
+     * @throws Exception
+     */
+    private long countStatements(MockHttpServletRequestBuilder request)
+            throws Exception {
+        statistics.clear();
+        perform(request.with(SecurityMockMvcRequestPostProcessors
+                .httpBasic(USERNAME, PASSWORD)))
+                .andExpect(MockMvcResultMatchers.status().is2xxSuccessful());
+        return statistics.getPrepareStatementCount();
+    }
+
+    /**
+     * A method to perform a request and to dispatch the result computed by
+     * a bulkhead.
+     *
+     * @param request the request.
+     * @return the result of the async dispatch.
+     * @throws Exception
+     */
+    private ResultActions perform(RequestBuilder request) throws Exception {
+        MvcResult result = mvc.perform(request)
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+        return mvc.perform(MockMvcRequestBuilders.asyncDispatch(result));
+    }
+}
@@ -23,28 +23,72 @@
  */
 package com.javaeeeee.controllers;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.javaeeeee.components.BookmarkOperationsProcessor;
+import com.javaeeeee.components.BookmarkPatcher;
+import com.javaeeeee.components.BookmarkValidator;
+import com.javaeeeee.components.BookmarksExporter;
+import com.javaeeeee.components.BookmarksIndex;
+import com.javaeeeee.components.BookmarksImporter;
+import com.javaeeeee.components.BookmarksProtobufHttpMessageConverter;
+import com.javaeeeee.components.Bulkhead;
+import com.javaeeeee.components.EndpointMetrics;
+import com.javaeeeee.components.EndpointStatistics;
+import com.javaeeeee.components.JacksonBinaryHttpMessageConverter;
+import com.javaeeeee.components.ResolvedUserHolder;
+import com.javaeeeee.configuration.AsyncConfiguration;
+import com.javaeeeee.configuration.ValidationConfiguration;
+import com.javaeeeee.dto.BookmarkOperation;
+import com.javaeeeee.dto.BookmarkOperationsResult;
+import com.javaeeeee.dto.BookmarkView;
+import com.javaeeeee.dto.BookmarksSummary;
+import com.javaeeeee.dto.BulkImportResult;
+import com.javaeeeee.dto.SearchHit;
 import com.javaeeeee.entities.Bookmark;
 import com.javaeeeee.entities.User;
+import com.javaeeeee.exception.ServiceUnavailableException;
 import com.javaeeeee.repositories.BookmarksRepository;
 import com.javaeeeee.repositories.UsersRepository;
-import com.sun.webkit.network.URLs;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Arrays;
-import java.util.HashSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Callable;
 import org.hamcrest.Matchers;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.BDDMockito;
+import org.mockito.stubbing.Answer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.mock.http.MockHttpInputMessage;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
@@ -55,6 +99,8 @@ import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
  */
 @RunWith(SpringRunner.class)
 @WebMvcTest(BookmarksController.class)
+@Import({BookmarkPatcher.class, BookmarkValidator.class,
+    ValidationConfiguration.class})
 @WithMockUser
 public class BookmarksControllerTest {
 
@@ -62,6 +108,10 @@ public class BookmarksControllerTest {
      * The Id of a test BOOKMARK.
      */
     private static final int BOOKMARK_ID = 1;
+    /**
+     * The Id of a test USER.
+     */
+    private static final int USER_ID = 7;
     /**
      * The URL of a test BOOKMARK.
      */
@@ -99,6 +149,21 @@ public class BookmarksControllerTest {
      */
     private static final String JSON_DATA
             = String.format("{\"url\":\"%s\"}", NEW_URL);
+    /**
+     * The summary of bookmarks of the test USER.
+     */
+    private static final BookmarksSummary SUMMARY
+            = new BookmarksSummary(1L, 1L, 0L, BOOKMARK_ID);
+    /**
+     * The ETag of the bookmarks of the test USER in JSON.
+     */
+    private static final String SUMMARY_ETAG
+            = SUMMARY.getETag().replaceFirst("\"$", "-json\"");
+    /**
+     * The ETag of the test bookmark in JSON.
+     */
+    private static final String BOOKMARK_ETAG
+            = "\"" + BOOKMARK_ID + ".0-json\"";
 
     /**
      * Mock MVC.
@@ -118,6 +183,72 @@ public class BookmarksControllerTest {
     @MockBean
     private UsersRepository usersRepository;
 
+    /**
+     * Mock bookmarks exporter.
+     */
+    @MockBean
+    private BookmarksExporter bookmarksExporter;
+
+    /**
+     * Mock processor of batches of operations.
+     */
+    @MockBean
+    private BookmarkOperationsProcessor bookmarkOperationsProcessor;
+
+    /**
+     * Mock bookmarks importer.
+     */
+    @MockBean
+    private BookmarksImporter bookmarksImporter;
+
+    /**
+     * Mock search index.
+     */
+    @MockBean
+    private BookmarksIndex bookmarksIndex;
+
+    /**
+     * Mock endpoint statistics used by the request statistics filter.
+     */
+    @MockBean
+    private EndpointStatistics endpointStatistics;
+
+    /**
+     * Mock endpoint metrics used by the request statistics filter.
+     */
+    @MockBean
+    private EndpointMetrics endpointMetrics;
+
+    /**
+     * Mock holder of the user resolved during authentication.
+     */
+    @MockBean
+    private ResolvedUserHolder resolvedUserHolder;
+
+    /**
+     * Mock bulkhead of reads.
+     */
+    @MockBean(name = AsyncConfiguration.READS)
+    private Bulkhead readsBulkhead;
+
+    /**
+     * Mock bulkhead of writes.
+     */
+    @MockBean(name = AsyncConfiguration.WRITES)
+    private Bulkhead writesBulkhead;
+
+    /**
+     * Mock bulkhead of searches.
+     */
+    @MockBean(name = AsyncConfiguration.SEARCH)
+    private Bulkhead searchBulkhead;
+
+    /**
+     * Mock bulkhead of exports.
+     */
+    @MockBean(name = AsyncConfiguration.EXPORT)
+    private Bulkhead exportBulkhead;
+
     /**
      * Initialization method.
      */
@@ -131,13 +262,49 @@ public class BookmarksControllerTest {
      * Method carries out initialization before each method.
      */
     @Before
-    public void setUp() {
+    public void setUp() throws Exception {
+        // The bulkheads run tasks in the calling thread.
+        Bulkhead inline = new Bulkhead("inline");
+        Answer<?> submit = invocation -> inline.submit(
+                (Callable<?>) invocation.getArguments()[0]);
+        BDDMockito.given(readsBulkhead.submit(BDDMockito.any()))
+                .willAnswer(submit);
+        BDDMockito.given(writesBulkhead.submit(BDDMockito.any()))
+                .willAnswer(submit);
+        BDDMockito.given(searchBulkhead.submit(BDDMockito.any()))
+                .willAnswer(submit);
+        BDDMockito.given(exportBulkhead.call(BDDMockito.any()))
+                .willAnswer(invocation -> ((Bulkhead.Task<?, ?>) invocation
+                        .getArguments()[0]).call());
         BDDMockito
                 .given(usersRepository.findByUsername(USERNAME))
                 .willReturn(Optional.of(USER));
         BDDMockito
                 .given(usersRepository.findByUsername(NONEXISTENT_USERNAME))
                 .willReturn(Optional.empty());
+        BDDMockito
+                .given(usersRepository.existsByUsername(USERNAME))
+                .willReturn(true);
+        BDDMockito
+                .given(usersRepository.existsByUsername(NONEXISTENT_USERNAME))
+                .willReturn(false);
+        BDDMockito
+                .given(usersRepository.findIdByUsername(USERNAME))
+                .willReturn(USER_ID);
+        // Mockito returns zero rather than null for Integer.
+        BDDMockito
+                .given(usersRepository.findIdByUsername(NONEXISTENT_USERNAME))
+                .willReturn(null);
+        BDDMockito
+                .given(resolvedUserHolder.getUserId(BDDMockito.anyString()))
+                .willReturn(null);
+        BDDMockito
+                .given(bookmarksRepository.summarizeByUserUsername(USERNAME))
+                .willReturn(SUMMARY);
+        BDDMockito
+                .given(bookmarksRepository
+                        .summarizeByUserUsername(NONEXISTENT_USERNAME))
+                .willReturn(new BookmarksSummary(0L, 0L, null, null));
     }
 
     /**
@@ -148,19 +315,182 @@ public class BookmarksControllerTest {
      */
     @Test
     public void testGetAllBookmarksShouldOk() throws Exception {
-        BDDMockito.given(bookmarksRepository.findByUserUsername(USERNAME))
-                .willReturn(new HashSet<>(Arrays.asList(BOOKMARK)));
+        BDDMockito.given(bookmarksRepository.findViewsByUserUsername(USERNAME))
+                .willReturn(Arrays.asList(BookmarkView.of(BOOKMARK)));
 
-        mvc.perform(MockMvcRequestBuilders.get("/" + USERNAME + "/bookmarks/"))
+        perform(MockMvcRequestBuilders.get("/" + USERNAME + "/bookmarks/"))
                 .andExpect(MockMvcResultMatchers.status().isOk())
                 .andExpect(MockMvcResultMatchers
                         .jsonPath("$", Matchers.hasSize(1)))
                 .andExpect(MockMvcResultMatchers.jsonPath("$[0].url",
-                        Matchers.is(URL)));
+                        Matchers.is(URL)))
+                .andExpect(MockMvcResultMatchers.header()
+                        .string(HttpHeaders.ETAG, SUMMARY_ETAG))
+                .andExpect(MockMvcResultMatchers.header()
+                        .string(HttpHeaders.VARY, HttpHeaders.ACCEPT));
 
-        BDDMockito.verify(usersRepository).findByUsername(USERNAME);
-        BDDMockito.verifyNoMoreInteractions(usersRepository);
-        BDDMockito.verify(bookmarksRepository).findByUserUsername(USERNAME);
+        BDDMockito.verifyZeroInteractions(usersRepository);
+        BDDMockito.verify(bookmarksRepository).findViewsByUserUsername(USERNAME);
+        BDDMockito.verifyNoMoreInteractions(bookmarksRepository);
+    }
+
+    /**
+     * Test of getAllBookmarks method for clients which accept the binary
+     * formats.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testGetAllBookmarksBinaryFormats() throws Exception {
+        BDDMockito.given(bookmarksRepository.findViewsByUserUsername(USERNAME))
+                .willReturn(Arrays.asList(BookmarkView.of(BOOKMARK)));
+        Map<String, JsonFactory> factories = new HashMap<>();
+        factories.put(JacksonBinaryHttpMessageConverter.SMILE_VALUE,
+                new SmileFactory());
+        factories.put(JacksonBinaryHttpMessageConverter.CBOR_VALUE,
+                new CBORFactory());
+
+        for (Map.Entry<String, JsonFactory> entry : factories.entrySet()) {
+            byte[] body = perform(MockMvcRequestBuilders
+                    .get("/" + USERNAME + "/bookmarks/")
+                    .accept(entry.getKey()))
+                    .andExpect(MockMvcResultMatchers.status().isOk())
+                    .andExpect(MockMvcResultMatchers.content()
+                            .contentType(entry.getKey()))
+                    .andReturn().getResponse().getContentAsByteArray();
+            JsonNode tree = new ObjectMapper(entry.getValue()).readTree(body);
+            Assert.assertEquals(URL, tree.get(0).get("url").asText());
+        }
+
+        byte[] body = perform(MockMvcRequestBuilders
+                .get("/" + USERNAME + "/bookmarks/")
+                .accept(BookmarksProtobufHttpMessageConverter.PROTOBUF))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(
+                        BookmarksProtobufHttpMessageConverter.PROTOBUF))
+                .andReturn().getResponse().getContentAsByteArray();
+        List<?> bookmarks = (List<?>) new BookmarksProtobufHttpMessageConverter()
+                .read(new ParameterizedTypeReference<List<Bookmark>>() {
+                }.getType(), null, new MockHttpInputMessage(body));
+        Assert.assertEquals(URL, ((Bookmark) bookmarks.get(0)).getUrl());
+    }
+
+    /**
+     * Test of getAllBookmarks method when the first page is requested and
+     * there are more bookmarks.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testGetAllBookmarksFirstPageShouldHaveNextLink()
+            throws Exception {
+        Bookmark next = new Bookmark(NEW_URL, BM_DESCRIPTION);
+        next.setId(BOOKMARK_ID + 1);
+        BDDMockito.given(bookmarksRepository
+                .findViewPageByUserUsername(USERNAME, 0,
+                        new PageRequest(0, 2)))
+                .willReturn(Arrays.asList(BookmarkView.of(BOOKMARK),
+                        BookmarkView.of(next)));
+
+        perform(MockMvcRequestBuilders
+                .get("/" + USERNAME + "/bookmarks?limit=1"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers
+                        .jsonPath("$", Matchers.hasSize(1)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id",
+                        Matchers.is(BOOKMARK_ID)))
+                .andExpect(MockMvcResultMatchers.header()
+                        .string(HttpHeaders.LINK, Matchers.allOf(
+                                Matchers.containsString("after="
+                                        + BOOKMARK_ID),
+                                Matchers.containsString("limit=1"),
+                                Matchers.containsString("rel=\"next\""))));
+
+        BDDMockito.verify(bookmarksRepository)
+                .summarizeByUserUsername(USERNAME);
+        BDDMockito.verify(bookmarksRepository)
+                .findViewPageByUserUsername(USERNAME, 0,
+                        new PageRequest(0, 2));
+        BDDMockito.verifyNoMoreInteractions(bookmarksRepository);
+    }
+
+    /**
+     * Test of getAllBookmarks method when the last page is requested.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testGetAllBookmarksLastPageShouldHaveNoNextLink()
+            throws Exception {
+        BDDMockito.given(bookmarksRepository
+                .findViewPageByUserUsername(USERNAME,
+                        BOOKMARK_ID - 1, new PageRequest(0, 11)))
+                .willReturn(Arrays.asList(BookmarkView.of(BOOKMARK)));
+
+        perform(MockMvcRequestBuilders
+                .get("/" + USERNAME + "/bookmarks?limit=10&after="
+                        + (BOOKMARK_ID - 1)))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers
+                        .jsonPath("$", Matchers.hasSize(1)))
+                .andExpect(MockMvcResultMatchers.header()
+                        .doesNotExist(HttpHeaders.LINK));
+    }
+
+    /**
+     * Test of getAllBookmarks method when the bookmarks weren't modified since
+     * the client received them.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testGetAllBookmarksNotModified() throws Exception {
+        perform(MockMvcRequestBuilders.get("/" + USERNAME + "/bookmarks/")
+                .header(HttpHeaders.IF_NONE_MATCH, SUMMARY_ETAG))
+                .andExpect(MockMvcResultMatchers.status().isNotModified())
+                .andExpect(MockMvcResultMatchers.header()
+                        .string(HttpHeaders.ETAG, SUMMARY_ETAG))
+                .andExpect(MockMvcResultMatchers.header()
+                        .string(HttpHeaders.VARY, HttpHeaders.ACCEPT));
+
+        BDDMockito.verify(bookmarksRepository)
+                .summarizeByUserUsername(USERNAME);
+        BDDMockito.verifyNoMoreInteractions(bookmarksRepository);
+    }
+
+    /**
+     * Test of getAllBookmarks method when the client has an outdated ETag.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testGetAllBookmarksModified() throws Exception {
+        BDDMockito.given(bookmarksRepository.findViewsByUserUsername(USERNAME))
+                .willReturn(Arrays.asList(BookmarkView.of(BOOKMARK)));
+
+        perform(MockMvcRequestBuilders.get("/" + USERNAME + "/bookmarks/")
+                .header(HttpHeaders.IF_NONE_MATCH, "W/\"0.0.0\""))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header()
+                        .string(HttpHeaders.ETAG, SUMMARY_ETAG))
+                .andExpect(MockMvcResultMatchers
+                        .jsonPath("$", Matchers.hasSize(1)));
+    }
+
+    /**
+     * Test of getAllBookmarks method when a page is requested for a
+     * nonexistent user.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testGetAllBookmarksPageNoSuchUser() throws Exception {
+        perform(MockMvcRequestBuilders
+                .get("/" + NONEXISTENT_USERNAME + "/bookmarks?limit=1"))
+                .andExpect(MockMvcResultMatchers.status().isNotFound());
+
+        BDDMockito.verify(bookmarksRepository)
+                .summarizeByUserUsername(NONEXISTENT_USERNAME);
         BDDMockito.verifyNoMoreInteractions(bookmarksRepository);
     }
 
@@ -169,22 +499,164 @@ public class BookmarksControllerTest {
      *
      * @throws java.lang.Exception
      */
+    @Test
     public void testGetAllBookmarksNoSuchUser() throws Exception {
         BDDMockito.given(bookmarksRepository
-                .findByUserUsername(NONEXISTENT_USERNAME))
-                .willReturn(new HashSet<>());
+                .findViewsByUserUsername(NONEXISTENT_USERNAME))
+                .willReturn(Collections.emptyList());
 
-        mvc.perform(MockMvcRequestBuilders
+        perform(MockMvcRequestBuilders
                 .get("/" + NONEXISTENT_USERNAME + "/bookmarks/"))
                 .andExpect(MockMvcResultMatchers.status().isNotFound());
 
-        BDDMockito.verify(usersRepository).findByUsername(USERNAME);
+        BDDMockito.verify(usersRepository)
+                .existsByUsername(NONEXISTENT_USERNAME);
         BDDMockito.verifyNoMoreInteractions(usersRepository);
         BDDMockito.verify(bookmarksRepository)
-                .findByIdAndUserUsername(BOOKMARK_ID, USERNAME);
+                .findViewsByUserUsername(NONEXISTENT_USERNAME);
         BDDMockito.verifyNoMoreInteractions(bookmarksRepository);
     }
 
+    /**
+     * Test of getAllBookmarks() method for an existent user without
+     * bookmarks who was resolved during authentication.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testGetAllBookmarksEmptyResolvedUser() throws Exception {
+        BDDMockito.given(resolvedUserHolder.isResolved(USERNAME))
+                .willReturn(true);
+        BDDMockito.given(bookmarksRepository.findViewsByUserUsername(USERNAME))
+                .willReturn(Collections.emptyList());
+
+        perform(MockMvcRequestBuilders.get("/" + USERNAME + "/bookmarks/"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers
+                        .jsonPath("$", Matchers.hasSize(0)));
+
+        BDDMockito.verifyZeroInteractions(usersRepository);
+    }
+
+    /**
+     * Test of exportBookmarks method, of class BookmarksController.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testExportBookmarksShouldOk() throws Exception {
+        BDDMockito.willAnswer(invocation -> {
+            OutputStream out = invocation.getArgumentAt(1, OutputStream.class);
+            out.write(("{\"url\":\"" + URL + "\"}\n").getBytes("UTF-8"));
+            return 1;
+        }).given(bookmarksExporter).export(
+                BDDMockito.eq(USERNAME), BDDMockito.any(OutputStream.class));
+
+        perform(MockMvcRequestBuilders
+                .get("/" + USERNAME + "/bookmarks/export"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content()
+                        .contentTypeCompatibleWith(
+                                BookmarksExporter.NDJSON_VALUE))
+                .andExpect(MockMvcResultMatchers.content()
+                        .string(Matchers.containsString(URL)));
+
+        BDDMockito.verify(usersRepository).existsByUsername(USERNAME);
+        BDDMockito.verifyNoMoreInteractions(usersRepository);
+    }
+
+    /**
+     * Test of exportBookmarks method for a nonexistent user.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testExportBookmarksNoSuchUser() throws Exception {
+        perform(MockMvcRequestBuilders
+                .get("/" + NONEXISTENT_USERNAME + "/bookmarks/export"))
+                .andExpect(MockMvcResultMatchers.status().isNotFound());
+
+        BDDMockito.verifyZeroInteractions(bookmarksExporter);
+    }
+
+    /**
+     * An export should be rejected with 503 if the export bulkhead is full.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testExportBookmarksShouldRejectIfBulkheadIsFull()
+            throws Exception {
+        BDDMockito.willThrow(new ServiceUnavailableException())
+                .given(exportBulkhead).call(BDDMockito.any());
+
+        perform(MockMvcRequestBuilders
+                .get("/" + USERNAME + "/bookmarks/export"))
+                .andExpect(MockMvcResultMatchers.status()
+                        .isServiceUnavailable());
+
+        BDDMockito.verifyZeroInteractions(bookmarksExporter);
+    }
+
+    /**
+     * Test of searchBookmarks method when there are more matches.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testSearchBookmarksShouldHaveNextLink() throws Exception {
+        BDDMockito.given(usersRepository.findIdByUsername(USERNAME))
+                .willReturn(USER_ID);
+        BDDMockito.given(bookmarksIndex.search(USER_ID, "economist", 0, 2))
+                .willReturn(Arrays.asList(
+                        new SearchHit(BOOKMARK_ID, URL, BM_DESCRIPTION, 2.0f),
+                        new SearchHit(BOOKMARK_ID + 1, URL, null, 1.0f)));
+
+        perform(MockMvcRequestBuilders
+                .get("/" + USERNAME + "/bookmarks/search?q=economist&limit=1"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers
+                        .jsonPath("$", Matchers.hasSize(1)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id",
+                        Matchers.is(BOOKMARK_ID)))
+                .andExpect(MockMvcResultMatchers.header()
+                        .string(HttpHeaders.LINK, Matchers.allOf(
+                                Matchers.containsString("offset=1"),
+                                Matchers.containsString("rel=\"next\""))));
+
+        BDDMockito.verifyZeroInteractions(bookmarksRepository);
+    }
+
+    /**
+     * An offset beyond the maximum should be rejected before the index is
+     * searched.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testSearchBookmarksOffsetTooLarge() throws Exception {
+        mvc.perform(MockMvcRequestBuilders
+                .get("/" + USERNAME + "/bookmarks/search?q=x&offset="
+                        + Integer.MAX_VALUE))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+
+        BDDMockito.verifyZeroInteractions(bookmarksIndex);
+    }
+
+    /**
+     * Test of searchBookmarks method for a nonexistent user.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testSearchBookmarksNoSuchUser() throws Exception {
+        perform(MockMvcRequestBuilders
+                .get("/" + NONEXISTENT_USERNAME + "/bookmarks/search?q=x"))
+                .andExpect(MockMvcResultMatchers.status().isNotFound());
+
+        BDDMockito.verifyZeroInteractions(bookmarksIndex);
+    }
+
     /**
      * Test of getBookmark method, of class BookmarksController.
      *
@@ -197,13 +669,17 @@ public class BookmarksControllerTest {
                         .findByIdAndUserUsername(BOOKMARK_ID, USERNAME))
                 .willReturn(Optional.of(BOOKMARK));
 
-        mvc.perform(MockMvcRequestBuilders
+        perform(MockMvcRequestBuilders
                 .get("/" + USERNAME + "/bookmarks/" + BOOKMARK_ID))
                 .andExpect(MockMvcResultMatchers.status().isOk())
                 .andExpect(MockMvcResultMatchers.jsonPath("$.id",
                         Matchers.is(BOOKMARK_ID)))
                 .andExpect(MockMvcResultMatchers.jsonPath("$.url",
-                        Matchers.is(URL)));
+                        Matchers.is(URL)))
+                .andExpect(MockMvcResultMatchers.header()
+                        .string(HttpHeaders.ETAG, BOOKMARK_ETAG))
+                .andExpect(MockMvcResultMatchers.header()
+                        .string(HttpHeaders.VARY, HttpHeaders.ACCEPT));
 
         BDDMockito.verify(bookmarksRepository)
                 .findByIdAndUserUsername(BOOKMARK_ID, USERNAME);
@@ -211,6 +687,54 @@ public class BookmarksControllerTest {
 
     }
 
+    /**
+     * Test of getBookmark method when the bookmark wasn't modified since the
+     * client received it.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testGetBookmarkNotModified() throws Exception {
+        BDDMockito
+                .given(bookmarksRepository
+                        .findByIdAndUserUsername(BOOKMARK_ID, USERNAME))
+                .willReturn(Optional.of(BOOKMARK));
+
+        perform(MockMvcRequestBuilders
+                .get("/" + USERNAME + "/bookmarks/" + BOOKMARK_ID)
+                .header(HttpHeaders.IF_NONE_MATCH, BOOKMARK_ETAG))
+                .andExpect(MockMvcResultMatchers.status().isNotModified())
+                .andExpect(MockMvcResultMatchers.content().string(""));
+    }
+
+    /**
+     * Test of getBookmark method when the client has the ETag of the bookmark
+     * in JSON and asks for Protocol Buffers.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testGetBookmarkJsonETagShouldNotMatchProtobuf()
+            throws Exception {
+        BDDMockito
+                .given(bookmarksRepository
+                        .findByIdAndUserUsername(BOOKMARK_ID, USERNAME))
+                .willReturn(Optional.of(BOOKMARK));
+
+        perform(MockMvcRequestBuilders
+                .get("/" + USERNAME + "/bookmarks/" + BOOKMARK_ID)
+                .accept(BookmarksProtobufHttpMessageConverter.PROTOBUF)
+                .header(HttpHeaders.IF_NONE_MATCH, BOOKMARK_ETAG))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(
+                        BookmarksProtobufHttpMessageConverter.PROTOBUF))
+                .andExpect(MockMvcResultMatchers.header().string(
+                        HttpHeaders.ETAG,
+                        "\"" + BOOKMARK_ID + ".0-protobuf\""))
+                .andExpect(MockMvcResultMatchers.header()
+                        .string(HttpHeaders.VARY, HttpHeaders.ACCEPT));
+    }
+
     /**
      * Method tests the situation when we loo for a non-existent bookmark.
      *
@@ -224,13 +748,15 @@ public class BookmarksControllerTest {
                                 USERNAME))
                 .willReturn(Optional.empty());
 
-        mvc.perform(MockMvcRequestBuilders
+        perform(MockMvcRequestBuilders
                 .get("/" + USERNAME + "/bookmarks/" + NONEXISTENT_BOOKMARK_ID))
                 .andExpect(MockMvcResultMatchers.status().isNotFound());
 
         BDDMockito.verify(bookmarksRepository)
                 .findByIdAndUserUsername(NONEXISTENT_BOOKMARK_ID, USERNAME);
         BDDMockito.verifyNoMoreInteractions(bookmarksRepository);
+        BDDMockito.verify(usersRepository).existsByUsername(USERNAME);
+        BDDMockito.verifyNoMoreInteractions(usersRepository);
     }
 
     /**
@@ -245,12 +771,90 @@ public class BookmarksControllerTest {
                         .findByIdAndUserUsername(BOOKMARK_ID,
                                 NONEXISTENT_USERNAME))
                 .willReturn(Optional.empty());
-        mvc.perform(MockMvcRequestBuilders
+        perform(MockMvcRequestBuilders
                 .get("/" + NONEXISTENT_USERNAME + "/bookmarks/" + BOOKMARK_ID))
                 .andExpect(MockMvcResultMatchers.status().isNotFound());
 
-        BDDMockito.verify(usersRepository).findByUsername(NONEXISTENT_USERNAME);
+        BDDMockito.verify(usersRepository)
+                .existsByUsername(NONEXISTENT_USERNAME);
         BDDMockito.verifyNoMoreInteractions(usersRepository);
+        BDDMockito.verify(bookmarksRepository)
+                .findByIdAndUserUsername(BOOKMARK_ID, NONEXISTENT_USERNAME);
+        BDDMockito.verifyNoMoreInteractions(bookmarksRepository);
+    }
+
+    /**
+     * Test of getBookmarksByIds method: the found bookmarks and the missing
+     * ids are returned, duplicate ids are requested once.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testGetBookmarksByIds() throws Exception {
+        BDDMockito
+                .given(bookmarksRepository.findViewsByUserUsernameAndIdIn(
+                        BDDMockito.eq(USERNAME),
+                        BDDMockito.anyCollectionOf(Integer.class)))
+                .willReturn(Arrays.asList(BookmarkView.of(BOOKMARK)));
+
+        perform(MockMvcRequestBuilders.get("/" + USERNAME + "/bookmarks")
+                .param("ids", NONEXISTENT_BOOKMARK_ID + "," + BOOKMARK_ID
+                        + "," + BOOKMARK_ID))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers
+                        .jsonPath("$.bookmarks", Matchers.hasSize(1)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.bookmarks[0].id",
+                        Matchers.is(BOOKMARK_ID)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.missing",
+                        Matchers.contains(NONEXISTENT_BOOKMARK_ID)));
+
+        BDDMockito.verify(bookmarksRepository).findViewsByUserUsernameAndIdIn(
+                USERNAME, new LinkedHashSet<>(
+                        Arrays.asList(NONEXISTENT_BOOKMARK_ID, BOOKMARK_ID)));
+        BDDMockito.verifyNoMoreInteractions(bookmarksRepository);
+        BDDMockito.verifyZeroInteractions(usersRepository);
+    }
+
+    /**
+     * Test of getBookmarksByIds method for a nonexistent user.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testGetBookmarksByIdsNoSuchUser() throws Exception {
+        BDDMockito
+                .given(bookmarksRepository.findViewsByUserUsernameAndIdIn(
+                        BDDMockito.eq(NONEXISTENT_USERNAME),
+                        BDDMockito.anyCollectionOf(Integer.class)))
+                .willReturn(Collections.emptyList());
+
+        perform(MockMvcRequestBuilders
+                .get("/" + NONEXISTENT_USERNAME + "/bookmarks")
+                .param("ids", String.valueOf(BOOKMARK_ID)))
+                .andExpect(MockMvcResultMatchers.status().isNotFound());
+
+        BDDMockito.verify(usersRepository)
+                .existsByUsername(NONEXISTENT_USERNAME);
+    }
+
+    /**
+     * Test of getBookmarksByIds method for too many ids or no ids.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testGetBookmarksByIdsInvalid() throws Exception {
+        StringBuilder ids = new StringBuilder("1");
+        for (int i = 2; i <= 1001; i++) {
+            ids.append(',').append(i);
+        }
+        perform(MockMvcRequestBuilders.get("/" + USERNAME + "/bookmarks")
+                .param("ids", ids.toString()))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+        perform(MockMvcRequestBuilders.get("/" + USERNAME + "/bookmarks")
+                .param("ids", ""))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+
         BDDMockito.verifyZeroInteractions(bookmarksRepository);
     }
 
@@ -259,10 +863,13 @@ public class BookmarksControllerTest {
      */
     @Test
     public void testAddBookmark() throws Exception {
+        BDDMockito.given(usersRepository.findIdByUsername(USERNAME))
+                .willReturn(USER_ID);
+        BDDMockito.given(usersRepository.getOne(USER_ID)).willReturn(USER);
         ObjectMapper mapper = new ObjectMapper();
         String jsonData = mapper.writeValueAsString(BOOKMARK);
 
-        mvc.perform(
+        perform(
                 MockMvcRequestBuilders.post("/" + USERNAME + "/bookmarks")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(jsonData))
@@ -272,12 +879,168 @@ public class BookmarksControllerTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("$.url",
                         Matchers.is(URL)));
 
-        BDDMockito.verify(usersRepository).findByUsername(USERNAME);
+        BDDMockito.verify(usersRepository).findIdByUsername(USERNAME);
+        BDDMockito.verify(usersRepository).getOne(USER_ID);
         BDDMockito.verifyNoMoreInteractions(usersRepository);
         BDDMockito.verify(bookmarksRepository).save(BOOKMARK);
         BDDMockito.verifyNoMoreInteractions(bookmarksRepository);
     }
 
+    /**
+     * Adding a bookmark with a URL which the user has bookmarked already
+     * should be rejected with 409.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testAddBookmarkDuplicateUrl() throws Exception {
+        BDDMockito.given(usersRepository.findIdByUsername(USERNAME))
+                .willReturn(USER_ID);
+        BDDMockito.given(usersRepository.getOne(USER_ID)).willReturn(USER);
+        BDDMockito.given(bookmarksRepository.save(BDDMockito.any(
+                Bookmark.class)))
+                .willThrow(new DataIntegrityViolationException("duplicate"));
+        BDDMockito.given(bookmarksRepository.findIdByUserIdAndUrlHash(USER_ID,
+                Bookmark.hashUrl(URL)))
+                .willReturn(BOOKMARK_ID);
+
+        perform(
+                MockMvcRequestBuilders.post("/" + USERNAME + "/bookmarks")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"url\":\"" + URL + "\"}"))
+                .andExpect(MockMvcResultMatchers.status().isConflict());
+
+        BDDMockito.verify(bookmarksRepository)
+                .findIdByUserIdAndUrlHash(USER_ID, Bookmark.hashUrl(URL));
+    }
+
+    /**
+     * Test of addBookmark method for a user resolved during authentication.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testAddBookmarkResolvedUser() throws Exception {
+        BDDMockito.given(resolvedUserHolder.getUserId(USERNAME))
+                .willReturn(USER_ID);
+        BDDMockito.given(usersRepository.getOne(USER_ID)).willReturn(USER);
+
+        perform(
+                MockMvcRequestBuilders.post("/" + USERNAME + "/bookmarks")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"url\":\"" + NEW_URL + "\"}"))
+                .andExpect(MockMvcResultMatchers.status().isCreated());
+
+        BDDMockito.verify(usersRepository).getOne(USER_ID);
+        BDDMockito.verifyNoMoreInteractions(usersRepository);
+        BDDMockito.verify(bookmarksRepository)
+                .save(BDDMockito.any(Bookmark.class));
+    }
+
+    /**
+     * Test of addBookmark method for a nonexistent user.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testAddBookmarkNoSuchUser() throws Exception {
+        perform(MockMvcRequestBuilders
+                .post("/" + NONEXISTENT_USERNAME + "/bookmarks")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"url\":\"" + NEW_URL + "\"}"))
+                .andExpect(MockMvcResultMatchers.status().isNotFound());
+
+        BDDMockito.verifyZeroInteractions(bookmarksRepository);
+    }
+
+    /**
+     * Test of importBookmarks method, of class BookmarksController.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testImportBookmarks() throws Exception {
+        BulkImportResult result = new BulkImportResult();
+        result.addImported(1);
+        result.addError(1, "url may not be null");
+        BDDMockito.given(bookmarksImporter.importBookmarks(
+                BDDMockito.eq(USERNAME), BDDMockito.any(InputStream.class)))
+                .willReturn(result);
+
+        perform(MockMvcRequestBuilders
+                .post("/" + USERNAME + "/bookmarks/bulk")
+                .contentType(BookmarksExporter.NDJSON_VALUE)
+                .content("{\"url\":\"" + URL + "\"}\n{}\n"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.imported",
+                        Matchers.is(1)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.errors[0].index",
+                        Matchers.is(1)));
+
+        BDDMockito.verify(bookmarksImporter).importBookmarks(
+                BDDMockito.eq(USERNAME), BDDMockito.any(InputStream.class));
+    }
+
+    /**
+     * Test of executeOperations method: the status of the response is the
+     * status of the failed operation.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testExecuteOperations() throws Exception {
+        BookmarkOperationsResult result = new BookmarkOperationsResult();
+        result.add(HttpStatus.FAILED_DEPENDENCY, null, "Not applied.");
+        result.add(HttpStatus.NOT_FOUND, NONEXISTENT_BOOKMARK_ID,
+                "Bookmark not found id = " + NONEXISTENT_BOOKMARK_ID);
+        BDDMockito.given(bookmarkOperationsProcessor.execute(
+                BDDMockito.any(), BDDMockito.anyListOf(
+                        BookmarkOperation.class)))
+                .willReturn(result);
+
+        perform(MockMvcRequestBuilders
+                .post("/" + USERNAME + "/bookmarks/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"op\":\"create\",\"bookmark\":{\"url\":\""
+                        + URL + "\"}},{\"op\":\"delete\",\"id\":"
+                        + NONEXISTENT_BOOKMARK_ID + "}]"))
+                .andExpect(MockMvcResultMatchers.status().isNotFound())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.results",
+                        Matchers.hasSize(2)))
+                .andExpect(MockMvcResultMatchers.jsonPath(
+                        "$.results[0].status", Matchers.is(424)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.results[1].id",
+                        Matchers.is(NONEXISTENT_BOOKMARK_ID)));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<BookmarkOperation>> operations
+                = ArgumentCaptor.forClass((Class) List.class);
+        BDDMockito.verify(bookmarkOperationsProcessor).execute(
+                BDDMockito.any(), operations.capture());
+        Assert.assertEquals(BookmarkOperation.Type.CREATE,
+                operations.getValue().get(0).getOp());
+        Assert.assertEquals(URL,
+                operations.getValue().get(0).getBookmark().getUrl());
+        Assert.assertEquals(Integer.valueOf(NONEXISTENT_BOOKMARK_ID),
+                operations.getValue().get(1).getId());
+    }
+
+    /**
+     * Test of executeOperations method for an empty batch.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testExecuteOperationsEmpty() throws Exception {
+        perform(MockMvcRequestBuilders
+                .post("/" + USERNAME + "/bookmarks/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[]"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+
+        BDDMockito.verifyZeroInteractions(bookmarkOperationsProcessor);
+    }
+
     /**
      * Method testing editing a bookmark when a bookmark is not found.
      *
@@ -286,20 +1049,22 @@ public class BookmarksControllerTest {
     @Test
     public void testEditBookmarkNotFound() throws Exception {
         BDDMockito
-                .given(bookmarksRepository
-                        .findByIdAndUserUsername(NONEXISTENT_BOOKMARK_ID,
-                                USERNAME))
-                .willReturn(Optional.empty());
+                .given(bookmarksRepository.updateByIdAndUserId(
+                        NONEXISTENT_BOOKMARK_ID, USER_ID,
+                        Collections.singletonMap("url", NEW_URL)))
+                .willReturn(0);
 
-        mvc.perform(MockMvcRequestBuilders
+        perform(MockMvcRequestBuilders
                 .put("/" + USERNAME + "/bookmarks/" + NONEXISTENT_BOOKMARK_ID)
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(JSON_DATA)
         ).andExpect(MockMvcResultMatchers.status().isNotFound());
 
-        BDDMockito.verify(bookmarksRepository)
-                .findByIdAndUserUsername(NONEXISTENT_BOOKMARK_ID, USERNAME);
+        BDDMockito.verify(bookmarksRepository).updateByIdAndUserId(
+                NONEXISTENT_BOOKMARK_ID, USER_ID,
+                Collections.singletonMap("url", NEW_URL));
         BDDMockito.verifyNoMoreInteractions(bookmarksRepository);
+        BDDMockito.verifyZeroInteractions(bookmarksIndex);
     }
 
     /**
@@ -309,22 +1074,24 @@ public class BookmarksControllerTest {
      */
     @Test
     public void testEditBookmarkShouldOk() throws Exception {
-
-        BDDMockito
-                .given(bookmarksRepository
-                        .findByIdAndUserUsername(BOOKMARK_ID, USERNAME))
-                .willReturn(Optional.of(BOOKMARK));
-
         Bookmark newBookmark
                 = new Bookmark(NEW_URL, BOOKMARK.getDescription());
         newBookmark.setId(BOOKMARK.getId());
         newBookmark.setUser(BOOKMARK.getUser());
-
         BDDMockito
-                .given(bookmarksRepository.save(newBookmark))
-                .willReturn(newBookmark);
+                .given(bookmarksRepository.updateByIdAndUserId(
+                        BOOKMARK_ID, USER_ID,
+                        Collections.singletonMap("url", NEW_URL)))
+                .willReturn(1);
+        BDDMockito
+                .given(bookmarksRepository
+                        .findByIdAndUserUsername(BOOKMARK_ID, USERNAME))
+                .willReturn(Optional.of(newBookmark));
+        BDDMockito
+                .given(usersRepository.findIdByUsername(USERNAME))
+                .willReturn(USER_ID);
 
-        mvc.perform(MockMvcRequestBuilders
+        perform(MockMvcRequestBuilders
                 .put("/" + USERNAME + "/bookmarks/" + BOOKMARK_ID)
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(JSON_DATA))
@@ -339,15 +1106,127 @@ public class BookmarksControllerTest {
                         .jsonPath("$.description",
                                 Matchers.is(BM_DESCRIPTION)));
 
+        BDDMockito.verify(bookmarksRepository).updateByIdAndUserId(
+                BOOKMARK_ID, USER_ID,
+                Collections.singletonMap("url", NEW_URL));
         BDDMockito
                 .verify(bookmarksRepository)
                 .findByIdAndUserUsername(BOOKMARK_ID, USERNAME);
+        BDDMockito.verifyNoMoreInteractions(bookmarksRepository);
+        BDDMockito.verify(bookmarksIndex).update(BOOKMARK_ID, USER_ID,
+                Collections.singletonMap("url", NEW_URL));
+    }
+
+    /**
+     * Editing a bookmark with the Prefer: return=minimal header should only
+     * update the bookmark and return no content.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testEditBookmarkReturnMinimal() throws Exception {
         BDDMockito
-                .verify(bookmarksRepository)
-                .save(newBookmark);
+                .given(bookmarksRepository.updateByIdAndUserId(
+                        BOOKMARK_ID, USER_ID,
+                        Collections.singletonMap("url", NEW_URL)))
+                .willReturn(1);
+
+        perform(MockMvcRequestBuilders
+                .put("/" + USERNAME + "/bookmarks/" + BOOKMARK_ID)
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("Prefer", "handling=strict, return=minimal")
+                .content(JSON_DATA))
+                .andExpect(MockMvcResultMatchers.status().isNoContent())
+                .andExpect(MockMvcResultMatchers.header()
+                        .string("Preference-Applied", "return=minimal"))
+                .andExpect(MockMvcResultMatchers.content().string(""));
+
+        BDDMockito.verify(bookmarksRepository).updateByIdAndUserId(
+                BOOKMARK_ID, USER_ID,
+                Collections.singletonMap("url", NEW_URL));
         BDDMockito.verifyNoMoreInteractions(bookmarksRepository);
+    }
+
+    /**
+     * Changing the URL of a bookmark to the URL of another bookmark of the
+     * user should be rejected with 409.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testEditBookmarkDuplicateUrl() throws Exception {
+        BDDMockito
+                .given(bookmarksRepository.updateByIdAndUserId(
+                        BOOKMARK_ID, USER_ID,
+                        Collections.singletonMap("url", NEW_URL)))
+                .willThrow(new DataIntegrityViolationException("duplicate"));
+        BDDMockito.given(usersRepository.findIdByUsername(USERNAME))
+                .willReturn(USER_ID);
+        BDDMockito.given(bookmarksRepository.findIdByUserIdAndUrlHash(USER_ID,
+                Bookmark.hashUrl(NEW_URL)))
+                .willReturn(NONEXISTENT_BOOKMARK_ID);
+
+        perform(MockMvcRequestBuilders
+                .put("/" + USERNAME + "/bookmarks/" + BOOKMARK_ID)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(JSON_DATA))
+                .andExpect(MockMvcResultMatchers.status().isConflict());
 
-        BOOKMARK.setUrl(URL);
+        BDDMockito.verifyZeroInteractions(bookmarksIndex);
+    }
+
+    /**
+     * Method to test patching a bookmark with a JSON Merge Patch document
+     * which clears the description.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testPatchBookmarkShouldClearDescription() throws Exception {
+        Bookmark bookmark = new Bookmark(URL, null);
+        bookmark.setId(BOOKMARK_ID);
+        bookmark.setUser(USER);
+        BDDMockito
+                .given(bookmarksRepository.updateByIdAndUserId(
+                        BOOKMARK_ID, USER_ID,
+                        Collections.singletonMap("description", null)))
+                .willReturn(1);
+        BDDMockito
+                .given(bookmarksRepository
+                        .findByIdAndUserUsername(BOOKMARK_ID, USERNAME))
+                .willReturn(Optional.of(bookmark));
+
+        perform(MockMvcRequestBuilders
+                .patch("/" + USERNAME + "/bookmarks/" + BOOKMARK_ID)
+                .contentType(BookmarkPatcher.MERGE_PATCH_VALUE)
+                .content("{\"description\":null,\"id\":5}"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers
+                        .jsonPath("$.id", Matchers.is(BOOKMARK_ID)))
+                .andExpect(MockMvcResultMatchers
+                        .jsonPath("$.url", Matchers.is(URL)))
+                .andExpect(MockMvcResultMatchers
+                        .jsonPath("$.description", Matchers.nullValue()));
+
+        BDDMockito.verify(bookmarksRepository).updateByIdAndUserId(
+                BOOKMARK_ID, USER_ID,
+                Collections.singletonMap("description", null));
+    }
+
+    /**
+     * Method to test editing a bookmark with a patch which removes the URL.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testEditBookmarkInvalidPatch() throws Exception {
+        perform(MockMvcRequestBuilders
+                .put("/" + USERNAME + "/bookmarks/" + BOOKMARK_ID)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"url\":null}"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+
+        BDDMockito.verifyZeroInteractions(bookmarksRepository);
     }
 
     /**
@@ -362,9 +1241,8 @@ public class BookmarksControllerTest {
                         .findByIdAndUserUsername(NONEXISTENT_BOOKMARK_ID,
                                 USERNAME))
                 .willReturn(Optional.empty());
-        BDDMockito.doNothing().when(bookmarksRepository).delete(BOOKMARK);
 
-        mvc.perform(MockMvcRequestBuilders
+        perform(MockMvcRequestBuilders
                 .delete("/" + USERNAME + "/bookmarks/" + NONEXISTENT_BOOKMARK_ID))
                 .andExpect(MockMvcResultMatchers.status().isNotFound());
 
@@ -385,17 +1263,88 @@ public class BookmarksControllerTest {
                 .given(bookmarksRepository
                         .findByIdAndUserUsername(BOOKMARK_ID, USERNAME))
                 .willReturn(Optional.of(BOOKMARK));
-        BDDMockito.doNothing().when(bookmarksRepository).delete(BOOKMARK);
+        BDDMockito
+                .given(bookmarksRepository
+                        .deleteByIdAndUserId(BOOKMARK_ID, USER_ID))
+                .willReturn(1);
 
-        mvc.perform(MockMvcRequestBuilders
+        perform(MockMvcRequestBuilders
                 .delete("/" + USERNAME + "/bookmarks/" + BOOKMARK_ID))
-                .andExpect(MockMvcResultMatchers.status().isOk());
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers
+                        .jsonPath("$.id", Matchers.is(BOOKMARK_ID)));
 
         BDDMockito
                 .verify(bookmarksRepository)
                 .findByIdAndUserUsername(BOOKMARK_ID, USERNAME);
         BDDMockito
-                .verify(bookmarksRepository).delete(BOOKMARK);
+                .verify(bookmarksRepository)
+                .deleteByIdAndUserId(BOOKMARK_ID, USER_ID);
         BDDMockito.verifyNoMoreInteractions(bookmarksRepository);
+        BDDMockito.verify(bookmarksIndex).delete(BOOKMARK_ID);
+    }
+
+    /**
+     * Deleting a bookmark with the Prefer: return=minimal header should only
+     * delete the bookmark and return no content.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testDeleteBookmarkReturnMinimal() throws Exception {
+        BDDMockito
+                .given(bookmarksRepository
+                        .deleteByIdAndUserId(BOOKMARK_ID, USER_ID))
+                .willReturn(1);
+
+        perform(MockMvcRequestBuilders
+                .delete("/" + USERNAME + "/bookmarks/" + BOOKMARK_ID)
+                .header("Prefer", "return=minimal"))
+                .andExpect(MockMvcResultMatchers.status().isNoContent());
+
+        BDDMockito
+                .verify(bookmarksRepository)
+                .deleteByIdAndUserId(BOOKMARK_ID, USER_ID);
+        BDDMockito.verifyNoMoreInteractions(bookmarksRepository);
+        BDDMockito.verify(bookmarksIndex).delete(BOOKMARK_ID);
+    }
+
+    /**
+     * A request should be rejected with 503 if the bulkhead is full.
+     *
+     * @throws java.lang.Exception
+     */
+    @Test
+    public void testGetBookmarkShouldRejectIfBulkheadIsFull()
+            throws Exception {
+        BDDMockito.given(readsBulkhead.submit(BDDMockito.any()))
+                .willThrow(new ServiceUnavailableException());
+
+        mvc.perform(MockMvcRequestBuilders
+                .get("/" + USERNAME + "/bookmarks/" + BOOKMARK_ID))
+                .andExpect(MockMvcResultMatchers.request()
+                        .asyncNotStarted())
+                .andExpect(MockMvcResultMatchers.status()
+                        .isServiceUnavailable());
+
+        BDDMockito.verifyZeroInteractions(bookmarksRepository);
+    }
+
+    /**
+     * A method to perform a request and, if it is handled asynchronously, to
+     * dispatch its result.
+     *
+     * @param request the request.
+     * @return the result of the last dispatch.
+     * @throws Exception
+     */
+    private ResultActions perform(RequestBuilder request) throws Exception {
+        ResultActions actions = mvc.perform(request);
+        MvcResult result = actions.andReturn();
+        if (result.getRequest().isAsyncStarted()) {
+            return mvc.perform(
+                    MockMvcRequestBuilders.asyncDispatch(result));
+        }
+        return actions;
     }
 }
@@ -132,6 +132,30 @@ public class BookmarkTest {
         Assert.assertEquals(BM_URL, bookmark.getUrl());
     }
 
+    /**
+     * Test that URLs which point to the same resource have the same hash and
+     * that the hash follows a change of the URL.
+     */
+    @Test
+    public void hashUrlShouldIgnoreInsignificantDifferences() {
+        Assert.assertEquals("http://github.com/",
+                Bookmark.canonicalizeUrl(" HTTP://GitHub.com:80 "));
+        Assert.assertEquals("https://github.com/a?b=C#d",
+                Bookmark.canonicalizeUrl("https://github.com:443/a?b=C#d"));
+        Assert.assertEquals(Bookmark.hashUrl(BM_URL),
+                Bookmark.hashUrl("github.com/"));
+        Assert.assertNotEquals(Bookmark.hashUrl(BM_URL),
+                Bookmark.hashUrl("https://github.com"));
+        Assert.assertNotEquals(Bookmark.hashUrl("http://github.com/A"),
+                Bookmark.hashUrl("http://github.com/a"));
+
+        Bookmark bookmark = new Bookmark(BM_URL, null);
+        Assert.assertEquals(Bookmark.hashUrl(BM_URL), bookmark.getUrlHash());
+        bookmark.setUrl("http://time.com");
+        Assert.assertEquals(Bookmark.hashUrl("http://time.com"),
+                bookmark.getUrlHash());
+    }
+
     /**
      * Method that provides exception expectation settings.
      */
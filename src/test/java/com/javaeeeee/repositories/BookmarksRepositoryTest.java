@@ -23,10 +23,22 @@
  */
 package com.javaeeeee.repositories;
 
+import com.javaeeeee.dto.BookmarkView;
+import com.javaeeeee.dto.BookmarksSummary;
 import com.javaeeeee.entities.Bookmark;
 import com.javaeeeee.entities.User;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Properties;
 import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.hamcrest.Matchers;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Test;
@@ -36,6 +48,8 @@ import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.junit4.SpringRunner;
 
 /**
@@ -137,4 +151,249 @@ public class BookmarksRepositoryTest {
         Assert.assertEquals(BM_URL, bm.getUrl());
     }
 
+    /**
+     * Test of findViewsByUserUsername method, of class BookmarksRepository.
+     */
+    @Test
+    public void testFindViewsByUserUsername() {
+        Bookmark second = user.addBookmark(new Bookmark(BM_URL + "/2", null));
+        entityManager.persist(second);
+
+        List<BookmarkView> views
+                = bookmarksRepository.findViewsByUserUsername(USER_NAME);
+        Assert.assertEquals(2, views.size());
+        Assert.assertEquals(bookmark.getId().intValue(), views.get(0).getId());
+        Assert.assertEquals(BM_URL, views.get(0).getUrl());
+        Assert.assertEquals(BM_DESCRIPTION, views.get(0).getDescription());
+        Assert.assertEquals(second.getId().intValue(), views.get(1).getId());
+        Assert.assertTrue(bookmarksRepository
+                .findViewsByUserUsername(USER_NAME + 1).isEmpty());
+    }
+
+    /**
+     * Test of findViewPageByUserUsername method, of class BookmarksRepository.
+     */
+    @Test
+    public void testFindViewPageByUserUsername() {
+        Bookmark second = user.addBookmark(new Bookmark(BM_URL + "/2", null));
+        Bookmark third = user.addBookmark(new Bookmark(BM_URL + "/3", null));
+        entityManager.persist(second);
+        entityManager.persist(third);
+
+        List<BookmarkView> page = bookmarksRepository
+                .findViewPageByUserUsername(USER_NAME, bookmark.getId(),
+                        new PageRequest(0, 1));
+        Assert.assertEquals(1, page.size());
+        Assert.assertEquals(second.getId().intValue(), page.get(0).getId());
+
+        page = bookmarksRepository
+                .findViewPageByUserUsername(USER_NAME, second.getId(),
+                        new PageRequest(0, 10));
+        Assert.assertEquals(1, page.size());
+        Assert.assertEquals(third.getId().intValue(), page.get(0).getId());
+    }
+
+    /**
+     * Test of findViewsByUserUsernameAndIdIn method: bookmarks of other users
+     * and nonexistent ids are ignored.
+     */
+    @Test
+    public void testFindViewsByUserUsernameAndIdIn() {
+        Bookmark second = user.addBookmark(new Bookmark(BM_URL + "/2", null));
+        entityManager.persist(second);
+        User other = entityManager.persist(new User("Ann", "1"));
+        Bookmark foreign = other.addBookmark(new Bookmark(BM_URL, null));
+        entityManager.persist(foreign);
+
+        List<BookmarkView> views = bookmarksRepository
+                .findViewsByUserUsernameAndIdIn(USER_NAME, Arrays.asList(
+                        second.getId(), foreign.getId(), bookmark.getId(),
+                        -1));
+        Assert.assertEquals(2, views.size());
+        Assert.assertEquals(bookmark.getId().intValue(), views.get(0).getId());
+        Assert.assertEquals(second.getId().intValue(), views.get(1).getId());
+    }
+
+    /**
+     * Test of streamViewsByUserUsername method, of class BookmarksRepository.
+     */
+    @Test
+    public void testStreamViewsByUserUsername() {
+        Bookmark second = user.addBookmark(new Bookmark(BM_URL + "/2", null));
+        entityManager.persist(second);
+
+        try (Stream<BookmarkView> stream
+                = bookmarksRepository.streamViewsByUserUsername(USER_NAME)) {
+            List<Integer> ids = stream.map(BookmarkView::getId)
+                    .collect(Collectors.toList());
+            Assert.assertEquals(2, ids.size());
+            Assert.assertEquals(bookmark.getId(), ids.get(0));
+            Assert.assertEquals(second.getId(), ids.get(1));
+        }
+    }
+
+    /**
+     * The fetch size of the streams is ignored by MySQL Connector/J, which
+     * then reads the whole result into memory, unless cursor fetch is turned
+     * on in the connection URL.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void testStreamsUseCursorFetch() throws IOException {
+        Properties properties = PropertiesLoaderUtils
+                .loadAllProperties("application.properties");
+        Assert.assertThat(properties.getProperty("spring.datasource.url"),
+                Matchers.containsString("useCursorFetch=true"));
+    }
+
+    /**
+     * Test of summarizeByUserUsername method, of class BookmarksRepository.
+     */
+    @Test
+    public void testSummarizeByUserUsername() {
+        Bookmark second = user.addBookmark(new Bookmark(BM_URL + "/2", null));
+        entityManager.persist(second);
+        entityManager.flush();
+
+        BookmarksSummary summary
+                = bookmarksRepository.summarizeByUserUsername(USER_NAME);
+        Assert.assertTrue(summary.isUserFound());
+        Assert.assertEquals(2, summary.getCount());
+        Assert.assertEquals(0, summary.getVersions());
+        Assert.assertEquals(second.getId().intValue(), summary.getMaxId());
+        Assert.assertEquals(BookmarksSummary.of(bookmarksRepository
+                .findViewsByUserUsername(USER_NAME)).getETag(),
+                summary.getETag());
+
+        second.setDescription("changed");
+        entityManager.flush();
+        Assert.assertNotEquals(summary.getETag(), bookmarksRepository
+                .summarizeByUserUsername(USER_NAME).getETag());
+    }
+
+    /**
+     * Test of summarizeByUserUsername method for a nonexistent user.
+     */
+    @Test
+    public void testSummarizeByUserUsernameNoSuchUser() {
+        Assert.assertFalse(bookmarksRepository
+                .summarizeByUserUsername(USER_NAME + 1).isUserFound());
+    }
+
+    /**
+     * Test of streamAllForIndex method, of class BookmarksRepository.
+     */
+    @Test
+    public void testStreamAllForIndex() {
+        try (Stream<Object[]> stream
+                = bookmarksRepository.streamAllForIndex()) {
+            Object[] row = stream
+                    .filter(r -> bookmark.getId().equals(r[0]))
+                    .findFirst().get();
+            Assert.assertEquals(user.getId(), row[1]);
+            Assert.assertEquals(BM_URL, row[2]);
+            Assert.assertEquals(BM_DESCRIPTION, row[3]);
+        }
+    }
+
+    /**
+     * Test of updateByIdAndUserId method, of class BookmarksRepository.
+     */
+    @Test
+    public void testUpdateByIdAndUserId() {
+        Map<String, Object> values = new HashMap<>();
+        values.put("url", "http://new.com");
+        values.put("description", null);
+        Assert.assertEquals(0, bookmarksRepository
+                .updateByIdAndUserId(bookmark.getId(), user.getId() + 1,
+                        values));
+        Assert.assertEquals(1, bookmarksRepository
+                .updateByIdAndUserId(bookmark.getId(), user.getId(),
+                        values));
+
+        Bookmark bm = entityManager.find(Bookmark.class, bookmark.getId());
+        Assert.assertEquals("http://new.com", bm.getUrl());
+        Assert.assertNull(bm.getDescription());
+        Assert.assertEquals(bookmark.getVersion() + 1,
+                bm.getVersion());
+        Assert.assertEquals(Bookmark.hashUrl("http://new.com"),
+                bm.getUrlHash());
+        user = bm.getUser();
+    }
+
+    /**
+     * Test of deleteByIdAndUserId method, of class BookmarksRepository.
+     */
+    @Test
+    public void testDeleteByIdAndUserId() {
+        Assert.assertEquals(0, bookmarksRepository
+                .deleteByIdAndUserId(bookmark.getId(), user.getId() + 1));
+        Assert.assertEquals(1, bookmarksRepository
+                .deleteByIdAndUserId(bookmark.getId(), user.getId()));
+
+        Assert.assertNull(entityManager.find(Bookmark.class,
+                bookmark.getId()));
+        user = entityManager.find(User.class, user.getId());
+        Assert.assertTrue(user.getBookmarks().isEmpty());
+    }
+
+    /**
+     * Test of findIdByUserIdAndUrlHash and findUrlHashesByUserId methods, of
+     * class BookmarksRepository.
+     */
+    @Test
+    public void testFindByUrlHash() {
+        long hash = Bookmark.hashUrl(BM_URL);
+        Assert.assertEquals(bookmark.getId(), bookmarksRepository
+                .findIdByUserIdAndUrlHash(user.getId(), hash));
+        Assert.assertNull(bookmarksRepository
+                .findIdByUserIdAndUrlHash(user.getId(), hash + 1));
+        Assert.assertEquals(Collections.singletonList(hash),
+                bookmarksRepository.findUrlHashesByUserId(user.getId()));
+        String plan = explain("select b.id from bookmarks b"
+                + " where b.user_id = 1 and b.url_hash = 1");
+        Assert.assertTrue(plan, plan.toUpperCase()
+                .contains("BOOKMARKS_USER_ID_URL_HASH_IDX"));
+    }
+
+    /**
+     * The finders of the bookmarks of a user should look them up by the index
+     * on the user id instead of scanning the bookmarks table.
+     */
+    @Test
+    public void testFindersUseUserIdIndex() {
+        String byUsername = "select b.* from bookmarks b"
+                + " inner join users u on b.user_id = u.id"
+                + " where u.username = 'Phil'";
+        assertUsesIndex(explain(byUsername));
+        assertUsesIndex(explain("select count(b.id), sum(b.version),"
+                + " max(b.id) from bookmarks b where b.user_id = 1"));
+        String plan = explain(byUsername + " and b.id = 1");
+        Assert.assertFalse(plan, plan.contains("tableScan"));
+    }
+
+    /**
+     * A method to obtain the query plan of an SQL statement.
+     *
+     * @param sql the statement.
+     * @return the plan.
+     */
+    private String explain(String sql) {
+        return entityManager.getEntityManager()
+                .createNativeQuery("explain " + sql)
+                .getSingleResult().toString();
+    }
+
+    /**
+     * A method to check that bookmarks are found by the user id index.
+     *
+     * @param plan the plan of a query.
+     */
+    private void assertUsesIndex(String plan) {
+        Assert.assertTrue(plan,
+                plan.toUpperCase().contains("BOOKMARKS_USER_ID_ID_IDX"));
+        Assert.assertFalse(plan, plan.contains("tableScan"));
+    }
+
 }
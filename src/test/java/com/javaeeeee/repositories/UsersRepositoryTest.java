@@ -88,29 +88,27 @@ public class UsersRepositoryTest {
     }
 
     /**
-     * Method tests happy path.
+     * Method tests that existsByUsername finds an existent user.
      */
     @Test
-    public void findByUsernameAndPasswordShouldReturnUser() {
+    public void existsByUsernameShouldReturnTrue() {
         final String name = "Phil";
-        final String password = "1";
-        entityManager.persist(new User(name, password));
-        Optional<User> optional = usersRepository.findByUsernameAndPassword(name, password);
+        entityManager.persist(new User(name, "1"));
 
-        Assert.assertTrue(optional.isPresent());
+        Assert.assertTrue(usersRepository.existsByUsername(name));
+        Assert.assertFalse(usersRepository.existsByUsername(name + "mmm"));
     }
 
     /**
-     * Method tests sad path.
+     * Method tests that findIdByUsername finds the id of an existent user.
      */
     @Test
-    public void findByUsernameAndPasswordShouldReturnEmpty() {
+    public void findIdByUsernameShouldReturnId() {
         final String name = "Phil";
-        final String password = "1";
-        entityManager.persist(new User(name, password));
-        Optional<User> optional = usersRepository
-                .findByUsernameAndPassword(name, password + "mmm");
+        User user = entityManager.persist(new User(name, "1"));
 
-        Assert.assertFalse(optional.isPresent());
+        Assert.assertEquals(user.getId(),
+                usersRepository.findIdByUsername(name));
+        Assert.assertNull(usersRepository.findIdByUsername(name + "mmm"));
     }
 }
@@ -0,0 +1,80 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package db.migration;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationVersion;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+/**
+ * A class to test the migration which hashes passwords on an embedded H2
+ * database.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+public class V1_8__Hash_passwordsTest {
+
+    /**
+     * Plain text passwords should be replaced with their hashes, while
+     * hashes should be kept.
+     */
+    @Test
+    public void migrateShouldHashPlainTextPasswords() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:hash-passwords;DB_CLOSE_DELAY=-1", "sa", "");
+        Flyway flyway = new Flyway();
+        flyway.setDataSource(dataSource);
+        flyway.setTarget(MigrationVersion.fromVersion("1.7"));
+        flyway.migrate();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        String hash = new BCryptPasswordEncoder(4).encode("2");
+        jdbcTemplate.update("insert into users values (null, 'Hashed', ?)",
+                hash);
+
+        flyway.setTarget(MigrationVersion.LATEST);
+        flyway.migrate();
+
+        Assert.assertTrue(new BCryptPasswordEncoder().matches("1",
+                password(jdbcTemplate, "Phil")));
+        Assert.assertEquals(hash, password(jdbcTemplate, "Hashed"));
+    }
+
+    /**
+     * A method to read the stored password of a user.
+     *
+     * @param jdbcTemplate the database.
+     * @param username the username.
+     * @return the password.
+     */
+    private static String password(JdbcTemplate jdbcTemplate,
+            String username) {
+        return jdbcTemplate.queryForObject(
+                "select password from users where username = ?",
+                String.class, username);
+    }
+}
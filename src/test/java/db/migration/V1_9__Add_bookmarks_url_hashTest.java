@@ -0,0 +1,91 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2016 Dmitry Noranovich <javaeeeee at gmail dot com>.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package db.migration;
+
+import com.javaeeeee.entities.Bookmark;
+import java.util.List;
+import java.util.Map;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationVersion;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+/**
+ * A class to test the migration which adds URL hashes to bookmarks on an
+ * embedded H2 database.
+ *
+ * @author Dmitry Noranovich <javaeeeee at gmail dot com>
+ */
+public class V1_9__Add_bookmarks_url_hashTest {
+
+    /**
+     * The hashes should be set, duplicates of a user should be deleted except
+     * the oldest one and new duplicates should be rejected.
+     */
+    @Test
+    public void migrateShouldHashUrlsAndDeleteDuplicates() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:url-hash;DB_CLOSE_DELAY=-1", "sa", "");
+        Flyway flyway = new Flyway();
+        flyway.setDataSource(dataSource);
+        flyway.setTarget(MigrationVersion.fromVersion("1.8"));
+        flyway.migrate();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("insert into bookmarks (url, user_id)"
+                + " select 'HTTP://Economist.com:80/', id from users");
+        jdbcTemplate.update("insert into users values (null, 'Ann', '1')");
+        jdbcTemplate.update("insert into bookmarks (url, user_id)"
+                + " select 'http://economist.com', id from users"
+                + " where username = 'Ann'");
+
+        flyway.setTarget(MigrationVersion.LATEST);
+        flyway.migrate();
+
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "select b.url, b.url_hash from bookmarks b"
+                + " join users u on b.user_id = u.id"
+                + " where u.username = 'Phil' order by b.id");
+        Assert.assertEquals(2, rows.size());
+        Assert.assertEquals("http://economist.com", rows.get(0).get("url"));
+        for (Map<String, Object> row : rows) {
+            Assert.assertEquals(Bookmark.hashUrl((String) row.get("url")),
+                    row.get("url_hash"));
+        }
+        Assert.assertEquals(Integer.valueOf(1), jdbcTemplate.queryForObject(
+                "select count(*) from bookmarks b"
+                + " join users u on b.user_id = u.id"
+                + " where u.username = 'Ann'", Integer.class));
+        try {
+            jdbcTemplate.update("insert into bookmarks (url, url_hash, user_id)"
+                    + " select 'http://time.com', ?, id from users"
+                    + " where username = 'Phil'",
+                    Bookmark.hashUrl("http://time.com"));
+            Assert.fail();
+        } catch (DuplicateKeyException ex) {
+        }
+    }
+}